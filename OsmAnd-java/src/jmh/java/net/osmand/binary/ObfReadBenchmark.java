@@ -0,0 +1,140 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.data.Amenity;
+import net.osmand.data.MapObject;
+import net.osmand.util.Algorithms;
+
+/**
+ * Decoding hot paths of {@link BinaryMapIndexReader} on SearchUICoreTest fixtures (src/test/resources/search):
+ * map objects of the whole file, POI and address search by name (first word of test phrase)
+ * with and without resident name index tables.
+ * Throughput and SampleTime (latency percentiles) are reported, allocation rate with -Pjmh.prof=gc.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ObfReadBenchmark {
+
+	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+	private static final int MAP_ZOOM = 15;
+
+	@State(Scope.Thread)
+	public static class Fixtures {
+
+		@Param({ "false", "true" })
+		public boolean cacheNameIndexes;
+
+		List<BinaryMapIndexReader> readers = new ArrayList<>();
+		List<String> queries = new ArrayList<>();
+		List<RandomAccessFile> files = new ArrayList<>();
+		File tmpDir;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			tmpDir = Files.createTempDirectory("obf-bench").toFile();
+			File[] tests = new File(SEARCH_RESOURCES_PATH).listFiles();
+			if (tests == null) {
+				throw new IllegalStateException("No search test resources in " + SEARCH_RESOURCES_PATH);
+			}
+			for (File f : tests) {
+				String name = f.getName();
+				if (!name.endsWith(".json")) {
+					continue;
+				}
+				File gz = new File(f.getParentFile(), name.replace(".json", ".obf.gz"));
+				JSONObject json = new JSONObject(Algorithms.getFileAsString(f));
+				String phrase = json.optString("phrase", null);
+				if (!gz.exists() || Algorithms.isEmpty(phrase) || Algorithms.isEmpty(phrase.trim())) {
+					continue;
+				}
+				File obf = new File(tmpDir, name.replace(".json", ".obf"));
+				GZIPInputStream in = new GZIPInputStream(new FileInputStream(gz));
+				FileOutputStream out = new FileOutputStream(obf);
+				Algorithms.streamCopy(in, out);
+				out.close();
+				in.close();
+				RandomAccessFile raf = new RandomAccessFile(obf, "r");
+				files.add(raf);
+				BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, obf);
+				reader.setCacheNameIndexes(cacheNameIndexes);
+				readers.add(reader);
+				queries.add(phrase.trim().split(" ")[0]);
+			}
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() throws Exception {
+			for (RandomAccessFile raf : files) {
+				raf.close();
+			}
+			Algorithms.removeAllFiles(tmpDir);
+		}
+	}
+
+	@Benchmark
+	public void searchMapIndex(Fixtures fx, Blackhole bh) throws Exception {
+		for (BinaryMapIndexReader reader : fx.readers) {
+			for (MapIndex mi : reader.getMapIndexes()) {
+				for (MapRoot root : mi.getRoots()) {
+					if (root.getMinZoom() <= MAP_ZOOM && MAP_ZOOM <= root.getMaxZoom()) {
+						// whole file at detailed zoom
+						SearchRequest<BinaryMapDataObject> req = BinaryMapIndexReader.buildSearchRequest(root.getLeft(),
+								root.getRight(), root.getTop(), root.getBottom(), MAP_ZOOM, null);
+						bh.consume(reader.searchMapIndex(req, mi));
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void searchPoiByName(Fixtures fx, Blackhole bh) throws Exception {
+		for (int i = 0; i < fx.readers.size(); i++) {
+			SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest(0, 0, fx.queries.get(i), 0,
+					Integer.MAX_VALUE, 0, Integer.MAX_VALUE, null);
+			bh.consume(fx.readers.get(i).searchPoiByName(req));
+		}
+	}
+
+	@Benchmark
+	public void searchAddressByName(Fixtures fx, Blackhole bh) throws Exception {
+		for (int i = 0; i < fx.readers.size(); i++) {
+			SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(null, fx.queries.get(i),
+					StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+			bh.consume(fx.readers.get(i).searchAddressDataByName(req));
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package net.osmand.gpx;
+
+import java.io.File;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import net.osmand.gpx.GPXTrackAnalysis.GPXStreamAnalyser;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+/**
+ * {@link GPXUtilities#loadGPXFile(File)} and track analysis of generated recorded-like track
+ * (1 second interval, elevation, speed), compared with single pass {@link GPXStreamReader} analysis,
+ * analysis of {@link CompactTrkSegment}, parallel analysis of point ranges and reopening of file through {@link GPXBinaryCache}.
+ * Throughput and SampleTime (latency percentiles) are reported, allocation rate with -Pjmh.prof=gc.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GpxBenchmark {
+
+	@State(Scope.Thread)
+	public static class GpxState {
+
+		@Param({ "10000", "100000" })
+		public int points;
+
+		File file;
+		File cacheFile;
+		GPXBinaryCache cache;
+		ExecutorService executor;
+		GPXFile gpx;
+		CompactTrkSegment compact;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			Random rnd = new Random(1);
+			GPXFile g = new GPXFile("benchmark");
+			Track track = new Track();
+			TrkSegment seg = new TrkSegment();
+			double lat = 52.37, lon = 4.89, ele = 10;
+			long time = 1700000000000L;
+			for (int i = 0; i < points; i++) {
+				lat += (rnd.nextDouble() - 0.4) * 0.0001;
+				lon += (rnd.nextDouble() - 0.4) * 0.0001;
+				ele += rnd.nextDouble() - 0.5;
+				time += 1000;
+				seg.points.add(new WptPt(lat, lon, time, ele, rnd.nextDouble() * 15, 5));
+			}
+			track.segments.add(seg);
+			g.tracks.add(track);
+			file = File.createTempFile("benchmark", ".gpx");
+			Exception e = GPXUtilities.writeGpxFile(file, g);
+			if (e != null) {
+				throw e;
+			}
+			gpx = GPXUtilities.loadGPXFile(file);
+			compact = new CompactTrkSegment(gpx.tracks.get(0).segments.get(0));
+			cacheFile = File.createTempFile("benchmark", ".cache");
+			GPXBinaryCache c = new GPXBinaryCache();
+			c.loadGPXFile(file);
+			c.writeToFile(cacheFile);
+			cache = new GPXBinaryCache();
+			cache.readFromFile(cacheFile);
+			executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			file.delete();
+			cacheFile.delete();
+			executor.shutdown();
+		}
+	}
+
+	@Benchmark
+	public GPXFile loadGPXFile(GpxState st) {
+		return GPXUtilities.loadGPXFile(st.file);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis analysis(GpxState st) {
+		return st.gpx.getAnalysis(0);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis parallelAnalysis(GpxState st) throws InterruptedException {
+		return st.gpx.getAnalysis(0, st.executor);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis compactAnalysis(GpxState st) {
+		return new GPXTrackAnalysis().prepareInformation(0, null, st.compact);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis loadAndAnalyse(GpxState st) {
+		return GPXUtilities.loadGPXFile(st.file).getAnalysis(0);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis streamAnalysis(GpxState st) {
+		GPXStreamAnalyser analyser = new GPXStreamAnalyser(null, 0, null);
+		GPXStreamReader.readGpx(st.file, analyser);
+		return analyser.getAnalysis();
+	}
+
+	@Benchmark
+	public GPXFile loadCachedGPXFile(GpxState st) {
+		return st.cache.loadGPXFile(st.file);
+	}
+
+	@Benchmark
+	public GPXTrackAnalysis cachedAnalysis(GpxState st) {
+		return st.cache.getAnalysis(st.file);
+	}
+}
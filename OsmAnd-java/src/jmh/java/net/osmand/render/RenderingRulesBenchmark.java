@@ -0,0 +1,170 @@
+package net.osmand.render;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.binary.BinaryMapIndexReader.MapRoot;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.util.Algorithms;
+
+/**
+ * Rendering rules evaluation of {@link RenderingRuleSearchRequest} with rule trees and compiled rules
+ * ({@link RenderingRulesStorage#compileRules()}) with and without results cache: replays order,
+ * point / line / polygon and text searches for every type of the map objects of one zoom 15 tile
+ * (center tile of first src/test/resources/search obf or -Dobf=file.obf[.gz])
+ * with default.render.xml of repo.dir (or -DrenderingStyle=file.render.xml).
+ * Throughput and SampleTime (latency percentiles) are reported, allocation rate with -Pjmh.prof=gc.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderingRulesBenchmark {
+
+	private static final String SEARCH_RESOURCES_PATH = "src/test/resources/search/";
+	private static final int TILE_ZOOM = 15;
+
+	@State(Scope.Thread)
+	public static class Fixtures {
+
+		@Param({ "false", "true" })
+		public boolean compiled;
+
+		// results cache is used only with compiled rules
+		@Param({ "false", "true" })
+		public boolean cacheResults;
+
+		RenderingRuleSearchRequest req;
+		List<BinaryMapDataObject> objects = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			String style = System.getProperty("renderingStyle",
+					System.getProperty("repo.dir") + "/resources/rendering_styles/default.render.xml");
+			RenderingRulesStorage storage = RenderingRulesStorage.getTestStorageForStyle(style);
+			if (compiled) {
+				storage.compileRules();
+			}
+			req = new RenderingRuleSearchRequest(storage);
+			req.setCacheResults(cacheResults);
+			req.saveState();
+
+			File obf = getObfFile();
+			RandomAccessFile raf = new RandomAccessFile(obf, "r");
+			try {
+				BinaryMapIndexReader reader = new BinaryMapIndexReader(raf, obf);
+				for (MapIndex mi : reader.getMapIndexes()) {
+					for (MapRoot root : mi.getRoots()) {
+						if (root.getMinZoom() <= TILE_ZOOM && TILE_ZOOM <= root.getMaxZoom()) {
+							int shift = 31 - TILE_ZOOM;
+							int left = ((root.getLeft() / 2 + root.getRight() / 2) >> shift) << shift;
+							int top = ((root.getTop() / 2 + root.getBottom() / 2) >> shift) << shift;
+							SearchRequest<BinaryMapDataObject> sr = BinaryMapIndexReader.buildSearchRequest(left,
+									left + (1 << shift), top, top + (1 << shift), TILE_ZOOM, null);
+							objects.addAll(reader.searchMapIndex(sr, mi));
+							break;
+						}
+					}
+				}
+			} finally {
+				raf.close();
+			}
+			if (objects.isEmpty()) {
+				throw new IllegalStateException("No map objects in tile of " + obf);
+			}
+		}
+
+		private File getObfFile() throws Exception {
+			String path = System.getProperty("obf");
+			File file = null;
+			if (path != null) {
+				file = new File(path);
+			} else {
+				File[] tests = new File(SEARCH_RESOURCES_PATH).listFiles();
+				if (tests != null) {
+					for (File f : tests) {
+						if (f.getName().endsWith(".obf.gz") && (file == null || f.getName().compareTo(file.getName()) < 0)) {
+							file = f;
+						}
+					}
+				}
+			}
+			if (file == null || !file.exists()) {
+				throw new IllegalStateException("No obf file in " + SEARCH_RESOURCES_PATH + " (use -Dobf=)");
+			}
+			if (!file.getName().endsWith(".gz")) {
+				return file;
+			}
+			File obf = File.createTempFile("render-bench", ".obf");
+			obf.deleteOnExit();
+			GZIPInputStream in = new GZIPInputStream(new FileInputStream(file));
+			FileOutputStream out = new FileOutputStream(obf);
+			Algorithms.streamCopy(in, out);
+			out.close();
+			in.close();
+			return obf;
+		}
+	}
+
+	@Benchmark
+	public void renderTile(Fixtures fx, Blackhole bh) {
+		RenderingRuleSearchRequest req = fx.req;
+		RenderingRuleStorageProperties props = req.ALL;
+		for (BinaryMapDataObject obj : fx.objects) {
+			boolean point = obj.getPointsLength() == 1;
+			int state = point ? RenderingRulesStorage.POINT_RULES
+					: obj.isArea() ? RenderingRulesStorage.POLYGON_RULES : RenderingRulesStorage.LINE_RULES;
+			boolean named = !Algorithms.isEmpty(obj.getName());
+			for (int type : obj.getTypes()) {
+				TagValuePair pair = obj.getMapIndex().decodeType(type);
+				if (pair == null) {
+					continue;
+				}
+				req.setInitialTagValueZoom(pair.tag, pair.value, TILE_ZOOM, obj);
+				req.setIntFilter(props.R_LAYER, obj.getSimpleLayer());
+				req.setBooleanFilter(props.R_AREA, obj.isArea());
+				req.setBooleanFilter(props.R_POINT, point);
+				req.setBooleanFilter(props.R_CYCLE, obj.isCycle());
+				if (req.search(RenderingRulesStorage.ORDER_RULES)) {
+					bh.consume(req.getIntPropertyValue(props.R_ORDER));
+					bh.consume(req.getIntPropertyValue(props.R_OBJECT_TYPE));
+				}
+				req.setInitialTagValueZoom(pair.tag, pair.value, TILE_ZOOM, obj);
+				if (req.search(state)) {
+					bh.consume(req.getIntPropertyValue(props.R_COLOR));
+				}
+				if (named) {
+					req.setInitialTagValueZoom(pair.tag, pair.value, TILE_ZOOM, obj);
+					if (req.search(RenderingRulesStorage.TEXT_RULES)) {
+						bh.consume(req.getFloatPropertyValue(props.R_TEXT_SIZE));
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+
+/**
+ * Routing hot paths on RouteTestingTest fixtures ({@link RoutingFixtures}):
+ * A* of {@link BinaryRoutePlanner}, {@link HHRoutePlanner#runRouting} (only fixtures with HH sections)
+ * and {@link RouteResultPreparation#prepareResult} of already calculated routes.
+ * Throughput and SampleTime (latency percentiles) are reported, allocation rate with -Pjmh.prof=gc.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RoutingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class CalculatedRoutes {
+
+		List<RoutingContext> contexts = new ArrayList<>();
+
+		@Setup(Level.Trial)
+		public void setup(RoutingFixtures fx) throws Exception {
+			RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+			for (int i = 0; i < fx.entries.size(); i++) {
+				TestEntry te = fx.entries.get(i);
+				RoutingContext ctx = fx.buildContext(fe, i);
+				fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint());
+				if (ctx.finalRouteSegment != null) {
+					contexts.add(ctx);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void binaryRoutePlanner(RoutingFixtures fx, Blackhole bh) throws Exception {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		for (int i = 0; i < fx.entries.size(); i++) {
+			TestEntry te = fx.entries.get(i);
+			RoutingContext ctx = fx.buildContext(fe, i);
+			bh.consume(fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint()));
+		}
+	}
+
+	@Benchmark
+	public void hhRoutePlanner(RoutingFixtures fx, Blackhole bh) throws Exception {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		for (int i = 0; i < fx.entries.size(); i++) {
+			if (!fx.hasHHRouting(i)) {
+				continue;
+			}
+			TestEntry te = fx.entries.get(i);
+			RoutingContext ctx = fx.buildContext(fe, i);
+			HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(ctx);
+			HHRoutingConfig config = RoutePlannerFrontEnd.defaultHHConfig();
+			bh.consume(planner.runRouting(te.getStartPoint(), te.getEndPoint(), config));
+		}
+	}
+
+	@Benchmark
+	public void prepareResult(CalculatedRoutes routes, Blackhole bh) throws Exception {
+		RouteResultPreparation rrp = new RouteResultPreparation();
+		for (RoutingContext ctx : routes.contexts) {
+			List<RouteSegmentResult> result = rrp.convertFinalSegmentToResults(ctx, ctx.finalRouteSegment);
+			bh.consume(rrp.prepareResult(ctx, result));
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import com.google.gson.Gson;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutePlannerFrontEnd.RouteCalculationMode;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * RouteTestingTest fixtures (test_routing.json entries with expected results) with their maps,
+ * shared by routing benchmarks.
+ */
+@State(Scope.Benchmark)
+public class RoutingFixtures {
+
+	private static final String TEST_RESOURCES = "src/test/resources/";
+
+	final List<TestEntry> entries = new ArrayList<>();
+	final List<BinaryMapIndexReader[]> readers = new ArrayList<>();
+	private final List<RandomAccessFile> files = new ArrayList<>();
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		RouteResultPreparation.PRINT_TO_CONSOLE_ROUTE_INFORMATION_TO_TEST = false;
+		Reader reader = new InputStreamReader(RoutingFixtures.class.getResourceAsStream("/test_routing.json"));
+		TestEntry[] testEntries = new Gson().fromJson(reader, TestEntry[].class);
+		reader.close();
+		for (TestEntry te : testEntries) {
+			if (te.isIgnore() || te.getExpectedResults() == null) {
+				continue;
+			}
+			List<BinaryMapIndexReader> rs = new ArrayList<>();
+			Map<String, String> params = te.getParams();
+			if (params.containsKey("map")) {
+				rs.add(open(TEST_RESOURCES + "routing/" + params.get("map")));
+			}
+			rs.add(open(TEST_RESOURCES + "routing/Routing_test_archive.obf"));
+			entries.add(te);
+			readers.add(rs.toArray(new BinaryMapIndexReader[0]));
+		}
+	}
+
+	private BinaryMapIndexReader open(String fl) throws Exception {
+		RandomAccessFile raf = new RandomAccessFile(fl, "r");
+		files.add(raf);
+		return new BinaryMapIndexReader(raf, new File(fl));
+	}
+
+	boolean hasHHRouting(int i) {
+		for (BinaryMapIndexReader r : readers.get(i)) {
+			if (!r.getHHRoutingIndexes().isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	RoutingConfiguration buildConfig(int i) {
+		Map<String, String> params = entries.get(i).getParams();
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build(
+				params.containsKey("vehicle") ? params.get("vehicle") : "car", memoryLimits, params);
+		if (params.containsKey("heuristicCoefficient")) {
+			config.heuristicCoefficient = Float.parseFloat(params.get("heuristicCoefficient"));
+		}
+		return config;
+	}
+
+	RoutingContext buildContext(RoutePlannerFrontEnd fe, int i) {
+		return buildContext(fe, i, buildConfig(i));
+	}
+
+	RoutingContext buildContext(RoutePlannerFrontEnd fe, int i, RoutingConfiguration config) {
+		RoutingContext ctx = fe.buildRoutingContext(config, null, readers.get(i), RouteCalculationMode.NORMAL);
+		ctx.leftSideNavigation = false;
+		return ctx;
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		for (RandomAccessFile raf : files) {
+			raf.close();
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package net.osmand.router;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import net.osmand.router.BinaryRoutePlanner.PriorityQueueSegments;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.SegmentsQueue;
+
+/**
+ * Compares {@link PriorityQueueSegments} and {@link RouteSegmentHeap}:
+ * synthetic A*-like push/poll pattern and full routing of RouteTestingTest fixtures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentsQueueBenchmark {
+
+	@State(Scope.Thread)
+	public static class QueueState {
+
+		@Param({ "priorityQueue", "primitiveHeap" })
+		public String queue;
+
+		@Param({ "1000000" })
+		public int operations;
+
+		RouteSegment[] segments;
+		float[] costs;
+		boolean[] polls;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			Random rnd = new Random(1);
+			segments = new RouteSegment[operations];
+			costs = new float[operations];
+			polls = new boolean[operations];
+			float frontier = 0;
+			for (int i = 0; i < operations; i++) {
+				segments[i] = new RouteSegment(null, 0, 1);
+				// A* frontier grows slowly, ~2.5 pushes per poll
+				polls[i] = rnd.nextInt(5) < 2;
+				frontier += rnd.nextFloat() * 0.01f;
+				costs[i] = frontier + rnd.nextFloat() * 50;
+			}
+		}
+
+		SegmentsQueue create() {
+			return "primitiveHeap".equals(queue) ? new RouteSegmentHeap() : new PriorityQueueSegments();
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class RoutingState {
+
+		@Param({ "false", "true" })
+		public boolean primitiveSegmentsQueue;
+	}
+
+	@Benchmark
+	public int syntheticQueue(QueueState st) {
+		SegmentsQueue q = st.create();
+		int polled = 0;
+		for (int i = 0; i < st.operations; i++) {
+			q.add(st.segments[i], st.costs[i]);
+			if (st.polls[i] && q.poll() != null) {
+				polled++;
+			}
+		}
+		while (q.poll() != null) {
+			polled++;
+		}
+		return polled;
+	}
+
+	@Benchmark
+	public void routeTestingFixtures(RoutingState st, RoutingFixtures fx, Blackhole bh) throws Exception {
+		RoutePlannerFrontEnd fe = new RoutePlannerFrontEnd();
+		for (int i = 0; i < fx.entries.size(); i++) {
+			TestEntry te = fx.entries.get(i);
+			RoutingConfiguration config = fx.buildConfig(i);
+			config.primitiveSegmentsQueue = st.primitiveSegmentsQueue;
+			RoutingContext ctx = fx.buildContext(fe, i, config);
+			bh.consume(fe.searchRoute(ctx, te.getStartPoint(), te.getEndPoint(), te.getTransitPoint()));
+		}
+	}
+}
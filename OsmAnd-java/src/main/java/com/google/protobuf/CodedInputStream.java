@@ -33,6 +33,7 @@ package com.google.protobuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -68,6 +69,16 @@ public final class CodedInputStream {
     return new CodedInputStream(raf);
   }
 
+  /**
+   * Create a new CodedInputStream reading a file mapped as consecutive chunks of
+   * {@code chunkSize} bytes (the last one can be shorter). Buffers are duplicated,
+   * so each stream has its own cursor and many streams can read the same mapping
+   * from different threads.
+   */
+  public static CodedInputStream newInstance(ByteBuffer[] chunks, long chunkSize, long length) {
+    return new CodedInputStream(chunks, chunkSize, length);
+  }
+
   /**
    * Create a new CodedInputStream wrapping the given byte array slice.
    */
@@ -539,6 +550,11 @@ public final class CodedInputStream {
 
   private final byte[] buffer;
   private RandomAccessFile raf;
+  // osmand change: mapped file source
+  private ByteBuffer[] mapped;
+  private long mappedChunkSize;
+  private long mappedLength;
+  private long mappedPointer;
   private int bufferSize;
   private int bufferSizeAfterLimit;
   private int bufferPos;
@@ -589,6 +605,22 @@ public final class CodedInputStream {
 		input = null;
 	}
 
+   // osmand change
+   private CodedInputStream(final ByteBuffer[] chunks, long chunkSize, long length) {
+		buffer = new byte[BUFFER_SIZE];
+		this.bufferSize = 0;
+		bufferPos = 0;
+		totalBytesRetired = 0;
+		mapped = new ByteBuffer[chunks.length];
+		for (int i = 0; i < chunks.length; i++) {
+			mapped[i] = chunks[i].duplicate();
+		}
+		mappedChunkSize = chunkSize;
+		mappedLength = length;
+		mappedPointer = 0;
+		input = null;
+	}
+
   private CodedInputStream(final InputStream input) {
     buffer = new byte[BUFFER_SIZE];
     bufferSize = 0;
@@ -767,13 +799,13 @@ public final class CodedInputStream {
     totalBytesRetired += bufferSize;
 
     bufferPos = 0;
-    if (raf != null) {
+    if (raf != null || mapped != null) {
     	// osmand change
-    	totalBytesRetired = raf.getFilePointer();
-    	long remain = raf.length() - raf.getFilePointer();
+    	totalBytesRetired = getFilePointer();
+    	long remain = getFileLength() - totalBytesRetired;
     	bufferSize = (int) Math.min(remain, buffer.length);
     	if(bufferSize > 0) {
-    		raf.readFully(buffer, 0, bufferSize);
+    		readFileFully(buffer, 0, bufferSize);
     	} else {
     		bufferSize = -1;
     	}
@@ -895,8 +927,8 @@ public final class CodedInputStream {
         while (pos < chunk.length) {
         	final int n;
         	// osmand change
-        	if(raf != null) {
-        		raf.readFully(chunk, pos, chunk.length - pos);
+        	if(raf != null || mapped != null) {
+        		readFileFully(chunk, pos, chunk.length - pos);
         		n = chunk.length - pos;
         	} else {
         		n = (input == null) ? -1 :
@@ -957,11 +989,11 @@ public final class CodedInputStream {
       long pos = bufferSize - bufferPos;
       bufferPos = bufferSize;
 
-      if(raf != null) {
+      if(raf != null || mapped != null) {
          bufferPos = 0;
          bufferSize = 0;
-         raf.seek(raf.getFilePointer() + (size - pos));
-         totalBytesRetired = raf.getFilePointer();
+         seekFile(getFilePointer() + (size - pos));
+         totalBytesRetired = getFilePointer();
       } else {
         // Keep refilling the buffer until we get to the point we wanted to skip
         // to.  This has the side effect of ensuring the limits are updated
@@ -987,9 +1019,46 @@ public final class CodedInputStream {
 	  } else {
 		  totalBytesRetired = pointer;
 		  bufferSizeAfterLimit = 0;
-		  raf.seek(pointer);
+		  seekFile(pointer);
 		  bufferPos = 0;
 		  bufferSize = 0;
 	  }
   }
+
+  // osmand change: random access over file or mapped chunks
+  private long getFilePointer() throws IOException {
+	  return mapped != null ? mappedPointer : raf.getFilePointer();
+  }
+
+  private long getFileLength() throws IOException {
+	  return mapped != null ? mappedLength : raf.length();
+  }
+
+  private void seekFile(long pointer) throws IOException {
+	  if (mapped != null) {
+		  mappedPointer = pointer;
+	  } else {
+		  raf.seek(pointer);
+	  }
+  }
+
+  private void readFileFully(byte[] b, int off, int len) throws IOException {
+	  if (mapped == null) {
+		  raf.readFully(b, off, len);
+		  return;
+	  }
+	  if (mappedPointer + len > mappedLength) {
+		  throw InvalidProtocolBufferException.truncatedMessage();
+	  }
+	  while (len > 0) {
+		  ByteBuffer chunk = mapped[(int) (mappedPointer / mappedChunkSize)];
+		  int chunkPos = (int) (mappedPointer % mappedChunkSize);
+		  int n = Math.min(len, chunk.limit() - chunkPos);
+		  chunk.position(chunkPos);
+		  chunk.get(b, off, n);
+		  off += n;
+		  len -= n;
+		  mappedPointer += n;
+	  }
+  }
 }
@@ -55,6 +55,7 @@ public class BinaryMapAddressReaderAdapter {
 		List<CitiesBlock> cities = new ArrayList<BinaryMapAddressReaderAdapter.CitiesBlock>();
 
 		LatLon calculatedCenter = null;
+		volatile CachedIndexedStringTable nameIndexTable;
 		int bottom31;
 		int top31;
 		int right31;
@@ -600,18 +601,58 @@ public class BinaryMapAddressReaderAdapter {
 		}
 	}
 
-	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
-		TIntArrayList loffsets = new TIntArrayList();
-		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+	private CityMatcher createCityPostcodeMatcher(SearchRequest<MapObject> req, CollatorStringMatcher stringMatcher) {
 		String postcode = Postcode.normalize(req.nameQuery, map.getCountryName());
 		final CityMatcher postcodeMatcher = new DefaultCityMatcher(new CollatorStringMatcher(postcode, req.matcherMode));
 		final CityMatcher cityMatcher = new DefaultCityMatcher(stringMatcher);
-		final CityMatcher cityPostcodeMatcher = new CityMatcher() {
+		return new CityMatcher() {
 			@Override
 			public boolean matches(City city) {
 				return city.isPostcode() ? postcodeMatcher.matches(city) : cityMatcher.matches(city);
 			}
 		};
+	}
+
+	private boolean matchesStreetName(CollatorStringMatcher stringMatcher, Street s) {
+		boolean matches = stringMatcher.matches(s.getName());
+		if (!matches) {
+			for (String n : s.getOtherNames()) {
+				matches = stringMatcher.matches(n);
+				if (matches) {
+					break;
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Publishes objects found by previous search by name which match name query of request,
+	 * same checks are used as in {@link #searchAddressDataByName} (raw data is not collected)
+	 */
+	public void filterAddressDataByName(List<MapObject> objects, SearchRequest<MapObject> req) {
+		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		CityMatcher cityPostcodeMatcher = createCityPostcodeMatcher(req, stringMatcher);
+		for (MapObject o : objects) {
+			if (req.isCancelled()) {
+				return;
+			}
+			boolean matches;
+			if (o instanceof Street) {
+				matches = matchesStreetName(stringMatcher, (Street) o);
+			} else {
+				matches = o instanceof City && cityPostcodeMatcher.matches((City) o);
+			}
+			if (matches) {
+				req.publish(o);
+			}
+		}
+	}
+
+	public void searchAddressDataByName(AddressRegion reg, SearchRequest<MapObject> req, List<Integer> typeFilter) throws IOException {
+		TIntArrayList loffsets = new TIntArrayList();
+		CollatorStringMatcher stringMatcher = new CollatorStringMatcher(req.nameQuery, req.matcherMode);
+		CityMatcher cityPostcodeMatcher = createCityPostcodeMatcher(req, stringMatcher);
 		long time = System.currentTimeMillis();
 		long indexOffset = 0;
 		while (true) {
@@ -630,7 +671,11 @@ public class BinaryMapAddressReaderAdapter {
 				// here offsets are sorted by distance
 				TIntArrayList charsList = new TIntArrayList();
 				charsList.add(0);
-				map.readIndexedStringTable(stringMatcher.getCollator(), Collections.singletonList(req.nameQuery), "", Collections.singletonList(loffsets), charsList);
+				CachedIndexedStringTable table = map.searchIndexedStringTable(reg.nameIndexTable, stringMatcher.getCollator(),
+						Collections.singletonList(req.nameQuery), Collections.singletonList(loffsets), charsList);
+				if (table != null) {
+					reg.nameIndexTable = table;
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmAndAddressNameIndexData.ATOM_FIELD_NUMBER:
@@ -708,16 +753,7 @@ public class BinaryMapAddressReaderAdapter {
 										MapUtils.get31TileNumberY(l.getLatitude()) >> 7, obj.isPostcode() ? obj.getName() : null,
 										reg.attributeTagsTable);
 								publishRawData(req, s);
-								boolean matches = stringMatcher.matches(s.getName());
-								if (!matches) {
-									for (String n : s.getOtherNames()) {
-										matches = stringMatcher.matches(n);
-										if (matches) {
-											break;
-										}
-									}
-								}
-								if (matches) {
+								if (matchesStreetName(stringMatcher, s)) {
 									req.publish(s);
 								}
 								codedIS.popLimit(old);
@@ -107,6 +107,7 @@ public class BinaryMapIndexReader {
 	
 	
 	private final RandomAccessFile raf;
+	private final BinaryMappedFile mappedFile;
 	protected final File file;
 	/*private*/ int version;
 	/*private*/ long dateCreated;
@@ -121,6 +122,7 @@ public class BinaryMapIndexReader {
 	/*private*/ List<HHRouteRegion> hhIndexes = new ArrayList<HHRouteRegion>();
 	/*private*/ List<BinaryIndexPart> indexes = new ArrayList<BinaryIndexPart>();
 	TLongObjectHashMap<IncompleteTransportRoute> incompleteTransportRoutes = null;
+	private boolean cacheNameIndexes = false;
 	
 	protected CodedInputStream codedIS;
 
@@ -133,46 +135,56 @@ public class BinaryMapIndexReader {
 	private static final String BASEMAP_NAME = "basemap";
 
 
-	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
+	private BinaryMapIndexReader(RandomAccessFile raf, BinaryMappedFile mappedFile, File file) {
 		this.raf = raf;
+		this.mappedFile = mappedFile;
 		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		if (mappedFile != null) {
+			codedIS = mappedFile.newCodedInputStream();
+		} else {
+			codedIS = CodedInputStream.newInstance(raf);
+			codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		}
 		transportAdapter = new BinaryMapTransportReaderAdapter(this);
 		addressAdapter = new BinaryMapAddressReaderAdapter(this);
 		poiAdapter = new BinaryMapPoiReaderAdapter(this);
 		routeAdapter = new BinaryMapRouteReaderAdapter(this);
 		hhAdapter = new BinaryHHRouteReaderAdapter(this);
+	}
+
+	public BinaryMapIndexReader(final RandomAccessFile raf, File file) throws IOException {
+		this(raf, null, file);
 		init();
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, File file, boolean init) throws IOException {
-		this.raf = raf;
-		this.file = file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
-		transportAdapter = new BinaryMapTransportReaderAdapter(this);
-		addressAdapter = new BinaryMapAddressReaderAdapter(this);
-		poiAdapter = new BinaryMapPoiReaderAdapter(this);
-		routeAdapter = new BinaryMapRouteReaderAdapter(this);
-		hhAdapter = new BinaryHHRouteReaderAdapter(this);
+		this(raf, null, file);
 		if (init) {
 			init();
 		}
 	}
 
 	public BinaryMapIndexReader(final RandomAccessFile raf, BinaryMapIndexReader referenceToSameFile) throws IOException {
-		this.raf = raf;
-		this.file = referenceToSameFile.file;
-		codedIS = CodedInputStream.newInstance(raf);
-		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		this(raf, null, referenceToSameFile.file);
+		copyIndexStructure(referenceToSameFile);
+	}
+
+	public BinaryMapIndexReader(BinaryMappedFile mappedFile, boolean init) throws IOException {
+		this(null, mappedFile, mappedFile.getFile());
+		if (init) {
+			init();
+		}
+	}
+
+	public BinaryMapIndexReader(BinaryMappedFile mappedFile, BinaryMapIndexReader referenceToSameFile) throws IOException {
+		this(null, mappedFile, referenceToSameFile.file);
+		copyIndexStructure(referenceToSameFile);
+	}
+
+	private void copyIndexStructure(BinaryMapIndexReader referenceToSameFile) {
 		version = referenceToSameFile.version;
 		dateCreated = referenceToSameFile.dateCreated;
-		transportAdapter = new BinaryMapTransportReaderAdapter(this);
-		addressAdapter = new BinaryMapAddressReaderAdapter(this);
-		poiAdapter = new BinaryMapPoiReaderAdapter(this);
-		routeAdapter = new BinaryMapRouteReaderAdapter(this);
-		hhAdapter = new BinaryHHRouteReaderAdapter(this);
+		cacheNameIndexes = referenceToSameFile.cacheNameIndexes;
 		mapIndexes = new ArrayList<BinaryMapIndexReader.MapIndex>(referenceToSameFile.mapIndexes);
 		poiIndexes = new ArrayList<PoiRegion>(referenceToSameFile.poiIndexes);
 		addressIndexes = new ArrayList<AddressRegion>(referenceToSameFile.addressIndexes);
@@ -189,6 +201,18 @@ public class BinaryMapIndexReader {
 		return dateCreated;
 	}
 
+	public boolean isCacheNameIndexes() {
+		return cacheNameIndexes;
+	}
+
+	/**
+	 * Keep name index tables of POI and address sections in memory after first search by name
+	 * (tables are stored in regions, so they are shared with readers created as reference to same file)
+	 */
+	public void setCacheNameIndexes(boolean cacheNameIndexes) {
+		this.cacheNameIndexes = cacheNameIndexes;
+	}
+
 	public OsmAndOwner getOwner() {
 		return owner;
 	}
@@ -455,6 +479,10 @@ public class BinaryMapIndexReader {
 		return raf;
 	}
 
+	public BinaryMappedFile getMappedFile() {
+		return mappedFile;
+	}
+
 	public File getFile() {
 		return file;
 	}
@@ -1397,6 +1425,15 @@ public class BinaryMapIndexReader {
 		return searchAddressDataByName(req, null);
 	}
 
+	/**
+	 * Filters objects found by {@link #searchAddressDataByName(SearchRequest)} of this file with name query of request
+	 * without reading the file, query should continue query of the previous search
+	 */
+	public List<MapObject> filterAddressDataByName(List<MapObject> objects, SearchRequest<MapObject> req) {
+		addressAdapter.filterAddressDataByName(objects, req);
+		return req.getSearchResults();
+	}
+
 	public void initCategories(PoiRegion poiIndex) throws IOException {
 		poiAdapter.initCategories(poiIndex);
 	}
@@ -1421,6 +1458,18 @@ public class BinaryMapIndexReader {
 		return req.getSearchResults();
 	}
 
+	/**
+	 * Filters amenities found by {@link #searchPoiByName} of this file with name query of request
+	 * without reading the file, query should continue query of the previous search
+	 */
+	public List<Amenity> filterPoiByName(List<Amenity> amenities, SearchRequest<Amenity> req) {
+		if (req.nameQuery == null || req.nameQuery.length() == 0) {
+			throw new IllegalArgumentException();
+		}
+		poiAdapter.filterPoiByName(amenities, req);
+		return req.getSearchResults();
+	}
+
 	public Map<PoiCategory, List<String>> searchPoiCategoriesByName(String query, Map<PoiCategory, List<String>> map) throws IOException {
 		if (query == null || query.length() == 0) {
 			throw new IllegalArgumentException();
@@ -1695,7 +1744,9 @@ public class BinaryMapIndexReader {
 
 	public void close() throws IOException {
 		if (codedIS != null) {
-			raf.close();
+			if (raf != null) {
+				raf.close();
+			}
 			codedIS = null;
 			mapIndexes.clear();
 			addressIndexes.clear();
@@ -2555,6 +2606,62 @@ public class BinaryMapIndexReader {
 		}
 	}
 
+	/**
+	 * Searches name index table (codedIS should be positioned at the table start with the table limit pushed),
+	 * if caching is enabled whole table is read once and kept in given holder.
+	 */
+	CachedIndexedStringTable searchIndexedStringTable(CachedIndexedStringTable cached, Collator instance,
+			List<String> queries, List<TIntArrayList> listOffsets, TIntArrayList matchedCharacters) throws IOException {
+		if (!cacheNameIndexes) {
+			readIndexedStringTable(instance, queries, "", listOffsets, matchedCharacters);
+			return null;
+		}
+		if (cached == null) {
+			CachedIndexedStringTable.Builder builder = new CachedIndexedStringTable.Builder();
+			readFullIndexedStringTable(builder, 0);
+			cached = builder.build();
+		} else {
+			codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+		}
+		cached.search(instance, queries, listOffsets, matchedCharacters);
+		return cached;
+	}
+
+	private void readFullIndexedStringTable(CachedIndexedStringTable.Builder builder, int depth) throws IOException {
+		int key = -1;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+			case 0:
+				return;
+			case OsmandOdb.IndexedStringTable.KEY_FIELD_NUMBER :
+				key = builder.addKey(codedIS.readString(), depth);
+				break;
+			case OsmandOdb.IndexedStringTable.VAL_FIELD_NUMBER :
+				int val = (int) readInt();
+				if (key != -1) {
+					builder.addValue(key, val);
+				}
+				break;
+			case OsmandOdb.IndexedStringTable.SUBTABLES_FIELD_NUMBER :
+				long len = codedIS.readRawVarint32();
+				long oldLim = codedIS.pushLimitLong((long) len);
+				if (key != -1) {
+					readFullIndexedStringTable(builder, depth + 1);
+					builder.subtableFinished(key);
+				} else {
+					codedIS.skipRawBytes(codedIS.getBytesUntilLimit());
+				}
+				codedIS.popLimit(oldLim);
+				break;
+			default:
+				skipUnknownField(t);
+				break;
+			}
+		}
+	}
+
 	private static void testAddressSearchByName(BinaryMapIndexReader reader) throws IOException {
 		SearchRequest<MapObject> req = buildAddressByNameRequest(new ResultMatcher<MapObject>() {
 			@Override
@@ -62,6 +62,7 @@ public class BinaryMapPoiReaderAdapter {
 		int right31;
 		int top31;
 		int bottom31;
+		volatile CachedIndexedStringTable nameIndexTable;
 		
 		public int getLeft31() {
 			return left31;
@@ -317,7 +318,7 @@ public class BinaryMapPoiReaderAdapter {
 				long length = readInt();
 				long oldLimit = codedIS.pushLimitLong((long) length);
 				// here offsets are sorted by distance
-				offsets = readPoiNameIndex(matcher.getCollator(), query, req);
+				offsets = readPoiNameIndex(matcher.getCollator(), query, req, region);
 				codedIS.popLimit(oldLimit);
 				break;
 			case OsmandOdb.OsmAndPoiIndex.POIDATA_FIELD_NUMBER:
@@ -372,7 +373,7 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
-	private TIntLongHashMap readPoiNameIndex(Collator instance, String query, SearchRequest<Amenity> req) throws IOException {
+	private TIntLongHashMap readPoiNameIndex(Collator instance, String query, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
 		TIntLongHashMap offsets = new TIntLongHashMap();
 		List<TIntArrayList> listOffsets = null;
 		List<TIntLongHashMap> listOfSepOffsets = new ArrayList<TIntLongHashMap>();
@@ -394,7 +395,11 @@ public class BinaryMapPoiReaderAdapter {
 					charsList.add(0);
 					listOffsets.add(new TIntArrayList());
 				}
-				map.readIndexedStringTable(instance, queries, "", listOffsets, charsList);
+				CachedIndexedStringTable table = map.searchIndexedStringTable(region.nameIndexTable, instance, queries,
+						listOffsets, charsList);
+				if (table != null) {
+					region.nameIndexTable = table;
+				}
 				codedIS.popLimit(oldLimit);
 				break;
 			}
@@ -567,6 +572,49 @@ public class BinaryMapPoiReaderAdapter {
 		}
 	}
 
+	private boolean matchesName(CollatorStringMatcher matcher, Amenity am) {
+		boolean matches = matcher.matches(am.getName().toLowerCase())
+				|| matcher.matches(am.getEnName(true).toLowerCase());
+		if (!matches) {
+			for (String s : am.getOtherNames()) {
+				matches = matcher.matches(s.toLowerCase());
+				if (matches) {
+					break;
+				}
+			}
+			if (!matches) {
+				for (String key : am.getAdditionalInfoKeys()) {
+					if (!key.contains("_name") && !key.equals("brand")) {
+						continue;
+					}
+					matches = matcher.matches(am.getAdditionalInfo(key));
+					if (matches) {
+						break;
+					}
+				}
+			}
+		}
+		return matches;
+	}
+
+	/**
+	 * Publishes amenities found by previous search by name which match name query of request,
+	 * same checks are used as in {@link #searchPoiByName} (raw data is not collected)
+	 */
+	protected void filterPoiByName(List<Amenity> amenities, SearchRequest<Amenity> req) {
+		String query = normalizeSearchPoiByNameQuery(req.nameQuery);
+		CollatorStringMatcher matcher = new CollatorStringMatcher(query,
+				StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+		for (Amenity am : amenities) {
+			if (req.isCancelled() || req.limitExceeded()) {
+				return;
+			}
+			if (matchesName(matcher, am)) {
+				req.publish(am);
+			}
+		}
+	}
+
 	private void readPoiData(CollatorStringMatcher matcher, SearchRequest<Amenity> req, PoiRegion region) throws IOException {
 		int x = 0;
 		int y = 0;
@@ -595,28 +643,7 @@ public class BinaryMapPoiReaderAdapter {
 				Amenity am = readPoiPoint(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, x, y, zoom, req, region, false);
 				codedIS.popLimit(oldLim);
 				if (am != null) {
-					boolean matches = matcher.matches(am.getName().toLowerCase())
-							|| matcher.matches(am.getEnName(true).toLowerCase());
-					if (!matches) {
-						for (String s : am.getOtherNames()) {
-							matches = matcher.matches(s.toLowerCase());
-							if (matches) {
-								break;
-							}
-						}
-						if (!matches) {
-							for (String key : am.getAdditionalInfoKeys()) {
-								if (!key.contains("_name") && !key.equals("brand")) {
-									continue;
-								}
-								matches = matcher.matches(am.getAdditionalInfo(key));
-								if (matches) {
-									break;
-								}
-							}
-						}
-					}
-					if (matches) {
+					if (matchesName(matcher, am)) {
 						req.collectRawData(am);
 						req.publish(am);
 					}
@@ -0,0 +1,96 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+import com.google.protobuf.CodedInputStream;
+
+/**
+ * Read-only memory mapping of an obf file shared between many {@link BinaryMapIndexReader}s.
+ * Mapping is split into chunks because single {@link MappedByteBuffer} can't exceed 2 GB.
+ * File handle is closed right after mapping, mapped pages stay valid until buffers are collected.
+ * Every reader gets its own {@link CodedInputStream} cursor, so readers of one mapping
+ * can be used from different threads (single reader is still not thread-safe).
+ */
+public class BinaryMappedFile {
+
+	public static final long DEFAULT_CHUNK_SIZE = 1L << 30;
+
+	private final File file;
+	private final long length;
+	private final long chunkSize;
+	private final ByteBuffer[] chunks;
+	private volatile boolean closed;
+
+	public BinaryMappedFile(File file) throws IOException {
+		this(file, DEFAULT_CHUNK_SIZE);
+	}
+
+	public BinaryMappedFile(File file, long chunkSize) throws IOException {
+		if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Illegal chunk size " + chunkSize);
+		}
+		this.file = file;
+		this.chunkSize = chunkSize;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			length = channel.size();
+			int cnt = (int) ((length + chunkSize - 1) / chunkSize);
+			chunks = new ByteBuffer[cnt];
+			for (int i = 0; i < cnt; i++) {
+				long start = i * chunkSize;
+				chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, length - start));
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	public File getFile() {
+		return file;
+	}
+
+	public long length() {
+		return length;
+	}
+
+	public CodedInputStream newCodedInputStream() {
+		if (closed) {
+			throw new IllegalStateException("Mapping is closed " + file.getName());
+		}
+		CodedInputStream codedIS = CodedInputStream.newInstance(chunks, chunkSize, length);
+		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		return codedIS;
+	}
+
+	/**
+	 * Creates and initializes reader of the mapped file
+	 */
+	public BinaryMapIndexReader createReader() throws IOException {
+		return new BinaryMapIndexReader(this, true);
+	}
+
+	/**
+	 * Creates cheap reader with own cursor reusing already read index structure (no file parsing)
+	 */
+	public BinaryMapIndexReader createReader(BinaryMapIndexReader referenceToSameFile) throws IOException {
+		return new BinaryMapIndexReader(this, referenceToSameFile);
+	}
+
+	/**
+	 * Drops references to mapped buffers, so mapping is released by garbage collector even if this object is still
+	 * referenced (mapped buffers can't be unmapped explicitly). New streams can't be created after close and
+	 * already created streams and readers must not be used.
+	 */
+	public void close() {
+		closed = true;
+		Arrays.fill(chunks, null);
+	}
+
+}
@@ -0,0 +1,147 @@
+package net.osmand.binary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.Collator;
+import net.osmand.CollatorStringMatcher;
+import net.osmand.CollatorStringMatcher.StringMatcherMode;
+
+/**
+ * Resident copy of obf IndexedStringTable (name index of POI and address sections).
+ * Keys are stored in file (depth first) order as key parts relative to the parent key in one char array,
+ * so lookup is done without reading and decoding the table again and gives same offsets
+ * as {@link BinaryMapIndexReader#readIndexedStringTable}.
+ */
+public class CachedIndexedStringTable {
+
+	private final char[] chars;
+	// key i is chars[keyStart[i], keyStart[i + 1])
+	private final int[] keyStart;
+	private final short[] depth;
+	// index of the first key after subtree of key i
+	private final int[] subtreeEnd;
+	// values of key i are vals[valStart[i], valStart[i + 1])
+	private final int[] valStart;
+	private final int[] vals;
+	private final int maxDepth;
+
+	private CachedIndexedStringTable(Builder b) {
+		int size = b.keys.size();
+		int charsLength = 0;
+		for (int i = 0; i < size; i++) {
+			charsLength += b.keys.get(i).length();
+		}
+		chars = new char[charsLength];
+		keyStart = new int[size + 1];
+		valStart = new int[size + 1];
+		depth = new short[size];
+		subtreeEnd = b.subtreeEnd.toArray();
+		int md = 0;
+		for (int i = 0; i < size; i++) {
+			String k = b.keys.get(i);
+			k.getChars(0, k.length(), chars, keyStart[i]);
+			keyStart[i + 1] = keyStart[i] + k.length();
+			depth[i] = (short) b.depth.get(i);
+			md = Math.max(md, depth[i]);
+			valStart[i + 1] = valStart[i] + b.vals.get(i).size();
+		}
+		vals = new int[valStart[size]];
+		for (int i = 0; i < size; i++) {
+			b.vals.get(i).toArray(vals, 0, valStart[i], b.vals.get(i).size());
+		}
+		maxDepth = md;
+	}
+
+	public int getKeysSize() {
+		return depth.length;
+	}
+
+	public int getValuesSize() {
+		return vals.length;
+	}
+
+	public long getMemoryUsage() {
+		return chars.length * 2 + (keyStart.length + subtreeEnd.length + valStart.length + vals.length) * 4
+				+ depth.length * 2;
+	}
+
+	/**
+	 * Same contract as {@link BinaryMapIndexReader#readIndexedStringTable}: for every query collects values of keys
+	 * with the longest match, subtables are visited only if parent key matches the query
+	 */
+	public void search(Collator instance, List<String> queries, List<TIntArrayList> listOffsets,
+			TIntArrayList matchedCharacters) {
+		String[] path = new String[maxDepth + 1];
+		for (int q = 0; q < queries.size(); q++) {
+			String query = queries.get(q);
+			if (query == null) {
+				continue;
+			}
+			TIntArrayList offsets = listOffsets.get(q);
+			int i = 0;
+			while (i < depth.length) {
+				int d = depth[i];
+				String part = new String(chars, keyStart[i], keyStart[i + 1] - keyStart[i]);
+				String key = d == 0 ? part : path[d - 1] + part;
+				path[d] = key;
+				int charMatches = matchedCharacters.get(q);
+				boolean matched = false;
+				if (CollatorStringMatcher.cmatches(instance, key, query, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+					if (query.length() >= charMatches) {
+						if (query.length() > charMatches) {
+							matchedCharacters.set(q, query.length());
+							offsets.clear();
+						}
+						matched = true;
+					}
+				} else if (CollatorStringMatcher.cmatches(instance, query, key, StringMatcherMode.CHECK_ONLY_STARTS_WITH)) {
+					if (key.length() >= charMatches) {
+						if (key.length() > charMatches) {
+							matchedCharacters.set(q, key.length());
+							offsets.clear();
+						}
+						matched = true;
+					}
+				}
+				if (matched) {
+					offsets.add(vals, valStart[i], valStart[i + 1] - valStart[i]);
+					i++;
+				} else {
+					i = subtreeEnd[i];
+				}
+			}
+		}
+	}
+
+	static class Builder {
+		private final List<String> keys = new ArrayList<String>();
+		private final TIntArrayList depth = new TIntArrayList();
+		private final TIntArrayList subtreeEnd = new TIntArrayList();
+		private final List<TIntArrayList> vals = new ArrayList<TIntArrayList>();
+
+		/**
+		 * @return index of the key
+		 */
+		int addKey(String key, int keyDepth) {
+			keys.add(key);
+			depth.add(keyDepth);
+			subtreeEnd.add(keys.size());
+			vals.add(new TIntArrayList(1));
+			return keys.size() - 1;
+		}
+
+		void addValue(int keyIndex, int val) {
+			vals.get(keyIndex).add(val);
+		}
+
+		void subtableFinished(int keyIndex) {
+			subtreeEnd.set(keyIndex, keys.size());
+		}
+
+		CachedIndexedStringTable build() {
+			return new CachedIndexedStringTable(this);
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package net.osmand.binary;
 
+import net.osmand.IndexConstants;
 import net.osmand.PlatformUtil;
 import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRoutePointsBox;
 import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
@@ -31,7 +32,15 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 public class CachedOsmandIndexes {
 
@@ -44,6 +53,12 @@ public class CachedOsmandIndexes {
 	public static final int VERSION = 3;
 
 	public FileIndex addToCache(BinaryMapIndexReader reader, File f) {
+		FileIndex fi = createFileIndex(reader, f);
+		addToCache(fi);
+		return fi;
+	}
+
+	private void addToCache(FileIndex fi) {
 		hasChanged = true;
 		if (storedIndexBuilder == null) {
 			storedIndexBuilder = OsmandIndex.OsmAndStoredIndex.newBuilder();
@@ -51,7 +66,7 @@ public class CachedOsmandIndexes {
 			storedIndexBuilder.setDateCreated(System.currentTimeMillis());
 			if (storedIndex != null) {
 				for (FileIndex ex : storedIndex.getFileIndexList()) {
-					if (!ex.getFileName().equals(f.getName())) {
+					if (!ex.getFileName().equals(fi.getFileName())) {
 						storedIndexBuilder.addFileIndex(ex);
 					}
 				}
@@ -60,7 +75,7 @@ public class CachedOsmandIndexes {
 			int found = -1;
 			List<FileIndex> fileIndexList = storedIndexBuilder.getFileIndexList();
 			for (int i = 0; i < fileIndexList.size(); i++) {
-				if (fileIndexList.get(i).getFileName().equals(f.getName())) {
+				if (fileIndexList.get(i).getFileName().equals(fi.getFileName())) {
 					found = i;
 					break;
 				}
@@ -69,7 +84,10 @@ public class CachedOsmandIndexes {
 				storedIndexBuilder.removeFileIndex(found);
 			}
 		}
+		storedIndexBuilder.addFileIndex(fi);
+	}
 
+	private FileIndex createFileIndex(BinaryMapIndexReader reader, File f) {
 		FileIndex.Builder fileIndex = OsmandIndex.FileIndex.newBuilder();
 		long d = reader.getDateCreated();
 		fileIndex.setDateModified(d == 0 ? f.lastModified() : d);
@@ -190,9 +208,7 @@ public class CachedOsmandIndexes {
 			fileIndex.addHhRoutingIndex(routing);
 		}
 
-		FileIndex fi = fileIndex.build();
-		storedIndexBuilder.addFileIndex(fi);
-		return fi;
+		return fileIndex.build();
 	}
 
 	private void addRouteSubregion(RoutingPart.Builder routing, RouteSubregion sub, boolean base) {
@@ -226,6 +242,149 @@ public class CachedOsmandIndexes {
 	}
 
 
+	/**
+	 * Opens readers of all obf files of the folder in parallel, see {@link #getReaders(List, boolean, int)}.
+	 */
+	public List<ReaderInitResult> getReaders(File dir, boolean useStoredIndex, int threads) throws InterruptedException {
+		List<File> files = new ArrayList<>();
+		File[] lf = dir.listFiles();
+		if (lf != null) {
+			for (File f : lf) {
+				if (f.isFile() && f.getName().endsWith(IndexConstants.BINARY_MAP_INDEX_EXT)) {
+					files.add(f);
+				}
+			}
+		}
+		Collections.sort(files);
+		return getReaders(files, useStoredIndex, threads);
+	}
+
+	/**
+	 * Opens readers in parallel: files found in cache are initialized from stored index, other files are parsed
+	 * and their indexes are merged into cache in order of files list (call {@link #writeToFile(File)} after).
+	 * Files which couldn't be opened are reported with error and null reader.
+	 */
+	public List<ReaderInitResult> getReaders(List<File> files, final boolean useStoredIndex, int threads)
+			throws InterruptedException {
+		long time = System.currentTimeMillis();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Init obf readers");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		List<ReaderInitResult> res = new ArrayList<>();
+		// readers opened by tasks, they are closed if other task fails or thread is interrupted
+		final List<BinaryMapIndexReader> opened = new ArrayList<>();
+		final boolean[] aborted = new boolean[1];
+		boolean success = false;
+		try {
+			List<Future<ReaderInitResult>> futures = new ArrayList<>();
+			for (final File f : files) {
+				futures.add(executor.submit(new Callable<ReaderInitResult>() {
+					@Override
+					public ReaderInitResult call() {
+						ReaderInitResult r = initReader(f, useStoredIndex);
+						if (r.reader != null) {
+							synchronized (opened) {
+								if (aborted[0]) {
+									closeReader(r.reader);
+								} else {
+									opened.add(r.reader);
+								}
+							}
+						}
+						return r;
+					}
+				}));
+			}
+			for (Future<ReaderInitResult> future : futures) {
+				try {
+					res.add(future.get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+			success = true;
+		} finally {
+			executor.shutdownNow();
+			if (!success) {
+				synchronized (opened) {
+					aborted[0] = true;
+					for (BinaryMapIndexReader r : opened) {
+						closeReader(r);
+					}
+					opened.clear();
+				}
+			}
+		}
+		int parsed = 0;
+		for (ReaderInitResult r : res) {
+			if (r.fileIndex != null) {
+				addToCache(r.fileIndex);
+				parsed++;
+			}
+			if (r.error != null) {
+				log.error("Error initializing db " + r.file.getName() + ": " + r.error.getMessage(), r.error);
+			} else if (log.isDebugEnabled()) {
+				log.debug(String.format("Initializing db %s %d ms%s", r.file.getAbsolutePath(), r.timeMs,
+						r.fileIndex != null ? "" : " (cached)"));
+			}
+		}
+		log.info(String.format("Initialize %d dbs (%d not cached) with %d threads %d ms", res.size(), parsed,
+				threads, System.currentTimeMillis() - time));
+		return res;
+	}
+
+	private ReaderInitResult initReader(File f, boolean useStoredIndex) {
+		ReaderInitResult res = new ReaderInitResult(f);
+		long time = System.currentTimeMillis();
+		RandomAccessFile mf = null;
+		try {
+			FileIndex found = useStoredIndex ? getFileIndex(f, false) : null;
+			mf = new RandomAccessFile(f.getPath(), "r");
+			if (found == null) {
+				res.reader = new BinaryMapIndexReader(mf, f);
+				res.fileIndex = createFileIndex(res.reader, f);
+			} else {
+				res.reader = initReaderFromFileIndex(found, mf, f);
+			}
+		} catch (IOException e) {
+			res.error = e;
+			res.reader = null;
+			res.fileIndex = null;
+			closeFile(mf);
+		} catch (RuntimeException e) {
+			closeFile(mf);
+			throw e;
+		}
+		res.timeMs = System.currentTimeMillis() - time;
+		return res;
+	}
+
+	private static void closeFile(RandomAccessFile mf) {
+		if (mf != null) {
+			try {
+				mf.close();
+			} catch (IOException ignore) {
+			}
+		}
+	}
+
+	private void closeReader(BinaryMapIndexReader reader) {
+		try {
+			reader.close();
+		} catch (IOException e) {
+			log.warn("Error closing db " + reader.getFile().getName() + ": " + e.getMessage());
+		}
+	}
+
 	public FileIndex getFileIndex(File f, boolean init) throws IOException {
 		FileIndex found = null;
 		if (storedIndex != null) {
@@ -394,12 +553,38 @@ public class CachedOsmandIndexes {
 
 	public void writeToFile(File f) throws IOException {
 		if (hasChanged) {
-			FileOutputStream outputStream = new FileOutputStream(f);
+			// write to temporary file, so partially written cache is never read
+			File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+			FileOutputStream outputStream = new FileOutputStream(tmp);
 			try {
 				storedIndexBuilder.build().writeTo(outputStream);
 			} finally {
 				outputStream.close();
 			}
+			if (!tmp.renameTo(f)) {
+				f.delete();
+				if (!tmp.renameTo(f)) {
+					tmp.delete();
+					throw new IOException("Couldn't write " + f.getName());
+				}
+			}
+		}
+	}
+
+	public static class ReaderInitResult {
+		public final File file;
+		public BinaryMapIndexReader reader;
+		public IOException error;
+		public long timeMs;
+		// not null if file was not found in cache
+		FileIndex fileIndex;
+
+		ReaderInitResult(File file) {
+			this.file = file;
+		}
+
+		public boolean isCached() {
+			return error == null && fileIndex == null;
 		}
 	}
 
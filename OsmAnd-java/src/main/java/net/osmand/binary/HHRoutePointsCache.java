@@ -0,0 +1,255 @@
+package net.osmand.binary;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteBlockSegments;
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+
+/**
+ * On-disk cache of decoded HH routing points (one file per obf file and HH region).
+ * Points are stored as fixed size records so file is read with a single read without protobuf parsing,
+ * segment block headers and tag table are stored too, so segments are still loaded lazily from obf.
+ * Cache is validated against obf file size, creation date, region edition and position
+ * (same way as {@link CachedOsmandIndexes} validates indexes.cache) and is rewritten when it doesn't match.
+ */
+public class HHRoutePointsCache {
+
+	public static final int VERSION = 1;
+	public static final String CACHE_EXT = ".hhcache";
+
+	private static final int MAGIC = 0x48485043; // HHPC
+	private static final Log LOG = PlatformUtil.getLog(HHRoutePointsCache.class);
+
+	public static File getCacheFile(File dir, File obf, HHRouteRegion reg) {
+		return new File(dir, obf.getName() + "." + reg.filePointer + CACHE_EXT);
+	}
+
+	public static <T extends NetworkDBPoint> TLongObjectHashMap<T> loadPoints(File dir, BinaryMapIndexReader reader,
+			HHRouteRegion reg, short mapId, Class<T> cl) throws IOException {
+		File obf = reader.getFile();
+		if (dir == null || obf == null) {
+			return reader.initHHPoints(reg, mapId, cl);
+		}
+		File cache = getCacheFile(dir, obf, reg);
+		if (cache.exists()) {
+			long time = System.currentTimeMillis();
+			try {
+				TLongObjectHashMap<T> pnts = readCache(cache, obf.length(), reader.getDateCreated(), reg, mapId, cl);
+				if (pnts != null) {
+					if (LOG.isDebugEnabled()) {
+						LOG.debug("Read hh points cache " + cache.getName() + " " + (System.currentTimeMillis() - time) + " ms");
+					}
+					return pnts;
+				}
+			} catch (IOException | RuntimeException e) {
+				LOG.warn("Error reading hh points cache " + cache.getName() + ": " + e.getMessage());
+			}
+		}
+		TLongObjectHashMap<T> pnts = reader.initHHPoints(reg, mapId, cl);
+		try {
+			writeCache(cache, obf.length(), reader.getDateCreated(), reg, pnts);
+		} catch (IOException e) {
+			LOG.warn("Error writing hh points cache " + cache.getName() + ": " + e.getMessage());
+		}
+		return pnts;
+	}
+
+	static void writeCache(File cache, long fileSize, long dateCreated, HHRouteRegion reg,
+			TLongObjectHashMap<? extends NetworkDBPoint> pnts) throws IOException {
+		Map<TagValuePair, Integer> rules = new IdentityHashMap<>();
+		for (int i = 0; i < reg.encodingRules.size(); i++) {
+			rules.put(reg.encodingRules.get(i), i);
+		}
+		TIntArrayList tagIds = new TIntArrayList();
+		for (NetworkDBPoint p : pnts.valueCollection()) {
+			if (p.tagValues != null) {
+				for (TagValuePair tp : p.tagValues) {
+					Integer id = rules.get(tp);
+					if (id == null) {
+						throw new IOException("Tag value doesn't belong to region " + tp);
+					}
+					tagIds.add(id);
+				}
+			}
+		}
+		File tmp = new File(cache.getParentFile(), cache.getName() + ".tmp");
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(fileSize);
+			out.writeLong(dateCreated);
+			out.writeLong(reg.edition);
+			out.writeLong(reg.filePointer);
+			out.writeLong(reg.length);
+			writeString(out, reg.profile);
+			out.writeInt(reg.encodingRules.size());
+			for (TagValuePair tp : reg.encodingRules) {
+				writeString(out, tp.tag);
+				writeString(out, tp.value);
+			}
+			out.writeInt(reg.segments.size());
+			for (HHRouteBlockSegments s : reg.segments) {
+				out.writeInt(s.idRangeStart);
+				out.writeInt(s.idRangeLength);
+				out.writeInt(s.profileId);
+				out.writeLong(s.length);
+				out.writeLong(s.filePointer);
+			}
+			out.writeInt(tagIds.size());
+			for (int i = 0; i < tagIds.size(); i++) {
+				out.writeInt(tagIds.get(i));
+			}
+			out.writeInt(pnts.size());
+			int tagsOffset = 0;
+			for (NetworkDBPoint p : pnts.valueCollection()) {
+				int tags = p.tagValues == null ? 0 : p.tagValues.size();
+				out.writeInt(p.index);
+				out.writeInt(p.fileId);
+				out.writeInt(p.clusterId);
+				out.writeInt(p.dualPoint == null ? -1 : p.dualPoint.index);
+				out.writeLong(p.roadId);
+				out.writeShort(p.start);
+				out.writeShort(p.end);
+				out.writeInt(p.startX);
+				out.writeInt(p.startY);
+				out.writeInt(p.endX);
+				out.writeInt(p.endY);
+				out.writeByte(p.incomplete ? 1 : 0);
+				out.writeInt(tagsOffset);
+				out.writeInt(tags);
+				tagsOffset += tags;
+			}
+		} finally {
+			out.close();
+		}
+		if (!tmp.renameTo(cache)) {
+			cache.delete();
+			if (!tmp.renameTo(cache)) {
+				tmp.delete();
+				throw new IOException("Couldn't rename " + tmp.getName());
+			}
+		}
+	}
+
+	/**
+	 * @return null if cache doesn't match obf file or region
+	 */
+	static <T extends NetworkDBPoint> TLongObjectHashMap<T> readCache(File cache, long fileSize, long dateCreated,
+			HHRouteRegion reg, short mapId, Class<T> cl) throws IOException {
+		// file is read at once and closed: all data is copied to points, mapping would stay till gc
+		ByteBuffer buf;
+		RandomAccessFile raf = new RandomAccessFile(cache, "r");
+		try {
+			byte[] data = new byte[(int) raf.length()];
+			raf.readFully(data);
+			buf = ByteBuffer.wrap(data);
+		} finally {
+			raf.close();
+		}
+		try {
+			if (buf.getInt() != MAGIC || buf.getInt() != VERSION || buf.getLong() != fileSize
+					|| buf.getLong() != dateCreated || buf.getLong() != reg.edition
+					|| buf.getLong() != reg.filePointer || buf.getLong() != reg.length
+					|| !readString(buf).equals(reg.profile == null ? "" : reg.profile)) {
+				return null;
+			}
+			List<TagValuePair> rules = new ArrayList<>();
+			int rulesSize = buf.getInt();
+			for (int i = 0; i < rulesSize; i++) {
+				rules.add(new TagValuePair(readString(buf), readString(buf), -1));
+			}
+			List<HHRouteBlockSegments> segments = new ArrayList<>();
+			int segmentsSize = buf.getInt();
+			for (int i = 0; i < segmentsSize; i++) {
+				HHRouteBlockSegments s = new HHRouteBlockSegments();
+				s.idRangeStart = buf.getInt();
+				s.idRangeLength = buf.getInt();
+				s.profileId = buf.getInt();
+				s.length = buf.getLong();
+				s.filePointer = buf.getLong();
+				segments.add(s);
+			}
+			int[] tagIds = new int[buf.getInt()];
+			buf.asIntBuffer().get(tagIds);
+			buf.position(buf.position() + tagIds.length * 4);
+			int size = buf.getInt();
+			TLongObjectHashMap<T> mp = new TLongObjectHashMap<>(size * 2);
+			int[] dualIds = new int[size];
+			List<T> lst = new ArrayList<>(size);
+			for (int i = 0; i < size; i++) {
+				T pnt;
+				try {
+					pnt = cl.getDeclaredConstructor().newInstance();
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+				pnt.mapId = mapId;
+				pnt.index = buf.getInt();
+				pnt.fileId = buf.getInt();
+				pnt.clusterId = buf.getInt();
+				dualIds[i] = buf.getInt();
+				pnt.roadId = buf.getLong();
+				pnt.start = buf.getShort();
+				pnt.end = buf.getShort();
+				pnt.startX = buf.getInt();
+				pnt.startY = buf.getInt();
+				pnt.endX = buf.getInt();
+				pnt.endY = buf.getInt();
+				pnt.incomplete = buf.get() > 0;
+				int tagsOffset = buf.getInt();
+				int tags = buf.getInt();
+				if (tags > 0) {
+					pnt.tagValues = new ArrayList<>(tags);
+					for (int j = 0; j < tags; j++) {
+						pnt.tagValues.add(rules.get(tagIds[tagsOffset + j]));
+					}
+				}
+				mp.put(pnt.index, pnt);
+				lst.add(pnt);
+			}
+			for (int i = 0; i < size; i++) {
+				if (dualIds[i] >= 0) {
+					lst.get(i).dualPoint = mp.get(dualIds[i]);
+				}
+			}
+			reg.encodingRules.clear();
+			reg.encodingRules.addAll(rules);
+			reg.segments = segments;
+			return mp;
+		} catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+			throw new IOException("Corrupted cache " + cache.getName(), e);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] b = s == null ? new byte[0] : s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(b.length);
+		out.write(b);
+	}
+
+	private static String readString(ByteBuffer buf) {
+		byte[] b = new byte[buf.getInt()];
+		buf.get(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,246 @@
+package net.osmand.gpx;
+
+import gnu.trove.map.hash.TIntObjectHashMap;
+import net.osmand.gpx.GPXUtilities.RouteSegment;
+import net.osmand.gpx.GPXUtilities.RouteType;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Columnar copy of {@link TrkSegment} points, ~40 bytes per point instead of 150+ for {@link WptPt} objects.
+ * Coordinates are stored as double, elevation, speed, hdop and heading as float (gpx values are parsed as float),
+ * time as int offset from the first time (long column only if segment spans more than 24 days),
+ * extensions only for points which have them.
+ * Flags of general segment points (firstPoint, lastPoint) and colors are not kept.
+ * Arrays returned by getters are not copied and shouldn't be modified.
+ */
+public class CompactTrkSegment {
+
+	private static final int NO_TIME = Integer.MIN_VALUE;
+
+	public String name;
+	public List<RouteSegment> routeSegments;
+	public List<RouteType> routeTypes;
+
+	private final int size;
+	private final double[] latitudes;
+	private final double[] longitudes;
+	private final float[] elevations;
+	private final float[] speeds;
+	private final float[] hdops;
+	private final float[] headings;
+	// cumulative distance in segment, updated by analysis
+	private final float[] distances;
+	private final long baseTime;
+	private final int[] timeOffsets;
+	private final long[] times;
+	private final TIntObjectHashMap<Map<String, String>> extensions = new TIntObjectHashMap<>();
+
+	public CompactTrkSegment(TrkSegment segment) {
+		List<WptPt> points = segment.points;
+		name = segment.name;
+		routeSegments = segment.routeSegments;
+		routeTypes = segment.routeTypes;
+		size = points.size();
+		latitudes = new double[size];
+		longitudes = new double[size];
+		elevations = new float[size];
+		speeds = new float[size];
+		hdops = new float[size];
+		headings = new float[size];
+		distances = new float[size];
+		long minTime = Long.MAX_VALUE;
+		long maxTime = Long.MIN_VALUE;
+		for (int i = 0; i < size; i++) {
+			WptPt p = points.get(i);
+			latitudes[i] = p.lat;
+			longitudes[i] = p.lon;
+			elevations[i] = (float) p.ele;
+			speeds[i] = (float) p.speed;
+			hdops[i] = (float) p.hdop;
+			headings[i] = p.heading;
+			distances[i] = (float) p.distance;
+			if (p.time != 0) {
+				minTime = Math.min(minTime, p.time);
+				maxTime = Math.max(maxTime, p.time);
+			}
+			Map<String, String> ext = p.getExtensionsToRead();
+			if (!ext.isEmpty()) {
+				extensions.put(i, new LinkedHashMap<>(ext));
+			}
+		}
+		baseTime = minTime == Long.MAX_VALUE ? 0 : minTime;
+		if (maxTime == Long.MIN_VALUE || maxTime - baseTime < Integer.MAX_VALUE) {
+			timeOffsets = new int[size];
+			times = null;
+			for (int i = 0; i < size; i++) {
+				long time = points.get(i).time;
+				timeOffsets[i] = time == 0 ? NO_TIME : (int) (time - baseTime);
+			}
+		} else {
+			timeOffsets = null;
+			times = new long[size];
+			for (int i = 0; i < size; i++) {
+				times[i] = points.get(i).time;
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public double getLatitude(int index) {
+		return latitudes[index];
+	}
+
+	public double getLongitude(int index) {
+		return longitudes[index];
+	}
+
+	public double getElevation(int index) {
+		return elevations[index];
+	}
+
+	public double getSpeed(int index) {
+		return speeds[index];
+	}
+
+	public double getHdop(int index) {
+		return hdops[index];
+	}
+
+	public float getHeading(int index) {
+		return headings[index];
+	}
+
+	public long getTime(int index) {
+		if (times != null) {
+			return times[index];
+		}
+		int offset = timeOffsets[index];
+		return offset == NO_TIME ? 0 : baseTime + offset;
+	}
+
+	public double getDistance(int index) {
+		return distances[index];
+	}
+
+	public void setDistance(int index, double distance) {
+		distances[index] = (float) distance;
+	}
+
+	public Map<String, String> getExtensions(int index) {
+		Map<String, String> ext = extensions.get(index);
+		return ext == null ? Collections.<String, String>emptyMap() : ext;
+	}
+
+	public double[] getLatitudes() {
+		return latitudes;
+	}
+
+	public double[] getLongitudes() {
+		return longitudes;
+	}
+
+	public float[] getElevations() {
+		return elevations;
+	}
+
+	public float[] getSpeeds() {
+		return speeds;
+	}
+
+	/**
+	 * Fills reused point with values of point with index, extensions map is shared with segment
+	 */
+	public WptPt getPoint(int index, WptPt point) {
+		point.lat = latitudes[index];
+		point.lon = longitudes[index];
+		point.ele = elevations[index];
+		point.speed = speeds[index];
+		point.hdop = hdops[index];
+		point.heading = headings[index];
+		point.time = getTime(index);
+		point.distance = distances[index];
+		point.extensions = extensions.get(index);
+		return point;
+	}
+
+	public WptPt getPoint(int index) {
+		WptPt point = getPoint(index, new WptPt());
+		if (point.extensions != null) {
+			point.extensions = new LinkedHashMap<>(point.extensions);
+		}
+		return point;
+	}
+
+	public TrkSegment toTrkSegment() {
+		TrkSegment segment = new TrkSegment();
+		segment.name = name;
+		segment.routeSegments = routeSegments;
+		segment.routeTypes = routeTypes;
+		for (int i = 0; i < size; i++) {
+			segment.points.add(getPoint(i));
+		}
+		return segment;
+	}
+
+	public ElevationApproximator createElevationApproximator() {
+		return new ElevationApproximator() {
+			@Override
+			public double getPointLatitude(int index) {
+				return latitudes[index];
+			}
+
+			@Override
+			public double getPointLongitude(int index) {
+				return longitudes[index];
+			}
+
+			@Override
+			public double getPointElevation(int index) {
+				return elevations[index];
+			}
+
+			@Override
+			public int getPointsCount() {
+				return size;
+			}
+		};
+	}
+
+	/**
+	 * Elevation by distance, distances should be calculated by analysis of segment
+	 */
+	public GPXInterpolator createElevationInterpolator(double step) {
+		return createInterpolator(elevations, step);
+	}
+
+	/**
+	 * Speed by distance, distances should be calculated by analysis of segment
+	 */
+	public GPXInterpolator createSpeedInterpolator(double step) {
+		return createInterpolator(speeds, step);
+	}
+
+	private GPXInterpolator createInterpolator(final float[] values, double step) {
+		double totalLength = size > 0 ? distances[size - 1] : 0;
+		return new GPXInterpolator(size, totalLength, step) {
+			@Override
+			public double getX(int index) {
+				return distances[index];
+			}
+
+			@Override
+			public double getY(int index) {
+				return values[index];
+			}
+		};
+	}
+}
@@ -0,0 +1,1177 @@
+package net.osmand.gpx;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMappedFile;
+import net.osmand.gpx.GPXUtilities.GPXExtensions;
+import net.osmand.gpx.GPXUtilities.Metadata;
+import net.osmand.gpx.GPXUtilities.PointsGroup;
+import net.osmand.gpx.GPXUtilities.Route;
+import net.osmand.gpx.GPXUtilities.RouteSegment;
+import net.osmand.gpx.GPXUtilities.RouteType;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Binary cache of parsed gpx files with precomputed analysis (same idea as {@link net.osmand.binary.CachedOsmandIndexes}
+ * for obf files). Entries are keyed by absolute path, modification time and size of gpx file.
+ * Cache file is memory mapped, on open only keys of entries are read, gpx data and analysis are decoded on request.
+ * Format is protobuf wire format described in resources proto/gpx_cache.proto (messages are written by hand with its
+ * field numbers, track points are stored as packed columns).
+ */
+public class GPXBinaryCache {
+
+	private static final Log log = PlatformUtil.getLog(GPXBinaryCache.class);
+
+	public static final String GPX_CACHE_DEFAULT_FILENAME = "gpx.cache";
+	public static final int VERSION = 2;
+
+	private static final int CACHE_VERSION = 1;
+	private static final int CACHE_ENTRY = 2;
+
+	private static final int ENTRY_PATH = 1;
+	private static final int ENTRY_MODIFIED = 2;
+	private static final int ENTRY_SIZE = 3;
+	private static final int ENTRY_ANALYSIS = 4;
+	private static final int ENTRY_GPX = 5;
+
+	private static final int GPX_AUTHOR = 1;
+	private static final int GPX_METADATA = 2;
+	private static final int GPX_WPT = 3;
+	private static final int GPX_TRACK = 4;
+	private static final int GPX_ROUTE = 5;
+	private static final int GPX_POINTS_GROUP = 6;
+	private static final int GPX_EXTENSIONS = 7;
+	private static final int GPX_ROUTE_KEY = 8;
+
+	private static final int METADATA_NAME = 1;
+	private static final int METADATA_DESC = 2;
+	private static final int METADATA_LINK = 3;
+	private static final int METADATA_KEYWORDS = 4;
+	private static final int METADATA_TIME = 5;
+	private static final int METADATA_EXTENSIONS = 6;
+
+	private static final int TRACK_NAME = 1;
+	private static final int TRACK_DESC = 2;
+	private static final int TRACK_SEGMENT = 3;
+	private static final int TRACK_EXTENSIONS = 4;
+
+	private static final int ROUTE_NAME = 1;
+	private static final int ROUTE_DESC = 2;
+	private static final int ROUTE_POINT = 3;
+	private static final int ROUTE_EXTENSIONS = 4;
+
+	private static final int SEGMENT_NAME = 1;
+	private static final int SEGMENT_LAT = 2;
+	private static final int SEGMENT_LON = 3;
+	private static final int SEGMENT_ELE = 4;
+	private static final int SEGMENT_TIME = 5;
+	private static final int SEGMENT_SPEED = 6;
+	private static final int SEGMENT_HDOP = 7;
+	private static final int SEGMENT_DETAILS = 8;
+	private static final int SEGMENT_EXTENSIONS = 9;
+	private static final int SEGMENT_ROUTE_SEGMENT = 10;
+	private static final int SEGMENT_ROUTE_TYPE = 11;
+	private static final int SEGMENT_ELE_FIXED = 12;
+	private static final int SEGMENT_SPEED_FIXED = 13;
+	private static final int SEGMENT_HDOP_FIXED = 14;
+
+	// ele, speed and hdop are stored with this precision if it's exact for all points of segment
+	private static final int FIXED_POINT_SCALE = 100;
+	private static final double MAX_FIXED_POINT_VALUE = 1e12;
+
+	private static final int POINT_LAT = 1;
+	private static final int POINT_LON = 2;
+	private static final int POINT_ELE = 3;
+	private static final int POINT_TIME = 4;
+	private static final int POINT_SPEED = 5;
+	private static final int POINT_HDOP = 6;
+	private static final int POINT_HEADING = 7;
+	private static final int POINT_BEARING = 8;
+	private static final int POINT_NAME = 9;
+	private static final int POINT_DESC = 10;
+	private static final int POINT_COMMENT = 11;
+	private static final int POINT_LINK = 12;
+	private static final int POINT_CATEGORY = 13;
+	private static final int POINT_EXTENSIONS = 14;
+	private static final int POINT_INDEX = 15;
+
+	private static final int GROUP_NAME = 1;
+	private static final int GROUP_ICON = 2;
+	private static final int GROUP_BACKGROUND = 3;
+	private static final int GROUP_COLOR = 4;
+
+	private static final int ROUTE_TYPE_TAG = 1;
+	private static final int ROUTE_TYPE_VALUE = 2;
+
+	private static final int ANALYSIS_PARAMETER = 1;
+	private static final int ANALYSIS_DISTANCE_WITHOUT_GAPS = 2;
+	private static final int ANALYSIS_TIME_SPAN_WITHOUT_GAPS = 3;
+	private static final int ANALYSIS_EXPECTED_ROUTE_DURATION = 4;
+	private static final int ANALYSIS_TIME_MOVING_WITHOUT_GAPS = 5;
+	private static final int ANALYSIS_DISTANCE_MOVING_WITHOUT_GAPS = 6;
+	private static final int ANALYSIS_LEFT = 7;
+	private static final int ANALYSIS_RIGHT = 8;
+	private static final int ANALYSIS_TOP = 9;
+	private static final int ANALYSIS_BOTTOM = 10;
+	private static final int ANALYSIS_HAS_SPEED = 11;
+	private static final int ANALYSIS_MIN_HDOP = 12;
+	private static final int ANALYSIS_MAX_HDOP = 13;
+	private static final int ANALYSIS_ATTRIBUTE = 14;
+
+	private static final int PARAMETER_NAME = 1;
+	private static final int PARAMETER_DOUBLE = 2;
+	private static final int PARAMETER_LONG = 3;
+	private static final int PARAMETER_STRING = 4;
+
+	private BinaryMappedFile mappedFile;
+	private final Map<String, CacheEntry> entries = new LinkedHashMap<>();
+	private boolean hasChanged = false;
+
+	private static class CacheEntry {
+		String path;
+		long modified;
+		long size;
+		// position in mapped file or data of new entry (till cache is written)
+		BinaryMappedFile file;
+		long analysisOffset;
+		int analysisLength;
+		long gpxOffset;
+		int gpxLength;
+		byte[] analysis;
+		byte[] gpx;
+
+		boolean isValid(File f) {
+			return modified == f.lastModified() && size == f.length();
+		}
+	}
+
+	/**
+	 * Maps cache file and reads keys of entries, cache of other version is ignored
+	 */
+	public synchronized void readFromFile(File f) throws IOException {
+		long time = System.currentTimeMillis();
+		BinaryMappedFile mf = new BinaryMappedFile(f);
+		List<CacheEntry> read = new ArrayList<>();
+		int version = 0;
+		try {
+			CodedInputStream codedIS = mf.newCodedInputStream();
+			while (true) {
+				int t = codedIS.readTag();
+				int tag = WireFormat.getTagFieldNumber(t);
+				if (tag == 0) {
+					break;
+				} else if (tag == CACHE_VERSION) {
+					version = codedIS.readUInt32();
+					if (version != VERSION) {
+						break;
+					}
+				} else if (tag == CACHE_ENTRY) {
+					int length = codedIS.readRawVarint32();
+					long oldLimit = codedIS.pushLimitLong((long) length);
+					CacheEntry e = readEntryKey(codedIS);
+					e.file = mf;
+					read.add(e);
+					codedIS.popLimit(oldLimit);
+				} else {
+					skipUnknownField(codedIS, t);
+				}
+			}
+		} catch (IOException | RuntimeException e) {
+			mf.close();
+			throw e;
+		}
+		if (version == VERSION) {
+			close();
+			mappedFile = mf;
+			for (CacheEntry e : read) {
+				entries.put(e.path, e);
+			}
+			hasChanged = false;
+		} else {
+			mf.close();
+		}
+		log.info("Initialize gpx cache " + f.getName() + " " + entries.size() + " files "
+				+ (System.currentTimeMillis() - time) + " ms");
+	}
+
+	/**
+	 * Releases mapping of cache file and clears entries
+	 */
+	public synchronized void close() {
+		if (mappedFile != null) {
+			mappedFile.close();
+			mappedFile = null;
+		}
+		entries.clear();
+		hasChanged = false;
+	}
+
+	/**
+	 * Writes entries of existing not changed files and maps written file, so data of new entries isn't kept in memory
+	 */
+	public synchronized void writeToFile(File f) throws IOException {
+		if (!hasChanged) {
+			return;
+		}
+		Iterator<CacheEntry> it = entries.values().iterator();
+		while (it.hasNext()) {
+			CacheEntry e = it.next();
+			// file is deleted or changed
+			if (!e.isValid(new File(e.path))) {
+				it.remove();
+			}
+		}
+		// write to temporary file, so partially written cache is never read
+		File tmp = new File(f.getParentFile(), f.getName() + ".tmp");
+		FileOutputStream outputStream = new FileOutputStream(tmp);
+		try {
+			CodedOutputStream out = CodedOutputStream.newInstance(outputStream);
+			out.writeUInt32(CACHE_VERSION, VERSION);
+			for (CacheEntry e : entries.values()) {
+				ByteArrayOutputStream entryBytes = new ByteArrayOutputStream();
+				CodedOutputStream entry = CodedOutputStream.newInstance(entryBytes);
+				entry.writeString(ENTRY_PATH, e.path);
+				entry.writeInt64(ENTRY_MODIFIED, e.modified);
+				entry.writeInt64(ENTRY_SIZE, e.size);
+				writeMessage(entry, ENTRY_ANALYSIS, getAnalysisData(e));
+				writeMessage(entry, ENTRY_GPX, getGpxData(e));
+				writeMessage(out, CACHE_ENTRY, toByteArray(entry, entryBytes));
+			}
+			out.flush();
+		} finally {
+			outputStream.close();
+		}
+		// mapping stays valid after file is replaced
+		if (!tmp.renameTo(f)) {
+			f.delete();
+			if (!tmp.renameTo(f)) {
+				tmp.delete();
+				throw new IOException("Couldn't write " + f.getName());
+			}
+		}
+		readFromFile(f);
+	}
+
+	public synchronized int getEntriesCount() {
+		return entries.size();
+	}
+
+	public synchronized boolean isCached(File f) {
+		CacheEntry e = entries.get(f.getAbsolutePath());
+		return e != null && e.isValid(f);
+	}
+
+	/**
+	 * Same as {@link GPXUtilities#loadGPXFile(File)}, file is parsed only if it's not in cache or changed
+	 */
+	public GPXFile loadGPXFile(File f) {
+		CacheEntry e = getValidEntry(f);
+		if (e != null) {
+			try {
+				GPXFile gpxFile = decodeGpx(newCodedInputStream(getGpxData(e)));
+				gpxFile.path = f.getAbsolutePath();
+				gpxFile.modifiedTime = f.lastModified();
+				gpxFile.pointsModifiedTime = gpxFile.modifiedTime;
+				gpxFile.addGeneralTrack();
+				return gpxFile;
+			} catch (IOException ex) {
+				log.error("Error reading cached gpx " + f.getPath(), ex);
+			}
+		}
+		GPXFile gpxFile = GPXUtilities.loadGPXFile(f);
+		addToCache(f, gpxFile);
+		return gpxFile;
+	}
+
+	/**
+	 * Analysis of file (with file modification time as timestamp) without point attributes,
+	 * file is parsed only if it's not in cache or changed
+	 */
+	public GPXTrackAnalysis getAnalysis(File f) {
+		CacheEntry e = getValidEntry(f);
+		if (e != null) {
+			try {
+				GPXTrackAnalysis analysis = decodeAnalysis(newCodedInputStream(getAnalysisData(e)));
+				analysis.name = f.getAbsolutePath();
+				return analysis;
+			} catch (IOException ex) {
+				log.error("Error reading cached gpx analysis " + f.getPath(), ex);
+			}
+		}
+		GPXFile gpxFile = GPXUtilities.loadGPXFile(f);
+		return addToCache(f, gpxFile);
+	}
+
+	private synchronized CacheEntry getValidEntry(File f) {
+		CacheEntry e = entries.get(f.getAbsolutePath());
+		return e != null && e.isValid(f) ? e : null;
+	}
+
+	private GPXTrackAnalysis addToCache(File f, GPXFile gpxFile) {
+		GPXTrackAnalysis analysis = gpxFile.getAnalysis(f.lastModified());
+		if (gpxFile.error != null) {
+			return analysis;
+		}
+		try {
+			CacheEntry e = new CacheEntry();
+			e.path = f.getAbsolutePath();
+			e.modified = f.lastModified();
+			e.size = f.length();
+			e.analysis = encodeAnalysis(analysis);
+			e.gpx = encodeGpx(gpxFile);
+			synchronized (this) {
+				entries.put(e.path, e);
+				hasChanged = true;
+			}
+		} catch (IOException ex) {
+			log.error("Error caching gpx " + f.getPath(), ex);
+		}
+		return analysis;
+	}
+
+	private byte[] getAnalysisData(CacheEntry e) throws IOException {
+		return e.analysis != null ? e.analysis : readMapped(e, e.analysisOffset, e.analysisLength);
+	}
+
+	private byte[] getGpxData(CacheEntry e) throws IOException {
+		return e.gpx != null ? e.gpx : readMapped(e, e.gpxOffset, e.gpxLength);
+	}
+
+	private synchronized byte[] readMapped(CacheEntry e, long offset, int length) throws IOException {
+		if (e.file != mappedFile) {
+			throw new IOException("Cache file is closed or reopened");
+		}
+		CodedInputStream codedIS = mappedFile.newCodedInputStream();
+		codedIS.seek(offset);
+		return codedIS.readRawBytes(length);
+	}
+
+	private static CodedInputStream newCodedInputStream(byte[] data) {
+		CodedInputStream codedIS = CodedInputStream.newInstance(data);
+		codedIS.setSizeLimit(CodedInputStream.MAX_DEFAULT_SIZE_LIMIT);
+		return codedIS;
+	}
+
+	private static CacheEntry readEntryKey(CodedInputStream codedIS) throws IOException {
+		CacheEntry e = new CacheEntry();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					return e;
+				case ENTRY_PATH:
+					e.path = codedIS.readString();
+					break;
+				case ENTRY_MODIFIED:
+					e.modified = codedIS.readInt64();
+					break;
+				case ENTRY_SIZE:
+					e.size = codedIS.readInt64();
+					break;
+				case ENTRY_ANALYSIS:
+					e.analysisLength = codedIS.readRawVarint32();
+					e.analysisOffset = codedIS.getTotalBytesRead();
+					codedIS.skipRawBytes(e.analysisLength);
+					break;
+				case ENTRY_GPX:
+					e.gpxLength = codedIS.readRawVarint32();
+					e.gpxOffset = codedIS.getTotalBytesRead();
+					codedIS.skipRawBytes(e.gpxLength);
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	static byte[] encodeAnalysis(GPXTrackAnalysis analysis) throws IOException {
+		ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(outBytes);
+		for (GpxParameter parameter : GpxParameter.values()) {
+			Object value = analysis.getGpxParameter(parameter);
+			if (!parameter.isAnalysisParameter() || value == null) {
+				continue;
+			}
+			ByteArrayOutputStream pBytes = new ByteArrayOutputStream();
+			CodedOutputStream p = CodedOutputStream.newInstance(pBytes);
+			p.writeString(PARAMETER_NAME, parameter.name());
+			if (value instanceof Double) {
+				p.writeDouble(PARAMETER_DOUBLE, (Double) value);
+			} else if (value instanceof Long || value instanceof Integer) {
+				p.writeSInt64(PARAMETER_LONG, ((Number) value).longValue());
+			} else {
+				p.writeString(PARAMETER_STRING, value.toString());
+			}
+			writeMessage(out, ANALYSIS_PARAMETER, toByteArray(p, pBytes));
+		}
+		out.writeFloat(ANALYSIS_DISTANCE_WITHOUT_GAPS, analysis.totalDistanceWithoutGaps);
+		out.writeInt64(ANALYSIS_TIME_SPAN_WITHOUT_GAPS, analysis.timeSpanWithoutGaps);
+		out.writeInt64(ANALYSIS_EXPECTED_ROUTE_DURATION, analysis.expectedRouteDuration);
+		out.writeInt64(ANALYSIS_TIME_MOVING_WITHOUT_GAPS, analysis.timeMovingWithoutGaps);
+		out.writeFloat(ANALYSIS_DISTANCE_MOVING_WITHOUT_GAPS, analysis.totalDistanceMovingWithoutGaps);
+		out.writeDouble(ANALYSIS_LEFT, analysis.left);
+		out.writeDouble(ANALYSIS_RIGHT, analysis.right);
+		out.writeDouble(ANALYSIS_TOP, analysis.top);
+		out.writeDouble(ANALYSIS_BOTTOM, analysis.bottom);
+		out.writeBool(ANALYSIS_HAS_SPEED, analysis.hasSpeedInTrack);
+		out.writeDouble(ANALYSIS_MIN_HDOP, analysis.minHdop);
+		out.writeDouble(ANALYSIS_MAX_HDOP, analysis.maxHdop);
+		if (analysis.availableAttributes != null) {
+			for (String attribute : analysis.availableAttributes) {
+				out.writeString(ANALYSIS_ATTRIBUTE, attribute);
+			}
+		}
+		return toByteArray(out, outBytes);
+	}
+
+	static GPXTrackAnalysis decodeAnalysis(CodedInputStream codedIS) throws IOException {
+		GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		analysis.availableAttributes = new HashSet<>();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					return analysis;
+				case ANALYSIS_PARAMETER:
+					int length = codedIS.readRawVarint32();
+					long oldLimit = codedIS.pushLimitLong((long) length);
+					readParameter(codedIS, analysis);
+					codedIS.popLimit(oldLimit);
+					break;
+				case ANALYSIS_DISTANCE_WITHOUT_GAPS:
+					analysis.totalDistanceWithoutGaps = codedIS.readFloat();
+					break;
+				case ANALYSIS_TIME_SPAN_WITHOUT_GAPS:
+					analysis.timeSpanWithoutGaps = codedIS.readInt64();
+					break;
+				case ANALYSIS_EXPECTED_ROUTE_DURATION:
+					analysis.expectedRouteDuration = codedIS.readInt64();
+					break;
+				case ANALYSIS_TIME_MOVING_WITHOUT_GAPS:
+					analysis.timeMovingWithoutGaps = codedIS.readInt64();
+					break;
+				case ANALYSIS_DISTANCE_MOVING_WITHOUT_GAPS:
+					analysis.totalDistanceMovingWithoutGaps = codedIS.readFloat();
+					break;
+				case ANALYSIS_LEFT:
+					analysis.left = codedIS.readDouble();
+					break;
+				case ANALYSIS_RIGHT:
+					analysis.right = codedIS.readDouble();
+					break;
+				case ANALYSIS_TOP:
+					analysis.top = codedIS.readDouble();
+					break;
+				case ANALYSIS_BOTTOM:
+					analysis.bottom = codedIS.readDouble();
+					break;
+				case ANALYSIS_HAS_SPEED:
+					analysis.hasSpeedInTrack = codedIS.readBool();
+					break;
+				case ANALYSIS_MIN_HDOP:
+					analysis.minHdop = codedIS.readDouble();
+					break;
+				case ANALYSIS_MAX_HDOP:
+					analysis.maxHdop = codedIS.readDouble();
+					break;
+				case ANALYSIS_ATTRIBUTE:
+					analysis.availableAttributes.add(codedIS.readString());
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	private static void readParameter(CodedInputStream codedIS, GPXTrackAnalysis analysis) throws IOException {
+		String name = null;
+		Object value = null;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					GpxParameter parameter = null;
+					try {
+						parameter = name == null ? null : GpxParameter.valueOf(name);
+					} catch (IllegalArgumentException e) {
+						// parameter was removed
+					}
+					if (parameter != null) {
+						if (value instanceof Long && parameter.getTypeClass() == Integer.class) {
+							value = ((Long) value).intValue();
+						}
+						analysis.setGpxParameter(parameter, value);
+					}
+					return;
+				case PARAMETER_NAME:
+					name = codedIS.readString();
+					break;
+				case PARAMETER_DOUBLE:
+					value = codedIS.readDouble();
+					break;
+				case PARAMETER_LONG:
+					value = codedIS.readSInt64();
+					break;
+				case PARAMETER_STRING:
+					value = codedIS.readString();
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	static byte[] encodeGpx(GPXFile gpxFile) throws IOException {
+		ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(outBytes);
+		if (gpxFile.author != null) {
+			out.writeString(GPX_AUTHOR, gpxFile.author);
+		}
+		Metadata metadata = gpxFile.metadata;
+		if (metadata != null) {
+			ByteArrayOutputStream mBytes = new ByteArrayOutputStream();
+			CodedOutputStream m = CodedOutputStream.newInstance(mBytes);
+			writeNotNullString(m, METADATA_NAME, metadata.name);
+			writeNotNullString(m, METADATA_DESC, metadata.desc);
+			writeNotNullString(m, METADATA_LINK, metadata.link);
+			writeNotNullString(m, METADATA_KEYWORDS, metadata.keywords);
+			m.writeInt64(METADATA_TIME, metadata.time);
+			writeExtensions(m, METADATA_EXTENSIONS, metadata.getExtensionsToRead());
+			writeMessage(out, GPX_METADATA, toByteArray(m, mBytes));
+		}
+		for (WptPt p : gpxFile.getPoints()) {
+			writeMessage(out, GPX_WPT, encodePoint(p, -1));
+		}
+		for (Track track : gpxFile.tracks) {
+			if (!track.generalTrack) {
+				writeMessage(out, GPX_TRACK, encodeTrack(track));
+			}
+		}
+		for (Route route : gpxFile.routes) {
+			ByteArrayOutputStream rBytes = new ByteArrayOutputStream();
+			CodedOutputStream r = CodedOutputStream.newInstance(rBytes);
+			writeNotNullString(r, ROUTE_NAME, route.name);
+			writeNotNullString(r, ROUTE_DESC, route.desc);
+			for (WptPt p : route.points) {
+				writeMessage(r, ROUTE_POINT, encodePoint(p, -1));
+			}
+			writeExtensions(r, ROUTE_EXTENSIONS, route.getExtensionsToRead());
+			writeMessage(out, GPX_ROUTE, toByteArray(r, rBytes));
+		}
+		for (PointsGroup group : gpxFile.getPointsGroups().values()) {
+			ByteArrayOutputStream gBytes = new ByteArrayOutputStream();
+			CodedOutputStream g = CodedOutputStream.newInstance(gBytes);
+			writeNotNullString(g, GROUP_NAME, group.name);
+			writeNotNullString(g, GROUP_ICON, group.iconName);
+			writeNotNullString(g, GROUP_BACKGROUND, group.backgroundType);
+			g.writeInt32(GROUP_COLOR, group.color);
+			writeMessage(out, GPX_POINTS_GROUP, toByteArray(g, gBytes));
+		}
+		writeExtensions(out, GPX_EXTENSIONS, gpxFile.getExtensionsToRead());
+		writeExtensions(out, GPX_ROUTE_KEY, gpxFile.getRouteKeyTags());
+		return toByteArray(out, outBytes);
+	}
+
+	static GPXFile decodeGpx(CodedInputStream codedIS) throws IOException {
+		GPXFile gpxFile = new GPXFile(null);
+		List<PointsGroup> groups = new ArrayList<>();
+		Map<String, String> routeKey = new LinkedHashMap<>();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				break;
+			} else if (tag == GPX_AUTHOR) {
+				gpxFile.author = codedIS.readString();
+			} else if (tag == GPX_EXTENSIONS) {
+				readExtension(codedIS, gpxFile.getExtensionsToWrite());
+			} else if (tag == GPX_ROUTE_KEY) {
+				readExtension(codedIS, routeKey);
+			} else if (tag == GPX_METADATA || tag == GPX_WPT || tag == GPX_TRACK || tag == GPX_ROUTE
+					|| tag == GPX_POINTS_GROUP) {
+				int length = codedIS.readRawVarint32();
+				long oldLimit = codedIS.pushLimitLong((long) length);
+				if (tag == GPX_METADATA) {
+					gpxFile.metadata = readMetadata(codedIS);
+				} else if (tag == GPX_WPT) {
+					gpxFile.points.add(readPoint(codedIS, new WptPt()));
+				} else if (tag == GPX_TRACK) {
+					gpxFile.tracks.add(readTrack(codedIS));
+				} else if (tag == GPX_ROUTE) {
+					gpxFile.routes.add(readRoute(codedIS));
+				} else {
+					groups.add(readPointsGroup(codedIS));
+				}
+				codedIS.popLimit(oldLimit);
+			} else {
+				skipUnknownField(codedIS, t);
+			}
+		}
+		if (!groups.isEmpty() || !gpxFile.points.isEmpty()) {
+			gpxFile.pointsGroups.putAll(GPXUtilities.mergePointsGroups(groups, gpxFile.points));
+		}
+		if (!routeKey.isEmpty()) {
+			gpxFile.addRouteKeyTags(routeKey);
+		}
+		return gpxFile;
+	}
+
+	private static Metadata readMetadata(CodedInputStream codedIS) throws IOException {
+		Metadata metadata = new Metadata();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					return metadata;
+				case METADATA_NAME:
+					metadata.name = codedIS.readString();
+					break;
+				case METADATA_DESC:
+					metadata.desc = codedIS.readString();
+					break;
+				case METADATA_LINK:
+					metadata.link = codedIS.readString();
+					break;
+				case METADATA_KEYWORDS:
+					metadata.keywords = codedIS.readString();
+					break;
+				case METADATA_TIME:
+					metadata.time = codedIS.readInt64();
+					break;
+				case METADATA_EXTENSIONS:
+					readExtension(codedIS, metadata.getExtensionsToWrite());
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	private static PointsGroup readPointsGroup(CodedInputStream codedIS) throws IOException {
+		PointsGroup group = new PointsGroup((String) null);
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					return group;
+				case GROUP_NAME:
+					group.name = codedIS.readString();
+					break;
+				case GROUP_ICON:
+					group.iconName = codedIS.readString();
+					break;
+				case GROUP_BACKGROUND:
+					group.backgroundType = codedIS.readString();
+					break;
+				case GROUP_COLOR:
+					group.color = codedIS.readInt32();
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	private static Route readRoute(CodedInputStream codedIS) throws IOException {
+		Route route = new Route();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					return route;
+				case ROUTE_NAME:
+					route.name = codedIS.readString();
+					break;
+				case ROUTE_DESC:
+					route.desc = codedIS.readString();
+					break;
+				case ROUTE_POINT:
+					int length = codedIS.readRawVarint32();
+					long oldLimit = codedIS.pushLimitLong((long) length);
+					route.points.add(readPoint(codedIS, new WptPt()));
+					codedIS.popLimit(oldLimit);
+					break;
+				case ROUTE_EXTENSIONS:
+					readExtension(codedIS, route.getExtensionsToWrite());
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	private static byte[] encodeTrack(Track track) throws IOException {
+		ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(outBytes);
+		writeNotNullString(out, TRACK_NAME, track.name);
+		writeNotNullString(out, TRACK_DESC, track.desc);
+		for (TrkSegment segment : track.segments) {
+			writeMessage(out, TRACK_SEGMENT, encodeSegment(segment));
+		}
+		writeExtensions(out, TRACK_EXTENSIONS, track.getExtensionsToRead());
+		return toByteArray(out, outBytes);
+	}
+
+	private static Track readTrack(CodedInputStream codedIS) throws IOException {
+		Track track = new Track();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					return track;
+				case TRACK_NAME:
+					track.name = codedIS.readString();
+					break;
+				case TRACK_DESC:
+					track.desc = codedIS.readString();
+					break;
+				case TRACK_SEGMENT:
+					int length = codedIS.readRawVarint32();
+					long oldLimit = codedIS.pushLimitLong((long) length);
+					track.segments.add(readSegment(codedIS));
+					codedIS.popLimit(oldLimit);
+					break;
+				case TRACK_EXTENSIONS:
+					readExtension(codedIS, track.getExtensionsToWrite());
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	private static byte[] encodeSegment(TrkSegment segment) throws IOException {
+		ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(outBytes);
+		List<WptPt> points = segment.points;
+		int size = points.size();
+		writeNotNullString(out, SEGMENT_NAME, segment.name);
+		if (size > 0) {
+			ByteArrayOutputStream latBytes = new ByteArrayOutputStream();
+			CodedOutputStream lat = CodedOutputStream.newInstance(latBytes);
+			ByteArrayOutputStream lonBytes = new ByteArrayOutputStream();
+			CodedOutputStream lon = CodedOutputStream.newInstance(lonBytes);
+			ByteArrayOutputStream timeBytes = new ByteArrayOutputStream();
+			CodedOutputStream time = CodedOutputStream.newInstance(timeBytes);
+			double[] ele = new double[size];
+			double[] speed = new double[size];
+			double[] hdop = new double[size];
+			long prevTime = 0;
+			for (int i = 0; i < size; i++) {
+				WptPt p = points.get(i);
+				lat.writeDoubleNoTag(p.lat);
+				lon.writeDoubleNoTag(p.lon);
+				time.writeSInt64NoTag(p.time - prevTime);
+				prevTime = p.time;
+				ele[i] = p.ele;
+				speed[i] = p.speed;
+				hdop[i] = p.hdop;
+			}
+			writeMessage(out, SEGMENT_LAT, toByteArray(lat, latBytes));
+			writeMessage(out, SEGMENT_LON, toByteArray(lon, lonBytes));
+			writeMessage(out, SEGMENT_TIME, toByteArray(time, timeBytes));
+			writeColumn(out, SEGMENT_ELE, SEGMENT_ELE_FIXED, ele, Double.NaN);
+			writeColumn(out, SEGMENT_SPEED, SEGMENT_SPEED_FIXED, speed, 0);
+			writeColumn(out, SEGMENT_HDOP, SEGMENT_HDOP_FIXED, hdop, Double.NaN);
+		}
+		for (int i = 0; i < size; i++) {
+			WptPt p = points.get(i);
+			if (hasDetails(p)) {
+				writeMessage(out, SEGMENT_DETAILS, encodePoint(p, i));
+			}
+		}
+		writeExtensions(out, SEGMENT_EXTENSIONS, segment.getExtensionsToRead());
+		for (RouteSegment rs : segment.routeSegments) {
+			ByteArrayOutputStream rBytes = new ByteArrayOutputStream();
+			CodedOutputStream r = CodedOutputStream.newInstance(rBytes);
+			String[] values = { rs.id, rs.length, rs.startTrackPointIndex, rs.segmentTime, rs.speed, rs.turnType,
+					rs.turnLanes, rs.turnAngle, rs.skipTurn, rs.types, rs.pointTypes, rs.names };
+			for (int i = 0; i < values.length; i++) {
+				writeNotNullString(r, i + 1, values[i]);
+			}
+			writeMessage(out, SEGMENT_ROUTE_SEGMENT, toByteArray(r, rBytes));
+		}
+		for (RouteType rt : segment.routeTypes) {
+			ByteArrayOutputStream rBytes = new ByteArrayOutputStream();
+			CodedOutputStream r = CodedOutputStream.newInstance(rBytes);
+			writeNotNullString(r, ROUTE_TYPE_TAG, rt.tag);
+			writeNotNullString(r, ROUTE_TYPE_VALUE, rt.value);
+			writeMessage(out, SEGMENT_ROUTE_TYPE, toByteArray(r, rBytes));
+		}
+		return toByteArray(out, outBytes);
+	}
+
+	/**
+	 * Column is not written if all values are default, it's written as packed sint64 deltas of fixed point values
+	 * if they are exact and as packed doubles otherwise.
+	 */
+	private static void writeColumn(CodedOutputStream out, int doubleField, int fixedField, double[] values,
+			double defaultValue) throws IOException {
+		boolean allDefault = true;
+		boolean fixed = true;
+		for (double v : values) {
+			allDefault &= Double.compare(v, defaultValue) == 0;
+			fixed &= Math.abs(v) < MAX_FIXED_POINT_VALUE
+					&& Math.round(v * FIXED_POINT_SCALE) / (double) FIXED_POINT_SCALE == v;
+		}
+		if (allDefault) {
+			return;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream column = CodedOutputStream.newInstance(bytes);
+		long prev = 0;
+		for (double v : values) {
+			if (fixed) {
+				long l = Math.round(v * FIXED_POINT_SCALE);
+				column.writeSInt64NoTag(l - prev);
+				prev = l;
+			} else {
+				column.writeDoubleNoTag(v);
+			}
+		}
+		writeMessage(out, fixed ? fixedField : doubleField, toByteArray(column, bytes));
+	}
+
+	private static TrkSegment readSegment(CodedInputStream codedIS) throws IOException {
+		TrkSegment segment = new TrkSegment();
+		List<WptPt> points = segment.points;
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				return segment;
+			} else if (tag == SEGMENT_NAME) {
+				segment.name = codedIS.readString();
+			} else if (tag == SEGMENT_EXTENSIONS) {
+				readExtension(codedIS, segment.getExtensionsToWrite());
+			} else if (tag >= SEGMENT_LAT && tag <= SEGMENT_HDOP
+					|| tag >= SEGMENT_ELE_FIXED && tag <= SEGMENT_HDOP_FIXED) {
+				int length = codedIS.readRawVarint32();
+				long oldLimit = codedIS.pushLimitLong((long) length);
+				if (points.isEmpty()) {
+					// latitudes are written first
+					int size = tag == SEGMENT_LAT ? length / 8 : 0;
+					for (int i = 0; i < size; i++) {
+						points.add(new WptPt());
+					}
+				}
+				long acc = 0;
+				for (int i = 0; codedIS.getBytesUntilLimit() > 0; i++) {
+					WptPt p = points.get(i);
+					double value;
+					if (tag == SEGMENT_TIME) {
+						acc += codedIS.readSInt64();
+						p.time = acc;
+						continue;
+					} else if (tag >= SEGMENT_ELE_FIXED) {
+						acc += codedIS.readSInt64();
+						value = acc / (double) FIXED_POINT_SCALE;
+					} else {
+						value = codedIS.readDouble();
+					}
+					switch (tag) {
+						case SEGMENT_LAT:
+							p.lat = value;
+							break;
+						case SEGMENT_LON:
+							p.lon = value;
+							break;
+						case SEGMENT_ELE:
+						case SEGMENT_ELE_FIXED:
+							p.ele = value;
+							break;
+						case SEGMENT_SPEED:
+						case SEGMENT_SPEED_FIXED:
+							p.speed = value;
+							break;
+						default:
+							p.hdop = value;
+							break;
+					}
+				}
+				codedIS.popLimit(oldLimit);
+			} else if (tag == SEGMENT_DETAILS || tag == SEGMENT_ROUTE_SEGMENT || tag == SEGMENT_ROUTE_TYPE) {
+				int length = codedIS.readRawVarint32();
+				long oldLimit = codedIS.pushLimitLong((long) length);
+				if (tag == SEGMENT_DETAILS) {
+					readPoint(codedIS, null, points);
+				} else if (tag == SEGMENT_ROUTE_SEGMENT) {
+					segment.routeSegments.add(readRouteSegment(codedIS));
+				} else {
+					segment.routeTypes.add(readRouteType(codedIS));
+				}
+				codedIS.popLimit(oldLimit);
+			} else {
+				skipUnknownField(codedIS, t);
+			}
+		}
+	}
+
+	private static RouteSegment readRouteSegment(CodedInputStream codedIS) throws IOException {
+		RouteSegment rs = new RouteSegment();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == 0) {
+				return rs;
+			}
+			if (WireFormat.getTagWireType(t) != WireFormat.WIRETYPE_LENGTH_DELIMITED) {
+				skipUnknownField(codedIS, t);
+				continue;
+			}
+			String value = codedIS.readString();
+			switch (tag) {
+				case 1:
+					rs.id = value;
+					break;
+				case 2:
+					rs.length = value;
+					break;
+				case 3:
+					rs.startTrackPointIndex = value;
+					break;
+				case 4:
+					rs.segmentTime = value;
+					break;
+				case 5:
+					rs.speed = value;
+					break;
+				case 6:
+					rs.turnType = value;
+					break;
+				case 7:
+					rs.turnLanes = value;
+					break;
+				case 8:
+					rs.turnAngle = value;
+					break;
+				case 9:
+					rs.skipTurn = value;
+					break;
+				case 10:
+					rs.types = value;
+					break;
+				case 11:
+					rs.pointTypes = value;
+					break;
+				case 12:
+					rs.names = value;
+					break;
+				default:
+					break;
+			}
+		}
+	}
+
+	private static RouteType readRouteType(CodedInputStream codedIS) throws IOException {
+		RouteType rt = new RouteType();
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			switch (tag) {
+				case 0:
+					return rt;
+				case ROUTE_TYPE_TAG:
+					rt.tag = codedIS.readString();
+					break;
+				case ROUTE_TYPE_VALUE:
+					rt.value = codedIS.readString();
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	private static boolean hasDetails(WptPt p) {
+		return p.name != null || p.desc != null || p.comment != null || p.link != null || p.category != null
+				|| !Float.isNaN(p.heading) || !Float.isNaN(p.bearing) || !p.getExtensionsToRead().isEmpty();
+	}
+
+	/**
+	 * @param index index of track point (details of point in columnar segment) or -1
+	 */
+	private static byte[] encodePoint(WptPt p, int index) throws IOException {
+		ByteArrayOutputStream outBytes = new ByteArrayOutputStream();
+		CodedOutputStream out = CodedOutputStream.newInstance(outBytes);
+		if (index >= 0) {
+			out.writeUInt32(POINT_INDEX, index);
+		} else {
+			out.writeDouble(POINT_LAT, p.lat);
+			out.writeDouble(POINT_LON, p.lon);
+			if (!Double.isNaN(p.ele)) {
+				out.writeDouble(POINT_ELE, p.ele);
+			}
+			if (p.time != 0) {
+				out.writeSInt64(POINT_TIME, p.time);
+			}
+			if (p.speed != 0) {
+				out.writeDouble(POINT_SPEED, p.speed);
+			}
+			if (!Double.isNaN(p.hdop)) {
+				out.writeDouble(POINT_HDOP, p.hdop);
+			}
+		}
+		if (!Float.isNaN(p.heading)) {
+			out.writeFloat(POINT_HEADING, p.heading);
+		}
+		if (!Float.isNaN(p.bearing)) {
+			out.writeFloat(POINT_BEARING, p.bearing);
+		}
+		writeNotNullString(out, POINT_NAME, p.name);
+		writeNotNullString(out, POINT_DESC, p.desc);
+		writeNotNullString(out, POINT_COMMENT, p.comment);
+		writeNotNullString(out, POINT_LINK, p.link);
+		writeNotNullString(out, POINT_CATEGORY, p.category);
+		writeExtensions(out, POINT_EXTENSIONS, p.getExtensionsToRead());
+		return toByteArray(out, outBytes);
+	}
+
+	private static WptPt readPoint(CodedInputStream codedIS, WptPt p) throws IOException {
+		return readPoint(codedIS, p, null);
+	}
+
+	/**
+	 * @param segmentPoints points of segment to find point by index, if point is null
+	 */
+	private static WptPt readPoint(CodedInputStream codedIS, WptPt p, List<WptPt> segmentPoints) throws IOException {
+		while (true) {
+			int t = codedIS.readTag();
+			int tag = WireFormat.getTagFieldNumber(t);
+			if (tag == POINT_INDEX) {
+				p = segmentPoints.get(codedIS.readUInt32());
+				continue;
+			}
+			switch (tag) {
+				case 0:
+					return p;
+				case POINT_LAT:
+					p.lat = codedIS.readDouble();
+					break;
+				case POINT_LON:
+					p.lon = codedIS.readDouble();
+					break;
+				case POINT_ELE:
+					p.ele = codedIS.readDouble();
+					break;
+				case POINT_TIME:
+					p.time = codedIS.readSInt64();
+					break;
+				case POINT_SPEED:
+					p.speed = codedIS.readDouble();
+					break;
+				case POINT_HDOP:
+					p.hdop = codedIS.readDouble();
+					break;
+				case POINT_HEADING:
+					p.heading = codedIS.readFloat();
+					break;
+				case POINT_BEARING:
+					p.bearing = codedIS.readFloat();
+					break;
+				case POINT_NAME:
+					p.name = codedIS.readString();
+					break;
+				case POINT_DESC:
+					p.desc = codedIS.readString();
+					break;
+				case POINT_COMMENT:
+					p.comment = codedIS.readString();
+					break;
+				case POINT_LINK:
+					p.link = codedIS.readString();
+					break;
+				case POINT_CATEGORY:
+					p.category = codedIS.readString();
+					break;
+				case POINT_EXTENSIONS:
+					readExtension(codedIS, p.getExtensionsToWrite());
+					break;
+				default:
+					skipUnknownField(codedIS, t);
+					break;
+			}
+		}
+	}
+
+	private static void writeExtensions(CodedOutputStream out, int fieldNumber, Map<String, String> extensions)
+			throws IOException {
+		for (Entry<String, String> e : extensions.entrySet()) {
+			if (e.getKey() != null && e.getValue() != null) {
+				out.writeString(fieldNumber, e.getKey());
+				out.writeString(fieldNumber, e.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Key and value of extension are written as 2 consecutive fields
+	 */
+	private static void readExtension(CodedInputStream codedIS, Map<String, String> extensions) throws IOException {
+		String key = codedIS.readString();
+		codedIS.readTag();
+		extensions.put(key, codedIS.readString());
+	}
+
+	private static void writeNotNullString(CodedOutputStream out, int fieldNumber, String value) throws IOException {
+		if (value != null) {
+			out.writeString(fieldNumber, value);
+		}
+	}
+
+	private static byte[] toByteArray(CodedOutputStream out, ByteArrayOutputStream bytes) throws IOException {
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeMessage(CodedOutputStream out, int fieldNumber, byte[] message) throws IOException {
+		out.writeTag(fieldNumber, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+		out.writeRawVarint32(message.length);
+		out.writeRawBytes(message);
+	}
+
+	private static void skipUnknownField(CodedInputStream codedIS, int t) throws IOException {
+		int wireType = WireFormat.getTagWireType(t);
+		if (wireType == WireFormat.WIRETYPE_FIXED32_LENGTH_DELIMITED) {
+			int length = codedIS.readRawLittleEndian32();
+			codedIS.skipRawBytes(length);
+		} else {
+			codedIS.skipField(t);
+		}
+	}
+}
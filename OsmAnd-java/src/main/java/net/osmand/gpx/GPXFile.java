@@ -19,6 +19,7 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 public class GPXFile extends GPXUtilities.GPXExtensions {
 
@@ -304,6 +305,20 @@ public class GPXFile extends GPXUtilities.GPXExtensions {
 		return analysis;
 	}
 
+	/**
+	 * Same as {@link #getAnalysis(long)}, long segments are analysed in parallel by executor
+	 */
+	public GPXTrackAnalysis getAnalysis(long fileTimestamp, ExecutorService executor) throws InterruptedException {
+		GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		analysis.name = path;
+		analysis.setWptPoints(points.size());
+		analysis.setWptCategoryNames(getWaypointCategories());
+
+		List<SplitSegment> segments = getSplitSegments(analysis, null, null);
+		analysis.prepareInformationInParallel(fileTimestamp, executor, segments.toArray(new SplitSegment[0]));
+		return analysis;
+	}
+
 	private List<SplitSegment> getSplitSegments(GPXTrackAnalysis analysis, Double fromDistance, Double toDistance) {
 		List<SplitSegment> splitSegments = new ArrayList<>();
 		for (int i = 0; i < tracks.size(); i++) {
@@ -0,0 +1,405 @@
+package net.osmand.gpx;
+
+import static net.osmand.gpx.GPXUtilities.POINT_BEARING;
+import static net.osmand.gpx.GPXUtilities.POINT_ELEVATION;
+import static net.osmand.gpx.GPXUtilities.POINT_SPEED;
+
+import net.osmand.PlatformUtil;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.util.Algorithms;
+
+import org.apache.commons.logging.Log;
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.SimpleDateFormat;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Reads gpx without building {@link GPXFile}: points are passed to {@link GPXPointsVisitor} one by one
+ * in the same reused {@link WptPt}, so memory doesn't depend on number of points in file.
+ * Metadata, extensions of file, tracks and segments (route segments, types, points groups, legacy route point
+ * extension) are skipped, {@link GPXUtilities#loadGPXFile} should be used to read them.
+ */
+public class GPXStreamReader {
+
+	private static final Log log = PlatformUtil.getLog(GPXStreamReader.class);
+
+	private static final int NO_POINT = 0;
+	private static final int WAY_POINT = 1;
+	private static final int ROUTE_POINT = 2;
+	private static final int TRACK_POINT = 3;
+
+	/**
+	 * Point passed to visit methods is valid only during the call,
+	 * visitor has to copy it (new WptPt(point)) to keep it.
+	 */
+	public static abstract class GPXPointsVisitor {
+
+		public void trackStarted(String name, String desc) {
+		}
+
+		public void segmentStarted() {
+		}
+
+		public abstract void visitTrackPoint(WptPt point);
+
+		public void segmentFinished() {
+		}
+
+		public void trackFinished() {
+		}
+
+		public void routeStarted(String name, String desc) {
+		}
+
+		public void visitRoutePoint(WptPt point) {
+		}
+
+		public void routeFinished() {
+		}
+
+		public void visitWayPoint(WptPt point) {
+		}
+
+		public void finished() {
+		}
+
+		public boolean isCancelled() {
+			return false;
+		}
+	}
+
+	private final GPXPointsVisitor visitor;
+	private final WptPt point = new WptPt();
+	private final SimpleDateFormat timeFormat;
+	private final SimpleDateFormat timeFormatMillis;
+
+	private int pointType = NO_POINT;
+	private boolean pointExtensions;
+	private boolean inTrack;
+	private boolean inRoute;
+	private boolean inSegment;
+	private boolean started;
+	private String name;
+	private String desc;
+
+	private GPXStreamReader(GPXPointsVisitor visitor) {
+		this.visitor = visitor;
+		timeFormat = GPXUtilities.GPX_TIME_OLD_FORMAT ? GPXUtilities.getTimeFormatter() : GPXUtilities.getTimeFormatterTZ();
+		timeFormatMillis = GPXUtilities.getTimeFormatterMills();
+	}
+
+	public static Exception readGpx(File file, GPXPointsVisitor visitor) {
+		FileInputStream fis = null;
+		try {
+			fis = new FileInputStream(file);
+			return readGpx(fis, visitor);
+		} catch (IOException e) {
+			log.error("Error reading gpx " + file.getPath(), e); //$NON-NLS-1$
+			return e;
+		} finally {
+			Algorithms.closeStream(fis);
+		}
+	}
+
+	/**
+	 * @return error or null if file was read (or reading was cancelled by visitor)
+	 */
+	public static Exception readGpx(InputStream stream, GPXPointsVisitor visitor) {
+		try {
+			XmlPullParser parser = PlatformUtil.newXMLPullParser();
+			parser.setInput(GPXUtilities.getUTF8Reader(stream));
+			if (new GPXStreamReader(visitor).read(parser)) {
+				visitor.finished();
+			}
+		} catch (Exception e) {
+			log.error("Error reading gpx", e); //$NON-NLS-1$
+			return e;
+		}
+		return null;
+	}
+
+	private boolean read(XmlPullParser parser) throws XmlPullParserException, IOException {
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (tok == XmlPullParser.START_TAG) {
+				String tag = parser.getName();
+				if (pointType != NO_POINT) {
+					readPointTag(parser, tag);
+				} else if (tag.equals("metadata") || tag.equals("extensions")) {
+					skip(parser, tag);
+				} else if (inTrack) {
+					if (!started && (tag.equals("name") || tag.equals("desc"))) {
+						readNameOrDesc(parser, tag);
+						continue;
+					}
+					fireStarted();
+					if (tag.equals("trkseg")) {
+						inSegment = true;
+						visitor.segmentStarted();
+					} else if (tag.equals("trkpt") || tag.equals("rpt")) {
+						if (!inSegment) {
+							// point without segment, segment is finished with track
+							inSegment = true;
+							visitor.segmentStarted();
+						}
+						startPoint(parser, TRACK_POINT);
+					} else if (tag.equals("csvattributes") && inSegment) {
+						if (!readCsvAttributes(parser)) {
+							return false;
+						}
+					}
+				} else if (inRoute) {
+					if (!started && (tag.equals("name") || tag.equals("desc"))) {
+						readNameOrDesc(parser, tag);
+						continue;
+					}
+					fireStarted();
+					if (tag.equals("rtept")) {
+						startPoint(parser, ROUTE_POINT);
+					}
+				} else if (tag.equals("trk")) {
+					inTrack = true;
+					started = false;
+					name = null;
+					desc = null;
+				} else if (tag.equals("rte")) {
+					inRoute = true;
+					started = false;
+					name = null;
+					desc = null;
+				} else if (tag.equals("wpt")) {
+					startPoint(parser, WAY_POINT);
+				}
+			} else if (tok == XmlPullParser.END_TAG) {
+				String tag = parser.getName();
+				if (pointType != NO_POINT) {
+					if (tag.equals("extensions")) {
+						pointExtensions = false;
+					} else if (!pointExtensions && isPointTag(tag)) {
+						if (!finishPoint()) {
+							return false;
+						}
+					}
+				} else if (inTrack) {
+					if (tag.equals("trkseg")) {
+						inSegment = false;
+						visitor.segmentFinished();
+					} else if (tag.equals("trk")) {
+						fireStarted();
+						if (inSegment) {
+							inSegment = false;
+							visitor.segmentFinished();
+						}
+						inTrack = false;
+						visitor.trackFinished();
+					}
+				} else if (inRoute && tag.equals("rte")) {
+					fireStarted();
+					inRoute = false;
+					visitor.routeFinished();
+				}
+			}
+		}
+		return true;
+	}
+
+	private void readNameOrDesc(XmlPullParser parser, String tag) throws XmlPullParserException, IOException {
+		if (tag.equals("name")) {
+			name = GPXUtilities.readText(parser, "name");
+		} else {
+			desc = GPXUtilities.readText(parser, "desc");
+		}
+	}
+
+	private void fireStarted() {
+		if (!started) {
+			started = true;
+			if (inTrack) {
+				visitor.trackStarted(name, desc);
+			} else {
+				visitor.routeStarted(name, desc);
+			}
+		}
+	}
+
+	private boolean isPointTag(String tag) {
+		switch (pointType) {
+			case WAY_POINT:
+				return tag.equals("wpt");
+			case ROUTE_POINT:
+				return tag.equals("rtept");
+			default:
+				return tag.equals("trkpt") || tag.equals("rpt");
+		}
+	}
+
+	private void startPoint(XmlPullParser parser, int type) {
+		resetPoint(point);
+		try {
+			point.lat = Double.parseDouble(parser.getAttributeValue("", "lat")); //$NON-NLS-1$ //$NON-NLS-2$
+			point.lon = Double.parseDouble(parser.getAttributeValue("", "lon")); //$NON-NLS-1$ //$NON-NLS-2$
+		} catch (NumberFormatException e) {
+			// ignore
+		}
+		pointType = type;
+		pointExtensions = false;
+	}
+
+	private boolean finishPoint() {
+		switch (pointType) {
+			case WAY_POINT:
+				visitor.visitWayPoint(point);
+				break;
+			case ROUTE_POINT:
+				visitor.visitRoutePoint(point);
+				break;
+			default:
+				visitor.visitTrackPoint(point);
+				break;
+		}
+		pointType = NO_POINT;
+		return !visitor.isCancelled();
+	}
+
+	private void readPointTag(XmlPullParser parser, String tag) throws XmlPullParserException, IOException {
+		if (pointExtensions) {
+			Map<String, String> values = GPXUtilities.readTextMap(parser, tag);
+			for (Entry<String, String> entry : values.entrySet()) {
+				String supportedTag = GPXUtilities.getExtensionsSupportedTag(entry.getKey().toLowerCase());
+				String value = entry.getValue();
+				point.getExtensionsToWrite().put(supportedTag, value);
+				if (POINT_SPEED.equals(tag)) {
+					try {
+						point.speed = Float.parseFloat(value);
+					} catch (NumberFormatException e) {
+						log.debug(e.getMessage(), e);
+					}
+				} else if (POINT_BEARING.equals(tag)) {
+					try {
+						point.bearing = Float.parseFloat(value);
+					} catch (NumberFormatException ignored) {
+					}
+				}
+			}
+		} else if (tag.equals("extensions")) {
+			pointExtensions = true;
+		} else if (tag.equals("name")) {
+			point.name = GPXUtilities.readText(parser, "name");
+		} else if (tag.equals("desc")) {
+			point.desc = GPXUtilities.readText(parser, "desc");
+		} else if (tag.equals("cmt")) {
+			point.comment = GPXUtilities.readText(parser, "cmt");
+		} else if (tag.equals(POINT_SPEED)) {
+			try {
+				String value = GPXUtilities.readText(parser, POINT_SPEED);
+				if (!Algorithms.isEmpty(value)) {
+					point.speed = Float.parseFloat(value);
+					point.getExtensionsToWrite().put(POINT_SPEED, value);
+				}
+			} catch (NumberFormatException e) {
+			}
+		} else if (tag.equals("link")) {
+			point.link = parser.getAttributeValue("", "href");
+		} else if (tag.equals("category")) {
+			point.category = GPXUtilities.readText(parser, "category");
+		} else if (tag.equals("type")) {
+			if (point.category == null) {
+				point.category = GPXUtilities.readText(parser, "type");
+			}
+		} else if (tag.equals(POINT_ELEVATION)) {
+			String text = GPXUtilities.readText(parser, POINT_ELEVATION);
+			if (text != null) {
+				try {
+					point.ele = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals("hdop")) {
+			String text = GPXUtilities.readText(parser, "hdop");
+			if (text != null) {
+				try {
+					point.hdop = Float.parseFloat(text);
+				} catch (NumberFormatException e) {
+				}
+			}
+		} else if (tag.equals("time")) {
+			String text = GPXUtilities.readText(parser, "time");
+			point.time = GPXUtilities.parseTime(text, timeFormat, timeFormatMillis);
+		}
+	}
+
+	private boolean readCsvAttributes(XmlPullParser parser) throws XmlPullParserException, IOException {
+		String segmentPoints = GPXUtilities.readText(parser, "csvattributes");
+		if (segmentPoints == null) {
+			return true;
+		}
+		for (String line : segmentPoints.split("\n")) {
+			String[] pointAttrs = line.split(",");
+			if (pointAttrs.length > 1) {
+				try {
+					resetPoint(point);
+					point.lon = Double.parseDouble(pointAttrs[0]);
+					point.lat = Double.parseDouble(pointAttrs[1]);
+					if (pointAttrs.length > 2) {
+						point.ele = Double.parseDouble(pointAttrs[2]);
+					}
+				} catch (NumberFormatException e) {
+					continue;
+				}
+				visitor.visitTrackPoint(point);
+				if (visitor.isCancelled()) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static void skip(XmlPullParser parser, String tag) throws XmlPullParserException, IOException {
+		int depth = 1;
+		int tok;
+		while ((tok = parser.next()) != XmlPullParser.END_DOCUMENT) {
+			if (tok == XmlPullParser.START_TAG && parser.getName().equals(tag)) {
+				depth++;
+			} else if (tok == XmlPullParser.END_TAG && parser.getName().equals(tag) && --depth == 0) {
+				break;
+			}
+		}
+	}
+
+	private static void resetPoint(WptPt p) {
+		p.firstPoint = false;
+		p.lastPoint = false;
+		p.lat = 0;
+		p.lon = 0;
+		p.name = null;
+		p.link = null;
+		p.category = null;
+		p.desc = null;
+		p.comment = null;
+		p.time = 0;
+		p.ele = Double.NaN;
+		p.speed = 0;
+		p.hdop = Double.NaN;
+		p.heading = Float.NaN;
+		p.bearing = Float.NaN;
+		p.deleted = false;
+		p.speedColor = 0;
+		p.altitudeColor = 0;
+		p.slopeColor = 0;
+		p.colourARGB = 0;
+		p.distance = 0;
+		if (p.extensions != null) {
+			p.extensions.clear();
+		}
+		p.extensionsWriter = null;
+		p.additionalExtensionsWriter = null;
+	}
+}
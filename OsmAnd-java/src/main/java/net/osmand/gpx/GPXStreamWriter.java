@@ -0,0 +1,88 @@
+package net.osmand.gpx;
+
+import net.osmand.PlatformUtil;
+import net.osmand.gpx.GPXUtilities.GPXExtensionsWriter;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+import org.xmlpull.v1.XmlSerializer;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes gpx point by point in the same format as {@link GPXUtilities#writeGpx}, without keeping points in memory.
+ * Calls should follow gpx structure: way points, routes (startRoute, writeRoutePoint, endRoute),
+ * tracks (startTrack, startSegment, writeTrackPoint, endSegment, endTrack), finish.
+ * Could be used as target of {@link GPXStreamReader.GPXPointsVisitor} to convert or filter file in one pass.
+ */
+public class GPXStreamWriter {
+
+	private final XmlSerializer serializer;
+
+	public GPXStreamWriter(Writer output, String author) throws IOException {
+		serializer = PlatformUtil.newSerializer();
+		serializer.setOutput(output);
+		serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true); //$NON-NLS-1$
+		GPXUtilities.startGpx(serializer, author);
+	}
+
+	public void writeWayPoint(WptPt point) throws IOException {
+		writePoint("wpt", point);
+	}
+
+	public void startRoute(String name, String desc) throws IOException {
+		serializer.startTag(null, "rte"); //$NON-NLS-1$
+		GPXUtilities.writeNotNullText(serializer, "name", name);
+		GPXUtilities.writeNotNullText(serializer, "desc", desc);
+	}
+
+	public void writeRoutePoint(WptPt point) throws IOException {
+		writePoint("rtept", point);
+	}
+
+	public void endRoute() throws IOException {
+		serializer.endTag(null, "rte"); //$NON-NLS-1$
+	}
+
+	public void startTrack(String name, String desc) throws IOException {
+		serializer.startTag(null, "trk"); //$NON-NLS-1$
+		GPXUtilities.writeNotNullText(serializer, "name", name);
+		GPXUtilities.writeNotNullText(serializer, "desc", desc);
+	}
+
+	public void startSegment() throws IOException {
+		serializer.startTag(null, "trkseg"); //$NON-NLS-1$
+	}
+
+	public void writeTrackPoint(WptPt point) throws IOException {
+		writePoint("trkpt", point);
+	}
+
+	public void endSegment() throws IOException {
+		serializer.endTag(null, "trkseg"); //$NON-NLS-1$
+	}
+
+	public void endTrack() throws IOException {
+		serializer.endTag(null, "trk"); //$NON-NLS-1$
+	}
+
+	/**
+	 * Closes gpx document and flushes output, output itself is not closed
+	 */
+	public void finish() throws IOException {
+		serializer.endTag(null, "gpx"); //$NON-NLS-1$
+		serializer.endDocument();
+		serializer.flush();
+	}
+
+	private void writePoint(String tag, WptPt point) throws IOException {
+		// writeWpt assigns writers of extensions, point could be reused by caller with other extensions
+		GPXExtensionsWriter extensionsWriter = point.getExtensionsWriter();
+		GPXExtensionsWriter additionalExtensionsWriter = point.getAdditionalExtensionsWriter();
+		serializer.startTag(null, tag);
+		GPXUtilities.writeWpt(serializer, point, null);
+		serializer.endTag(null, tag);
+		point.setExtensionsWriter(extensionsWriter);
+		point.setAdditionalExtensionsWriter(additionalExtensionsWriter);
+	}
+}
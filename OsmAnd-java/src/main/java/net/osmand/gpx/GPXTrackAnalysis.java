@@ -5,6 +5,7 @@ import static net.osmand.gpx.GPXUtilities.POINT_SPEED;
 
 import net.osmand.PlatformUtil;
 import net.osmand.data.LatLon;
+import net.osmand.gpx.GPXStreamReader.GPXPointsVisitor;
 import net.osmand.gpx.GPXUtilities.RouteSegment;
 import net.osmand.gpx.GPXUtilities.TrkSegment;
 import net.osmand.gpx.GPXUtilities.WptPt;
@@ -21,12 +22,17 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 public class GPXTrackAnalysis {
 
 	public static final Log LOG = PlatformUtil.getLog(GPXTrackAnalysis.class);
 
 	public static final int ANALYSIS_VERSION = 1;
+	static final int PARALLEL_RANGE_POINTS = 20000;
 
 	public String name;
 
@@ -425,211 +431,376 @@ public class GPXTrackAnalysis {
 	}
 
 	public GPXTrackAnalysis prepareInformation(long fileTimeStamp, TrackPointsAnalyser pointsAnalyser, SplitSegment... splitSegments) {
-		float[] calculations = new float[1];
-
-		long startTimeOfSingleSegment = 0;
-		long endTimeOfSingleSegment = 0;
-
-		float distanceOfSingleSegment = 0;
-		float distanceMovingOfSingleSegment = 0;
-		long timeMovingOfSingleSegment = 0;
-
-		float totalElevation = 0;
-		int elevationPoints = 0;
-		int speedCount = 0;
-		long timeDiffMillis = 0;
-		int timeDiff = 0;
-		double totalSpeedSum = 0;
-
-		int sensorSpeedCount = 0;
-		double totalSensorSpeedSum = 0;
-		int sensorHrCount = 0;
-		double totalSensorHrSum = 0;
-		int sensorPowerCount = 0;
-		double totalSensorPowerSum = 0;
-		int sensorTemperatureCount = 0;
-		double totalSensorTemperatureSum = 0;
-		int sensorCadenceCount = 0;
-		double totalSensorCadenceSum = 0;
-
-		setPoints(0);
-
-		pointAttributes = new ArrayList<>();
-		availableAttributes = new HashSet<>();
+		PointsProcessor processor = new PointsProcessor(pointsAnalyser, true, false);
 		for (final SplitSegment s : splitSegments) {
 			final int numberOfPoints = s.getNumberOfPoints();
-			float segmentDistance = 0f;
 			metricEnd += s.metricEnd;
 			secondaryMetricEnd += s.secondaryMetricEnd;
-			setPoints(getPoints() + numberOfPoints);
-			expectedRouteDuration += getExpectedRouteSegmentDuration(s);
+			if (!s.segment.generalSegment) {
+				expectedRouteDuration += getExpectedRouteDuration(s.segment.routeSegments);
+			}
+			processor.startSegment(s.segment.generalSegment, s.metricEnd == 0);
 			for (int j = 0; j < numberOfPoints; j++) {
-				WptPt point = s.get(j);
-				if (j == 0 && locationStart == null) {
-					locationStart = point;
-					setLatLonStart(point.lat, point.lon);
-				}
-				if (j == numberOfPoints - 1) {
-					locationEnd = point;
-				}
-				long time = point.time;
-				if (time != 0) {
-					if (s.metricEnd == 0) {
-						if (s.segment.generalSegment) {
-							if (point.firstPoint) {
-								startTimeOfSingleSegment = time;
-							} else if (point.lastPoint) {
-								endTimeOfSingleSegment = time;
-							}
-							if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
-								timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
-								startTimeOfSingleSegment = 0;
-								endTimeOfSingleSegment = 0;
-							}
-						}
+				processor.addPoint(s.get(j), j == numberOfPoints - 1);
+			}
+			processElevationDiff(getElevationApproximator(s));
+		}
+		processor.finish(fileTimeStamp);
+		return this;
+	}
+
+	/**
+	 * Same as analysis of whole {@link TrkSegment}s, points passed to pointsAnalyser are reused
+	 */
+	public GPXTrackAnalysis prepareInformation(long fileTimeStamp, TrackPointsAnalyser pointsAnalyser, CompactTrkSegment... segments) {
+		PointsProcessor processor = new PointsProcessor(pointsAnalyser, true, true);
+		WptPt point = new WptPt();
+		for (CompactTrkSegment s : segments) {
+			int numberOfPoints = s.size();
+			expectedRouteDuration += getExpectedRouteDuration(s.routeSegments);
+			processor.startSegment(false, true);
+			for (int j = 0; j < numberOfPoints; j++) {
+				processor.addPoint(s.getPoint(j, point), j == numberOfPoints - 1);
+				s.setDistance(j, point.distance);
+			}
+			processElevationDiff(s.createElevationApproximator());
+		}
+		processor.finish(fileTimeStamp);
+		return this;
+	}
+
+	/**
+	 * Same as {@link #prepareInformation(long, TrackPointsAnalyser, SplitSegment...)} without points analyser,
+	 * segments are split to ranges of {@link #PARALLEL_RANGE_POINTS} points which are analysed by executor
+	 * and merged in order (distances differ only by float rounding)
+	 */
+	GPXTrackAnalysis prepareInformationInParallel(long fileTimeStamp, ExecutorService executor, SplitSegment... splitSegments)
+			throws InterruptedException {
+		List<Future<PartialAnalysis>> futures = new ArrayList<>();
+		for (SplitSegment s : splitSegments) {
+			int numberOfPoints = s.getNumberOfPoints();
+			for (int from = 0; from < numberOfPoints; from += PARALLEL_RANGE_POINTS) {
+				final PointsRange range = new PointsRange(s, from, Math.min(numberOfPoints, from + PARALLEL_RANGE_POINTS));
+				futures.add(executor.submit(new Callable<PartialAnalysis>() {
+					@Override
+					public PartialAnalysis call() {
+						return PartialAnalysis.analyse(range, false);
 					}
-					setStartTime(Math.min(getStartTime(), time));
-					setEndTime(Math.max(getEndTime(), time));
+				}));
+			}
+		}
+		PartialAnalysis result = new PartialAnalysis();
+		for (Future<PartialAnalysis> future : futures) {
+			try {
+				result.merge(future.get());
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
 				}
-				updateBounds(point);
+				throw new IllegalStateException(cause);
+			}
+		}
+		pointAttributes = new ArrayList<>();
+		availableAttributes = new HashSet<>();
+		mergeValues(result.analysis);
+		result.processor.finish(this, fileTimeStamp);
+		return this;
+	}
 
-				float speed = (float) point.speed;
-				if (speed > 0) {
-					hasSpeedInTrack = true;
-				}
-				updateHdop(point);
-
-				if (j > 0) {
-					WptPt prev = s.get(j - 1);
-
-					// Old complete summation approach for elevation gain/loss
-					//if (!Double.isNaN(point.ele) && !Double.isNaN(prev.ele)) {
-					//	double diff = point.ele - prev.ele;
-					//	if (diff > 0) {
-					//		diffElevationUp += diff;
-					//	} else {
-					//		diffElevationDown -= diff;
-					//	}
-					//}
-
-					// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
-					// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
-					// a little more exact, also seems slightly faster:
-					net.osmand.Location.distanceBetween(prev.lat, prev.lon, point.lat, point.lon, calculations);
-					setTotalDistance(getTotalDistance() + calculations[0]);
-					segmentDistance += calculations[0];
-					point.distance = segmentDistance;
-
-					// In case points are reversed and => time is decreasing
-					timeDiffMillis = Math.max(0, point.time - prev.time);
-					timeDiff = (int) ((timeDiffMillis) / 1000);
-
-					//Last resort: Derive speed values from displacement if track does not originally contain speed
-					if (!hasSpeedInTrack && speed == 0 && timeDiff > 0) {
-						speed = calculations[0] / timeDiff;
-					}
+	/**
+	 * Processes points of segments one by one, previous point is kept only as values,
+	 * so points could be reused by caller (see {@link GPXStreamAnalyser})
+	 */
+	private class PointsProcessor {
+
+		private final TrackPointsAnalyser pointsAnalyser;
+		private final boolean collectPointAttributes;
+		private final boolean reusedPoints;
+		private final float[] calculations = new float[1];
+
+		private long startTimeOfSingleSegment = 0;
+		private long endTimeOfSingleSegment = 0;
+
+		private float distanceOfSingleSegment = 0;
+		private float distanceMovingOfSingleSegment = 0;
+		private long timeMovingOfSingleSegment = 0;
+
+		private float totalElevation = 0;
+		private int elevationPoints = 0;
+		private int speedCount = 0;
+		private long timeDiffMillis = 0;
+		private int timeDiff = 0;
+		private double totalSpeedSum = 0;
+
+		private int sensorSpeedCount = 0;
+		private double totalSensorSpeedSum = 0;
+		private int sensorHrCount = 0;
+		private double totalSensorHrSum = 0;
+		private int sensorPowerCount = 0;
+		private double totalSensorPowerSum = 0;
+		private int sensorTemperatureCount = 0;
+		private double totalSensorTemperatureSum = 0;
+		private int sensorCadenceCount = 0;
+		private double totalSensorCadenceSum = 0;
+
+		private boolean generalSegment;
+		private boolean noMetric;
+		private float segmentDistance;
+		private int pointIndex;
+		private double prevLat;
+		private double prevLon;
+		private long prevTime;
+
+		// values to merge partial analysis of points ranges (see PartialAnalysis)
+		private boolean hasPrevPoint;
+		private boolean derivedSpeed;
+		private boolean speedBeforeDistance;
+		private boolean elevationBeforeDistance;
+
+		PointsProcessor(TrackPointsAnalyser pointsAnalyser, boolean collectPointAttributes, boolean reusedPoints) {
+			this.pointsAnalyser = pointsAnalyser;
+			this.collectPointAttributes = collectPointAttributes;
+			this.reusedPoints = reusedPoints;
+			setPoints(0);
+			pointAttributes = new ArrayList<>();
+			availableAttributes = new HashSet<>();
+		}
+
+		void startSegment(boolean generalSegment, boolean noMetric) {
+			this.generalSegment = generalSegment;
+			this.noMetric = noMetric;
+			segmentDistance = 0;
+			pointIndex = 0;
+		}
+
+		/**
+		 * Continues not general segment after previous point (analysed by other processor)
+		 */
+		void continueSegment(WptPt prevPoint) {
+			startSegment(false, true);
+			pointIndex = 1;
+			prevLat = prevPoint.lat;
+			prevLon = prevPoint.lon;
+			prevTime = prevPoint.time;
+		}
 
-					// Motion detection:
-					//   speed > 0  uses GPS chipset's motion detection
-					//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
-					boolean timeSpecified = point.time != 0 && prev.time != 0;
-					if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
-						setTimeMoving(getTimeMoving() + timeDiffMillis);
-						setTotalDistanceMoving(getTotalDistanceMoving() + calculations[0]);
-						if (s.segment.generalSegment && !point.firstPoint) {
-							timeMovingOfSingleSegment += timeDiffMillis;
-							distanceMovingOfSingleSegment += calculations[0];
+		void addPoint(WptPt point, boolean lastInSegment) {
+			int j = pointIndex++;
+			setPoints(getPoints() + 1);
+			if (j == 0 && locationStart == null) {
+				locationStart = reusedPoints ? new WptPt(point) : point;
+				setLatLonStart(point.lat, point.lon);
+			}
+			long time = point.time;
+			if (time != 0) {
+				if (noMetric) {
+					if (generalSegment) {
+						if (point.firstPoint) {
+							startTimeOfSingleSegment = time;
+						} else if (point.lastPoint) {
+							endTimeOfSingleSegment = time;
+						}
+						if (startTimeOfSingleSegment != 0 && endTimeOfSingleSegment != 0) {
+							timeSpanWithoutGaps += endTimeOfSingleSegment - startTimeOfSingleSegment;
+							startTimeOfSingleSegment = 0;
+							endTimeOfSingleSegment = 0;
 						}
 					}
-
-					//Next few lines for Issue 3222 heuristic testing only
-					//	if (speed > 0 && point.time != 0 && prev.time != 0) {
-					//		timeMoving0 = timeMoving0 + (point.time - prev.time);
-					//		totalDistanceMoving0 += calculations[0];
-					//	}
-				}
-				setMinSpeed(Math.min(speed, getMinSpeed()));
-				if (speed > 0 && !Float.isInfinite(speed)) {
-					totalSpeedSum += speed;
-					setMaxSpeed(Math.max(speed, getMaxSpeed()));
-					speedCount++;
 				}
-				boolean isNaN = Double.isNaN(point.ele);
-				float elevation = isNaN ? Float.NaN : (float) point.ele;
-				if (!isNaN) {
-					totalElevation += point.ele;
-					elevationPoints++;
-					setMinElevation(Math.min(point.ele, getMinElevation()));
-					setMaxElevation(Math.max(point.ele, getMaxElevation()));
+				setStartTime(Math.min(getStartTime(), time));
+				setEndTime(Math.max(getEndTime(), time));
+			}
+			updateBounds(point);
+
+			float speed = (float) point.speed;
+			if (speed > 0) {
+				hasSpeedInTrack = true;
+			}
+			updateHdop(point);
+
+			if (j > 0) {
+				// Old complete summation approach for elevation gain/loss
+				//if (!Double.isNaN(point.ele) && !Double.isNaN(prev.ele)) {
+				//	double diff = point.ele - prev.ele;
+				//	if (diff > 0) {
+				//		diffElevationUp += diff;
+				//	} else {
+				//		diffElevationDown -= diff;
+				//	}
+				//}
+
+				// totalDistance += MapUtils.getDistance(prev.lat, prev.lon, point.lat, point.lon);
+				// using ellipsoidal 'distanceBetween' instead of spherical haversine (MapUtils.getDistance) is
+				// a little more exact, also seems slightly faster:
+				net.osmand.Location.distanceBetween(prevLat, prevLon, point.lat, point.lon, calculations);
+				setTotalDistance(getTotalDistance() + calculations[0]);
+				segmentDistance += calculations[0];
+				point.distance = segmentDistance;
+
+				// In case points are reversed and => time is decreasing
+				timeDiffMillis = Math.max(0, point.time - prevTime);
+				timeDiff = (int) ((timeDiffMillis) / 1000);
+
+				//Last resort: Derive speed values from displacement if track does not originally contain speed
+				if (!hasSpeedInTrack && speed == 0 && timeDiff > 0) {
+					speed = calculations[0] / timeDiff;
+					derivedSpeed = true;
 				}
 
-				boolean firstPoint = false;
-				boolean lastPoint = false;
-				if (s.segment.generalSegment) {
-					distanceOfSingleSegment += calculations[0];
-					if (point.firstPoint) {
-						firstPoint = j > 0;
-						distanceOfSingleSegment = 0;
-						timeMovingOfSingleSegment = 0;
-						distanceMovingOfSingleSegment = 0;
+				// Motion detection:
+				//   speed > 0  uses GPS chipset's motion detection
+				//   calculations[0] > minDisplacment * time  is heuristic needed because tracks may be filtered at recording time, so points at rest may not be present in file at all
+				boolean timeSpecified = point.time != 0 && prevTime != 0;
+				if (speed > 0 && timeSpecified && calculations[0] > timeDiffMillis / 10000f) {
+					setTimeMoving(getTimeMoving() + timeDiffMillis);
+					setTotalDistanceMoving(getTotalDistanceMoving() + calculations[0]);
+					if (generalSegment && !point.firstPoint) {
+						timeMovingOfSingleSegment += timeDiffMillis;
+						distanceMovingOfSingleSegment += calculations[0];
 					}
-					if (point.lastPoint) {
-						lastPoint = j < numberOfPoints - 1;
-						totalDistanceWithoutGaps += distanceOfSingleSegment;
-						timeMovingWithoutGaps += timeMovingOfSingleSegment;
-						totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
-					}
-				}
-				float distance = (j > 0) ? calculations[0] : 0;
-				PointAttributes attribute = new PointAttributes(distance, timeDiff, firstPoint, lastPoint);
-				attribute.speed = speed;
-				attribute.elevation = elevation;
-				addWptAttribute(point, attribute, pointsAnalyser);
-				if (attribute.sensorSpeed > 0 && !Float.isInfinite(attribute.sensorSpeed)) {
-					setMaxSensorSpeed(Math.max(attribute.sensorSpeed, getMaxSensorSpeed()));
-					sensorSpeedCount++;
-					totalSensorSpeedSum += attribute.sensorSpeed;
 				}
 
-				if (attribute.bikeCadence > 0) {
-					setMaxSensorCadence(Math.max(attribute.bikeCadence, getMaxSensorCadence()));
-					sensorCadenceCount++;
-					totalSensorCadenceSum += attribute.bikeCadence;
-				}
+				//Next few lines for Issue 3222 heuristic testing only
+				//	if (speed > 0 && point.time != 0 && prev.time != 0) {
+				//		timeMoving0 = timeMoving0 + (point.time - prev.time);
+				//		totalDistanceMoving0 += calculations[0];
+				//	}
+			}
+			prevLat = point.lat;
+			prevLon = point.lon;
+			prevTime = point.time;
+			hasPrevPoint |= j > 0;
+			setMinSpeed(Math.min(speed, getMinSpeed()));
+			if (speed > 0 && !Float.isInfinite(speed)) {
+				totalSpeedSum += speed;
+				setMaxSpeed(Math.max(speed, getMaxSpeed()));
+				speedCount++;
+			}
+			boolean isNaN = Double.isNaN(point.ele);
+			float elevation = isNaN ? Float.NaN : (float) point.ele;
+			if (!isNaN) {
+				totalElevation += point.ele;
+				elevationPoints++;
+				setMinElevation(Math.min(point.ele, getMinElevation()));
+				setMaxElevation(Math.max(point.ele, getMaxElevation()));
+			}
 
-				if (attribute.heartRate > 0) {
-					setMaxSensorHr(Math.max((int) attribute.heartRate, getMaxSensorHr()));
-					sensorHrCount++;
-					totalSensorHrSum += attribute.heartRate;
+			boolean firstPoint = false;
+			boolean lastPoint = false;
+			if (generalSegment) {
+				distanceOfSingleSegment += calculations[0];
+				if (point.firstPoint) {
+					firstPoint = j > 0;
+					distanceOfSingleSegment = 0;
+					timeMovingOfSingleSegment = 0;
+					distanceMovingOfSingleSegment = 0;
 				}
-
-				float temperature = attribute.getTemperature();
-				if (temperature > 0) {
-					setMaxSensorTemperature(Math.max((int) temperature, getMaxSensorTemperature()));
-					sensorTemperatureCount++;
-					totalSensorTemperatureSum += temperature;
+				if (point.lastPoint) {
+					lastPoint = !lastInSegment;
+					totalDistanceWithoutGaps += distanceOfSingleSegment;
+					timeMovingWithoutGaps += timeMovingOfSingleSegment;
+					totalDistanceMovingWithoutGaps += distanceMovingOfSingleSegment;
 				}
+			}
+			float distance = (j > 0) ? calculations[0] : 0;
+			PointAttributes attribute = new PointAttributes(distance, timeDiff, firstPoint, lastPoint);
+			attribute.speed = speed;
+			attribute.elevation = elevation;
+			addWptAttribute(point, attribute, pointsAnalyser, collectPointAttributes);
+			if (!(getTotalDistance() > 0)) {
+				speedBeforeDistance |= attribute.speed > 0;
+				elevationBeforeDistance |= !isNaN;
+			}
+			if (attribute.sensorSpeed > 0 && !Float.isInfinite(attribute.sensorSpeed)) {
+				setMaxSensorSpeed(Math.max(attribute.sensorSpeed, getMaxSensorSpeed()));
+				sensorSpeedCount++;
+				totalSensorSpeedSum += attribute.sensorSpeed;
+			}
 
-				if (attribute.bikePower > 0) {
-					setMaxSensorPower(Math.max((int) attribute.bikePower, getMaxSensorPower()));
-					sensorPowerCount++;
-					totalSensorPowerSum += attribute.bikePower;
-				}
+			if (attribute.bikeCadence > 0) {
+				setMaxSensorCadence(Math.max(attribute.bikeCadence, getMaxSensorCadence()));
+				sensorCadenceCount++;
+				totalSensorCadenceSum += attribute.bikeCadence;
+			}
+
+			if (attribute.heartRate > 0) {
+				setMaxSensorHr(Math.max((int) attribute.heartRate, getMaxSensorHr()));
+				sensorHrCount++;
+				totalSensorHrSum += attribute.heartRate;
+			}
+
+			float temperature = attribute.getTemperature();
+			if (temperature > 0) {
+				setMaxSensorTemperature(Math.max((int) temperature, getMaxSensorTemperature()));
+				sensorTemperatureCount++;
+				totalSensorTemperatureSum += temperature;
+			}
+
+			if (attribute.bikePower > 0) {
+				setMaxSensorPower(Math.max((int) attribute.bikePower, getMaxSensorPower()));
+				sensorPowerCount++;
+				totalSensorPowerSum += attribute.bikePower;
+			}
+			if (lastInSegment) {
+				locationEnd = reusedPoints ? new WptPt(point) : point;
 			}
-			processElevationDiff(s);
 		}
-		checkUnspecifiedValues(fileTimeStamp);
-		processAverageValues(totalElevation, elevationPoints, totalSpeedSum, speedCount);
 
-		setAvgSensorSpeed(processAverageValue(totalSensorSpeedSum, sensorSpeedCount));
-		setAvgSensorCadence(processAverageValue(totalSensorCadenceSum, sensorCadenceCount));
-		setAvgSensorHr(processAverageValue(totalSensorHrSum, sensorHrCount));
-		setAvgSensorPower(processAverageValue(totalSensorPowerSum, sensorPowerCount));
-		setAvgSensorTemperature(processAverageValue(totalSensorTemperatureSum, sensorTemperatureCount));
-		return this;
+		void finish(long fileTimeStamp) {
+			finish(GPXTrackAnalysis.this, fileTimeStamp);
+		}
+
+		void finish(GPXTrackAnalysis analysis, long fileTimeStamp) {
+			analysis.checkUnspecifiedValues(fileTimeStamp);
+			analysis.processAverageValues(totalElevation, elevationPoints, totalSpeedSum, speedCount);
+
+			analysis.setAvgSensorSpeed(processAverageValue(totalSensorSpeedSum, sensorSpeedCount));
+			analysis.setAvgSensorCadence(processAverageValue(totalSensorCadenceSum, sensorCadenceCount));
+			analysis.setAvgSensorHr(processAverageValue(totalSensorHrSum, sensorHrCount));
+			analysis.setAvgSensorPower(processAverageValue(totalSensorPowerSum, sensorPowerCount));
+			analysis.setAvgSensorTemperature(processAverageValue(totalSensorTemperatureSum, sensorTemperatureCount));
+		}
+
+		/**
+		 * Adds sums of processor of next points, values of analysis are merged separately
+		 */
+		void merge(PointsProcessor next, boolean continuedSegment) {
+			if (!(getTotalDistance() > 0)) {
+				speedBeforeDistance |= next.speedBeforeDistance;
+				elevationBeforeDistance |= next.elevationBeforeDistance;
+			}
+			derivedSpeed |= next.derivedSpeed;
+			totalElevation += next.totalElevation;
+			elevationPoints += next.elevationPoints;
+			speedCount += next.speedCount;
+			totalSpeedSum += next.totalSpeedSum;
+			sensorSpeedCount += next.sensorSpeedCount;
+			totalSensorSpeedSum += next.totalSensorSpeedSum;
+			sensorHrCount += next.sensorHrCount;
+			totalSensorHrSum += next.totalSensorHrSum;
+			sensorPowerCount += next.sensorPowerCount;
+			totalSensorPowerSum += next.totalSensorPowerSum;
+			sensorTemperatureCount += next.sensorTemperatureCount;
+			totalSensorTemperatureSum += next.totalSensorTemperatureSum;
+			sensorCadenceCount += next.sensorCadenceCount;
+			totalSensorCadenceSum += next.totalSensorCadenceSum;
+			if (next.hasPrevPoint) {
+				hasPrevPoint = true;
+				timeDiffMillis = next.timeDiffMillis;
+				timeDiff = next.timeDiff;
+				calculations[0] = next.calculations[0];
+			}
+			segmentDistance = continuedSegment ? segmentDistance + next.segmentDistance : next.segmentDistance;
+			pointIndex = next.pointIndex;
+			prevLat = next.prevLat;
+			prevLon = next.prevLon;
+			prevTime = next.prevTime;
+		}
 	}
 
-	private void addWptAttribute(WptPt point, PointAttributes attribute, TrackPointsAnalyser pointsAnalyser) {
+	private void addWptAttribute(WptPt point, PointAttributes attribute, TrackPointsAnalyser pointsAnalyser,
+			boolean collectPointAttributes) {
 		if (!hasSpeedData() && attribute.speed > 0 && getTotalDistance() > 0) {
 			setHasData(POINT_SPEED, true);
 		}
@@ -639,7 +810,9 @@ public class GPXTrackAnalysis {
 		if (pointsAnalyser != null) {
 			pointsAnalyser.onAnalysePoint(this, point, attribute);
 		}
-		pointAttributes.add(attribute);
+		if (collectPointAttributes) {
+			pointAttributes.add(attribute);
+		}
 	}
 
 	private void updateBounds(WptPt point) {
@@ -681,6 +854,73 @@ public class GPXTrackAnalysis {
 		}
 	}
 
+	/**
+	 * Adds values of analysis of next points (averages and time span are calculated by {@link PointsProcessor#finish})
+	 */
+	private void mergeValues(GPXTrackAnalysis next) {
+		totalDistanceWithoutGaps += next.totalDistanceWithoutGaps;
+		timeSpanWithoutGaps += next.timeSpanWithoutGaps;
+		timeMovingWithoutGaps += next.timeMovingWithoutGaps;
+		totalDistanceMovingWithoutGaps += next.totalDistanceMovingWithoutGaps;
+		expectedRouteDuration += next.expectedRouteDuration;
+		metricEnd += next.metricEnd;
+		secondaryMetricEnd += next.secondaryMetricEnd;
+
+		setTotalTracks(getTotalTracks() + next.getTotalTracks());
+		setWptPoints(getWptPoints() + next.getWptPoints());
+		if (getWptCategoryNames() == null) {
+			setWptCategoryNames(next.getWptCategoryNames());
+		}
+		setPoints(getPoints() + next.getPoints());
+		setTotalDistance(getTotalDistance() + next.getTotalDistance());
+		setTimeMoving(getTimeMoving() + next.getTimeMoving());
+		setTotalDistanceMoving(getTotalDistanceMoving() + next.getTotalDistanceMoving());
+		setDiffElevationUp(getDiffElevationUp() + next.getDiffElevationUp());
+		setDiffElevationDown(getDiffElevationDown() + next.getDiffElevationDown());
+		setStartTime(Math.min(getStartTime(), next.getStartTime()));
+		setEndTime(Math.max(getEndTime(), next.getEndTime()));
+		setMinElevation(Math.min(getMinElevation(), next.getMinElevation()));
+		setMaxElevation(Math.max(getMaxElevation(), next.getMaxElevation()));
+		setMinSpeed(Math.min(getMinSpeed(), next.getMinSpeed()));
+		setMaxSpeed(Math.max(getMaxSpeed(), next.getMaxSpeed()));
+		setMaxSensorSpeed(Math.max(getMaxSensorSpeed(), next.getMaxSensorSpeed()));
+		setMaxSensorCadence(Math.max(getMaxSensorCadence(), next.getMaxSensorCadence()));
+		setMaxSensorHr(Math.max(getMaxSensorHr(), next.getMaxSensorHr()));
+		setMaxSensorPower(Math.max(getMaxSensorPower(), next.getMaxSensorPower()));
+		setMaxSensorTemperature(Math.max(getMaxSensorTemperature(), next.getMaxSensorTemperature()));
+		if (getLatLonStart() == null && next.getLatLonStart() != null) {
+			setLatLonStart((double) next.getLatStart(), (double) next.getLonStart());
+		}
+		if (!Double.isNaN(next.minHdop) && (Double.isNaN(minHdop) || next.minHdop < minHdop)) {
+			minHdop = next.minHdop;
+		}
+		if (!Double.isNaN(next.maxHdop) && (Double.isNaN(maxHdop) || next.maxHdop > maxHdop)) {
+			maxHdop = next.maxHdop;
+		}
+		if (locationStart == null) {
+			locationStart = next.locationStart;
+		}
+		if (next.locationEnd != null) {
+			locationEnd = next.locationEnd;
+		}
+		if (next.left != 0 || next.right != 0) {
+			if (left == 0 && right == 0) {
+				left = next.left;
+				right = next.right;
+				top = next.top;
+				bottom = next.bottom;
+			} else {
+				left = Math.min(left, next.left);
+				right = Math.max(right, next.right);
+				top = Math.max(top, next.top);
+				bottom = Math.min(bottom, next.bottom);
+			}
+		}
+		pointAttributes.addAll(next.pointAttributes);
+		availableAttributes.addAll(next.availableAttributes);
+		hasSpeedInTrack |= next.hasSpeedInTrack;
+	}
+
 	public long getDurationInMs() {
 		return getTimeSpan() > 0 ? getTimeSpan() : expectedRouteDuration;
 	}
@@ -689,9 +929,8 @@ public class GPXTrackAnalysis {
 		return (int) (getDurationInMs() / 1000f + 0.5f);
 	}
 
-	private long getExpectedRouteSegmentDuration(SplitSegment segment) {
-		List<RouteSegment> routeSegments = segment.segment.routeSegments;
-		if (routeSegments != null && !segment.segment.generalSegment) {
+	private long getExpectedRouteDuration(List<RouteSegment> routeSegments) {
+		if (routeSegments != null) {
 			long result = 0;
 			for (RouteSegment routeSegment : routeSegments) {
 				result += (long) (1000 * Algorithms.parseFloatSilently(routeSegment.segmentTime, 0.0f));
@@ -726,11 +965,12 @@ public class GPXTrackAnalysis {
 		}
 	}
 
-	private void processElevationDiff(SplitSegment segment) {
-		ElevationApproximator approximator = getElevationApproximator(segment);
+	private void processElevationDiff(ElevationApproximator approximator) {
 		approximator.approximate();
-		final double[] distances = approximator.getDistances();
-		final double[] elevations = approximator.getElevations();
+		processElevationDiff(approximator.getDistances(), approximator.getElevations());
+	}
+
+	private void processElevationDiff(double[] distances, double[] elevations) {
 		if (distances != null && elevations != null) {
 			ElevationDiffsCalculator elevationDiffsCalc = getElevationDiffsCalculator(distances, elevations);
 			elevationDiffsCalc.calculateElevationDiffs();
@@ -782,6 +1022,298 @@ public class GPXTrackAnalysis {
 		};
 	}
 
+	/**
+	 * Single pass analysis of points read by {@link GPXStreamReader}, gives same values as
+	 * {@link GPXFile#getAnalysis(long)} except point attributes (not collected), expected route duration
+	 * and points groups declared in file extensions (extensions of file and segments are not read).
+	 * Memory doesn't depend on number of points, only elevation extremums of current segment are kept.
+	 */
+	public static class GPXStreamAnalyser extends GPXPointsVisitor {
+
+		private final GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		private final PointsProcessor processor;
+		private final long fileTimeStamp;
+		private final IncrementalElevationApproximator elevationApproximator = new IncrementalElevationApproximator();
+		private final Set<String> wptCategories = new HashSet<>();
+		private final WptPt firstPoint = new WptPt();
+		private WptPt lastPoint = new WptPt();
+		private int segmentPoints;
+		private int wptPoints;
+
+		public GPXStreamAnalyser(String name, long fileTimeStamp, TrackPointsAnalyser pointsAnalyser) {
+			this.fileTimeStamp = fileTimeStamp;
+			analysis.name = name;
+			processor = analysis.new PointsProcessor(pointsAnalyser, false, true);
+		}
+
+		public GPXTrackAnalysis getAnalysis() {
+			return analysis;
+		}
+
+		@Override
+		public void visitWayPoint(WptPt point) {
+			wptPoints++;
+			wptCategories.add(point.category != null ? point.category : "");
+		}
+
+		@Override
+		public void segmentStarted() {
+			segmentPoints = 0;
+			elevationApproximator.reset();
+		}
+
+		@Override
+		public void visitTrackPoint(WptPt point) {
+			segmentPoints++;
+			if (segmentPoints == 1) {
+				// segments with one point are not analysed
+				copyPoint(point, firstPoint);
+				return;
+			}
+			if (segmentPoints == 2) {
+				processor.startSegment(false, true);
+				processor.addPoint(firstPoint, false);
+				elevationApproximator.addPoint(firstPoint.lat, firstPoint.lon, firstPoint.ele);
+			}
+			processor.addPoint(point, false);
+			elevationApproximator.addPoint(point.lat, point.lon, point.ele);
+			copyPoint(point, lastPoint);
+		}
+
+		@Override
+		public void segmentFinished() {
+			analysis.setTotalTracks(analysis.getTotalTracks() + 1);
+			if (segmentPoints > 1) {
+				elevationApproximator.approximate();
+				analysis.processElevationDiff(elevationApproximator.getDistances(), elevationApproximator.getElevations());
+				analysis.locationEnd = lastPoint;
+				lastPoint = new WptPt();
+			}
+		}
+
+		@Override
+		public void finished() {
+			analysis.setWptPoints(wptPoints);
+			analysis.setWptCategoryNames(wptCategories);
+			processor.finish(fileTimeStamp);
+		}
+
+		private static void copyPoint(WptPt from, WptPt to) {
+			to.lat = from.lat;
+			to.lon = from.lon;
+			to.name = from.name;
+			to.link = from.link;
+			to.category = from.category;
+			to.desc = from.desc;
+			to.comment = from.comment;
+			to.time = from.time;
+			to.ele = from.ele;
+			to.speed = from.speed;
+			to.hdop = from.hdop;
+			to.heading = from.heading;
+			to.bearing = from.bearing;
+			to.distance = from.distance;
+			Map<String, String> extensions = from.getExtensionsToRead();
+			if (to.extensions != null) {
+				to.extensions.clear();
+			}
+			if (!extensions.isEmpty()) {
+				to.getExtensionsToWrite().putAll(extensions);
+			}
+		}
+	}
+
+	private static class PointsRange {
+
+		final SplitSegment segment;
+		final int from;
+		final int to;
+
+		PointsRange(SplitSegment segment, int from, int to) {
+			this.segment = segment;
+			this.from = from;
+			this.to = to;
+		}
+	}
+
+	/**
+	 * Analysis of consecutive points: ranges of segments (see {@link GPXFile#getAnalysis(long, ExecutorService)})
+	 * or points added during recording. Analysis of next points is merged in order with {@link #merge},
+	 * points could be appended without analysis of previous points, {@link #getAnalysis(long)} is calculated
+	 * from merged values. Number of tracks and way points are not counted.
+	 * Speed derived from displacement depends on speed of all previous points, so ranges analysed before
+	 * are analysed again on merge if needed (not possible for added points).
+	 */
+	public static class PartialAnalysis {
+
+		private final GPXTrackAnalysis analysis = new GPXTrackAnalysis();
+		private final PointsProcessor processor = analysis.new PointsProcessor(null, true, false);
+
+		// analysed ranges, null if points were added
+		private List<PointsRange> ranges = new ArrayList<>();
+		// ranges of first segment which continue segment of previous analysis (distances of points to update)
+		private List<PointsRange> headRanges = new ArrayList<>();
+		private boolean continuesSegment;
+		private boolean singleSegment = true;
+
+		private final IncrementalElevationApproximator elevationApproximator = new IncrementalElevationApproximator();
+		private WptPt firstSegmentPoint;
+		private int segmentPoints;
+
+		/**
+		 * Analysis of whole segment, could be kept and merged with analyses of other segments
+		 */
+		public static PartialAnalysis analyse(TrkSegment segment) {
+			SplitSegment s = new SplitSegment(segment);
+			return analyse(new PointsRange(s, 0, s.getNumberOfPoints()), false);
+		}
+
+		static PartialAnalysis analyse(PointsRange range, boolean hasSpeedInTrack) {
+			PartialAnalysis part = new PartialAnalysis();
+			GPXTrackAnalysis analysis = part.analysis;
+			PointsProcessor processor = part.processor;
+			SplitSegment s = range.segment;
+			analysis.hasSpeedInTrack = hasSpeedInTrack;
+			if (range.from == 0) {
+				analysis.metricEnd += s.metricEnd;
+				analysis.secondaryMetricEnd += s.secondaryMetricEnd;
+				if (!s.segment.generalSegment) {
+					analysis.expectedRouteDuration += analysis.getExpectedRouteDuration(s.segment.routeSegments);
+				}
+				processor.startSegment(s.segment.generalSegment, s.metricEnd == 0);
+			} else {
+				processor.continueSegment(s.get(range.from - 1));
+				part.continuesSegment = true;
+				part.headRanges.add(range);
+			}
+			int numberOfPoints = s.getNumberOfPoints();
+			for (int j = range.from; j < range.to; j++) {
+				processor.addPoint(s.get(j), j == numberOfPoints - 1);
+			}
+			if (range.from == 0) {
+				// elevation approximation isn't split, whole segment is analysed with first range
+				analysis.processElevationDiff(analysis.getElevationApproximator(s));
+			}
+			part.ranges.add(range);
+			return part;
+		}
+
+		private static PartialAnalysis analyse(List<PointsRange> ranges, boolean hasSpeedInTrack) {
+			PartialAnalysis result = new PartialAnalysis();
+			for (PointsRange range : ranges) {
+				result.merge(analyse(range, hasSpeedInTrack));
+			}
+			return result;
+		}
+
+		/**
+		 * Starts new segment for {@link #addPoint(WptPt)}
+		 */
+		public void startSegment() {
+			finishSegment();
+		}
+
+		/**
+		 * Adds point to last segment, segments with one point are not analysed (same as {@link GPXFile#getAnalysis(long)})
+		 */
+		public void addPoint(WptPt point) {
+			ranges = null;
+			segmentPoints++;
+			if (segmentPoints == 1) {
+				firstSegmentPoint = point;
+				return;
+			}
+			if (segmentPoints == 2) {
+				if (analysis.getPoints() > 0) {
+					singleSegment = false;
+				}
+				processor.startSegment(false, true);
+				processor.addPoint(firstSegmentPoint, true);
+				elevationApproximator.addPoint(firstSegmentPoint.lat, firstSegmentPoint.lon, firstSegmentPoint.ele);
+			}
+			processor.addPoint(point, true);
+			elevationApproximator.addPoint(point.lat, point.lon, point.ele);
+		}
+
+		/**
+		 * Merges analysis of next points, last segments of both analyses are finished.
+		 * Next analysis shouldn't be used after merge.
+		 */
+		public PartialAnalysis merge(PartialAnalysis next) {
+			finishSegment();
+			next.finishSegment();
+			if (next.analysis.getPoints() == 0) {
+				return this;
+			}
+			boolean empty = analysis.getPoints() == 0;
+			if (analysis.hasSpeedInTrack && next.processor.derivedSpeed && next.ranges != null) {
+				next = analyse(next.ranges, true);
+			}
+			if (next.continuesSegment) {
+				float offset = processor.segmentDistance;
+				for (PointsRange range : next.headRanges) {
+					for (int j = range.from; j < range.to; j++) {
+						range.segment.get(j).distance += offset;
+					}
+				}
+			} else if (!next.analysis.pointAttributes.isEmpty() && processor.timeDiff != 0) {
+				// first point of segment has time difference of last point of previous segment
+				PointAttributes first = next.analysis.pointAttributes.get(0);
+				next.analysis.pointAttributes.set(0, new PointAttributes(first, processor.timeDiff));
+			}
+			boolean hasDistance = analysis.getTotalDistance() > 0;
+			boolean speedData = analysis.hasSpeedData() || next.analysis.hasSpeedData()
+					|| (hasDistance && next.processor.speedBeforeDistance);
+			boolean elevationData = analysis.hasElevationData() || next.analysis.hasElevationData()
+					|| (hasDistance && next.processor.elevationBeforeDistance);
+			boolean continuedSegment = next.continuesSegment && next.singleSegment;
+			processor.merge(next.processor, continuedSegment);
+			analysis.mergeValues(next.analysis);
+			analysis.setHasData(POINT_SPEED, speedData);
+			analysis.setHasData(POINT_ELEVATION, elevationData);
+
+			if (ranges != null && next.ranges != null) {
+				ranges.addAll(next.ranges);
+			} else {
+				ranges = null;
+			}
+			if (empty) {
+				headRanges = next.headRanges;
+				continuesSegment = next.continuesSegment;
+				singleSegment = next.singleSegment;
+			} else if (singleSegment && continuedSegment) {
+				headRanges.addAll(next.headRanges);
+			} else {
+				singleSegment = false;
+			}
+			return this;
+		}
+
+		/**
+		 * Analysis of all merged and added points
+		 */
+		public GPXTrackAnalysis getAnalysis(long fileTimeStamp) {
+			GPXTrackAnalysis result = new GPXTrackAnalysis();
+			result.pointAttributes = new ArrayList<>();
+			result.availableAttributes = new HashSet<>();
+			result.mergeValues(analysis);
+			if (segmentPoints > 1 && elevationApproximator.approximate()) {
+				result.processElevationDiff(elevationApproximator.getDistances(), elevationApproximator.getElevations());
+			}
+			processor.finish(result, fileTimeStamp);
+			return result;
+		}
+
+		private void finishSegment() {
+			if (segmentPoints > 1 && elevationApproximator.approximate()) {
+				analysis.processElevationDiff(elevationApproximator.getDistances(), elevationApproximator.getElevations());
+			}
+			elevationApproximator.reset();
+			segmentPoints = 0;
+			firstSegmentPoint = null;
+		}
+	}
+
 	public interface TrackPointsAnalyser {
 		void onAnalysePoint(GPXTrackAnalysis analysis, WptPt point, PointAttributes attribute);
 	}
@@ -961,18 +961,7 @@ public class GPXUtilities {
 			XmlSerializer serializer = PlatformUtil.newSerializer();
 			serializer.setOutput(output);
 			serializer.setFeature("http://xmlpull.org/v1/doc/features.html#indent-output", true); //$NON-NLS-1$
-			serializer.startDocument("UTF-8", true); //$NON-NLS-1$
-			serializer.startTag(null, "gpx"); //$NON-NLS-1$
-			serializer.attribute(null, "version", "1.1"); //$NON-NLS-1$ //$NON-NLS-2$
-			if (file.author != null) {
-				serializer.attribute(null, "creator", file.author); //$NON-NLS-1$
-			}
-			serializer.attribute(null, "xmlns", "http://www.topografix.com/GPX/1/1"); //$NON-NLS-1$ //$NON-NLS-2$
-			serializer.attribute(null, "xmlns:osmand", "https://osmand.net");
-			serializer.attribute(null, "xmlns:gpxtpx", "http://www.garmin.com/xmlschemas/TrackPointExtension/v1");
-			serializer.attribute(null, "xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
-			serializer.attribute(null, "xsi:schemaLocation",
-					"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd");
+			startGpx(serializer, file.author);
 
 			assignPointsGroupsExtensionWriter(file);
 			writeMetadata(serializer, file, progress);
@@ -991,6 +980,21 @@ public class GPXUtilities {
 		return null;
 	}
 
+	static void startGpx(XmlSerializer serializer, String author) throws IOException {
+		serializer.startDocument("UTF-8", true); //$NON-NLS-1$
+		serializer.startTag(null, "gpx"); //$NON-NLS-1$
+		serializer.attribute(null, "version", "1.1"); //$NON-NLS-1$ //$NON-NLS-2$
+		if (author != null) {
+			serializer.attribute(null, "creator", author); //$NON-NLS-1$
+		}
+		serializer.attribute(null, "xmlns", "http://www.topografix.com/GPX/1/1"); //$NON-NLS-1$ //$NON-NLS-2$
+		serializer.attribute(null, "xmlns:osmand", "https://osmand.net");
+		serializer.attribute(null, "xmlns:gpxtpx", "http://www.garmin.com/xmlschemas/TrackPointExtension/v1");
+		serializer.attribute(null, "xmlns:xsi", "http://www.w3.org/2001/XMLSchema-instance");
+		serializer.attribute(null, "xsi:schemaLocation",
+				"http://www.topografix.com/GPX/1/1 http://www.topografix.com/GPX/1/1/gpx.xsd");
+	}
+
 	public static GPXExtensionsWriter createNetworkRouteExtensionWriter(final Map<String, String> networkRouteTags) {
 		return new GPXExtensionsWriter() {
 
@@ -1192,7 +1196,7 @@ public class GPXUtilities {
 		}
 	}
 
-	private static void writeWpt(XmlSerializer serializer, WptPt p, IProgress progress) throws IOException {
+	static void writeWpt(XmlSerializer serializer, WptPt p, IProgress progress) throws IOException {
 		serializer.attribute(null, "lat", LAT_LON_FORMAT.format(p.lat));
 		serializer.attribute(null, "lon", LAT_LON_FORMAT.format(p.lon));
 
@@ -1426,7 +1430,7 @@ public class GPXUtilities {
 		return time;
 	}
 
-	private static SimpleDateFormat getTimeFormatter() {
+	static SimpleDateFormat getTimeFormatter() {
 		SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_PATTERN, Locale.US);
 		format.setTimeZone(TimeZone.getTimeZone("UTC"));
 		return format;
@@ -1438,13 +1442,13 @@ public class GPXUtilities {
 		return format;
 	}
 
-	private static SimpleDateFormat getTimeFormatterTZ() {
+	static SimpleDateFormat getTimeFormatterTZ() {
 		SimpleDateFormat format = new SimpleDateFormat(GPX_TIME_PATTERN_TZ, Locale.US);
 		format.setTimeZone(TimeZone.getTimeZone("UTC"));
 		return format;
 	}
 
-	private static SimpleDateFormat getTimeFormatterMills() {
+	static SimpleDateFormat getTimeFormatterMills() {
 		String pattern = GPX_TIME_OLD_FORMAT ? GPX_TIME_MILLIS_PATTERN_OLD : GPX_TIME_MILLIS_PATTERN;
 		SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
 		format.setTimeZone(TimeZone.getTimeZone("UTC"));
@@ -1865,7 +1869,7 @@ public class GPXUtilities {
 		return gpxFile;
 	}
 
-	private static String getExtensionsSupportedTag(String tag) {
+	static String getExtensionsSupportedTag(String tag) {
 		String supportedTag = SUPPORTED_EXTENSION_TAGS.get(tag);
 		return supportedTag == null ? tag : supportedTag;
 	}
@@ -1885,7 +1889,7 @@ public class GPXUtilities {
 		return networkRouteKeyTags;
 	}
 
-	private static Map<String, PointsGroup> mergePointsGroups(List<PointsGroup> groups, List<WptPt> points) {
+	static Map<String, PointsGroup> mergePointsGroups(List<PointsGroup> groups, List<WptPt> points) {
 		Map<String, PointsGroup> pointsGroups = new LinkedHashMap<>();
 		for (PointsGroup category : groups) {
 			pointsGroups.put(category.name, category);
@@ -1916,7 +1920,7 @@ public class GPXUtilities {
 		return pointsGroups;
 	}
 
-	private static Reader getUTF8Reader(InputStream f) throws IOException {
+	static Reader getUTF8Reader(InputStream f) throws IOException {
 		BufferedInputStream bis = new BufferedInputStream(f);
 		assert bis.markSupported();
 		bis.mark(3);
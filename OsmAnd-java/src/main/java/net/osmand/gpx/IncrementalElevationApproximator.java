@@ -0,0 +1,108 @@
+package net.osmand.gpx;
+
+import net.osmand.util.MapUtils;
+
+import java.util.Arrays;
+
+/**
+ * Same result as {@link ElevationApproximator} for points added one by one:
+ * both filters (local extremums, slope threshold) depend only on previous survived point and next point,
+ * so only survived points are kept instead of whole segment.
+ */
+class IncrementalElevationApproximator {
+
+	private static final double SLOPE_THRESHOLD = 70.0;
+
+	private double[] lats = new double[16];
+	private double[] lons = new double[16];
+	private double[] elevations = new double[16];
+	private int size;
+
+	private int pointsCount;
+	private int extremumsCount;
+	private double lastExtremumEle;
+	private double pendingLat;
+	private double pendingLon;
+	private double pendingEle;
+
+	private double[] resultDistances;
+	private double[] resultElevations;
+
+	public void addPoint(double lat, double lon, double ele) {
+		if (pointsCount == 0) {
+			extremum(lat, lon, ele);
+		} else if (pointsCount > 1) {
+			// pending point is not first and not last
+			if ((pendingEle - lastExtremumEle) * (ele - pendingEle) > 0) {
+				extremum(pendingLat, pendingLon, pendingEle);
+			}
+		}
+		pointsCount++;
+		pendingLat = lat;
+		pendingLon = lon;
+		pendingEle = ele;
+	}
+
+	public boolean approximate() {
+		resultDistances = null;
+		resultElevations = null;
+		if (pointsCount < 4) {
+			return false;
+		}
+		// state is restored after approximation, so more points could be added (live recording)
+		int survivedCount = size;
+		int prevExtremumsCount = extremumsCount;
+		double prevLastExtremumEle = lastExtremumEle;
+		// last point always survives
+		extremum(pendingLat, pendingLon, pendingEle);
+		boolean approximated = extremumsCount >= 4 && size >= 4;
+		if (approximated) {
+			resultDistances = new double[size];
+			resultElevations = Arrays.copyOf(elevations, size);
+			for (int i = 1; i < size; i++) {
+				resultDistances[i] = MapUtils.getDistance(lats[i], lons[i], lats[i - 1], lons[i - 1]);
+			}
+		}
+		size = survivedCount;
+		extremumsCount = prevExtremumsCount;
+		lastExtremumEle = prevLastExtremumEle;
+		return approximated;
+	}
+
+	public double[] getDistances() {
+		return resultDistances;
+	}
+
+	public double[] getElevations() {
+		return resultElevations;
+	}
+
+	public void reset() {
+		size = 0;
+		pointsCount = 0;
+		extremumsCount = 0;
+		resultDistances = null;
+		resultElevations = null;
+	}
+
+	private void extremum(double lat, double lon, double ele) {
+		extremumsCount++;
+		lastExtremumEle = ele;
+		if (size > 0) {
+			double dist = MapUtils.getDistance(lat, lon, lats[size - 1], lons[size - 1]);
+			double slope = (ele - elevations[size - 1]) * 100 / dist;
+			if (Math.abs(slope) > SLOPE_THRESHOLD) {
+				return;
+			}
+		}
+		if (size == elevations.length) {
+			lats = Arrays.copyOf(lats, size * 2);
+			lons = Arrays.copyOf(lons, size * 2);
+			elevations = Arrays.copyOf(elevations, size * 2);
+		}
+		lats[size] = lat;
+		lons[size] = lon;
+		elevations[size] = ele;
+		size++;
+	}
+}
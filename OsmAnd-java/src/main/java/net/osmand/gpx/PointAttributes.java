@@ -46,6 +46,21 @@ public class PointAttributes {
 		this.lastPoint = lastPoint;
 	}
 
+	PointAttributes(PointAttributes attributes, float timeDiff) {
+		this(attributes.distance, timeDiff, attributes.firstPoint, attributes.lastPoint);
+		speed = attributes.speed;
+		elevation = attributes.elevation;
+		heartRate = attributes.heartRate;
+		sensorSpeed = attributes.sensorSpeed;
+		bikeCadence = attributes.bikeCadence;
+		bikePower = attributes.bikePower;
+		waterTemperature = attributes.waterTemperature;
+		airTemperature = attributes.airTemperature;
+		rawZoom = attributes.rawZoom;
+		animatedZoom = attributes.animatedZoom;
+		interpolationOffsetN = attributes.interpolationOffsetN;
+	}
+
 	public Float getAttributeValue(String tag) {
 		switch (tag) {
 			case POINT_SPEED:
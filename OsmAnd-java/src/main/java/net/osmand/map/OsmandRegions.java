@@ -70,6 +70,8 @@ public class OsmandRegions {
 
 
 	QuadTree<String> quadTree;
+	RegionsSpatialIndex regionsIndex;
+	Integer cachedNameType;
 	MapIndexFields mapIndexFields;
 	RegionTranslation translator;
 
@@ -278,6 +280,19 @@ public class OsmandRegions {
 		return reader != null;
 	}
 
+	private List<BinaryMapDataObject> getCountries(int x, int y) {
+		// first object of every region containing point as in getCountries(lx, rx, ty, by, checkCenter)
+		List<BinaryMapDataObject> result = regionsIndex.query(x, y);
+		Set<String> names = new HashSet<String>();
+		Iterator<BinaryMapDataObject> it = result.iterator();
+		while (it.hasNext()) {
+			if (!names.add(mapIndexFields.get(cachedNameType, it.next()))) {
+				it.remove();
+			}
+		}
+		return result;
+	}
+
 	public static boolean contain(BinaryMapDataObject bo, int tx, int ty) {
 		int t = 0;
 		for (int i = 1; i < bo.getPointsLength(); i++) {
@@ -395,6 +410,9 @@ public class OsmandRegions {
 	}
 
 	public List<BinaryMapDataObject> query(int lx, int rx, int ty, int by, boolean checkCenter) throws IOException {
+		if (regionsIndex != null && checkCenter) {
+			return getCountries(lx / 2 + rx / 2, ty / 2 + by / 2);
+		}
 		if (quadTree != null) {
 			return getCountries(lx, rx, ty, by, checkCenter);
 		}
@@ -402,6 +420,9 @@ public class OsmandRegions {
 	}
 
 	public List<BinaryMapDataObject> query(final int tile31x, final int tile31y) throws IOException {
+		if (regionsIndex != null) {
+			return getCountries(tile31x, tile31y);
+		}
 		if (quadTree != null) {
 			return getCountries(tile31x, tile31x, tile31y, tile31y, true);
 		}
@@ -625,6 +646,8 @@ public class OsmandRegions {
 	public Map<String, LinkedList<BinaryMapDataObject>> cacheAllCountries(final boolean useDownloadName) throws IOException {
 		quadTree = new QuadTree<String>(new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE),
 				8, 0.55f);
+		regionsIndex = null;
+		final List<BinaryMapDataObject> objects = new ArrayList<BinaryMapDataObject>();
 		final ResultMatcher<BinaryMapDataObject> resultMatcher = new ResultMatcher<BinaryMapDataObject>() {
 //			int c = 0;
 			@Override
@@ -641,6 +664,7 @@ public class OsmandRegions {
 				} else {
 					countriesByDownloadName.get(nm).add(object);
 				}
+				objects.add(object);
 				int maxx = object.getPoint31XTile(0);
 				int maxy = object.getPoint31YTile(0);
 				int minx = maxx;
@@ -669,6 +693,10 @@ public class OsmandRegions {
 			}
 		};
 		iterateOverAllObjects(resultMatcher);
+		if (mapIndexFields != null) {
+			cachedNameType = useDownloadName ? mapIndexFields.downloadNameType : mapIndexFields.fullNameType;
+			regionsIndex = new RegionsSpatialIndex(objects);
+		}
 		return countriesByDownloadName;
 	}
 
@@ -901,7 +929,11 @@ public class OsmandRegions {
 		Map<WorldRegion, BinaryMapDataObject> foundObjects = new LinkedHashMap<>();
 		List<BinaryMapDataObject> mapDataObjects;
 		try {
-			mapDataObjects = queryBboxNoInit(point31x, point31x, point31y, point31y, true);
+			if (regionsIndex != null) {
+				mapDataObjects = regionsIndex.query(point31x, point31y);
+			} else {
+				mapDataObjects = queryBboxNoInit(point31x, point31x, point31y, point31y, true);
+			}
 		} catch (IOException e) {
 			throw new IOException("Error while calling queryBbox");
 		}
@@ -938,6 +970,38 @@ public class OsmandRegions {
 		return keyNames;
 	}
 
+	/**
+	 * Batch version of {@link #getRegionsToDownload(double, double, List)}, uses resident regions index
+	 * when countries are cached ({@link #cacheAllCountries()}).
+	 */
+	public List<List<String>> getRegionsToDownload(List<LatLon> points) throws IOException {
+		List<List<String>> result = new ArrayList<List<String>>(points.size());
+		if (regionsIndex == null) {
+			for (LatLon p : points) {
+				result.add(getRegionsToDownload(p.getLatitude(), p.getLongitude(), new ArrayList<String>()));
+			}
+			return result;
+		}
+		int[] x31 = new int[points.size()];
+		int[] y31 = new int[points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			x31[i] = MapUtils.get31TileNumberX(points.get(i).getLongitude());
+			y31[i] = MapUtils.get31TileNumberY(points.get(i).getLatitude());
+		}
+		for (List<BinaryMapDataObject> objects : regionsIndex.query(x31, y31)) {
+			List<String> keyNames = new ArrayList<String>();
+			Set<String> names = new HashSet<String>();
+			for (BinaryMapDataObject b : objects) {
+				String downloadName = getDownloadName(b);
+				if (names.add(mapIndexFields.get(cachedNameType, b)) && !Algorithms.isEmpty(downloadName)) {
+					keyNames.add(downloadName);
+				}
+			}
+			result.add(keyNames);
+		}
+		return result;
+	}
+
 	private void addPolygonToRegionIfValid(BinaryMapDataObject mapObject, WorldRegion worldRegion) {
 		if (mapObject.getPointsLength() < 3) {
 			return;
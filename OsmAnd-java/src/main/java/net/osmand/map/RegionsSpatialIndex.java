@@ -0,0 +1,328 @@
+package net.osmand.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.util.MapAlgorithms;
+
+/**
+ * Resident index of region boundaries for point lookups without reading regions file.
+ * <ul>
+ * <li>packed R-tree (STR order) over polygon bounding boxes</li>
+ * <li>per polygon grid of cells marked fully inside, fully outside or crossed by edges</li>
+ * <li>edges of polygon bucketed by grid rows, so ray casting in crossed cell checks only edges of one row</li>
+ * </ul>
+ * Result of point test is the same as {@link OsmandRegions#contain(BinaryMapDataObject, int, int)}
+ * for points inside polygon bbox. Index is immutable and could be used from different threads.
+ */
+public class RegionsSpatialIndex {
+
+	private static final int NODE_SIZE = 16;
+	private static final int MAX_GRID_SIZE = 64;
+
+	private static final byte CELL_OUTSIDE = 0;
+	private static final byte CELL_INSIDE = 1;
+	private static final byte CELL_EDGES = 2;
+
+	private static final Comparator<RegionPolygon> ORDER_COMPARATOR = new Comparator<RegionPolygon>() {
+		@Override
+		public int compare(RegionPolygon o1, RegionPolygon o2) {
+			return Integer.compare(o1.order, o2.order);
+		}
+	};
+
+	private final RegionPolygon[] polygons;
+	// nodes of all levels from leaves level to root, node i of level covers NODE_SIZE items of lower level
+	private final int[] levelStart;
+	private final int[] nodeLeft;
+	private final int[] nodeTop;
+	private final int[] nodeRight;
+	private final int[] nodeBottom;
+
+	public RegionsSpatialIndex(List<BinaryMapDataObject> objects) {
+		List<RegionPolygon> list = new ArrayList<RegionPolygon>();
+		for (int i = 0; i < objects.size(); i++) {
+			BinaryMapDataObject o = objects.get(i);
+			if (o.getPointsLength() > 0) {
+				list.add(new RegionPolygon(o, i));
+			}
+		}
+		polygons = sortTileRecursive(list);
+		List<int[]> levels = new ArrayList<int[]>();
+		int[] bboxes = new int[polygons.length * 4];
+		for (int i = 0; i < polygons.length; i++) {
+			RegionPolygon p = polygons[i];
+			bboxes[i * 4] = p.left;
+			bboxes[i * 4 + 1] = p.top;
+			bboxes[i * 4 + 2] = p.right;
+			bboxes[i * 4 + 3] = p.bottom;
+		}
+		int count = polygons.length;
+		do {
+			int nodes = (count + NODE_SIZE - 1) / NODE_SIZE;
+			int[] level = new int[nodes * 4];
+			for (int n = 0; n < nodes; n++) {
+				int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE, right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+				for (int i = n * NODE_SIZE; i < Math.min(count, (n + 1) * NODE_SIZE); i++) {
+					left = Math.min(left, bboxes[i * 4]);
+					top = Math.min(top, bboxes[i * 4 + 1]);
+					right = Math.max(right, bboxes[i * 4 + 2]);
+					bottom = Math.max(bottom, bboxes[i * 4 + 3]);
+				}
+				level[n * 4] = left;
+				level[n * 4 + 1] = top;
+				level[n * 4 + 2] = right;
+				level[n * 4 + 3] = bottom;
+			}
+			levels.add(level);
+			bboxes = level;
+			count = nodes;
+		} while (count > 1);
+		levelStart = new int[levels.size() + 1];
+		for (int l = 0; l < levels.size(); l++) {
+			levelStart[l + 1] = levelStart[l] + levels.get(l).length / 4;
+		}
+		int total = levelStart[levels.size()];
+		nodeLeft = new int[total];
+		nodeTop = new int[total];
+		nodeRight = new int[total];
+		nodeBottom = new int[total];
+		for (int l = 0; l < levels.size(); l++) {
+			int[] level = levels.get(l);
+			for (int n = 0; n < level.length / 4; n++) {
+				int ind = levelStart[l] + n;
+				nodeLeft[ind] = level[n * 4];
+				nodeTop[ind] = level[n * 4 + 1];
+				nodeRight[ind] = level[n * 4 + 2];
+				nodeBottom[ind] = level[n * 4 + 3];
+			}
+		}
+	}
+
+	private static RegionPolygon[] sortTileRecursive(List<RegionPolygon> list) {
+		RegionPolygon[] arr = list.toArray(new RegionPolygon[0]);
+		Arrays.sort(arr, new Comparator<RegionPolygon>() {
+			@Override
+			public int compare(RegionPolygon o1, RegionPolygon o2) {
+				return Long.compare((long) o1.left + o1.right, (long) o2.left + o2.right);
+			}
+		});
+		int leaves = (arr.length + NODE_SIZE - 1) / NODE_SIZE;
+		int sliceSize = (int) Math.ceil(Math.sqrt(leaves)) * NODE_SIZE;
+		for (int i = 0; i < arr.length; i += sliceSize) {
+			Arrays.sort(arr, i, Math.min(arr.length, i + sliceSize), new Comparator<RegionPolygon>() {
+				@Override
+				public int compare(RegionPolygon o1, RegionPolygon o2) {
+					return Long.compare((long) o1.top + o1.bottom, (long) o2.top + o2.bottom);
+				}
+			});
+		}
+		return arr;
+	}
+
+	public int size() {
+		return polygons.length;
+	}
+
+	/**
+	 * @return objects containing point in order they were passed to index
+	 */
+	public List<BinaryMapDataObject> query(int x31, int y31) {
+		return query(x31, y31, new ArrayList<RegionPolygon>(), new int[levelStart.length * NODE_SIZE * 2]);
+	}
+
+	/**
+	 * Batch lookup of many points, result i contains objects containing point (x31[i], y31[i]).
+	 */
+	public List<List<BinaryMapDataObject>> query(int[] x31, int[] y31) {
+		List<List<BinaryMapDataObject>> result = new ArrayList<List<BinaryMapDataObject>>(x31.length);
+		int[] stack = new int[levelStart.length * NODE_SIZE * 2];
+		List<RegionPolygon> found = new ArrayList<RegionPolygon>();
+		for (int i = 0; i < x31.length; i++) {
+			result.add(query(x31[i], y31[i], found, stack));
+		}
+		return result;
+	}
+
+	private List<BinaryMapDataObject> query(int x, int y, List<RegionPolygon> found, int[] stack) {
+		found.clear();
+		int size = 0;
+		// stack of (level, node)
+		if (polygons.length > 0) {
+			stack[size++] = levelStart.length - 2;
+			stack[size++] = 0;
+		}
+		while (size > 0) {
+			int node = stack[--size];
+			int level = stack[--size];
+			int ind = levelStart[level] + node;
+			if (x < nodeLeft[ind] || x > nodeRight[ind] || y < nodeTop[ind] || y > nodeBottom[ind]) {
+				continue;
+			}
+			int start = node * NODE_SIZE;
+			if (level == 0) {
+				for (int i = start; i < Math.min(polygons.length, start + NODE_SIZE); i++) {
+					if (polygons[i].contains(x, y)) {
+						found.add(polygons[i]);
+					}
+				}
+			} else {
+				int end = Math.min(start + NODE_SIZE, levelStart[level] - levelStart[level - 1]);
+				for (int n = start; n < end; n++) {
+					stack[size++] = level - 1;
+					stack[size++] = n;
+				}
+			}
+		}
+		if (found.size() > 1) {
+			Collections.sort(found, ORDER_COMPARATOR);
+		}
+		List<BinaryMapDataObject> result = new ArrayList<BinaryMapDataObject>(found.size());
+		for (RegionPolygon p : found) {
+			result.add(p.object);
+		}
+		return result;
+	}
+
+	private static class RegionPolygon {
+		final BinaryMapDataObject object;
+		final int order;
+		final int[] coordinates;
+		final int points;
+		final int left, top, right, bottom;
+		final int gridSize;
+		final long cellWidth, cellHeight;
+		final byte[] cells;
+		final int[] rowStart;
+		final int[] rowEdges;
+
+		RegionPolygon(BinaryMapDataObject object, int order) {
+			this.object = object;
+			this.order = order;
+			this.coordinates = object.getCoordinates();
+			this.points = object.getPointsLength();
+			int l = Integer.MAX_VALUE, t = Integer.MAX_VALUE, r = Integer.MIN_VALUE, b = Integer.MIN_VALUE;
+			for (int i = 0; i < points; i++) {
+				l = Math.min(l, x(i));
+				r = Math.max(r, x(i));
+				t = Math.min(t, y(i));
+				b = Math.max(b, y(i));
+			}
+			left = l;
+			top = t;
+			right = r;
+			bottom = b;
+			gridSize = Math.max(1, Math.min(MAX_GRID_SIZE, (int) Math.sqrt(points)));
+			cellWidth = ((long) right - left) / gridSize + 1;
+			cellHeight = ((long) bottom - top) / gridSize + 1;
+			cells = new byte[gridSize * gridSize];
+			// edge i is (i - 1, i), it could intersect ray for y in [minY, maxY]
+			int[] rowCount = new int[gridSize + 1];
+			for (int i = 1; i < points; i++) {
+				for (int row = row(Math.min(y(i - 1), y(i))); row <= row(Math.max(y(i - 1), y(i))); row++) {
+					rowCount[row + 1]++;
+				}
+			}
+			rowStart = new int[gridSize + 1];
+			for (int row = 0; row < gridSize; row++) {
+				rowStart[row + 1] = rowStart[row] + rowCount[row + 1];
+			}
+			rowEdges = new int[rowStart[gridSize]];
+			int[] pos = Arrays.copyOf(rowStart, gridSize);
+			for (int i = 1; i < points; i++) {
+				for (int row = row(Math.min(y(i - 1), y(i))); row <= row(Math.max(y(i - 1), y(i))); row++) {
+					rowEdges[pos[row]++] = i;
+				}
+			}
+			initCells();
+		}
+
+		private void initCells() {
+			boolean closed = points > 2 && x(0) == x(points - 1) && y(0) == y(points - 1);
+			if (!closed) {
+				// ray casting of not closed line depends on ray position, so cells couldn't be uniform
+				Arrays.fill(cells, CELL_EDGES);
+				return;
+			}
+			for (int i = 1; i < points; i++) {
+				markEdgeCells(x(i - 1), y(i - 1), x(i), y(i));
+			}
+			for (int row = 0; row < gridSize; row++) {
+				for (int col = 0; col < gridSize; col++) {
+					if (cells[row * gridSize + col] != CELL_EDGES) {
+						int cx = (int) Math.min(right, left + col * cellWidth + cellWidth / 2);
+						int cy = (int) Math.min(bottom, top + row * cellHeight + cellHeight / 2);
+						cells[row * gridSize + col] = rayCast(row, cx, cy) ? CELL_INSIDE : CELL_OUTSIDE;
+					}
+				}
+			}
+		}
+
+		private void markEdgeCells(int px, int py, int x, int y) {
+			int minY = Math.min(py, y), maxY = Math.max(py, y);
+			for (int row = row(minY); row <= row(maxY); row++) {
+				// x range of the edge inside row with margin for rounding
+				long rowTop = Math.max(minY, top + row * cellHeight);
+				long rowBottom = Math.min(maxY, top + (row + 1) * cellHeight - 1);
+				double x1 = px, x2 = x;
+				if (y != py) {
+					x1 = px + (rowTop - py) * ((double) x - px) / ((double) y - py);
+					x2 = px + (rowBottom - py) * ((double) x - px) / ((double) y - py);
+				}
+				int c1 = col((long) Math.floor(Math.min(x1, x2)) - 2);
+				int c2 = col((long) Math.ceil(Math.max(x1, x2)) + 2);
+				// ray casting shifts ray on vertex, so neighbor row is affected as well
+				for (int r = Math.max(0, row - 1); r <= Math.min(gridSize - 1, row + 1); r++) {
+					for (int c = c1; c <= c2; c++) {
+						cells[r * gridSize + c] = CELL_EDGES;
+					}
+				}
+			}
+		}
+
+		private int x(int i) {
+			return coordinates[i * 2];
+		}
+
+		private int y(int i) {
+			return coordinates[i * 2 + 1];
+		}
+
+		private int row(long y) {
+			return (int) Math.max(0, Math.min(gridSize - 1, (y - top) / cellHeight));
+		}
+
+		private int col(long x) {
+			return (int) Math.max(0, Math.min(gridSize - 1, (x - left) / cellWidth));
+		}
+
+		boolean contains(int x, int y) {
+			if (x < left || x > right || y < top || y > bottom) {
+				return false;
+			}
+			int row = (int) ((y - (long) top) / cellHeight);
+			byte cell = cells[row * gridSize + (int) ((x - (long) left) / cellWidth)];
+			if (cell != CELL_EDGES) {
+				return cell == CELL_INSIDE;
+			}
+			return rayCast(row, x, y);
+		}
+
+		// same as OsmandRegions.contain with edges of the row
+		private boolean rayCast(int row, int tx, int ty) {
+			int t = 0;
+			for (int k = rowStart[row]; k < rowStart[row + 1]; k++) {
+				int i = rowEdges[k];
+				int fx = MapAlgorithms.ray_intersect_x(x(i - 1), y(i - 1), x(i), y(i), ty);
+				if (Integer.MIN_VALUE != fx && tx >= fx) {
+					t++;
+				}
+			}
+			return t % 2 == 1;
+		}
+	}
+}
@@ -22,6 +22,10 @@ public class RenderingRule {
 
 	private final RenderingRulesStorage storage;
 	private Map<String, String> attributes;
+
+	// node of the rule in the last compiled program
+	private RenderingRulesProgram compiledProgram;
+	private int compiledNode = -1;
 	
 	public RenderingRule(Map<String, String> attributes, boolean isGroup, RenderingRulesStorage storage){
 		this.isGroup = isGroup;
@@ -47,6 +51,7 @@ public class RenderingRule {
 	}
 
 	public void init(Map<String, String> attributes) {
+		storage.rulesModified();
 		ArrayList<RenderingRuleProperty> props = new ArrayList<RenderingRuleProperty>(attributes.size());
 		intProperties = new int[attributes.size()];
 		floatProperties = new float[attributes.size()];
@@ -154,6 +159,7 @@ public class RenderingRule {
 	}
 	
 	public void addIfChildren(RenderingRule rr){
+		storage.rulesModified();
 		if(ifChildren == null){
 			ifChildren = new ArrayList<RenderingRule>();
 		}
@@ -161,6 +167,7 @@ public class RenderingRule {
 	}
 	
 	public void addIfElseChildren(RenderingRule rr){
+		storage.rulesModified();
 		if(ifElseChildren == null){
 			ifElseChildren = new ArrayList<RenderingRule>();
 		}
@@ -168,6 +175,7 @@ public class RenderingRule {
 	}
 	
 	public void addToBeginIfElseChildren(RenderingRule rr){
+		storage.rulesModified();
 		if(ifElseChildren == null){
 			ifElseChildren = new ArrayList<RenderingRule>();
 		}
@@ -178,7 +186,21 @@ public class RenderingRule {
 		return isGroup;
 	}
 
+	RenderingRulesStorage getStorage() {
+		return storage;
+	}
+
+	void setCompiledNode(RenderingRulesProgram program, int node) {
+		this.compiledProgram = program;
+		this.compiledNode = node;
+	}
+
+	int getCompiledNode(RenderingRulesProgram program) {
+		return compiledProgram == program ? compiledNode : -1;
+	}
+
 	public void removeIfChildren(RenderingRule rule) {
+		storage.rulesModified();
 		if (ifChildren != null) {
 			List<RenderingRule> children = new ArrayList<>(ifChildren);
 			children.remove(rule);
@@ -187,6 +209,7 @@ public class RenderingRule {
 	}
 
 	public void removeIfElseChildren(RenderingRule rule) {
+		storage.rulesModified();
 		if (ifElseChildren != null) {
 			List<RenderingRule> children = new ArrayList<>(ifElseChildren);
 			children.remove(rule);
@@ -19,6 +19,11 @@ public class RenderingRuleProperty {
 
 	public static final int TRUE_VALUE = 1;
 	public static final int FALSE_VALUE = 0;
+
+	// input check of less / greater int properties, used by compiled rules (see RenderingRulesProgram)
+	static final int CHECK_CUSTOM = 0;
+	static final int CHECK_RULE_VALUE_GREATER_OR_EQUAL = 1;
+	static final int CHECK_RULE_VALUE_LESS_OR_EQUAL = 2;
 	
 	// Fields C++
 	protected final int type;
@@ -26,6 +31,7 @@ public class RenderingRuleProperty {
 	protected final String attrName;
 	
 	protected int id = -1;
+	int inputCheck = CHECK_CUSTOM;
 
 	// use for custom rendering rule properties
 	protected String name;
@@ -255,7 +261,7 @@ public class RenderingRuleProperty {
 	}
 	
 	public static RenderingRuleProperty createInputLessIntProperty(String name){
-		return new RenderingRuleProperty(name, INT_TYPE, true) {
+		RenderingRuleProperty property = new RenderingRuleProperty(name, INT_TYPE, true) {
 			@Override
 			public boolean accept(int ruleValue, int renderingProperty, RenderingRuleSearchRequest req) {
 				if(!isIntParse() || !input){
@@ -264,10 +270,12 @@ public class RenderingRuleProperty {
 				return ruleValue >= renderingProperty;
 			}
 		};
+		property.inputCheck = CHECK_RULE_VALUE_GREATER_OR_EQUAL;
+		return property;
 	}
 	
 	public static RenderingRuleProperty createInputGreaterIntProperty(String name){
-		return new RenderingRuleProperty(name, INT_TYPE, true) {
+		RenderingRuleProperty property = new RenderingRuleProperty(name, INT_TYPE, true) {
 			@Override
 			public boolean accept(int ruleValue, int renderingProperty, RenderingRuleSearchRequest req) {
 				if(!isIntParse() || !input){
@@ -276,6 +284,8 @@ public class RenderingRuleProperty {
 				return ruleValue <= renderingProperty;
 			}
 		};
+		property.inputCheck = CHECK_RULE_VALUE_LESS_OR_EQUAL;
+		return property;
 	}
 	
 	public static RenderingRuleProperty createAdditionalStringProperty(String name) {
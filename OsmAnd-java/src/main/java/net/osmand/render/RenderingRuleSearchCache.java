@@ -0,0 +1,128 @@
+package net.osmand.render;
+
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+/**
+ * Bounded cache of {@link RenderingRuleSearchRequest} search results keyed by encoded per-object input values
+ * (state, tag, value, zoom, layer, ...) and additional types of object map index.
+ * Result is stored as difference of property values to the saved state of request.
+ * Open addressing table, lookups don't allocate, when max size is reached cache is cleared.
+ */
+class RenderingRuleSearchCache {
+
+	static final int DEFAULT_MAX_SIZE = 4096;
+
+	private static final int INITIAL_CAPACITY = 256;
+
+	static class SearchResult {
+		boolean found;
+		int[] ids;
+		int[] values;
+		float[] fvalues;
+	}
+
+	private final int maxSize;
+	private int[][] keys = new int[INITIAL_CAPACITY][];
+	private int[] hashes = new int[INITIAL_CAPACITY];
+	private MapIndex[] mapIndexes = new MapIndex[INITIAL_CAPACITY];
+	private SearchResult[] results = new SearchResult[INITIAL_CAPACITY];
+	private int size;
+
+	RenderingRuleSearchCache(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	int size() {
+		return size;
+	}
+
+	SearchResult get(int[] key, int length, MapIndex mapIndex) {
+		int h = hash(key, length);
+		int mask = keys.length - 1;
+		for (int i = h & mask; keys[i] != null; i = (i + 1) & mask) {
+			if (hashes[i] == h && mapIndexes[i] == mapIndex && equals(keys[i], key, length)) {
+				return results[i];
+			}
+		}
+		return null;
+	}
+
+	void put(int[] key, int length, MapIndex mapIndex, SearchResult result) {
+		if (size >= maxSize) {
+			clear();
+		}
+		if ((size + 1) * 2 > keys.length) {
+			rehash(keys.length * 2);
+		}
+		int h = hash(key, length);
+		int mask = keys.length - 1;
+		int i = h & mask;
+		for (; keys[i] != null; i = (i + 1) & mask) {
+			if (hashes[i] == h && mapIndexes[i] == mapIndex && equals(keys[i], key, length)) {
+				results[i] = result;
+				return;
+			}
+		}
+		int[] k = new int[length];
+		System.arraycopy(key, 0, k, 0, length);
+		keys[i] = k;
+		hashes[i] = h;
+		mapIndexes[i] = mapIndex;
+		results[i] = result;
+		size++;
+	}
+
+	void clear() {
+		if (size > 0) {
+			keys = new int[INITIAL_CAPACITY][];
+			hashes = new int[INITIAL_CAPACITY];
+			mapIndexes = new MapIndex[INITIAL_CAPACITY];
+			results = new SearchResult[INITIAL_CAPACITY];
+			size = 0;
+		}
+	}
+
+	private static int hash(int[] key, int length) {
+		int h = 1;
+		for (int i = 0; i < length; i++) {
+			h = 31 * h + key[i];
+		}
+		return h ^ (h >>> 16);
+	}
+
+	private static boolean equals(int[] k, int[] key, int length) {
+		if (k.length != length) {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			if (k[i] != key[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash(int capacity) {
+		int[][] oldKeys = keys;
+		int[] oldHashes = hashes;
+		MapIndex[] oldMapIndexes = mapIndexes;
+		SearchResult[] oldResults = results;
+		keys = new int[capacity][];
+		hashes = new int[capacity];
+		mapIndexes = new MapIndex[capacity];
+		results = new SearchResult[capacity];
+		int mask = capacity - 1;
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] != null) {
+				int i = oldHashes[j] & mask;
+				while (keys[i] != null) {
+					i = (i + 1) & mask;
+				}
+				keys[i] = oldKeys[j];
+				hashes[i] = oldHashes[j];
+				mapIndexes[i] = oldMapIndexes[j];
+				results[i] = oldResults[j];
+			}
+		}
+	}
+}
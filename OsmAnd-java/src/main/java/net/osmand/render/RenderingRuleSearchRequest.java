@@ -7,8 +7,12 @@ import static net.osmand.render.RenderingRuleProperty.INT_TYPE;
 import static net.osmand.render.RenderingRuleProperty.STRING_TYPE;
 
 import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+import net.osmand.render.RenderingRuleSearchCache.SearchResult;
 import net.osmand.util.Algorithms;
 
+import java.util.Arrays;
+
 
 public class RenderingRuleSearchRequest {
 
@@ -26,10 +30,26 @@ public class RenderingRuleSearchRequest {
 
 	private boolean searchResult = false;
 
+	// results cache for compiled rules, valid while state equals saved state except per object properties
+	private boolean cacheResults = true;
+	private final boolean cacheable;
+	private final boolean[] objectProperties;
+	private final int[] objectPropertiesIds;
+	private boolean savedState;
+	private RenderingRuleSearchCache cache;
+	private RenderingRulesProgram cacheProgram;
+	private int[] cacheKey = new int[32];
+	private int[] diffIds;
+	private int[] diffValues;
+	private float[] diffFvalues;
+
 	public RenderingRuleSearchRequest(RenderingRulesStorage storage) {
 		this.storage = storage;
 		this.ALL = storage.PROPS;
 		props = storage.PROPS.getPoperties();
+		objectProperties = new boolean[props.length];
+		objectPropertiesIds = getObjectProperties();
+		cacheable = isCacheable();
 		values = new int[props.length];
 		for (int i = 0; i < props.length; i++) {
 			if (!props[i].isColor()) {
@@ -49,11 +69,57 @@ public class RenderingRuleSearchRequest {
 		this.object = searchRequest.object;
 		this.searchResult = searchRequest.searchResult;
 		this.ALL = searchRequest.ALL;
+		this.objectProperties = new boolean[props.length];
+		this.objectPropertiesIds = getObjectProperties();
+		this.cacheable = searchRequest.cacheable;
+		this.cacheResults = searchRequest.cacheResults;
 		System.arraycopy(searchRequest.values, 0, values, 0, searchRequest.values.length);
 		System.arraycopy(searchRequest.fvalues, 0, fvalues, 0, searchRequest.fvalues.length);
 		saveState();
 	}
 
+	private int[] getObjectProperties() {
+		RenderingRuleProperty[] objProps = { ALL.R_TAG, ALL.R_VALUE, ALL.R_MINZOOM, ALL.R_MAXZOOM, ALL.R_LAYER,
+				ALL.R_AREA, ALL.R_POINT, ALL.R_CYCLE, ALL.R_TEXT_LENGTH, ALL.R_NAME_TAG, ALL.R_ADDITIONAL };
+		int[] ids = new int[objProps.length];
+		for (int i = 0; i < objProps.length; i++) {
+			ids[i] = objProps[i].getId();
+			objectProperties[ids[i]] = true;
+		}
+		return ids;
+	}
+
+	private boolean isCacheable() {
+		if (getClass() != RenderingRuleSearchRequest.class) {
+			return false;
+		}
+		for (RenderingRuleProperty p : props) {
+			// result of unknown custom checks could depend on anything
+			if (p.isInputProperty() && p.getClass() != RenderingRuleProperty.class
+					&& p.inputCheck == RenderingRuleProperty.CHECK_CUSTOM && p != ALL.R_ADDITIONAL) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Search results of compiled rules ({@link RenderingRulesStorage#compileRules()}) are cached by default
+	 * and reused for objects with the same tag, value, zoom, layer, area / point / cycle, text length, name tag
+	 * and additional types, when other properties are not changed since {@link #saveState()}.
+	 * Cache is cleared when rules are recompiled or saved state changes.
+	 */
+	public void setCacheResults(boolean cacheResults) {
+		this.cacheResults = cacheResults;
+		if (!cacheResults && cache != null) {
+			cache.clear();
+		}
+	}
+
+	int getCachedResultsCount() {
+		return cache == null ? 0 : cache.size();
+	}
+
 	RenderingRulesStorage getStorage() {
 		return storage;
 	}
@@ -65,24 +131,40 @@ public class RenderingRuleSearchRequest {
 	public void setStringFilter(RenderingRuleProperty p, String filter) {
 		assert p.isInputProperty();
 		values[p.getId()] = storage.getDictionaryValue(filter);
+		checkSavedState(p);
 	}
 
 	public void setIntFilter(RenderingRuleProperty p, int filter) {
 		assert p.isInputProperty();
 		values[p.getId()] = filter;
+		checkSavedState(p);
 	}
 	
 	public void setBooleanFilter(RenderingRuleProperty p, boolean filter) {
 		assert p.isInputProperty();
 		values[p.getId()] = filter ? RenderingRuleProperty.TRUE_VALUE : RenderingRuleProperty.FALSE_VALUE;
+		checkSavedState(p);
 	}
 
 	public void setFloatFilter(RenderingRuleProperty p, float filter) {
 		assert p.isInputProperty();
 		fvalues[p.getId()] = filter;
+		checkSavedState(p);
+	}
+
+	private void checkSavedState(RenderingRuleProperty p) {
+		int id = p.getId();
+		if (savedValues != null && !objectProperties[id]
+				&& (values[id] != savedValues[id] || fvalues[id] != savedFvalues[id])) {
+			savedState = false;
+		}
 	}
 
 	public void saveState() {
+		if (cache != null && (!Arrays.equals(values, savedValues) || !Arrays.equals(fvalues, savedFvalues))) {
+			cache.clear();
+		}
+		savedState = true;
 		savedValues = new int[values.length];
 		savedFvalues = new float[fvalues.length];
 		System.arraycopy(values, 0, savedValues, 0, values.length);
@@ -93,6 +175,7 @@ public class RenderingRuleSearchRequest {
 		System.arraycopy(savedValues, 0, values, 0, values.length);
 		System.arraycopy(savedFvalues, 0, fvalues, 0, fvalues.length);
 		object = null;
+		savedState = true;
 	}
 	
 	public void clearValue(RenderingRuleProperty p) {
@@ -126,11 +209,14 @@ public class RenderingRuleSearchRequest {
 	
 	public boolean searchRenderingAttribute(String attribute) {
 		searchResult = false;
+		savedState = false;
 		RenderingRule rule = storage.getRenderingAttributeRule(attribute);
 		if (rule == null) {
 			return false;
 		}
-		searchResult = visitRule(rule, true);
+		RenderingRulesProgram program = getClass() == RenderingRuleSearchRequest.class ? storage.getCompiledRules() : null;
+		int node = program == null ? -1 : rule.getCompiledNode(program);
+		searchResult = node >= 0 ? visitNode(program, node, true) : visitRule(rule, true);
 		return searchResult;
 	}
 
@@ -139,28 +225,97 @@ public class RenderingRuleSearchRequest {
 	}
 	
 	public boolean search(int state, boolean loadOutput) {
-		searchResult = false;
+		// subclasses could override checkInputProperties
+		RenderingRulesProgram program = getClass() == RenderingRuleSearchRequest.class ? storage.getCompiledRules() : null;
+		boolean cached = program != null && cacheResults && cacheable && savedState;
+		// search changes output values
+		savedState = false;
+		if (!cached) {
+			searchResult = search(program, state, loadOutput);
+			return searchResult;
+		}
+		if (cache == null) {
+			cache = new RenderingRuleSearchCache(RenderingRuleSearchCache.DEFAULT_MAX_SIZE);
+		}
+		if (cacheProgram != program) {
+			cache.clear();
+			cacheProgram = program;
+		}
+		int length = encodeCacheKey(program, state, loadOutput);
+		MapIndex mapIndex = object == null ? null : object.getMapIndex();
+		SearchResult res = cache.get(cacheKey, length, mapIndex);
+		if (res != null) {
+			System.arraycopy(savedValues, 0, values, 0, values.length);
+			System.arraycopy(savedFvalues, 0, fvalues, 0, fvalues.length);
+			for (int i = 0; i < res.ids.length; i++) {
+				values[res.ids[i]] = res.values[i];
+				fvalues[res.ids[i]] = res.fvalues[i];
+			}
+			searchResult = res.found;
+			return searchResult;
+		}
+		searchResult = search(program, state, loadOutput);
+		cache.put(cacheKey, length, mapIndex, createSearchResult(searchResult));
+		return searchResult;
+	}
+
+	private int encodeCacheKey(RenderingRulesProgram program, int state, boolean loadOutput) {
+		int[] additionalTypes = object != null && program.customChecks ? object.getAdditionalTypes() : null;
+		int length = 3 + objectPropertiesIds.length + (additionalTypes == null ? 0 : additionalTypes.length);
+		if (cacheKey.length < length) {
+			cacheKey = new int[length * 2];
+		}
+		int k = 0;
+		cacheKey[k++] = state;
+		cacheKey[k++] = loadOutput ? 1 : 0;
+		cacheKey[k++] = object == null ? 0 : 1;
+		for (int id : objectPropertiesIds) {
+			cacheKey[k++] = values[id];
+		}
+		if (additionalTypes != null) {
+			for (int type : additionalTypes) {
+				cacheKey[k++] = type;
+			}
+		}
+		return k;
+	}
+
+	private SearchResult createSearchResult(boolean found) {
+		if (diffIds == null) {
+			diffIds = new int[values.length];
+			diffValues = new int[values.length];
+			diffFvalues = new float[values.length];
+		}
+		int size = 0;
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] != savedValues[i] || fvalues[i] != savedFvalues[i]) {
+				diffIds[size] = i;
+				diffValues[size] = values[i];
+				diffFvalues[size] = fvalues[i];
+				size++;
+			}
+		}
+		SearchResult res = new SearchResult();
+		res.found = found;
+		res.ids = Arrays.copyOf(diffIds, size);
+		res.values = Arrays.copyOf(diffValues, size);
+		res.fvalues = Arrays.copyOf(diffFvalues, size);
+		return res;
+	}
+
+	private boolean search(RenderingRulesProgram program, int state, boolean loadOutput) {
 		int tagKey = values[storage.PROPS.R_TAG.getId()];
 		int valueKey = values[storage.PROPS.R_VALUE.getId()];
-		boolean result = searchInternal(state, tagKey, valueKey, loadOutput);
-		if (result) {
-			searchResult = true;
-			return true;
-		}
-		result = searchInternal(state, tagKey, 0, loadOutput);
-		if (result) {
-			searchResult = true;
+		if (searchInternal(program, state, tagKey, valueKey, loadOutput)) {
 			return true;
 		}
-		result = searchInternal(state, 0, 0, loadOutput);
-		if (result) {
-			searchResult = true;
+		if (searchInternal(program, state, tagKey, 0, loadOutput)) {
 			return true;
 		}
-		return false;
+		return searchInternal(program, state, 0, 0, loadOutput);
 	}
 
-	private boolean searchInternal(int state, int tagKey, int valueKey, boolean loadOutput) {
+	private boolean searchInternal(RenderingRulesProgram program, int state, int tagKey, int valueKey, boolean loadOutput) {
 		values[storage.PROPS.R_TAG.getId()] = tagKey;
 		values[storage.PROPS.R_VALUE.getId()] = valueKey;
 		values[storage.PROPS.R_DISABLE.getId()] = 0;
@@ -168,7 +323,8 @@ public class RenderingRuleSearchRequest {
 		if (accept == null) {
 			return false;
 		}
-		boolean match = visitRule(accept, loadOutput);
+		int node = program == null ? -1 : accept.getCompiledNode(program);
+		boolean match = node >= 0 ? visitNode(program, node, loadOutput) : visitRule(accept, loadOutput);
 		if (match && values[storage.PROPS.R_DISABLE.getId()] != 0) {
 			return false;
 		}
@@ -208,6 +364,7 @@ public class RenderingRuleSearchRequest {
 	}
 	
 	public void loadOutputProperties(RenderingRule rule, boolean override) {
+		savedState = false;
 		RenderingRuleProperty[] properties = rule.getProperties();
 		for (int i = 0; i < properties.length; i++) {
 			RenderingRuleProperty rp = properties[i];
@@ -257,6 +414,100 @@ public class RenderingRuleSearchRequest {
 		return true;
 	}
 
+	// same as visitRule, loadOutputProperties and checkInputProperties over compiled rules
+	private boolean visitNode(RenderingRulesProgram program, int node, boolean loadOutput) {
+		if (!checkInputProperties(program, node)) {
+			return false;
+		}
+		boolean group = program.group[node];
+		if (!loadOutput && !group) {
+			return true;
+		}
+		if (!group) {
+			loadOutputProperties(program, node, true);
+		}
+		boolean match = false;
+		for (int i = program.elseStart[node]; i < program.elseStart[node + 1]; i++) {
+			match = visitNode(program, program.elseNodes[i], loadOutput);
+			if (match) {
+				break;
+			}
+		}
+		boolean fit = (match || !group);
+		if (fit && loadOutput) {
+			if (group) {
+				loadOutputProperties(program, node, false);
+			}
+			for (int i = program.applyStart[node]; i < program.applyStart[node + 1]; i++) {
+				visitNode(program, program.applyNodes[i], loadOutput);
+			}
+		}
+		return fit;
+	}
+
+	private void loadOutputProperties(RenderingRulesProgram program, int node, boolean override) {
+		for (int i = program.outputStart[node]; i < program.outputStart[node + 1]; i++) {
+			RenderingRuleProperty rp = program.outputProperty[i];
+			if (override || !isSpecified(rp)) {
+				int id = rp.getId();
+				int attr = program.outputAttribute[i];
+				if (attr >= 0) {
+					visitNode(program, attr, true);
+					if (isSpecified(storage.PROPS.R_ATTR_COLOR_VALUE)) {
+						values[id] = getIntPropertyValue(storage.PROPS.R_ATTR_COLOR_VALUE);
+					} else if (isSpecified(storage.PROPS.R_ATTR_INT_VALUE)) {
+						values[id] = getIntPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+						fvalues[id] = getFloatPropertyValue(storage.PROPS.R_ATTR_INT_VALUE);
+					} else if (isSpecified(storage.PROPS.R_ATTR_BOOL_VALUE)) {
+						values[id] = getIntPropertyValue(storage.PROPS.R_ATTR_BOOL_VALUE);
+					}
+				} else if (rp.isFloat()) {
+					fvalues[id] = program.outputFloatValue[i];
+					values[id] = program.outputValue[i];
+				} else {
+					values[id] = program.outputValue[i];
+				}
+			}
+		}
+	}
+
+	private boolean checkInputProperties(RenderingRulesProgram program, int node) {
+		for (int i = program.checkStart[node]; i < program.checkStart[node + 1]; i++) {
+			int id = program.checkProperty[i];
+			boolean match;
+			switch (program.checkOp[i]) {
+			case RenderingRulesProgram.OP_EQUALS:
+				match = program.checkValue[i] == values[id];
+				break;
+			case RenderingRulesProgram.OP_RULE_GREATER_OR_EQUAL:
+				match = program.checkValue[i] >= values[id];
+				break;
+			case RenderingRulesProgram.OP_RULE_LESS_OR_EQUAL:
+				match = program.checkValue[i] <= values[id];
+				break;
+			case RenderingRulesProgram.OP_FLOAT_EQUALS:
+				match = program.checkFloatValue[i] == fvalues[id];
+				break;
+			case RenderingRulesProgram.OP_CUSTOM:
+				match = program.checkCustom[i].accept(program.checkValue[i], values[id], this);
+				break;
+			case RenderingRulesProgram.OP_CUSTOM_FLOAT:
+				match = program.checkCustom[i].accept(program.checkFloatValue[i], fvalues[id], this);
+				break;
+			case RenderingRulesProgram.OP_SET_DISABLE:
+				values[id] = program.checkValue[i];
+				match = true;
+				break;
+			default:
+				match = false;
+			}
+			if (!match) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public boolean isSpecified(RenderingRuleProperty property) {
 		if (property.isFloat()) {
 			return fvalues[property.getId()] != 0 || values[property.getId()] != -1;
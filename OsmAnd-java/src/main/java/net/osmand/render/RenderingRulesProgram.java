@@ -0,0 +1,211 @@
+package net.osmand.render;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rule trees of {@link RenderingRulesStorage} flattened into primitive arrays, so search request
+ * evaluates rules with array lookups instead of walking rule objects, lists and virtual property checks.
+ * <p>
+ * Every rule is a node, ranges of node are stored as offsets (node i uses [start[i], start[i + 1]) ):
+ * <ul>
+ * <li>checks - input properties in rule order, disable assignment is kept as operation at its position</li>
+ * <li>outputs - property id with precomputed int / float value or node of rendering attribute</li>
+ * <li>else children (case) and apply children (if)</li>
+ * </ul>
+ * Rules shared between trees (apply rules, rendering attributes) are compiled once.
+ * Program is immutable and becomes invalid after any modification of the compiled rules
+ * (see {@link RenderingRulesStorage#compileRules()}).
+ */
+class RenderingRulesProgram {
+
+	static final byte OP_EQUALS = 0;
+	static final byte OP_RULE_GREATER_OR_EQUAL = 1;
+	static final byte OP_RULE_LESS_OR_EQUAL = 2;
+	static final byte OP_FLOAT_EQUALS = 3;
+	static final byte OP_CUSTOM = 4;
+	static final byte OP_CUSTOM_FLOAT = 5;
+	static final byte OP_SET_DISABLE = 6;
+	static final byte OP_FALSE = 7;
+
+	final boolean[] group;
+
+	final int[] checkStart;
+	final byte[] checkOp;
+	final int[] checkProperty;
+	final int[] checkValue;
+	final float[] checkFloatValue;
+	final RenderingRuleProperty[] checkCustom;
+
+	final int[] outputStart;
+	final RenderingRuleProperty[] outputProperty;
+	final int[] outputValue;
+	final float[] outputFloatValue;
+	final int[] outputAttribute;
+
+	final int[] elseStart;
+	final int[] elseNodes;
+	final int[] applyStart;
+	final int[] applyNodes;
+
+	// custom checks could depend on search object (additional)
+	final boolean customChecks;
+
+	private final RenderingRulesStorage[] storages;
+	private final int[] storageModifications;
+
+	private RenderingRulesProgram(List<RenderingRule> nodes, Map<RenderingRule, Integer> index,
+			RenderingRuleProperty disable) {
+		int size = nodes.size();
+		group = new boolean[size];
+		checkStart = new int[size + 1];
+		outputStart = new int[size + 1];
+		elseStart = new int[size + 1];
+		applyStart = new int[size + 1];
+		List<RenderingRulesStorage> storagesList = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			RenderingRule rule = nodes.get(i);
+			int checks = 0, outputs = 0;
+			for (RenderingRuleProperty rp : rule.getProperties()) {
+				if (rp.isInputProperty() || rp == disable) {
+					checks++;
+				}
+				if (rp.isOutputProperty()) {
+					outputs++;
+				}
+			}
+			checkStart[i + 1] = checkStart[i] + checks;
+			outputStart[i + 1] = outputStart[i] + outputs;
+			elseStart[i + 1] = elseStart[i] + rule.getIfElseChildren().size();
+			applyStart[i + 1] = applyStart[i] + rule.getIfChildren().size();
+			if (!storagesList.contains(rule.getStorage())) {
+				storagesList.add(rule.getStorage());
+			}
+		}
+		checkOp = new byte[checkStart[size]];
+		checkProperty = new int[checkStart[size]];
+		checkValue = new int[checkStart[size]];
+		checkFloatValue = new float[checkStart[size]];
+		checkCustom = new RenderingRuleProperty[checkStart[size]];
+		outputProperty = new RenderingRuleProperty[outputStart[size]];
+		outputValue = new int[outputStart[size]];
+		outputFloatValue = new float[outputStart[size]];
+		outputAttribute = new int[outputStart[size]];
+		elseNodes = new int[elseStart[size]];
+		applyNodes = new int[applyStart[size]];
+		for (int i = 0; i < size; i++) {
+			RenderingRule rule = nodes.get(i);
+			group[i] = rule.isGroup();
+			RenderingRuleProperty[] properties = rule.getProperties();
+			int check = checkStart[i], output = outputStart[i];
+			for (int j = 0; j < properties.length; j++) {
+				RenderingRuleProperty rp = properties[j];
+				if (rp.isInputProperty()) {
+					checkOp[check] = getCheckOperation(rp);
+					checkProperty[check] = rp.getId();
+					checkValue[check] = rule.getIntProp(j);
+					checkFloatValue[check] = rule.getFloatProp(j);
+					checkCustom[check] = rp;
+					check++;
+					continue;
+				}
+				if (rp == disable) {
+					// quick disable even without loading output
+					checkOp[check] = OP_SET_DISABLE;
+					checkProperty[check] = rp.getId();
+					checkValue[check] = rule.getIntProp(j);
+					check++;
+				}
+				if (rp.isOutputProperty()) {
+					RenderingRule attr = rule.getAttrProp(j);
+					outputProperty[output] = rp;
+					outputValue[output] = rule.getIntProp(j);
+					outputFloatValue[output] = rule.getFloatProp(j);
+					outputAttribute[output] = attr == null ? -1 : index.get(attr);
+					output++;
+				}
+			}
+			int k = elseStart[i];
+			for (RenderingRule child : rule.getIfElseChildren()) {
+				elseNodes[k++] = index.get(child);
+			}
+			k = applyStart[i];
+			for (RenderingRule child : rule.getIfChildren()) {
+				applyNodes[k++] = index.get(child);
+			}
+		}
+		boolean custom = false;
+		for (byte op : checkOp) {
+			custom |= op == OP_CUSTOM || op == OP_CUSTOM_FLOAT;
+		}
+		customChecks = custom;
+		storages = storagesList.toArray(new RenderingRulesStorage[0]);
+		storageModifications = new int[storages.length];
+		for (int i = 0; i < storages.length; i++) {
+			storageModifications[i] = storages[i].getRulesModifications();
+		}
+	}
+
+	private static byte getCheckOperation(RenderingRuleProperty rp) {
+		if (rp.getClass() != RenderingRuleProperty.class) {
+			// subclasses with overridden accept
+			if (rp.inputCheck == RenderingRuleProperty.CHECK_RULE_VALUE_GREATER_OR_EQUAL) {
+				return OP_RULE_GREATER_OR_EQUAL;
+			} else if (rp.inputCheck == RenderingRuleProperty.CHECK_RULE_VALUE_LESS_OR_EQUAL) {
+				return OP_RULE_LESS_OR_EQUAL;
+			}
+			return rp.isFloat() ? OP_CUSTOM_FLOAT : OP_CUSTOM;
+		} else if (rp.isFloat()) {
+			return OP_FLOAT_EQUALS;
+		} else if (rp.isIntParse()) {
+			return OP_EQUALS;
+		}
+		return OP_FALSE;
+	}
+
+	boolean isValid() {
+		for (int i = 0; i < storages.length; i++) {
+			if (storages[i].getRulesModifications() != storageModifications[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	int getNodesCount() {
+		return group.length;
+	}
+
+	/**
+	 * Compiles roots and all rules reachable from them, compiled node of each rule is stored in
+	 * the rule ({@link RenderingRule#getCompiledNode}) to be found by rule lookup.
+	 */
+	static RenderingRulesProgram compile(List<RenderingRule> roots, RenderingRuleProperty disable) {
+		List<RenderingRule> nodes = new ArrayList<>();
+		Map<RenderingRule, Integer> index = new IdentityHashMap<>();
+		List<RenderingRule> queue = new ArrayList<>(roots);
+		while (!queue.isEmpty()) {
+			RenderingRule rule = queue.remove(queue.size() - 1);
+			if (index.containsKey(rule)) {
+				continue;
+			}
+			index.put(rule, nodes.size());
+			nodes.add(rule);
+			queue.addAll(rule.getIfElseChildren());
+			queue.addAll(rule.getIfChildren());
+			for (int i = 0; i < rule.getProperties().length; i++) {
+				RenderingRule attr = rule.getAttrProp(i);
+				if (attr != null) {
+					queue.add(attr);
+				}
+			}
+		}
+		RenderingRulesProgram program = new RenderingRulesProgram(nodes, index, disable);
+		for (int i = 0; i < nodes.size(); i++) {
+			nodes.get(i).setCompiledNode(program, i);
+		}
+		return program;
+	}
+}
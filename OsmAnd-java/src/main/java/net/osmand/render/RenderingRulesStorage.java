@@ -62,6 +62,9 @@ public class RenderingRulesStorage {
 
 	protected int internalVersion = 1;
 
+	private volatile int rulesModifications;
+	private volatile RenderingRulesProgram compiledRules;
+
 
 	public String getDependsName() {
 		return dependsName;
@@ -529,6 +532,35 @@ public class RenderingRulesStorage {
 		return null;
 	}
 
+	void rulesModified() {
+		rulesModifications++;
+	}
+
+	int getRulesModifications() {
+		return rulesModifications;
+	}
+
+	/**
+	 * Flattens all rules into program evaluated by {@link RenderingRuleSearchRequest} with array lookups.
+	 * Should be called after the style is loaded and before rendering, any later change of the rules
+	 * (registering or modifying rules) invalidates program and search falls back to rule trees till next compile.
+	 */
+	public void compileRules() {
+		List<RenderingRule> roots = new ArrayList<RenderingRule>();
+		for (TIntObjectHashMap<RenderingRule> rules : tagValueGlobalRules) {
+			if (rules != null) {
+				roots.addAll(rules.valueCollection());
+			}
+		}
+		roots.addAll(renderingAttributes.values());
+		compiledRules = RenderingRulesProgram.compile(roots, PROPS.R_DISABLE);
+	}
+
+	RenderingRulesProgram getCompiledRules() {
+		RenderingRulesProgram program = compiledRules;
+		return program != null && program.isValid() ? program : null;
+	}
+
 	public RenderingRule getRenderingAttributeRule(String attribute) {
 		return renderingAttributes.get(attribute);
 	}
@@ -1,7 +1,6 @@
 package net.osmand.router;
 
 import gnu.trove.map.TLongObjectMap;
-import gnu.trove.map.hash.TLongObjectHashMap;
 
 import java.io.IOException;
 import java.text.MessageFormat;
@@ -10,6 +9,12 @@ import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import net.osmand.PlatformUtil;
 import net.osmand.binary.RouteDataObject;
@@ -30,7 +35,7 @@ public class BinaryRoutePlanner {
 
 	protected static final Log log = PlatformUtil.getLog(BinaryRoutePlanner.class);
 
-	private static final int ROUTE_POINTS = 11;
+	/*private*/ static final int ROUTE_POINTS = 11;
 	static boolean ASSERT_CHECKS = true;
 	static boolean TRACE_ROUTING = false;
 	static int TEST_ID = 194349150;
@@ -59,12 +64,16 @@ public class BinaryRoutePlanner {
 		return ctx.config.heuristicCoefficient * distanceToEnd + distanceFromStart;
 	}
 
+	private static float cost(RouteSegment segment, RoutingContext ctx) {
+		return cost(segment.distanceFromStart, segment.distanceToEnd, ctx);
+	}
+
 	private static class RouteSegmentCost {
 		float cost;
 		RouteSegment segment;
 		
-		public RouteSegmentCost(RouteSegment segment, RoutingContext ctx) {
-			this.cost = cost(segment.distanceFromStart, segment.distanceToEnd, ctx);
+		public RouteSegmentCost(RouteSegment segment, float cost) {
+			this.cost = cost;
 			this.segment = segment;
 		}
 
@@ -74,20 +83,86 @@ public class BinaryRoutePlanner {
 		}
 	}
 
+	// Queue of segments to visit ordered by A* cost
+	interface SegmentsQueue {
+
+		void add(RouteSegment segment, float cost);
+
+		RouteSegment peek();
+
+		float peekCost();
+
+		RouteSegment poll();
+
+		int size();
+
+		boolean isEmpty();
+	}
+
+	// Default queue, allocates wrapper object per push
+	static class PriorityQueueSegments implements SegmentsQueue {
+
+		private final PriorityQueue<RouteSegmentCost> queue = new PriorityQueue<>(50, new SegmentsComparator());
+
+		@Override
+		public void add(RouteSegment segment, float cost) {
+			queue.add(new RouteSegmentCost(segment, cost));
+		}
+
+		@Override
+		public RouteSegment peek() {
+			RouteSegmentCost c = queue.peek();
+			return c == null ? null : c.segment;
+		}
+
+		@Override
+		public float peekCost() {
+			RouteSegmentCost c = queue.peek();
+			return c == null ? Float.NaN : c.cost;
+		}
+
+		@Override
+		public RouteSegment poll() {
+			RouteSegmentCost c = queue.poll();
+			return c == null ? null : c.segment;
+		}
+
+		@Override
+		public int size() {
+			return queue.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return queue.isEmpty();
+		}
+	}
+
+	static SegmentsQueue createSegmentsQueue(RoutingConfiguration config) {
+		return config.primitiveSegmentsQueue ? new RouteSegmentHeap() : new PriorityQueueSegments();
+	}
+
 	/**
 	 * Calculate route between start.segmentEnd and end.segmentStart (using A* algorithm)
 	 * return list of segments
 	 */
 	FinalRouteSegment searchRouteInternal(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end, 
 			TLongObjectMap<RouteSegment> boundaries) throws InterruptedException, IOException {
+		if (ctx.config.parallelBidirectionalSearch && start != null && end != null && boundaries == null
+				&& ctx.planRouteIn2Directions() && ctx.visitor == null && ctx.precalculatedRouteDirection == null) {
+			GeneralRouter reverseRouter = ctx.config.router.copyForConcurrentSearch();
+			if (reverseRouter != null) {
+				return searchRouteParallel(ctx, start, end, reverseRouter);
+			}
+		}
 		// measure time
 		ctx.memoryOverhead = 1000;
 		// Initializing priority queue to visit way segments 
-		PriorityQueue<RouteSegmentCost> graphDirectSegments = new PriorityQueue<>(50, new SegmentsComparator());
-		PriorityQueue<RouteSegmentCost> graphReverseSegments = new PriorityQueue<>(50, new SegmentsComparator());
+		SegmentsQueue graphDirectSegments = createSegmentsQueue(ctx.config);
+		SegmentsQueue graphReverseSegments = createSegmentsQueue(ctx.config);
 		// Set to not visit one segment twice (stores road.id << X + segmentStart)
-		TLongObjectHashMap<RouteSegment> visitedDirectSegments = new TLongObjectHashMap<RouteSegment>();
-		TLongObjectHashMap<RouteSegment> visitedOppositeSegments = new TLongObjectHashMap<RouteSegment>();
+		VisitedSegments visitedDirectSegments = new VisitedSegments();
+		VisitedSegments visitedOppositeSegments = new VisitedSegments();
 		initQueuesWithStartEnd(ctx, start, end, graphDirectSegments, graphReverseSegments);
 
 		boolean onlyBackward = ctx.getPlanRoadDirection() < 0;
@@ -104,11 +179,11 @@ public class BinaryRoutePlanner {
 			end.others = null;
 			forwardSearch = false;
 		}
-		PriorityQueue<RouteSegmentCost> graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
+		SegmentsQueue graphSegments = forwardSearch ?  graphDirectSegments : graphReverseSegments;
 		float[] minCost = new float[] { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
 		while (!graphSegments.isEmpty()) {
-			RouteSegmentCost cst = graphSegments.poll();
-			RouteSegment segment = cst.segment;
+			float segmentCost = graphSegments.peekCost();
+			RouteSegment segment = graphSegments.poll();
 			int visitedCnt = (start != null ? visitedDirectSegments.size() : 0) + (end != null ? visitedOppositeSegments.size() : 0);
 			// use accumulative approach
 			ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD +
@@ -164,22 +239,22 @@ public class BinaryRoutePlanner {
 					println("  " + segment.segEnd + ">> Already visited by minimum");
 				}
 				skipSegment = true;
-			} else if (cst.cost + 0.1 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
+			} else if (segmentCost + 0.1 < minCost[forwardSearch ? 1 : 0] && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
 				if (ctx.config.heuristicCoefficient <= 1) {
-					throw new IllegalStateException(cst.cost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
+					throw new IllegalStateException(segmentCost + " < ???  " + minCost[forwardSearch ? 1 : 0]);
 				}
 			} else {
-				minCost[forwardSearch ? 1 : 0] = cst.cost;
+				minCost[forwardSearch ? 1 : 0] = segmentCost;
 			}
 			if (!skipSegment) {
 				if (forwardSearch) {
 					boolean doNotAddIntersections = onlyBackward;
 					processRouteSegment(ctx, false, graphDirectSegments, visitedDirectSegments, segment,
-							visitedOppositeSegments, boundaries, doNotAddIntersections);
+							visitedOppositeSegments, boundaries, doNotAddIntersections, null);
 				} else {
 					boolean doNotAddIntersections = onlyForward;
 					processRouteSegment(ctx, true, graphReverseSegments, visitedOppositeSegments, segment,
-							visitedDirectSegments, boundaries, doNotAddIntersections);
+							visitedDirectSegments, boundaries, doNotAddIntersections, null);
 				}
 			}
 			updateCalculationProgress(ctx, graphDirectSegments, graphReverseSegments);
@@ -203,17 +278,17 @@ public class BinaryRoutePlanner {
 					graphSegments = graphDirectSegments.isEmpty() ? graphReverseSegments : graphDirectSegments;
 					if (finalSegment == null) {
 						while (!graphSegments.isEmpty()) {
-							RouteSegmentCost pc = graphSegments.poll();
-							if (pc.segment instanceof FinalRouteSegment) {
-								finalSegment = (FinalRouteSegment) pc.segment;
+							RouteSegment pc = graphSegments.poll();
+							if (pc instanceof FinalRouteSegment) {
+								finalSegment = (FinalRouteSegment) pc;
 								break;
 							}
 						}
 					}
 					return finalSegment;
 				} else {
-					RouteSegment fw = graphDirectSegments.peek().segment;
-					RouteSegment bw = graphReverseSegments.peek().segment;
+					RouteSegment fw = graphDirectSegments.peek();
+					RouteSegment bw = graphReverseSegments.peek();
 					forwardSearch = Double.compare(cost(fw.distanceFromStart, fw.distanceToEnd, ctx), 
 							cost(bw.distanceFromStart, bw.distanceToEnd,ctx)) <= 0;
 				}
@@ -247,8 +322,277 @@ public class BinaryRoutePlanner {
 		return finalSegment;
 	}
 
+	/**
+	 * One-to-all search (dijkstra) from start bounded by maxTime (seconds) with the same cost model as route search.
+	 * Segments are settled one by one in order of their start time, so every segment is passed to visitor once
+	 * with minimal time. Last segment of road could end after maxTime (it starts before).
+	 * Visited segments are kept till the end of search, so memory is bounded by maxTime and memory limit.
+	 * @return number of settled segments
+	 */
+	public int searchReachableSegments(final RoutingContext ctx, RouteSegmentPoint start, final float maxTime,
+			final ReachableSegmentVisitor visitor) throws InterruptedException {
+		ctx.memoryOverhead = 1000;
+		ctx.dijkstraMode = 1;
+		ctx.startX = ctx.targetX = start.preciseX;
+		ctx.startY = ctx.targetY = start.preciseY;
+		SegmentsQueue graphSegments = createSegmentsQueue(ctx.config);
+		VisitedSegments visitedSegments = new VisitedSegments();
+		SegmentSettleFilter settleFilter = new SegmentSettleFilter() {
+			@Override
+			public boolean settle(RouteSegment segment, float startTime) {
+				if (startTime > maxTime) {
+					return false;
+				}
+				if (visitor != null) {
+					visitor.visitReachableSegment(segment, startTime);
+				}
+				return true;
+			}
+		};
+		VisitedSegments oppositeSegments = new VisitedSegments();
+		initEdgeSegment(ctx, start, true, graphSegments, false);
+		initEdgeSegment(ctx, start, false, graphSegments, false);
+		while (!graphSegments.isEmpty() && graphSegments.peekCost() <= maxTime) {
+			RouteSegment segment = graphSegments.poll();
+			ctx.memoryOverhead = visitedSegments.size() * STANDARD_ROAD_VISITED_OVERHEAD
+					+ graphSegments.size() * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+			if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9) {
+				throw new IllegalStateException(String.format("There is not enough memory %.5f, %.5f - limit  %d  MB",
+						MapUtils.get31LatitudeY(ctx.startY), MapUtils.get31LongitudeX(ctx.startX),
+						ctx.config.memoryLimitation / (1 << 20)));
+			}
+			if (ctx.calculationProgress != null) {
+				ctx.calculationProgress.visitedSegments++;
+			}
+			if (!visitedSegments.containsKey(calculateRoutePointId(segment))) {
+				processRouteSegment(ctx, false, graphSegments, visitedSegments, segment, oppositeSegments, null, false,
+						settleFilter);
+			}
+			updateCalculationProgress(ctx, false, graphSegments);
+			if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+				throw new InterruptedException("Route calculation interrupted");
+			}
+		}
+		if (ctx.calculationProgress != null) {
+			ctx.calculationProgress.visitedDirectSegments += visitedSegments.size();
+			ctx.calculationProgress.directQueueSize += graphSegments.size();
+		}
+		return visitedSegments.size();
+	}
+
+	// State shared by forward and reverse threads of parallel search
+	private static class ParallelSearchState {
+		// progress of calling thread, worker thread counts in own progress
+		private final RouteCalculationProgress progress;
+		private FinalRouteSegment finalSegment;
+		private volatile float finalCost = Float.POSITIVE_INFINITY;
+		private volatile boolean stopped;
+		private volatile boolean directExhausted;
+		private volatile boolean reverseExhausted;
+
+		ParallelSearchState(RouteCalculationProgress progress) {
+			this.progress = progress;
+		}
+
+		boolean isCancelled() {
+			return progress != null && progress.isCancelled;
+		}
+
+		synchronized void addFinalSegment(FinalRouteSegment segment) {
+			if (finalSegment == null || segment.distanceFromStart < finalSegment.distanceFromStart) {
+				finalSegment = segment;
+				finalCost = segment.distanceFromStart;
+			}
+		}
+
+		synchronized FinalRouteSegment getFinalSegment() {
+			return finalSegment;
+		}
+	}
+
+	private static ExecutorService parallelSearchExecutor;
+
+	private static synchronized ExecutorService getParallelSearchExecutor() {
+		if (parallelSearchExecutor == null) {
+			parallelSearchExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Reverse route search");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return parallelSearchExecutor;
+	}
+
+	/**
+	 * Bidirectional A* where forward search runs in the calling thread and reverse search in a worker thread.
+	 * Searches meet through concurrent visited maps, route is final when both queues can't give cheaper route
+	 * than best found final segment (same condition as sequential search).
+	 */
+	private FinalRouteSegment searchRouteParallel(final RoutingContext ctx, RouteSegmentPoint start, final RouteSegmentPoint end,
+			GeneralRouter reverseRouter) throws InterruptedException {
+		ctx.memoryOverhead = 1000;
+		ctx.dijkstraMode = 0;
+		final SegmentsQueue graphDirectSegments = createSegmentsQueue(ctx.config);
+		final SegmentsQueue graphReverseSegments = createSegmentsQueue(ctx.config);
+		// both maps share locks, so opposite check & visit of a road are atomic (see processRouteSegment)
+		Object[] locks = VisitedSegments.createLocks(VisitedSegments.DEFAULT_STRIPES);
+		final VisitedSegments visitedDirectSegments = new VisitedSegments(locks);
+		final VisitedSegments visitedOppositeSegments = new VisitedSegments(locks);
+		initQueuesWithStartEnd(ctx, start, end, graphDirectSegments, graphReverseSegments);
+
+		final RoutingContext reverseCtx = ctx.createParallelSearchContext(reverseRouter);
+		final ParallelSearchState state = new ParallelSearchState(ctx.calculationProgress);
+		Future<Void> reverseSearch = getParallelSearchExecutor().submit(new Callable<Void>() {
+			@Override
+			public Void call() throws Exception {
+				searchRouteInDirection(reverseCtx, true, graphReverseSegments, visitedOppositeSegments,
+						graphDirectSegments, visitedDirectSegments, end, state);
+				return null;
+			}
+		});
+		try {
+			searchRouteInDirection(ctx, false, graphDirectSegments, visitedDirectSegments,
+					graphReverseSegments, visitedOppositeSegments, start, state);
+			reverseSearch.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			state.stopped = true;
+			waitParallelSearch(reverseSearch);
+			ctx.finishParallelSearch(reverseCtx);
+		}
+		if (ctx.calculationProgress != null) {
+			ctx.calculationProgress.visitedDirectSegments += visitedDirectSegments.size();
+			ctx.calculationProgress.visitedOppositeSegments += visitedOppositeSegments.size();
+			ctx.calculationProgress.directQueueSize += graphDirectSegments.size();
+			ctx.calculationProgress.oppositeQueueSize += graphReverseSegments.size();
+		}
+		return state.getFinalSegment();
+	}
+
+	private void waitParallelSearch(Future<Void> search) {
+		// don't leave worker touching shared tiles after return
+		boolean interrupted = false;
+		while (!search.isDone()) {
+			try {
+				search.get();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			} catch (ExecutionException e) {
+				// already reported or not interesting after the other search failed
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void searchRouteInDirection(final RoutingContext ctx, boolean reverseWaySearch, SegmentsQueue graphSegments,
+			VisitedSegments visitedSegments, SegmentsQueue oppositeGraphSegments,
+			VisitedSegments oppositeSegments, RouteSegmentPoint pnt, ParallelSearchState state)
+			throws InterruptedException {
+		float minCost = Float.NEGATIVE_INFINITY;
+		boolean completed = false;
+		try {
+			while (!state.stopped) {
+				if (graphSegments.isEmpty()) {
+					if (state.getFinalSegment() != null || !checkIfGraphIsEmpty(ctx, true, reverseWaySearch, graphSegments, pnt,
+							visitedSegments, reverseWaySearch ? "Route is not found to selected target point."
+									: "Route is not found from selected start point.")) {
+						if (reverseWaySearch) {
+							state.reverseExhausted = true;
+						} else {
+							state.directExhausted = true;
+						}
+						break;
+					}
+					minCost = Float.NEGATIVE_INFINITY;
+				}
+				if (reverseWaySearch ? state.directExhausted : state.reverseExhausted) {
+					// opposite search can't proceed any more - check if final already exist
+					while (!graphSegments.isEmpty()) {
+						RouteSegment pc = graphSegments.poll();
+						if (pc instanceof FinalRouteSegment) {
+							state.addFinalSegment((FinalRouteSegment) pc);
+							break;
+						}
+					}
+					break;
+				}
+				float segmentCost = graphSegments.peekCost();
+				if (segmentCost >= state.finalCost) {
+					// route found by opposite search can't be improved from this side
+					break;
+				}
+				RouteSegment segment = graphSegments.poll();
+				if (segment instanceof FinalRouteSegment) {
+					if (TRACE_ROUTING) {
+						println(" >>FINAL segment: " + segment);
+					}
+					state.addFinalSegment((FinalRouteSegment) segment);
+					break;
+				}
+				int visitedCnt = visitedSegments.size() + oppositeSegments.size();
+				ctx.memoryOverhead = visitedCnt * STANDARD_ROAD_VISITED_OVERHEAD
+						+ (graphSegments.size() + oppositeGraphSegments.size()) * STANDARD_ROAD_IN_QUEUE_OVERHEAD;
+				if (TRACE_ROUTING) {
+					printRoad(">", segment, reverseWaySearch);
+				}
+				if (ctx.config.MAX_VISITED > 0 && visitedCnt > ctx.config.MAX_VISITED) {
+					state.stopped = true;
+					break;
+				}
+				if (ctx.memoryOverhead > ctx.config.memoryLimitation * 0.9) {
+					throw new IllegalStateException(
+							String.format("There is not enough memory %.5f, %.5f -> %.5f, %.5f - limit  %d  MB",
+									MapUtils.get31LatitudeY(ctx.startY), MapUtils.get31LongitudeX(ctx.startX),
+									MapUtils.get31LatitudeY(ctx.targetY), MapUtils.get31LongitudeX(ctx.targetX),
+									ctx.config.memoryLimitation / (1 << 20)));
+				}
+				if (ctx.calculationProgress != null) {
+					ctx.calculationProgress.visitedSegments++;
+				}
+				boolean skipSegment = false;
+				if (visitedSegments.containsKey(calculateRoutePointId(segment))) {
+					skipSegment = true;
+				} else if (segmentCost + 0.1 < minCost && ASSERT_CHECKS && ctx.calculationMode != RouteCalculationMode.COMPLEX) {
+					if (ctx.config.heuristicCoefficient <= 1) {
+						throw new IllegalStateException(segmentCost + " < ???  " + minCost);
+					}
+				} else {
+					minCost = segmentCost;
+				}
+				if (!skipSegment) {
+					processRouteSegment(ctx, reverseWaySearch, graphSegments, visitedSegments, segment,
+							oppositeSegments, null, false, null);
+				}
+				updateCalculationProgress(ctx, reverseWaySearch, graphSegments);
+				if (state.isCancelled()) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+			}
+			completed = true;
+		} finally {
+			if (!completed) {
+				// stop opposite search on failure
+				state.stopped = true;
+			}
+		}
+	}
+
 	protected boolean checkIfGraphIsEmpty(final RoutingContext ctx, boolean allowDirection,
-			boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments, RouteSegmentPoint pnt, TLongObjectMap<RouteSegment> visited,
+			boolean reverseWaySearch, SegmentsQueue graphSegments, RouteSegmentPoint pnt, VisitedSegments visited,
 			String msg) {
 		if (allowDirection && graphSegments.isEmpty()) {
 			if (pnt.others != null) {
@@ -263,7 +607,7 @@ public class BinaryRoutePlanner {
 						pos.setParentRoute(null);
 						pos.distanceFromStart = 0;
 						pos.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(pos, ctx));
+						graphSegments.add(pos, cost(pos, ctx));
 					}
 					RouteSegment neg = next.initRouteSegment(false);
 					if (neg != null && !visited.containsKey(calculateRoutePointId(neg)) && 
@@ -271,7 +615,7 @@ public class BinaryRoutePlanner {
 						neg.setParentRoute(null);
 						neg.distanceFromStart = 0;
 						neg.distanceToEnd = estimatedDistance;
-						graphSegments.add(new RouteSegmentCost(neg, ctx));
+						graphSegments.add(neg, cost(neg, ctx));
 					}
 					if (!graphSegments.isEmpty()) {
 						println("Reiterate point with new " + (!reverseWaySearch ? "start " : "destination ")
@@ -287,7 +631,7 @@ public class BinaryRoutePlanner {
 		return false;
 	}
 
-	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, PriorityQueue<RouteSegmentCost> graphSegments, boolean reverseSearchWay) {
+	public RouteSegment initEdgeSegment(final RoutingContext ctx, RouteSegmentPoint pnt, boolean originalDir, SegmentsQueue graphSegments, boolean reverseSearchWay) {
 		if (pnt == null) {
 			return null;
 		}
@@ -331,7 +675,7 @@ public class BinaryRoutePlanner {
 		}
 		if (checkMovementAllowed(ctx, reverseSearchWay, seg)) {
 			seg.distanceToEnd = estimatedDistance(seg, reverseSearchWay, ctx);
-			graphSegments.add(new RouteSegmentCost(seg, ctx));
+			graphSegments.add(seg, cost(seg, ctx));
 			return seg;
 		}
 		return null;
@@ -348,7 +692,7 @@ public class BinaryRoutePlanner {
 	
 
 	private void initQueuesWithStartEnd(final RoutingContext ctx, RouteSegmentPoint start, RouteSegmentPoint end,
-			PriorityQueue<RouteSegmentCost> graphDirectSegments, PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+			SegmentsQueue graphDirectSegments, SegmentsQueue graphReverseSegments) {
 		if (start != null) {
 			ctx.startX = start.preciseX;
 			ctx.startY = start.preciseY;
@@ -377,22 +721,30 @@ public class BinaryRoutePlanner {
 	}
 
 
-	private void updateCalculationProgress(final RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphDirectSegments,
-			PriorityQueue<RouteSegmentCost> graphReverseSegments) {
+	private void updateCalculationProgress(final RoutingContext ctx, SegmentsQueue graphDirectSegments,
+			SegmentsQueue graphReverseSegments) {
+		updateCalculationProgress(ctx, false, graphDirectSegments);
+		updateCalculationProgress(ctx, true, graphReverseSegments);
+	}
+
+	private void updateCalculationProgress(final RoutingContext ctx, boolean reverseWaySearch, SegmentsQueue graphSegments) {
 		if (ctx.calculationProgress != null) {
-			ctx.calculationProgress.reverseSegmentQueueSize = graphReverseSegments.size();
-			ctx.calculationProgress.directSegmentQueueSize = graphDirectSegments.size();
-			if (!graphDirectSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
-				RouteSegment peek = graphDirectSegments.peek().segment;
-				ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
-						ctx.calculationProgress.distanceFromBegin);
-				ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
-			}
-			if (!graphReverseSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
-				RouteSegment peek = graphReverseSegments.peek().segment;
-				ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
-							ctx.calculationProgress.distanceFromEnd);
-				ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
+			if (!reverseWaySearch) {
+				ctx.calculationProgress.directSegmentQueueSize = graphSegments.size();
+				if (!graphSegments.isEmpty() && ctx.getPlanRoadDirection() >= 0) {
+					RouteSegment peek = graphSegments.peek();
+					ctx.calculationProgress.distanceFromBegin = Math.max(peek.distanceFromStart,
+							ctx.calculationProgress.distanceFromBegin);
+					ctx.calculationProgress.directDistance = peek.distanceFromStart + peek.distanceToEnd;
+				}
+			} else {
+				ctx.calculationProgress.reverseSegmentQueueSize = graphSegments.size();
+				if (!graphSegments.isEmpty() && ctx.getPlanRoadDirection() <= 0) {
+					RouteSegment peek = graphSegments.peek();
+					ctx.calculationProgress.distanceFromEnd = Math.max(peek.distanceFromStart + peek.distanceToEnd,
+								ctx.calculationProgress.distanceFromEnd);
+					ctx.calculationProgress.reverseDistance = peek.distanceFromStart + peek.distanceToEnd;
+				}
 			}
 		}
 	}
@@ -484,9 +836,9 @@ public class BinaryRoutePlanner {
 	}
 
 	private void processRouteSegment(final RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, TLongObjectMap<RouteSegment> visitedSegments,
-			RouteSegment startSegment, TLongObjectMap<RouteSegment> oppositeSegments,
-			TLongObjectMap<RouteSegment> boundaries, boolean doNotAddIntersections) {
+			SegmentsQueue graphSegments, VisitedSegments visitedSegments,
+			RouteSegment startSegment, VisitedSegments oppositeSegments,
+			TLongObjectMap<RouteSegment> boundaries, boolean doNotAddIntersections, SegmentSettleFilter settleFilter) {
 		if (ASSERT_CHECKS && !checkMovementAllowed(ctx, reverseWaySearch, startSegment)) {
 			throw new IllegalStateException();
 		}
@@ -514,34 +866,36 @@ public class BinaryRoutePlanner {
 			// 2. check if segment was already visited in opposite direction
 			// We check before we calculate segmentTime (to not calculate it twice with opposite and calculate turns
 			// onto each segment).
-			boolean bothDirVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments,
-					currentSegment, oppositeSegments, boundaries);
- 			
 			// 3. upload segment itself to visited segments
+			// In parallel search 2 & 3 are done under the road lock, so searches can't pass each other unnoticed
 			long nextPntId = calculateRoutePointId(currentSegment);
-			RouteSegment existingSegment = visitedSegments.put(nextPntId, currentSegment);
-			if (existingSegment != null) {
-				if (distFromStartPlusSegmentTime > existingSegment.distanceFromStart) {
-					// insert back original segment (test case with large area way)
-					visitedSegments.put(nextPntId, existingSegment);
-					if (TRACE_ROUTING) {
-						println("  " + currentSegment.segEnd + ">> Already visited");
-					}
-					break;
-				} else {
-					if (ctx.config.heuristicCoefficient <= 1) {
-						if (RoutingContext.PRINT_ROUTING_ALERTS) {
-							System.err.println("! ALERT slower segment was visited earlier " + distFromStartPlusSegmentTime + " > "
-								+ existingSegment.distanceFromStart + ": " + currentSegment + " - " + existingSegment);
-						} else {
-							ctx.alertSlowerSegmentedWasVisitedEarlier++;
-						}
-					}
+			boolean bothDirVisited;
+			boolean visited;
+			Object roadLock = visitedSegments.getLock(nextPntId);
+			if (roadLock != null) {
+				synchronized (roadLock) {
+					bothDirVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments,
+							currentSegment, oppositeSegments, boundaries);
+					visited = putVisitedSegment(ctx, visitedSegments, nextPntId, currentSegment,
+							distFromStartPlusSegmentTime, settleFilter != null);
 				}
+			} else {
+				bothDirVisited = checkIfOppositeSegmentWasVisited(ctx, reverseWaySearch, graphSegments,
+						currentSegment, oppositeSegments, boundaries);
+				visited = putVisitedSegment(ctx, visitedSegments, nextPntId, currentSegment,
+						distFromStartPlusSegmentTime, settleFilter != null);
+			}
+			if (!visited) {
+				if (TRACE_ROUTING) {
+					println("  " + currentSegment.segEnd + ">> Already visited");
+				}
+				break;
+			}
+			if (settleFilter != null
+					&& !settleFilter.settle(currentSegment, distFromStartPlusSegmentTime - segmentAndObstaclesTime)) {
+				// segment is beyond time limit of one-to-all search
+				break;
 			}
-						
-			// reassign @distanceFromStart to make it correct for visited segment
-			currentSegment.distanceFromStart = distFromStartPlusSegmentTime;
 			
 			if (bothDirVisited) {
  				// We stop here for shortcut creation (we can't improve the neighbors if they're already visited cause the opposite is min - prove by contradiction) 
@@ -556,9 +910,10 @@ public class BinaryRoutePlanner {
 
 			// Theoretically we should process each step separately but we don't have any issues with it. 
 			// a) final segment is always in queue & double checked b) using osm segment almost always is shorter routing than other connected
-			if (DEBUG_BREAK_EACH_SEGMENT && nextCurrentSegment != null) {
+			// One-to-all search settles segments only from queue, so time of each segment is minimal
+			if ((DEBUG_BREAK_EACH_SEGMENT || settleFilter != null) && nextCurrentSegment != null) {
 				if (!doNotAddIntersections) {
-					graphSegments.add(new RouteSegmentCost(nextCurrentSegment, ctx));
+					graphSegments.add(nextCurrentSegment, cost(nextCurrentSegment, ctx));
 				}
 				break;
 			}
@@ -627,18 +982,54 @@ public class BinaryRoutePlanner {
 		return s.getParentRoute();
 	}
 
+	/**
+	 * Puts segment to visited segments with time of its end (under road lock in parallel search,
+	 * so opposite search never sees segment with time of its start).
+	 * @return false if the same segment was visited faster (or settled by one-to-all search)
+	 */
+	private boolean putVisitedSegment(RoutingContext ctx, VisitedSegments visitedSegments, long pntId,
+			RouteSegment segment, float distFromStartPlusSegmentTime, boolean settled) {
+		float distFromStart = segment.distanceFromStart;
+		// reassign @distanceFromStart to make it correct for visited segment
+		segment.distanceFromStart = distFromStartPlusSegmentTime;
+		RouteSegment existingSegment = visitedSegments.put(pntId, segment);
+		if (existingSegment != null) {
+			// segment of one-to-all search is settled once by minimal time from queue
+			if (distFromStartPlusSegmentTime > existingSegment.distanceFromStart || settled) {
+				// insert back original segment (test case with large area way)
+				visitedSegments.put(pntId, existingSegment);
+				segment.distanceFromStart = distFromStart;
+				return false;
+			}
+			if (ctx.config.heuristicCoefficient <= 1) {
+				if (RoutingContext.PRINT_ROUTING_ALERTS) {
+					System.err.println("! ALERT slower segment was visited earlier " + distFromStartPlusSegmentTime + " > "
+							+ existingSegment.distanceFromStart + ": " + segment + " - " + existingSegment);
+				} else {
+					ctx.alertSlowerSegmentedWasVisitedEarlier++;
+				}
+			}
+		}
+		return true;
+	}
+
 	private boolean checkIfOppositeSegmentWasVisited(RoutingContext ctx, boolean reverseWaySearch,
-			PriorityQueue<RouteSegmentCost> graphSegments, RouteSegment currentSegment,
-			TLongObjectMap<RouteSegment> oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
+			SegmentsQueue graphSegments, RouteSegment currentSegment,
+			VisitedSegments oppositeSegments, TLongObjectMap<RouteSegment> boundaries) {
 		// check inverse direction for opposite
 		long currPoint = calculateRoutePointInternalId(currentSegment.getRoad(), 
 				currentSegment.getSegmentEnd(), currentSegment.getSegmentStart());
+		boolean oppositeVisited;
+		RouteSegment opposite;
 		if (boundaries != null && ctx.dijkstraMode != 0) {
 			// limit by boundaries for dijkstra mode
-			oppositeSegments = boundaries;
+			oppositeVisited = boundaries.containsKey(currPoint);
+			opposite = boundaries.get(currPoint);
+		} else {
+			oppositeVisited = oppositeSegments.containsKey(currPoint);
+			opposite = oppositeSegments.get(currPoint);
 		}
-		if (oppositeSegments.containsKey(currPoint)) {
-			RouteSegment opposite = oppositeSegments.get(currPoint);
+		if (oppositeVisited) {
 			RouteSegment curParent = getParentDiffId(currentSegment);
 			RouteSegment oppParent = getParentDiffId(opposite);
 			RouteSegment to = reverseWaySearch ? curParent : oppParent;
@@ -656,7 +1047,7 @@ public class BinaryRoutePlanner {
 					// impossible route (when start/point on same segment but different dir) don't add to queue
 					return true;
 				}
-				graphSegments.add(new RouteSegmentCost(frs, ctx));
+				graphSegments.add(frs, cost(frs, ctx));
 				if (TRACE_ROUTING) {
 					printRoad("  " + currentSegment.segEnd + ">> Final segment : ", frs, reverseWaySearch);
 				}
@@ -801,8 +1192,8 @@ public class BinaryRoutePlanner {
 		}
 	}
 
-	private RouteSegment processIntersections(RoutingContext ctx, PriorityQueue<RouteSegmentCost> graphSegments,
-			TLongObjectMap<RouteSegment> visitedSegments,  RouteSegment currentSegment,
+	private RouteSegment processIntersections(RoutingContext ctx, SegmentsQueue graphSegments,
+			VisitedSegments visitedSegments,  RouteSegment currentSegment,
 			boolean reverseWaySearch, boolean doNotAddIntersections) {
 		RouteSegment nextCurrentSegment = null;
 		int targetEndX = reverseWaySearch ? ctx.startX : ctx.targetX;
@@ -908,8 +1299,8 @@ public class BinaryRoutePlanner {
 		return nextCurrentSegment;
 	}
 
-	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, PriorityQueue<RouteSegmentCost> graphSegments,
-			TLongObjectMap<RouteSegment> visitedSegments, RouteSegment segment, RouteSegment next) {
+	private boolean processOneRoadIntersection(RoutingContext ctx, boolean reverseWaySearch, SegmentsQueue graphSegments,
+			VisitedSegments visitedSegments, RouteSegment segment, RouteSegment next) {
 		if (next != null) {
 			if (!checkMovementAllowed(ctx, reverseWaySearch, next)) {
 				return false;
@@ -973,7 +1364,7 @@ public class BinaryRoutePlanner {
 				// put additional information to recover whole route after
 				next.setParentRoute(segment);
 				if (graphSegments != null) {
-					graphSegments.add(new RouteSegmentCost(next, ctx));
+					graphSegments.add(next, cost(next, ctx));
 				}
 				return true;
 			}
@@ -989,6 +1380,24 @@ public class BinaryRoutePlanner {
 		public void visitApproximatedSegments(List<RouteSegmentResult> segment, GpxPoint start, GpxPoint target);
 	}
 	
+	interface SegmentSettleFilter {
+
+		/**
+		 * Called when time of segment end is calculated (segment.distanceFromStart)
+		 * @return false if search shouldn't continue along the road
+		 */
+		boolean settle(RouteSegment segment, float startTime);
+	}
+
+	public interface ReachableSegmentVisitor {
+
+		/**
+		 * Segment from segmentStart to segmentEnd point is reached at startTime and its end at distanceFromStart
+		 * (seconds, start time of first segment is negative as start point is in the middle of segment)
+		 */
+		public void visitReachableSegment(RouteSegment segment, float startTime);
+	}
+
 	public static class RouteSegmentPoint extends RouteSegment {
 		
 		public RouteSegmentPoint(RouteDataObject road, int segmentStart, double distToProj) {
@@ -1069,6 +1478,9 @@ public class BinaryRoutePlanner {
 		// VISITED: Approximated (h(x)) time from @segEnd of @this route segment to End [Start for reverse A*]
 		float distanceToEnd = 0;
 
+		// # Position in RouteSegmentHeap (-1 if not queued) to support decrease-key
+		int heapIndex = -1;
+
 		public RouteSegment(RouteDataObject road, int segmentStart, int segmentEnd) {
 			this.road = road;
 			this.segStart = (short) segmentStart;
@@ -1101,7 +1513,16 @@ public class BinaryRoutePlanner {
 				}
 			}
 		}
-		
+
+		// clears state of previous search, so segment of loaded tile could be visited by next search
+		void resetSearchState() {
+			next = null;
+			parentRoute = null;
+			distanceFromStart = 0;
+			distanceToEnd = 0;
+			heapIndex = -1;
+		}
+
 		public boolean isSegmentAttachedToStart() {
 			return parentRoute != null;
 		}
@@ -1,15 +1,19 @@
 package net.osmand.router;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
 import java.sql.SQLException;
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 import java.util.PriorityQueue;
 import java.util.Queue;
+import java.util.RandomAccess;
 import java.util.TreeMap;
 
 import com.google.protobuf.CodedInputStream;
@@ -19,6 +23,7 @@ import gnu.trove.map.hash.TIntObjectHashMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
+import net.osmand.binary.HHRoutePointsCache;
 import net.osmand.binary.BinaryMapIndexReader;
 import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
 import net.osmand.data.DataTileManager;
@@ -30,7 +35,7 @@ import net.osmand.util.MapUtils;
 
 public class HHRouteDataStructure {
 	
-	public static class HHRoutingConfig {
+	public static class HHRoutingConfig implements Cloneable {
 		public final static int CALCULATE_ALL_DETAILED = 3;
 		public static int STATS_VERBOSE_LEVEL = 1; // 0 less verbose
 		float HEURISTIC_COEFFICIENT = 0; // A* - 1, Dijkstra - 0
@@ -51,6 +56,8 @@ public class HHRouteDataStructure {
 		boolean ROUTE_ALL_SEGMENTS = false;
 		boolean ROUTE_ALL_ALT_SEGMENTS = false;
 		boolean PRELOAD_SEGMENTS = false;
+		boolean COMPACT_SEGMENTS = false;
+		File POINTS_CACHE_DIR = null; // cache decoded points of obf files (usually maps folder)
 		
 		boolean CACHE_CALCULATION_CONTEXT = false;
 		boolean CALC_ALTERNATIVES = false;
@@ -108,6 +115,16 @@ public class HHRouteDataStructure {
 			return this;
 		}
 		
+		public HHRoutingConfig compactSegments() {
+			this.COMPACT_SEGMENTS = true;
+			return this;
+		}
+		
+		public HHRoutingConfig cachePoints(File dir) {
+			this.POINTS_CACHE_DIR = dir;
+			return this;
+		}
+		
 		public HHRoutingConfig cacheContext(HHRoutingContext<NetworkDBPoint> toCache) {
 			this.CACHE_CALCULATION_CONTEXT = true;
 			this.cacheCtx = toCache;
@@ -152,6 +169,20 @@ public class HHRouteDataStructure {
 			return this;
 		}
 
+		public HHRoutingConfig dijkstraCopy() {
+			HHRoutingConfig c = copy();
+			c.HEURISTIC_COEFFICIENT = 0;
+			return c;
+		}
+
+		public HHRoutingConfig copy() {
+			try {
+				return (HHRoutingConfig) this.clone();
+			} catch (CloneNotSupportedException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
 		@Override
 		public String toString() {
 			return toString(null, null);
@@ -343,7 +374,11 @@ public class HHRouteDataStructure {
 					pnts = r.networkDB.loadNetworkPoints(r.id, pointClass);
 				}
 				if (r.file != null) {
-					pnts = r.file.initHHPoints(r.fileRegion, r.id, pointClass);
+					if (config != null && config.POINTS_CACHE_DIR != null) {
+						pnts = HHRoutePointsCache.loadPoints(config.POINTS_CACHE_DIR, r.file, r.fileRegion, r.id, pointClass);
+					} else {
+						pnts = r.file.initHHPoints(r.fileRegion, r.id, pointClass);
+					}
 				}
 				if (pnts != null) {
 					TLongObjectIterator<T> it = pnts.iterator();
@@ -505,6 +540,35 @@ public class HHRouteDataStructure {
 		
 	}
 	
+	public static class HHNetworkMatrixRes {
+
+		public final int sources;
+		public final int targets;
+		// sources x targets row by row, time in seconds, -1 if target is not reachable
+		public final float[] times;
+		// index of network point where routes meet, -1 if target is not reachable
+		public final int[] meetPoints;
+		public RoutingStats stats;
+		public String error;
+
+		public HHNetworkMatrixRes(int sources, int targets) {
+			this.sources = sources;
+			this.targets = targets;
+			this.times = new float[sources * targets];
+			this.meetPoints = new int[sources * targets];
+			Arrays.fill(times, -1);
+			Arrays.fill(meetPoints, -1);
+		}
+
+		public float getTime(int source, int target) {
+			return times[source * targets + target];
+		}
+
+		public int getMeetPoint(int source, int target) {
+			return meetPoints[source * targets + target];
+		}
+	}
+	
 	public static class HHNetworkSegmentRes {
 		public NetworkDBSegment segment;
 		public List<RouteSegmentResult> list = null;
@@ -517,12 +581,48 @@ public class HHRouteDataStructure {
 	
 	public static <T extends NetworkDBPoint> void setSegments(HHRoutingContext<T> ctx, T point,
 			byte[] in, byte[] out) {
+		if (ctx.config != null && ctx.config.COMPACT_SEGMENTS) {
+			point.connectedSet(true, parseCompactSegments(in, ctx.getIncomingPoints(point), point, false));
+			point.connectedSet(false, parseCompactSegments(out, ctx.getOutgoingPoints(point), point, true));
+			return;
+		}
 		point.connectedSet(true, HHRouteDataStructure.parseSegments(in, ctx.pointsById,
 				ctx.getIncomingPoints(point), point, false));
 		point.connectedSet(false, HHRouteDataStructure.parseSegments(out, ctx.pointsById,
 				ctx.getOutgoingPoints(point), point, true));		
 	}
 	
+	private static List<NetworkDBSegment> parseCompactSegments(byte[] bytes, List<? extends NetworkDBPoint> lst,
+			NetworkDBPoint pnt, boolean out) {
+		if (bytes == null || bytes.length == 0 || pnt.incomplete) {
+			return new ArrayList<>();
+		}
+		try {
+			NetworkDBPoint[] points = new NetworkDBPoint[lst.size()];
+			double[] dist = new double[lst.size()];
+			int size = 0;
+			ByteArrayInputStream str = new ByteArrayInputStream(bytes);
+			for (int i = 0; i < lst.size(); i++) {
+				int d = CodedInputStream.readRawVarint32(str);
+				if (d <= 0) {
+					continue;
+				}
+				points[size] = lst.get(i);
+				dist[size++] = d / 10.0;
+			}
+			if (str.available() > 0) {
+				System.err.println("Error reading file: " + pnt + " " + out);
+			}
+			if (size < points.length) {
+				points = Arrays.copyOf(points, size);
+				dist = Arrays.copyOf(dist, size);
+			}
+			return new CompactNetworkDBSegments(pnt, points, dist, out);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
 	private static List<NetworkDBSegment> parseSegments(byte[] bytes, TLongObjectHashMap<? extends NetworkDBPoint> pntsById,
 			List<? extends NetworkDBPoint> lst, NetworkDBPoint pnt, boolean out)  {
 		try {
@@ -585,6 +685,68 @@ public class HHRouteDataStructure {
 	}
 	
 	
+	/**
+	 * Segments of one point kept as connected points and costs arrays (12 bytes per segment instead of segment object),
+	 * segment objects are created on access and {@link #set(int, NetworkDBSegment)} stores modified cost back.
+	 * Search loop reads {@link #getConnectedPoint(int)} and {@link #getDist(int)} without creating segments.
+	 * Segments referenced from route results are modified later, so point replaces compact list with regular one
+	 * before looking them up ({@link NetworkDBPoint#materializeSegments(boolean)}).
+	 */
+	static class CompactNetworkDBSegments extends AbstractList<NetworkDBSegment> implements RandomAccess {
+		final NetworkDBPoint point;
+		final NetworkDBPoint[] points;
+		final double[] dist;
+		final boolean out;
+
+		CompactNetworkDBSegments(NetworkDBPoint point, NetworkDBPoint[] points, double[] dist, boolean out) {
+			this.point = point;
+			this.points = points;
+			this.dist = dist;
+			this.out = out;
+		}
+
+		/**
+		 * @return end of outgoing segment or start of incoming segment
+		 */
+		NetworkDBPoint getConnectedPoint(int i) {
+			return points[i];
+		}
+
+		double getDist(int i) {
+			return dist[i];
+		}
+
+		void setDist(int i, double d) {
+			dist[i] = d;
+		}
+
+		@Override
+		public NetworkDBSegment get(int i) {
+			return out ? new NetworkDBSegment(point, points[i], dist[i], true, false)
+					: new NetworkDBSegment(points[i], point, dist[i], false, false);
+		}
+
+		@Override
+		public NetworkDBSegment set(int i, NetworkDBSegment segment) {
+			NetworkDBSegment prev = get(i);
+			dist[i] = segment.dist;
+			return prev;
+		}
+
+		@Override
+		public int size() {
+			return points.length;
+		}
+
+		List<NetworkDBSegment> materialize() {
+			List<NetworkDBSegment> l = new ArrayList<>(points.length);
+			for (int i = 0; i < points.length; i++) {
+				l.add(get(i));
+			}
+			return l;
+		}
+	}
+	
 	static class NetworkDBPointRouteInfo {
 		NetworkDBPoint rtRouteToPoint;
 		boolean rtVisited;
@@ -712,8 +874,21 @@ public class HHRouteDataStructure {
 					MapUtils.get31LongitudeX(this.startX / 2 + this.endX / 2));
 		}
 		
+		/**
+		 * Replaces compact segments with segment objects, so segments could be referenced and modified.
+		 * @return null if segments are not loaded
+		 */
+		public List<NetworkDBSegment> materializeSegments(boolean rev) {
+			List<NetworkDBSegment> l = connected(rev);
+			if (l instanceof CompactNetworkDBSegments) {
+				l = ((CompactNetworkDBSegments) l).materialize();
+				connectedSet(rev, l);
+			}
+			return l;
+		}
+		
 		public NetworkDBSegment getSegment(NetworkDBPoint target, boolean dir) {
-			List<NetworkDBSegment> l = (dir ? connected : connectedReverse);
+			List<NetworkDBSegment> l = materializeSegments(!dir);
 			if (l == null) {
 				return null;
 			}
@@ -733,6 +908,15 @@ public class HHRouteDataStructure {
 			rtRev = null;
 		}
 
+		public void clearRouting(boolean rev) {
+			// keeps rtExclude, it is calculated once per routing parameters
+			if (rev) {
+				rtRev = null;
+			} else {
+				rtPos = null;
+			}
+		}
+
 		public int chInd() {
 			return 0;
 		}
@@ -34,6 +34,8 @@ import net.osmand.router.BinaryRoutePlanner.MultiFinalRouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegment;
 import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
 import net.osmand.router.GeneralRouter.RoutingParameter;
+import net.osmand.router.HHRouteDataStructure.CompactNetworkDBSegments;
+import net.osmand.router.HHRouteDataStructure.HHNetworkMatrixRes;
 import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
 import net.osmand.router.HHRouteDataStructure.HHNetworkSegmentRes;
 import net.osmand.router.HHRouteDataStructure.HHRouteRegionPointsCtx;
@@ -287,6 +289,286 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		return route;
 	}
 
+	/**
+	 * Calculates travel times between all sources and targets (many-to-many) on the network graph.
+	 * Each target runs one backward search which stores (target, time) buckets on settled points,
+	 * then each source runs one forward search and combines its times with buckets of settled points,
+	 * so N x M matrix needs N + M searches instead of N x M routes. Detailed geometry is not calculated.
+	 */
+	public HHNetworkMatrixRes runRoutingMatrix(List<LatLon> sources, List<LatLon> targets, HHRoutingConfig config)
+			throws SQLException, IOException, InterruptedException {
+		long startTime = System.nanoTime();
+		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
+		HHNetworkMatrixRes res = new HHNetworkMatrixRes(sources.size(), targets.size());
+		if (sources.isEmpty() || targets.isEmpty()) {
+			return res;
+		}
+		// buckets are valid only for complete dijkstra searches (config of caller is not modified)
+		config = prepareDefaultRoutingConfig(config).dijkstraCopy();
+		// select files covering the most distant points
+		LatLon first = sources.get(0), last = first;
+		double maxDist = 0;
+		for (int i = 0; i < sources.size() + targets.size(); i++) {
+			LatLon p = i < sources.size() ? sources.get(i) : targets.get(i - sources.size());
+			double d = MapUtils.getDistance(first, p);
+			if (d > maxDist) {
+				maxDist = d;
+				last = p;
+			}
+		}
+		HHRoutingContext<T> hctx = initHCtx(config, first, last);
+		if (hctx == null) {
+			res.error = "Files for hh routing were not initialized. Matrix couldn't be calculated.";
+			return res;
+		}
+		res.stats = hctx.stats;
+		filterPointsBasedOnConfiguration(hctx);
+		RoutePlannerFrontEnd planner = new RoutePlannerFrontEnd();
+		TIntObjectHashMap<MatrixBucket> buckets = new TIntObjectHashMap<>();
+		boolean[] reachedTargets = new boolean[targets.size()];
+		float[] row = new float[targets.size()];
+		int total = sources.size() + targets.size();
+		progress.hhIteration(HHIteration.ROUTING);
+		for (int t = 0; t < targets.size(); t++) {
+			TLongObjectHashMap<T> pnts = initMatrixPoint(hctx, planner, targets.get(t), true);
+			reachedTargets[t] = runMatrixSearch(hctx, pnts, true, t, buckets, null, null, null) > 0;
+			clearMatrixSearch(hctx, pnts, true);
+			if (progress.isCancelled) {
+				res.error = cancelledStatus().error;
+				return res;
+			}
+			progress.hhIterationProgress((t + 1) / (double) total);
+		}
+		for (int s = 0; s < sources.size(); s++) {
+			TLongObjectHashMap<T> pnts = initMatrixPoint(hctx, planner, sources.get(s), false);
+			Arrays.fill(row, Float.POSITIVE_INFINITY);
+			runMatrixSearch(hctx, pnts, false, s, buckets, reachedTargets, row, res);
+			clearMatrixSearch(hctx, pnts, false);
+			if (progress.isCancelled) {
+				res.error = cancelledStatus().error;
+				return res;
+			}
+			for (int t = 0; t < row.length; t++) {
+				if (row[t] != Float.POSITIVE_INFINITY) {
+					res.times[s * res.targets + t] = row[t];
+				}
+			}
+			progress.hhIterationProgress((targets.size() + s + 1) / (double) total);
+		}
+		hctx.stats.routingTime = (System.nanoTime() - startTime) / 1e6;
+		printf(HHRoutingConfig.STATS_VERBOSE_LEVEL >= 0,
+				"Routing matrix %d x %d %.1f ms: load/filter points %.1f ms, last mile %.1f ms, queue %.1f ms, %.1f ms - %,d edges, %,d visited - %s\n",
+				sources.size(), targets.size(), hctx.stats.routingTime, hctx.stats.loadPointsTime,
+				hctx.stats.searchPointsTime, hctx.stats.addQueueTime + hctx.stats.pollQueueTime,
+				hctx.stats.loadEdgesTime, hctx.stats.loadEdgesCnt, hctx.stats.uniqueVisitedVertices, hctx.getRoutingInfo());
+		return res;
+	}
+
+	private TLongObjectHashMap<T> initMatrixPoint(HHRoutingContext<T> hctx, RoutePlannerFrontEnd planner, LatLon p,
+			boolean reverse) throws IOException, InterruptedException {
+		long time = System.nanoTime();
+		TLongObjectHashMap<T> pnts = new TLongObjectHashMap<>();
+		hctx.setStartEnd(p, p);
+		RouteSegmentPoint s = null;
+		if (hctx.config.ROUTE_LAST_MILE) {
+			s = planner.findRouteSegment(p.getLatitude(), p.getLongitude(), hctx.rctx, null);
+		}
+		if (s != null || !hctx.config.ROUTE_LAST_MILE) {
+			initStart(hctx, s, reverse, pnts);
+		}
+		// direct routes without network points are not part of the matrix
+		pnts.remove(PNT_SHORT_ROUTE_START_END);
+		hctx.stats.searchPointsTime += (System.nanoTime() - time) / 1e6;
+		return pnts;
+	}
+
+	/**
+	 * Settles all network points reachable from init points (bounded by MAX_COST / MAX_SETTLE_POINTS).
+	 * Backward search (reverse) registers settled points in buckets,
+	 * forward search updates row with the best times to targets and stops when no target could be improved.
+	 * @return number of settled points
+	 */
+	private int runMatrixSearch(HHRoutingContext<T> hctx, TLongObjectHashMap<T> initPoints, boolean reverse, int ind,
+			TIntObjectHashMap<MatrixBucket> buckets, boolean[] reachedTargets, float[] row, HHNetworkMatrixRes res)
+			throws SQLException, IOException {
+		RouteCalculationProgress progress = hctx.rctx.calculationProgress;
+		Queue<NetworkDBPointCost<T>> queue = hctx.queue(reverse);
+		for (T p : initPoints.valueCollection()) {
+			if (p.rtExclude) {
+				continue;
+			}
+			double cost = p.rt(reverse).rtCost;
+			addPointToQueue(hctx, queue, reverse, p, null, p.rt(reverse).rtDistanceFromStart,
+					cost <= 0 ? MINIMAL_COST : cost);
+		}
+		int notReached = 0;
+		if (!reverse) {
+			for (boolean r : reachedTargets) {
+				if (r) {
+					notReached++;
+				}
+			}
+		}
+		float bound = Float.POSITIVE_INFINITY;
+		int settled = 0;
+		while (!queue.isEmpty()) {
+			if (progress != null && progress.isCancelled) {
+				break;
+			}
+			long tm = System.nanoTime();
+			NetworkDBPointCost<T> pointCost = queue.poll();
+			T point = pointCost.point;
+			hctx.stats.pollQueueTime += (System.nanoTime() - tm) / 1e6;
+			hctx.stats.visitedVertices++;
+			if (point.rt(reverse).rtVisited) {
+				continue;
+			}
+			if (!reverse && pointCost.cost >= bound) {
+				// all reachable targets are found and couldn't be improved
+				break;
+			}
+			hctx.stats.uniqueVisitedVertices++;
+			point.markVisited(reverse);
+			settled++;
+			float time = (float) point.rt(reverse).rtDistanceFromStart;
+			if (reverse) {
+				MatrixBucket b = buckets.get(point.index);
+				if (b == null) {
+					b = new MatrixBucket();
+					buckets.put(point.index, b);
+				}
+				b.add(ind, time);
+			} else {
+				MatrixBucket b = buckets.get(point.index);
+				boolean improved = false;
+				for (int i = 0; b != null && i < b.size; i++) {
+					int t = b.targets[i];
+					float tt = time + b.times[i];
+					if (tt < row[t]) {
+						if (row[t] == Float.POSITIVE_INFINITY) {
+							notReached--;
+						}
+						row[t] = tt;
+						res.meetPoints[ind * res.targets + t] = point.index;
+						improved = true;
+					}
+				}
+				if (improved && notReached == 0) {
+					bound = 0;
+					for (float f : row) {
+						if (f != Float.POSITIVE_INFINITY) {
+							bound = Math.max(bound, f);
+						}
+					}
+				}
+			}
+			if (hctx.config.MAX_COST > 0 && pointCost.cost > hctx.config.MAX_COST) {
+				break;
+			}
+			if (hctx.config.MAX_SETTLE_POINTS > 0 && settled > hctx.config.MAX_SETTLE_POINTS) {
+				break;
+			}
+			addConnectedToQueue(hctx, queue, point, reverse);
+		}
+		return settled;
+	}
+
+	private void clearMatrixSearch(HHRoutingContext<T> hctx, TLongObjectHashMap<T> initPoints, boolean reverse) {
+		hctx.queue(reverse).clear();
+		for (T p : hctx.queueAdded) {
+			p.clearRouting(reverse);
+		}
+		for (T p : initPoints.valueCollection()) {
+			p.clearRouting(reverse);
+		}
+		hctx.queueAdded.clear();
+	}
+
+	private static class MatrixBucket {
+		int size;
+		int[] targets = new int[2];
+		float[] times = new float[2];
+
+		void add(int target, float time) {
+			if (size == targets.length) {
+				targets = Arrays.copyOf(targets, size * 2);
+				times = Arrays.copyOf(times, size * 2);
+			}
+			targets[size] = target;
+			times[size++] = time;
+		}
+	}
+
+	public interface ReachableNetworkVisitor {
+
+		/**
+		 * Network point is reached at time (seconds) by network segment from parent reached at parentTime,
+		 * parent is null for points reached by last mile route from start
+		 */
+		public void visitReachablePoint(NetworkDBPoint point, float time, NetworkDBPoint parent, float parentTime);
+	}
+
+	/**
+	 * Streams network points reachable from start within maxTime (seconds) to visitor: one-to-all dijkstra
+	 * on the network graph. Roads between network points are not loaded, so it's much faster than
+	 * {@link BinaryRoutePlanner#searchReachableSegments} for large time budgets but only network points are visited.
+	 * @return number of settled points or -1 if files for hh routing were not initialized
+	 */
+	public int runReachableNetwork(LatLon start, float maxTime, HHRoutingConfig config, ReachableNetworkVisitor visitor)
+			throws SQLException, IOException, InterruptedException {
+		RouteCalculationProgress progress = currentCtx.rctx.calculationProgress;
+		// times of settled points are final only for dijkstra
+		config = prepareDefaultRoutingConfig(config).dijkstraCopy();
+		HHRoutingContext<T> hctx = initHCtx(config, start, start);
+		if (hctx == null) {
+			return -1;
+		}
+		filterPointsBasedOnConfiguration(hctx);
+		TLongObjectHashMap<T> pnts = null;
+		int settled = 0;
+		try {
+			progress.hhIteration(HHIteration.START_END_POINT);
+			pnts = initMatrixPoint(hctx, new RoutePlannerFrontEnd(), start, false);
+			progress.hhIteration(HHIteration.ROUTING);
+			Queue<NetworkDBPointCost<T>> queue = hctx.queue(false);
+			for (T p : pnts.valueCollection()) {
+				if (p.rtExclude) {
+					continue;
+				}
+				double cost = p.rt(false).rtCost;
+				addPointToQueue(hctx, queue, false, p, null, p.rt(false).rtDistanceFromStart,
+						cost <= 0 ? MINIMAL_COST : cost);
+			}
+			while (!queue.isEmpty()) {
+				if (progress.isCancelled) {
+					throw new InterruptedException("Route calculation interrupted");
+				}
+				T point = queue.poll().point;
+				hctx.stats.visitedVertices++;
+				if (point.rt(false).rtVisited) {
+					continue;
+				}
+				float time = (float) point.rt(false).rtDistanceFromStart;
+				if (time > maxTime) {
+					break;
+				}
+				hctx.stats.uniqueVisitedVertices++;
+				point.markVisited(false);
+				settled++;
+				NetworkDBPoint parent = point.rt(false).rtRouteToPoint;
+				visitor.visitReachablePoint(point, time, parent,
+						parent == null ? 0 : (float) parent.rt(false).rtDistanceFromStart);
+				addConnectedToQueue(hctx, queue, point, false);
+			}
+		} finally {
+			if (pnts != null) {
+				clearMatrixSearch(hctx, pnts, false);
+			}
+		}
+		progress.hhIteration(HHIteration.DONE);
+		return settled;
+	}
+
 	public static TreeMap<String, String> getFilteredTags(GeneralRouter generalRouter) {
 		Map<String, RoutingParameter> parameters = generalRouter.getParameters();
 		TreeMap<String, String> tm = new TreeMap<String, String>();
@@ -1082,10 +1364,24 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 		int cnt = hctx.loadNetworkSegmentPoint(point, reverse);
 		hctx.stats.loadEdgesCnt += cnt;
 		hctx.stats.loadEdgesTime += (System.nanoTime() - tm) / 1e6;
-		for (NetworkDBSegment connected : point.connected(reverse)) {
-			T nextPoint = (T) (reverse ? connected.start : connected.end);
-			if (!hctx.config.USE_CH && !hctx.config.USE_CH_SHORTCUTS && connected.shortcut) {
-				continue;
+		List<NetworkDBSegment> segments = point.connected(reverse);
+		// compact segments are read without creating segment objects (they are never shortcuts)
+		CompactNetworkDBSegments compact = segments instanceof CompactNetworkDBSegments
+				? (CompactNetworkDBSegments) segments : null;
+		for (int i = 0; i < segments.size(); i++) {
+			NetworkDBSegment connected = null;
+			T nextPoint;
+			double dist;
+			if (compact != null) {
+				nextPoint = (T) compact.getConnectedPoint(i);
+				dist = compact.getDist(i);
+			} else {
+				connected = segments.get(i);
+				nextPoint = (T) (reverse ? connected.start : connected.end);
+				dist = connected.dist;
+				if (!hctx.config.USE_CH && !hctx.config.USE_CH_SHORTCUTS && connected.shortcut) {
+					continue;
+				}
 			}
 			if (nextPoint.rtExclude) {
 				continue;
@@ -1097,26 +1393,31 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 			if (hctx.config.USE_MIDPOINT && Math.min(depth, hctx.config.MIDPOINT_MAX_DEPTH) > nextPoint.midPntDepth() + hctx.config.MIDPOINT_ERROR) {
 				continue;
 			}
-			if (connected.dist < 0) {
+			if (dist < 0) {
 				// disabled segment
 				continue;
 			}
 			if (ASSERT_AND_CORRECT_DIST_SMALLER && hctx.config.HEURISTIC_COEFFICIENT > 0
-					&& smallestSegmentCost(hctx, point, nextPoint) - connected.dist >  1) {
+					&& smallestSegmentCost(hctx, point, nextPoint) - dist >  1) {
 				double smallestSegmentCost = smallestSegmentCost(hctx, point, nextPoint);
-				System.err.printf("Incorrect distance %s -> %s: db = %.2f > fastest %.2f \n", point, nextPoint, connected.dist, smallestSegmentCost);
-				connected.dist = smallestSegmentCost;
+				System.err.printf("Incorrect distance %s -> %s: db = %.2f > fastest %.2f \n", point, nextPoint, dist, smallestSegmentCost);
+				dist = smallestSegmentCost;
+				if (compact != null) {
+					compact.setDist(i, dist);
+				} else {
+					connected.dist = dist;
+				}
 			}
-			double cost = point.rt(reverse).rtDistanceFromStart  + connected.dist + hctx.distanceToEnd(reverse, nextPoint);
+			double cost = point.rt(reverse).rtDistanceFromStart  + dist + hctx.distanceToEnd(reverse, nextPoint);
 			if (ASSERT_COST_INCREASING && point.rt(reverse).rtCost - cost > 1) {
 				String msg = String.format("%s (cost %.2f) -> %s (cost %.2f) st=%.2f-> + %.2f, toend=%.2f->%.2f: ",
 						point, point.rt(reverse).rtCost, nextPoint, cost, point.rt(reverse).rtDistanceFromStart,
-						connected.dist, point.rt(reverse).rtDistanceToEnd, hctx.distanceToEnd(reverse, nextPoint));
+						dist, point.rt(reverse).rtDistanceToEnd, hctx.distanceToEnd(reverse, nextPoint));
 				throw new IllegalStateException(msg);
 			}
 			double exCost = nextPoint.rt(reverse).rtCost;
 			if ((exCost == 0 && !nextPoint.rt(reverse).rtVisited) || cost < exCost) {
-				addPointToQueue(hctx, queue, reverse, nextPoint, point, connected.dist, cost);
+				addPointToQueue(hctx, queue, reverse, nextPoint, point, dist, cost);
 			}
 		}
 	}
@@ -1301,7 +1602,7 @@ public class HHRoutePlanner<T extends NetworkDBPoint> {
 				}
 			}
 		}
-		for (NetworkDBSegment c : start.connected) {
+		for (NetworkDBSegment c : start.materializeSegments(false)) {
 			if (!resUnique.containsKey(c.end.getGeoPntId())) {
 //				System.out.printf("Remove connection %s -> %s\n", start, c.end); // to debug later if all correct
 				c.dist = -1; // disable as not found
@@ -0,0 +1,229 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.ReachableSegmentVisitor;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRoutePlanner.ReachableNetworkVisitor;
+import net.osmand.util.MapUtils;
+
+/**
+ * Builds isochrone contours from roads ({@link BinaryRoutePlanner#searchReachableSegments}) or network points
+ * ({@link HHRoutePlanner#runReachableNetwork}) reachable from start. Reached parts of roads (network segments
+ * as straight lines) are sampled to a grid keeping the minimal time of every cell, contour of time
+ * is the boundary of cells reached within that time. Cells are stored in blocks of 16 x 16 cells, so memory
+ * depends on the covered area and cell size, not on the number of visited roads.
+ */
+public class IsochroneBuilder implements ReachableSegmentVisitor, ReachableNetworkVisitor {
+
+	// directions of boundary edges: east, south, west, north (31 tile y goes to south)
+	private static final int[] DIR_X = { 1, 0, -1, 0 };
+	private static final int[] DIR_Y = { 0, 1, 0, -1 };
+	// cell corner where edge of direction starts (edges go clockwise around cell)
+	private static final int[] CORNER_X = { 0, 1, 1, 0 };
+	private static final int[] CORNER_Y = { 0, 0, 1, 1 };
+	// neighbour cell on the other side of edge
+	private static final int[] SIDE_X = { 0, 1, 0, -1 };
+	private static final int[] SIDE_Y = { -1, 0, 1, 0 };
+
+	private static final int BLOCK_SHIFT = 4;
+	private static final int BLOCK_MASK = (1 << BLOCK_SHIFT) - 1;
+
+	private final int startX;
+	private final int startY;
+	private final int cellSize;
+	private final float maxTime;
+	// block -> minimal times of block cells (infinity if cell is not reached)
+	private final TLongObjectHashMap<float[]> cellTimes = new TLongObjectHashMap<float[]>();
+	private int cellsCount;
+
+	/**
+	 * @param cellSizeMeters size of grid cell at the start latitude
+	 * @param maxTime parts of roads reached later (seconds) are skipped
+	 */
+	public IsochroneBuilder(LatLon start, double cellSizeMeters, float maxTime) {
+		this.startX = MapUtils.get31TileNumberX(start.getLongitude());
+		this.startY = MapUtils.get31TileNumberY(start.getLatitude());
+		this.cellSize = (int) Math.max(1, Math.round(cellSizeMeters / MapUtils.getTileDistanceWidth(start.getLatitude(), 31)));
+		this.maxTime = maxTime;
+	}
+
+	@Override
+	public void visitReachableSegment(RouteSegment segment, float startTime) {
+		addEdge(segment.getStartPointX(), segment.getStartPointY(), startTime, segment.getEndPointX(),
+				segment.getEndPointY(), segment.getDistanceFromStart());
+	}
+
+	@Override
+	public void visitReachablePoint(NetworkDBPoint point, float time, NetworkDBPoint parent, float parentTime) {
+		addEdge(parent == null ? startX : parent.midX(), parent == null ? startY : parent.midY(), parentTime,
+				point.midX(), point.midY(), time);
+	}
+
+	/**
+	 * Adds straight line reached at time t1 in (x1, y1) and at t2 in (x2, y2), time changes linearly along line
+	 */
+	public void addEdge(int x1, int y1, float t1, int x2, int y2, float t2) {
+		t1 = Math.max(0, t1);
+		t2 = Math.max(t1, t2);
+		if (t1 > maxTime) {
+			return;
+		}
+		// half cell steps to not skip cells
+		double length = Math.max(Math.abs((double) x2 - x1), Math.abs((double) y2 - y1));
+		int steps = (int) Math.ceil(length * 2 / cellSize);
+		for (int i = 0; i <= steps; i++) {
+			double f = steps == 0 ? 0 : i / (double) steps;
+			float t = (float) (t1 + (t2 - t1) * f);
+			if (t > maxTime) {
+				break;
+			}
+			addPoint((int) (x1 + (x2 - x1) * f), (int) (y1 + (y2 - y1) * f), t);
+		}
+	}
+
+	public void addPoint(int x31, int y31, float time) {
+		int cx = x31 / cellSize;
+		int cy = y31 / cellSize;
+		long key = key(cx >> BLOCK_SHIFT, cy >> BLOCK_SHIFT);
+		float[] block = cellTimes.get(key);
+		if (block == null) {
+			block = new float[1 << (2 * BLOCK_SHIFT)];
+			Arrays.fill(block, Float.POSITIVE_INFINITY);
+			cellTimes.put(key, block);
+		}
+		int ind = blockIndex(cx, cy);
+		if (block[ind] == Float.POSITIVE_INFINITY) {
+			cellsCount++;
+		}
+		block[ind] = Math.min(block[ind], time);
+	}
+
+	int getCellSize() {
+		return cellSize;
+	}
+
+	public int getCellsCount() {
+		return cellsCount;
+	}
+
+	/**
+	 * @return minimal time to reach grid cell of location or -1 if it's not reached
+	 */
+	public float getTime(LatLon l) {
+		float t = getCellTime(MapUtils.get31TileNumberX(l.getLongitude()) / cellSize,
+				MapUtils.get31TileNumberY(l.getLatitude()) / cellSize);
+		return t == Float.POSITIVE_INFINITY ? -1 : t;
+	}
+
+	private float getCellTime(int cx, int cy) {
+		float[] block = cellTimes.get(key(cx >> BLOCK_SHIFT, cy >> BLOCK_SHIFT));
+		return block == null ? Float.POSITIVE_INFINITY : block[blockIndex(cx, cy)];
+	}
+
+	/**
+	 * Contour of cells reached within time: closed rings, outer rings go clockwise and holes go counterclockwise
+	 * (as seen on the map). Cells touching by corner only belong to different rings.
+	 */
+	public List<List<LatLon>> buildContour(float time) {
+		// blocks of vertexes -> masks of directions of boundary edges starting at vertex
+		TLongObjectHashMap<byte[]> edges = new TLongObjectHashMap<byte[]>();
+		TLongObjectIterator<float[]> it = cellTimes.iterator();
+		while (it.hasNext()) {
+			it.advance();
+			int bx = (int) (it.key() >> 32) << BLOCK_SHIFT;
+			int by = (int) it.key() << BLOCK_SHIFT;
+			float[] block = it.value();
+			for (int ind = 0; ind < block.length; ind++) {
+				if (block[ind] > time) {
+					continue;
+				}
+				int cx = bx + (ind & BLOCK_MASK);
+				int cy = by + (ind >> BLOCK_SHIFT);
+				for (int d = 0; d < 4; d++) {
+					if (getCellTime(cx + SIDE_X[d], cy + SIDE_Y[d]) > time) {
+						int vx = cx + CORNER_X[d];
+						int vy = cy + CORNER_Y[d];
+						setEdges(edges, vx, vy, getEdges(edges, vx, vy) | (1 << d));
+					}
+				}
+			}
+		}
+		List<List<LatLon>> rings = new ArrayList<List<LatLon>>();
+		for (long key : edges.keys()) {
+			int bx = (int) (key >> 32) << BLOCK_SHIFT;
+			int by = (int) key << BLOCK_SHIFT;
+			byte[] block = edges.get(key);
+			for (int ind = 0; ind < block.length; ind++) {
+				while (block[ind] != 0) {
+					rings.add(traceRing(edges, bx + (ind & BLOCK_MASK), by + (ind >> BLOCK_SHIFT)));
+				}
+			}
+		}
+		return rings;
+	}
+
+	private static int getEdges(TLongObjectHashMap<byte[]> edges, int vx, int vy) {
+		byte[] block = edges.get(key(vx >> BLOCK_SHIFT, vy >> BLOCK_SHIFT));
+		return block == null ? 0 : block[blockIndex(vx, vy)];
+	}
+
+	private static void setEdges(TLongObjectHashMap<byte[]> edges, int vx, int vy, int mask) {
+		long key = key(vx >> BLOCK_SHIFT, vy >> BLOCK_SHIFT);
+		byte[] block = edges.get(key);
+		if (block == null) {
+			block = new byte[1 << (2 * BLOCK_SHIFT)];
+			edges.put(key, block);
+		}
+		block[blockIndex(vx, vy)] = (byte) mask;
+	}
+
+	private List<LatLon> traceRing(TLongObjectHashMap<byte[]> edges, int x0, int y0) {
+		List<LatLon> ring = new ArrayList<LatLon>();
+		int vx = x0;
+		int vy = y0;
+		int prev = -1;
+		do {
+			int mask = getEdges(edges, vx, vy);
+			if (mask == 0) {
+				// not closed (shouldn't happen)
+				break;
+			}
+			int d = Integer.numberOfTrailingZeros(mask);
+			if (prev != -1) {
+				// prefer right turn to go around the same cell at vertex touched by 2 cells
+				for (int turn : new int[] { 1, 0, 3 }) {
+					if ((mask & (1 << ((prev + turn) % 4))) != 0) {
+						d = (prev + turn) % 4;
+						break;
+					}
+				}
+			}
+			setEdges(edges, vx, vy, mask & ~(1 << d));
+			if (d != prev) {
+				ring.add(new LatLon(MapUtils.get31LatitudeY(vy * cellSize), MapUtils.get31LongitudeX(vx * cellSize)));
+			}
+			vx += DIR_X[d];
+			vy += DIR_Y[d];
+			prev = d;
+		} while (vx != x0 || vy != y0);
+		if (!ring.isEmpty()) {
+			ring.add(ring.get(0));
+		}
+		return ring;
+	}
+
+	private static int blockIndex(int x, int y) {
+		return ((y & BLOCK_MASK) << BLOCK_SHIFT) | (x & BLOCK_MASK);
+	}
+
+	private static long key(int x, int y) {
+		return (((long) x) << 32) | (y & 0xffffffffL);
+	}
+}
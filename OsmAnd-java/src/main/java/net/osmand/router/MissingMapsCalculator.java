@@ -28,6 +28,8 @@ public class MissingMapsCalculator {
 	private OsmandRegions or;
 	private BinaryMapIndexReader reader;
 	private List<String> lastKeyNames ;
+	// own regions are cached on first check (building index of all countries takes time)
+	private boolean cacheCountries;
 
 	private static class Point {
 		List<String> regions;
@@ -46,6 +48,7 @@ public class MissingMapsCalculator {
 		// could be cached
 		or = new OsmandRegions();
 		reader = or.prepareFile();
+		cacheCountries = true;
 	}
 
 	public MissingMapsCalculator(OsmandRegions osmandRegions) {
@@ -72,14 +75,23 @@ public class MissingMapsCalculator {
 				}
 			}
 		}
+		List<LatLon> points = new ArrayList<LatLon>();
 		LatLon end = null;
 		for (int i = 0; i < targets.size(); i++) {
 			LatLon s = i == 0 ? start : targets.get(i - 1);
 			end = targets.get(i);
-			split(ctx, knownMaps, pointsToCheck, s, end);
+			split(points, s, end);
 		}
 		if (end != null) {
-			addPoint(ctx, knownMaps, pointsToCheck, end);
+			points.add(end);
+		}
+		if (cacheCountries) {
+			or.cacheAllCountries();
+			cacheCountries = false;
+		}
+		List<List<String>> pointsRegions = or.getRegionsToDownload(points);
+		for (int i = 0; i < points.size(); i++) {
+			addPoint(knownMaps, pointsToCheck, points.get(i), pointsRegions.get(i));
 		}
 		Set<String> mapsToDownload = new TreeSet<String>();
 		Set<String> mapsToUpdate = new TreeSet<String>();
@@ -148,9 +160,7 @@ public class MissingMapsCalculator {
 		return l;
 	}
 
-	private void addPoint(RoutingContext ctx, Map<String, RegisteredMap> knownMaps, List<Point> pointsToCheck, LatLon s) throws IOException {
-		List<String> regions = new ArrayList<String>();
-		or.getRegionsToDownload(s.getLatitude(), s.getLongitude(), regions);
+	private void addPoint(Map<String, RegisteredMap> knownMaps, List<Point> pointsToCheck, LatLon s, List<String> regions) throws IOException {
 		Collections.sort(regions, new Comparator<String>() {
 
 			@Override
@@ -198,14 +208,14 @@ public class MissingMapsCalculator {
 		return hhEditionPresent;
 	}
 
-	private void split(RoutingContext ctx, Map<String, RegisteredMap> knownMaps, List<Point> pointsToCheck, LatLon s, LatLon e) throws IOException {
+	private void split(List<LatLon> points, LatLon s, LatLon e) {
 		if (MapUtils.getDistance(s, e) < DISTANCE_SPLIT) {
-			addPoint(ctx, knownMaps, pointsToCheck, s);
-			// pointsToCheck.add(e); // add only start end is separate
+			points.add(s);
+			// points.add(e); // add only start end is separate
 		} else {
 			LatLon mid = MapUtils.calculateMidPoint(s, e);
-			split(ctx, knownMaps, pointsToCheck, s, mid);
-			split(ctx, knownMaps, pointsToCheck, mid, e);
+			split(points, s, mid);
+			split(points, mid, e);
 		}
 	}
 
@@ -0,0 +1,128 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+
+/**
+ * Cache of evaluated router attribute per region and encoded types of road (or point).
+ * Open addressing table with types arrays as keys and primitive values,
+ * so lookups don't allocate key holders or boxed values.
+ * Types arrays are referenced (not copied), same way as before.
+ */
+class RouteAttributeCache {
+
+	static final float MISSING = Float.NaN;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Map<RouteRegion, RegionTable> regions = new HashMap<RouteRegion, RegionTable>();
+	// most of lookups are done for the same region
+	private RouteRegion lastRegion;
+	private RegionTable lastTable;
+
+	/**
+	 * @return {@link #MISSING} if value is not cached
+	 */
+	float get(RouteRegion reg, int[] types, boolean extra) {
+		RegionTable t = table(reg, false);
+		return t == null ? MISSING : t.get(types, extra);
+	}
+
+	void put(RouteRegion reg, int[] types, boolean extra, float value) {
+		table(reg, true).put(types, extra, value);
+	}
+
+	void clear() {
+		regions.clear();
+		lastRegion = null;
+		lastTable = null;
+	}
+
+	private RegionTable table(RouteRegion reg, boolean create) {
+		if (reg == lastRegion && lastTable != null) {
+			return lastTable;
+		}
+		RegionTable t = regions.get(reg);
+		if (t == null) {
+			if (!create) {
+				return null;
+			}
+			t = new RegionTable();
+			regions.put(reg, t);
+		}
+		lastRegion = reg;
+		lastTable = t;
+		return t;
+	}
+
+	private static int hash(int[] types, boolean extra) {
+		int h = Arrays.hashCode(types) * 31 + (extra ? 1 : 0);
+		return h ^ (h >>> 16);
+	}
+
+	private static class RegionTable {
+		int[][] keys = new int[INITIAL_CAPACITY][];
+		int[] hashes = new int[INITIAL_CAPACITY];
+		boolean[] extras = new boolean[INITIAL_CAPACITY];
+		float[] values = new float[INITIAL_CAPACITY];
+		int size;
+
+		float get(int[] types, boolean extra) {
+			int h = hash(types, extra);
+			int mask = keys.length - 1;
+			for (int i = h & mask; keys[i] != null; i = (i + 1) & mask) {
+				if (hashes[i] == h && extras[i] == extra && (keys[i] == types || Arrays.equals(keys[i], types))) {
+					return values[i];
+				}
+			}
+			return MISSING;
+		}
+
+		void put(int[] types, boolean extra, float value) {
+			if ((size + 1) * 2 > keys.length) {
+				rehash(keys.length * 2);
+			}
+			int h = hash(types, extra);
+			int mask = keys.length - 1;
+			int i = h & mask;
+			for (; keys[i] != null; i = (i + 1) & mask) {
+				if (hashes[i] == h && extras[i] == extra && (keys[i] == types || Arrays.equals(keys[i], types))) {
+					values[i] = value;
+					return;
+				}
+			}
+			keys[i] = types;
+			hashes[i] = h;
+			extras[i] = extra;
+			values[i] = value;
+			size++;
+		}
+
+		private void rehash(int capacity) {
+			int[][] oldKeys = keys;
+			int[] oldHashes = hashes;
+			boolean[] oldExtras = extras;
+			float[] oldValues = values;
+			keys = new int[capacity][];
+			hashes = new int[capacity];
+			extras = new boolean[capacity];
+			values = new float[capacity];
+			int mask = capacity - 1;
+			for (int j = 0; j < oldKeys.length; j++) {
+				if (oldKeys[j] != null) {
+					int i = oldHashes[j] & mask;
+					while (keys[i] != null) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = oldKeys[j];
+					hashes[i] = oldHashes[j];
+					extras[i] = oldExtras[j];
+					values[i] = oldValues[j];
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,314 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+/**
+ * Calculates batches of routes concurrently with contexts of {@link RoutingContextPool}.
+ * Number of submitted but not finished requests is limited (threads + max queued requests),
+ * submit blocks until some request is finished, so large batches don't fill memory with queued tasks.
+ * Throughput and latency are measured per profile.
+ */
+public class RouteBatchService {
+
+	private final RoutingContextPool pool;
+	private final ExecutorService executor;
+	private final Semaphore pending;
+	private final Map<String, ProfileMetrics> metrics = new LinkedHashMap<String, ProfileMetrics>();
+
+	public static class RouteRequest {
+		public final String profile;
+		public final Map<String, String> params;
+		public final LatLon start;
+		public final LatLon end;
+		public final List<LatLon> intermediates;
+
+		public RouteRequest(String profile, Map<String, String> params, LatLon start, LatLon end,
+				List<LatLon> intermediates) {
+			this.profile = profile;
+			this.params = params == null ? new LinkedHashMap<String, String>() : params;
+			this.start = start;
+			this.end = end;
+			this.intermediates = intermediates;
+		}
+	}
+
+	public static class RouteResponse {
+		public final RouteRequest request;
+		// null if calculation failed with exception
+		public final RouteCalcResult result;
+		public final Exception exception;
+		public final long timeMs;
+
+		RouteResponse(RouteRequest request, RouteCalcResult result, Exception exception, long timeMs) {
+			this.request = request;
+			this.result = result;
+			this.exception = exception;
+			this.timeMs = timeMs;
+		}
+
+		public boolean isCorrect() {
+			return result != null && result.isCorrect();
+		}
+
+		public String getError() {
+			if (exception != null) {
+				return exception.getMessage() == null ? exception.toString() : exception.getMessage();
+			}
+			return result == null ? null : result.getError();
+		}
+	}
+
+	/**
+	 * Latency histogram of requests with buckets of powers of 2 ms
+	 */
+	public static class ProfileMetrics {
+		private static final int BUCKETS = 32;
+
+		private final long[] histogram = new long[BUCKETS];
+		private int requests;
+		private int errors;
+		private long totalTimeMs;
+		private long maxTimeMs;
+		private long firstStartMs = -1;
+		private long lastFinishMs;
+
+		synchronized void addRequest(long startMs, long timeMs, boolean error) {
+			requests++;
+			if (error) {
+				errors++;
+			}
+			totalTimeMs += timeMs;
+			maxTimeMs = Math.max(maxTimeMs, timeMs);
+			histogram[getBucket(timeMs)]++;
+			if (firstStartMs == -1 || startMs < firstStartMs) {
+				firstStartMs = startMs;
+			}
+			lastFinishMs = Math.max(lastFinishMs, startMs + timeMs);
+		}
+
+		private static int getBucket(long timeMs) {
+			return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(timeMs));
+		}
+
+		public synchronized int getRequests() {
+			return requests;
+		}
+
+		public synchronized int getErrors() {
+			return errors;
+		}
+
+		public synchronized double getAverageLatencyMs() {
+			return requests == 0 ? 0 : totalTimeMs / (double) requests;
+		}
+
+		public synchronized long getMaxLatencyMs() {
+			return maxTimeMs;
+		}
+
+		/**
+		 * @param percentile 0..100
+		 * @return upper bound of latency (ms) of percentile of requests (at most 2 times larger than exact value)
+		 */
+		public synchronized long getLatencyPercentileMs(double percentile) {
+			long rank = (long) Math.ceil(requests * percentile / 100);
+			long cnt = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				cnt += histogram[i];
+				if (cnt >= rank && cnt > 0) {
+					return Math.min(maxTimeMs, i == 0 ? 0 : (1L << i) - 1);
+				}
+			}
+			return maxTimeMs;
+		}
+
+		/**
+		 * @return finished requests per second from start of the first request till finish of the last one
+		 */
+		public synchronized double getThroughput() {
+			long time = lastFinishMs - firstStartMs;
+			if (requests == 0) {
+				return 0;
+			}
+			return requests * 1000d / Math.max(1, time);
+		}
+
+		@Override
+		public synchronized String toString() {
+			return String.format("requests %d (errors %d), %.1f req/s, latency avg %.0f ms, p50 %d ms, p95 %d ms, max %d ms",
+					requests, errors, getThroughput(), getAverageLatencyMs(), getLatencyPercentileMs(50),
+					getLatencyPercentileMs(95), maxTimeMs);
+		}
+	}
+
+	/**
+	 * @param threads number of routes calculated at the same time
+	 * @param maxQueuedRequests max requests waiting for free thread
+	 */
+	public RouteBatchService(RoutingContextPool pool, int threads, int maxQueuedRequests) {
+		this.pool = pool;
+		this.pending = new Semaphore(threads + maxQueuedRequests);
+		this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "Route batch");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+	}
+
+	private class RouteTask extends FutureTask<RouteResponse> {
+		private final RouteCalculationProgress progress;
+
+		RouteTask(final RouteRequest request, final RouteCalculationProgress progress) {
+			super(new Callable<RouteResponse>() {
+				@Override
+				public RouteResponse call() {
+					return calculate(request, progress);
+				}
+			});
+			this.progress = progress;
+		}
+
+		@Override
+		public void run() {
+			try {
+				super.run();
+			} finally {
+				// route is finished (cancelled task in queue is run and returns immediately)
+				pending.release();
+			}
+		}
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				// stop running calculation, permit is released when it returns
+				progress.isCancelled = true;
+			}
+			return cancelled;
+		}
+	}
+
+	/**
+	 * Submits request, blocks while max number of requests is pending.
+	 * Cancelled request is pending till its calculation is stopped.
+	 */
+	public Future<RouteResponse> submit(final RouteRequest request) throws InterruptedException {
+		pending.acquire();
+		RouteTask task = new RouteTask(request, new RouteCalculationProgress());
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			pending.release();
+			throw e;
+		}
+		return task;
+	}
+
+	/**
+	 * Calculates routes concurrently, responses are in order of requests
+	 */
+	public List<RouteResponse> calculate(List<RouteRequest> requests) throws InterruptedException {
+		List<Future<RouteResponse>> futures = new ArrayList<Future<RouteResponse>>(requests.size());
+		boolean completed = false;
+		try {
+			for (RouteRequest r : requests) {
+				futures.add(submit(r));
+			}
+			List<RouteResponse> responses = new ArrayList<RouteResponse>(requests.size());
+			for (Future<RouteResponse> f : futures) {
+				try {
+					responses.add(f.get());
+				} catch (ExecutionException e) {
+					Throwable cause = e.getCause();
+					if (cause instanceof RuntimeException) {
+						throw (RuntimeException) cause;
+					} else if (cause instanceof Error) {
+						throw (Error) cause;
+					}
+					throw new IllegalStateException(cause);
+				}
+			}
+			completed = true;
+			return responses;
+		} finally {
+			if (!completed) {
+				// stop requests of failed batch
+				for (Future<RouteResponse> f : futures) {
+					f.cancel(true);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Calculates route in current thread
+	 */
+	public RouteResponse calculate(RouteRequest request) {
+		return calculate(request, new RouteCalculationProgress());
+	}
+
+	private RouteResponse calculate(RouteRequest request, RouteCalculationProgress progress) {
+		long startMs = System.currentTimeMillis();
+		long start = System.nanoTime();
+		RouteCalcResult result = null;
+		Exception exception = null;
+		RoutingContext ctx = null;
+		try {
+			ctx = pool.acquire(request.profile, request.params);
+			ctx.calculationProgress = progress;
+			result = new RoutePlannerFrontEnd().searchRoute(ctx, request.start, request.end, request.intermediates);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			exception = e;
+		} catch (IOException | RuntimeException e) {
+			exception = e;
+		} finally {
+			if (ctx != null) {
+				pool.release(ctx);
+			}
+		}
+		long timeMs = (System.nanoTime() - start) / 1000000;
+		getMetrics(request.profile).addRequest(startMs, timeMs, result == null || !result.isCorrect());
+		return new RouteResponse(request, result, exception, timeMs);
+	}
+
+	public synchronized ProfileMetrics getMetrics(String profile) {
+		ProfileMetrics m = metrics.get(profile);
+		if (m == null) {
+			m = new ProfileMetrics();
+			metrics.put(profile, m);
+		}
+		return m;
+	}
+
+	public synchronized Map<String, ProfileMetrics> getMetrics() {
+		return new LinkedHashMap<String, ProfileMetrics>(metrics);
+	}
+
+	/**
+	 * Stops threads, pool is not closed
+	 */
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+}
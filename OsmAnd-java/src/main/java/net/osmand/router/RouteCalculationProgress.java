@@ -84,6 +84,29 @@ public class RouteCalculationProgress {
 		return p;
 	}
 	
+	/**
+	 * Adds statistics of search which was calculated with own progress (for example in other thread)
+	 */
+	public void add(RouteCalculationProgress cp) {
+		distanceFromBegin = Math.max(distanceFromBegin, cp.distanceFromBegin);
+		distanceFromEnd = Math.max(distanceFromEnd, cp.distanceFromEnd);
+		timeToLoad += cp.timeToLoad;
+		timeToLoadHeaders += cp.timeToLoadHeaders;
+
+		visitedSegments += cp.visitedSegments;
+		directQueueSize += cp.directQueueSize;
+		oppositeQueueSize += cp.oppositeQueueSize;
+		visitedDirectSegments += cp.visitedDirectSegments;
+		visitedOppositeSegments += cp.visitedOppositeSegments;
+		finalSegmentsFound += cp.finalSegmentsFound;
+
+		loadedTiles += cp.loadedTiles;
+		distinctLoadedTiles += cp.distinctLoadedTiles;
+		maxLoadedTiles = Math.max(maxLoadedTiles, cp.maxLoadedTiles);
+		loadedPrevUnloadedTiles += cp.loadedPrevUnloadedTiles;
+		unloadedTiles += cp.unloadedTiles;
+	}
+
 	public Map<String, Object> getInfo(RouteCalculationProgress firstPhase) {
 		TreeMap<String, Object> map = new TreeMap<String, Object>();
 		TreeMap<String, Object> tiles = new TreeMap<String, Object>();
@@ -1,7 +1,9 @@
 package net.osmand.router;
 
+import net.osmand.gpx.CompactTrkSegment;
 import net.osmand.gpx.GPXFile;
 import net.osmand.gpx.GPXTrackAnalysis;
+import net.osmand.gpx.PointAttributes;
 import net.osmand.gpx.GPXUtilities.Track;
 import net.osmand.gpx.GPXUtilities.TrkSegment;
 import net.osmand.gpx.GPXUtilities.WptPt;
@@ -148,6 +150,55 @@ public class RouteColorize {
         sortPalette();
     }
 
+    /**
+     * Same as colorization of gpx file with tracks of segments, values are taken from columns without boxing
+     *
+     * @param analysis analysis of segments with at least 2 points, can be null
+     */
+    public RouteColorize(List<CompactTrkSegment> segments, GPXTrackAnalysis analysis, ColorizationType type, float maxProfileSpeed) {
+        List<CompactTrkSegment> trackSegments = new ArrayList<>();
+        int size = 0;
+        for (CompactTrkSegment s : segments) {
+            if (s.size() >= 2) {
+                trackSegments.add(s);
+                size += s.size();
+            }
+        }
+        if (size == 0) {
+            LOG.warn("Segments are not consist of track points");
+            return;
+        }
+        if (analysis == null) {
+            analysis = new GPXTrackAnalysis().prepareInformation(System.currentTimeMillis(), null,
+                    trackSegments.toArray(new CompactTrkSegment[0]));
+        }
+        double[] latitudes = new double[size];
+        double[] longitudes = new double[size];
+        double[] values = new double[size];
+        int wptIdx = 0;
+        for (CompactTrkSegment s : trackSegments) {
+            System.arraycopy(s.getLatitudes(), 0, latitudes, wptIdx, s.size());
+            System.arraycopy(s.getLongitudes(), 0, longitudes, wptIdx, s.size());
+            wptIdx += s.size();
+        }
+        for (int i = 0; i < size; i++) {
+            PointAttributes attributes = analysis.pointAttributes.get(i);
+            values[i] = type == ColorizationType.SPEED ? attributes.speed : attributes.elevation;
+        }
+
+        colorizationType = type;
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        if (type == ColorizationType.SLOPE) {
+            this.values = calculateSlopesByElevations(latitudes, longitudes, values, SLOPE_RANGE);
+        } else {
+            this.values = values;
+        }
+        calculateMinMaxValue(analysis, maxProfileSpeed);
+        checkPalette();
+        sortPalette();
+    }
+
     /**
      * Calculate slopes from elevations needs for right colorizing
      *
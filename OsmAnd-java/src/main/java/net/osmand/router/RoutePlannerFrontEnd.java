@@ -2,6 +2,7 @@ package net.osmand.router;
 
 
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -10,10 +11,21 @@ import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 
 import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.set.hash.TLongHashSet;
 import net.osmand.LocationsHolder;
 import net.osmand.NativeLibrary;
 import net.osmand.PlatformUtil;
@@ -33,6 +45,7 @@ import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
 import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
 import net.osmand.router.RouteCalculationProgress.HHIteration;
 import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.router.RouteSegmentsIndex.SegmentProjection;
 import net.osmand.util.MapUtils;
 
 
@@ -41,6 +54,8 @@ public class RoutePlannerFrontEnd {
 	protected static final Log log = PlatformUtil.getLog(RoutePlannerFrontEnd.class);
 	// Check issue #8649
 	protected static final double GPS_POSSIBLE_ERROR = 7;
+	// previous gpx points checked to be close to the found route
+	private static final int GPX_CLOSE_POINTS_DELTA = 5;
 	public static boolean CALCULATE_MISSING_MAPS = true;
 	public static boolean APPROXIMATE_GPX_SEGMENTS = false;
 	static boolean TRACE_ROUTING = false;
@@ -182,6 +197,33 @@ public class RoutePlannerFrontEnd {
 		return MapUtils.squareDist31TileMetric(x1, y1, x2, y2);
 	}
 
+	/**
+	 * Streams roads reachable from start within maxTime (seconds) to builder. If HH routing is configured
+	 * and maxTime >= config.hhIsochroneMinTime network points of HH routing are streamed instead of roads.
+	 * @return false if start point is not found on roads
+	 */
+	public boolean searchIsochrone(RoutingContext ctx, LatLon start, float maxTime, IsochroneBuilder builder)
+			throws IOException, InterruptedException {
+		if (ctx.calculationProgress == null) {
+			ctx.calculationProgress = new RouteCalculationProgress();
+		}
+		if (hhRoutingConfig != null && ctx.config.hhIsochroneMinTime > 0 && maxTime >= ctx.config.hhIsochroneMinTime) {
+			try {
+				if (HHRoutePlanner.create(ctx).runReachableNetwork(start, maxTime, hhRoutingConfig, builder) > 0) {
+					return true;
+				}
+			} catch (SQLException e) {
+				throw new IOException(e.getMessage(), e);
+			}
+		}
+		RouteSegmentPoint pnt = findRouteSegment(start.getLatitude(), start.getLongitude(), ctx, null);
+		if (pnt == null) {
+			return false;
+		}
+		new BinaryRoutePlanner().searchReachableSegments(ctx, pnt, maxTime, builder);
+		return true;
+	}
+
 	public RouteSegmentPoint findRouteSegment(double lat, double lon, RoutingContext ctx, List<RouteSegmentPoint> list) throws IOException {
 		return findRouteSegment(lat, lon, ctx, list, false);
 	}
@@ -195,44 +237,13 @@ public class RoutePlannerFrontEnd {
 		long now = System.nanoTime();
 		int px = MapUtils.get31TileNumberX(lon);
 		int py = MapUtils.get31TileNumberY(lat);
-		ArrayList<RouteDataObject> dataObjects = new ArrayList<RouteDataObject>();
-		ctx.loadTileData(px, py, 17, dataObjects, allowDuplications);
-		if (dataObjects.isEmpty()) {
-			ctx.loadTileData(px, py, 15, dataObjects, allowDuplications);
-		}
-		if (dataObjects.isEmpty()) {
-			ctx.loadTileData(px, py, 14, dataObjects, allowDuplications);
-		}
 		if (list == null) {
 			list = new ArrayList<BinaryRoutePlanner.RouteSegmentPoint>();
 		}
-		for (RouteDataObject r : dataObjects) {
-			if (r.getPointsLength() > 1) {
-				RouteSegmentPoint road = null;
-				for (int j = 1; j < r.getPointsLength(); j++) {
-					QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, r.getPoint31XTile(j - 1),
-							r.getPoint31YTile(j - 1), r.getPoint31XTile(j), r.getPoint31YTile(j));
-					double currentsDistSquare = squareDist((int) pr.x, (int) pr.y, px, py);
-					if (road == null || currentsDistSquare < road.distToProj) {
-						RouteDataObject ro = new RouteDataObject(r);
-						road = new RouteSegmentPoint(ro, j - 1, j, currentsDistSquare);
-						road.preciseX = (int) pr.x;
-						road.preciseY = (int) pr.y;
-					}
-				}
-				if (road != null) {
-					if (!transportStop) {
-						float prio = ctx.getRouter().defineDestinationPriority(road.road);
-						if (prio > 0) {
-							road.distToProj = (road.distToProj + GPS_POSSIBLE_ERROR * GPS_POSSIBLE_ERROR)
-									/ (prio * prio);
-							list.add(road);
-						}
-					} else {
-						list.add(road);
-					}
-					
-				}
+		SegmentProjection projection = new SegmentProjection();
+		if (!projectToRoads(ctx, px, py, 17, list, transportStop, allowDuplications, projection)) {
+			if (!projectToRoads(ctx, px, py, 15, list, transportStop, allowDuplications, projection)) {
+				projectToRoads(ctx, px, py, 14, list, transportStop, allowDuplications, projection);
 			}
 		}
 		Collections.sort(list, new Comparator<RouteSegmentPoint>() {
@@ -273,6 +284,85 @@ public class RoutePlannerFrontEnd {
 		return null;
 	}
 
+	/**
+	 * Projects point to the nearest segment of every road of routing tiles around point (resident segment indexes of
+	 * loaded tiles are used, so only a few segments of each road are checked)
+	 * @return false if there are no roads around
+	 */
+	private boolean projectToRoads(RoutingContext ctx, int px, int py, int zoomAround, List<RouteSegmentPoint> list,
+			boolean transportStop, boolean allowDuplications, SegmentProjection projection) {
+		TLongArrayList tiles = ctx.loadTilesAround(px, py, zoomAround);
+		TLongHashSet excludeDuplications = new TLongHashSet();
+		List<RouteSegmentsIndex> indexes = new ArrayList<RouteSegmentsIndex>();
+		boolean roadsFound = false;
+		for (int k = 0; k < tiles.size(); k++) {
+			indexes.clear();
+			ctx.getSegmentsIndexes(tiles.get(k), indexes);
+			for (RouteSegmentsIndex index : indexes) {
+				for (int i = 0; i < index.getRoadsCount(); i++) {
+					RouteDataObject r = index.getRoad(i);
+					if (!excludeDuplications.add(r.id)) {
+						continue;
+					}
+					roadsFound = true;
+					int end = index.findNearestSegment(i, px, py, projection);
+					if (end < 0) {
+						continue;
+					}
+					RouteSegmentPoint road = new RouteSegmentPoint(new RouteDataObject(r), end - 1, end,
+							projection.distSquare);
+					road.preciseX = projection.x;
+					road.preciseY = projection.y;
+					if (!transportStop) {
+						float prio = ctx.getRouter().defineDestinationPriority(road.road);
+						if (prio > 0) {
+							road.distToProj = (road.distToProj + GPS_POSSIBLE_ERROR * GPS_POSSIBLE_ERROR)
+									/ (prio * prio);
+							list.add(road);
+						}
+					} else {
+						list.add(road);
+					}
+				}
+			}
+			if (allowDuplications) {
+				excludeDuplications.clear();
+			}
+		}
+		return roadsFound;
+	}
+
+	/**
+	 * Batch version of {@link #findRouteSegment(double, double, RoutingContext, List, boolean, boolean)}: points are
+	 * processed in order of routing tiles, so loaded tiles and their segment indexes are reused by close points.
+	 * @return route segment for every point (null if there are no roads around point)
+	 */
+	public List<RouteSegmentPoint> findRouteSegments(List<LatLon> points, RoutingContext ctx, boolean transportStop)
+			throws IOException {
+		Integer[] order = new Integer[points.size()];
+		final long[] tiles = new long[points.size()];
+		int shift = 31 - ctx.config.ZOOM_TO_LOAD_TILES;
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+			long x = MapUtils.get31TileNumberX(points.get(i).getLongitude()) >> shift;
+			long y = MapUtils.get31TileNumberY(points.get(i).getLatitude()) >> shift;
+			tiles[i] = (x << ctx.config.ZOOM_TO_LOAD_TILES) + y;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return Long.compare(tiles[o1], tiles[o2]);
+			}
+		});
+		RouteSegmentPoint[] result = new RouteSegmentPoint[points.size()];
+		for (int i : order) {
+			LatLon p = points.get(i);
+			result[i] = findRouteSegment(p.getLatitude(), p.getLongitude(), ctx, null, transportStop, false);
+		}
+		return Arrays.asList(result);
+	}
+
 	public RouteCalcResult searchRoute(final RoutingContext ctx, LatLon start, LatLon end, List<LatLon> intermediates) throws IOException, InterruptedException {
 		return searchRoute(ctx, start, end, intermediates, null);
 	}
@@ -356,93 +446,200 @@ public class RoutePlannerFrontEnd {
 			if (gctx.ctx.calculationProgress == null) {
 				gctx.ctx.calculationProgress = new RouteCalculationProgress();
 			}
-			GpxPoint start = null;
-			GpxPoint prev = null;
 			if (gpxPoints.size() > 0) {
 				gctx.ctx.calculationProgress.totalApproximateDistance = (float) gpxPoints.get(gpxPoints.size() - 1).cumDist;
-				start = gpxPoints.get(0);
-			}
-			float minPointApproximation = gctx.ctx.config.minPointApproximation;
-			while (start != null && !gctx.ctx.calculationProgress.isCancelled) {
-				double routeDist = gctx.ctx.config.maxStepApproximation;
-				GpxPoint next = findNextGpxPointWithin(gpxPoints, start, routeDist);
-				boolean routeFound = false;
-				if (next != null && initRoutingPoint(start, gctx, minPointApproximation)) {
-					while (routeDist >= gctx.ctx.config.minStepApproximation && !routeFound) {
-						routeFound = initRoutingPoint(next, gctx, minPointApproximation);
+			}
+			if (!approximateGpxPointsParallel(gctx, gpxPoints)) {
+				approximateGpxPoints(gctx, gpxPoints, 0, false);
+			}
+			if (gctx.ctx.calculationProgress != null) {
+				gctx.ctx.calculationProgress.timeToCalculate = System.nanoTime() - timeToCalculate;
+			}
+			gctx.ctx.deleteNativeRoutingContext();
+			calculateGpxRoute(gctx, gpxPoints);
+			if (!gctx.result.isEmpty() && !gctx.ctx.calculationProgress.isCancelled) {
+				RouteResultPreparation.printResults(gctx.ctx, gpxPoints.get(0).loc, gpxPoints.get(gpxPoints.size() - 1).loc, gctx.result);
+				log.info(gctx);
+			}
+		}
+		if (resultMatcher != null) {
+			resultMatcher.publish(gctx.ctx.calculationProgress.isCancelled ? null : gctx);
+		}
+		return gctx;
+	}
+
+	private void approximateGpxPoints(GpxRouteApproximation gctx, List<GpxPoint> gpxPoints, int startInd,
+			boolean prevRouteCalculated) throws IOException, InterruptedException {
+		GpxPoint start = startInd < gpxPoints.size() ? gpxPoints.get(startInd) : null;
+		GpxPoint prev = null;
+		float minPointApproximation = gctx.ctx.config.minPointApproximation;
+		while (start != null && !gctx.ctx.calculationProgress.isCancelled) {
+			double routeDist = gctx.ctx.config.maxStepApproximation;
+			GpxPoint next = findNextGpxPointWithin(gpxPoints, start, routeDist);
+			boolean routeFound = false;
+			if (next != null && initRoutingPoint(start, gctx, minPointApproximation)) {
+				while (routeDist >= gctx.ctx.config.minStepApproximation && !routeFound) {
+					routeFound = initRoutingPoint(next, gctx, minPointApproximation);
+					if (routeFound) {
+						routeFound = findGpxRouteSegment(gctx, gpxPoints, start, next, prevRouteCalculated);
 						if (routeFound) {
-							routeFound = findGpxRouteSegment(gctx, gpxPoints, start, next, prev != null);
-							if (routeFound) {
-								routeFound = isRouteCloseToGpxPoints(minPointApproximation, gpxPoints, start, next);
-								if (!routeFound) {
-									start.routeToTarget = null;
-								}
-							}
-							if (routeFound && next.ind < gpxPoints.size() - 1) {
-								// route is found - cut the end of the route and move to next iteration
-								// start.stepBackRoute = new ArrayList<RouteSegmentResult>();
-								// boolean stepBack = true;
-								boolean stepBack = stepBackAndFindPrevPointInRoute(gctx, gpxPoints, start, next);
-								if (!stepBack) {
-									// not supported case (workaround increase routing.xml maxStepApproximation)
-									log.info("Consider to increase routing.xml maxStepApproximation to: " + routeDist * 2);
-									start.routeToTarget = null;
-									routeFound = false;
-								} else {
-									if (gctx.ctx.getVisitor() != null) {
-										gctx.ctx.getVisitor().visitApproximatedSegments(start.routeToTarget, start,
-												next);
-									}
-								}
+							routeFound = isRouteCloseToGpxPoints(minPointApproximation, gpxPoints, start, next);
+							if (!routeFound) {
+								start.routeToTarget = null;
 							}
 						}
-						if (!routeFound) {
-							// route is not found move next point closer to start point (distance / 2)
-							routeDist = routeDist / 2;
-							if (routeDist < gctx.ctx.config.minStepApproximation
-									&& routeDist > gctx.ctx.config.minStepApproximation / 2 + 1) {
-								routeDist = gctx.ctx.config.minStepApproximation;
-							}
-							next = findNextGpxPointWithin(gpxPoints, start, routeDist);
-							if (next != null) {
-								routeDist = Math.min(next.cumDist - start.cumDist, routeDist);
+						if (routeFound && next.ind < gpxPoints.size() - 1) {
+							// route is found - cut the end of the route and move to next iteration
+							// start.stepBackRoute = new ArrayList<RouteSegmentResult>();
+							// boolean stepBack = true;
+							boolean stepBack = stepBackAndFindPrevPointInRoute(gctx, gpxPoints, start, next);
+							if (!stepBack) {
+								// not supported case (workaround increase routing.xml maxStepApproximation)
+								log.info("Consider to increase routing.xml maxStepApproximation to: " + routeDist * 2);
+								start.routeToTarget = null;
+								routeFound = false;
+							} else {
+								if (gctx.ctx.getVisitor() != null) {
+									gctx.ctx.getVisitor().visitApproximatedSegments(start.routeToTarget, start,
+											next);
+								}
 							}
 						}
 					}
-				}
-				// route is not found skip segment and keep it as straight line on display
-				if (!routeFound && next != null) {
-					// route is not found, move start point by
-					next = findNextGpxPointWithin(gpxPoints, start, gctx.ctx.config.minStepApproximation);
-					if (prev != null) {
-						prev.routeToTarget.addAll(prev.stepBackRoute);
+					if (!routeFound) {
+						// route is not found move next point closer to start point (distance / 2)
+						routeDist = routeDist / 2;
+						if (routeDist < gctx.ctx.config.minStepApproximation
+								&& routeDist > gctx.ctx.config.minStepApproximation / 2 + 1) {
+							routeDist = gctx.ctx.config.minStepApproximation;
+						}
+						next = findNextGpxPointWithin(gpxPoints, start, routeDist);
 						if (next != null) {
-							log.warn("NOT found route from: " + start.pnt.getRoad() + " at " + start.pnt.getSegmentStart());
+							routeDist = Math.min(next.cumDist - start.cumDist, routeDist);
 						}
 					}
-					prev = null;
-				} else {
-					prev = start;
 				}
-				start = next;
-				if (gctx.ctx.calculationProgress != null && start != null) {
-					gctx.ctx.calculationProgress.approximatedDistance = (float) start.cumDist;
+			}
+			// route is not found skip segment and keep it as straight line on display
+			if (!routeFound && next != null) {
+				// route is not found, move start point by
+				next = findNextGpxPointWithin(gpxPoints, start, gctx.ctx.config.minStepApproximation);
+				if (prev != null) {
+					prev.routeToTarget.addAll(prev.stepBackRoute);
+					if (next != null) {
+						log.warn("NOT found route from: " + start.pnt.getRoad() + " at " + start.pnt.getSegmentStart());
+					}
 				}
+				prev = null;
+				prevRouteCalculated = false;
+			} else {
+				prev = start;
+				prevRouteCalculated = true;
 			}
-			if (gctx.ctx.calculationProgress != null) {
-				gctx.ctx.calculationProgress.timeToCalculate = System.nanoTime() - timeToCalculate;
+			start = next;
+			if (gctx.ctx.calculationProgress != null && start != null) {
+				gctx.ctx.calculationProgress.approximatedDistance = (float) start.cumDist;
 			}
-			gctx.ctx.deleteNativeRoutingContext();
-			calculateGpxRoute(gctx, gpxPoints);
-			if (!gctx.result.isEmpty() && !gctx.ctx.calculationProgress.isCancelled) {
-				RouteResultPreparation.printResults(gctx.ctx, gpxPoints.get(0).loc, gpxPoints.get(gpxPoints.size() - 1).loc, gctx.result);
-				log.info(gctx);
+		}
+	}
+
+	/**
+	 * Splits long track into chunks of config.gpxApproximationChunkDistance and approximates chunks in
+	 * config.parallelGpxApproximation threads. Neighbour chunks overlap in the boundary point: it's the last
+	 * target of the chunk and the first start of the next chunk (both are projected to the same road point and
+	 * the route of the next chunk starts from projection), so routes of chunks are connected at the same road
+	 * point. Every chunk works with own copies of points, results are copied back to the points of track.
+	 * Cancelled approximation stops at the first not approximated chunk as sequential approximation.
+	 * @return false if track should be approximated in one pass
+	 */
+	private boolean approximateGpxPointsParallel(GpxRouteApproximation gctx, final List<GpxPoint> gpxPoints)
+			throws IOException, InterruptedException {
+		RoutingContext ctx = gctx.ctx;
+		if (ctx.config.parallelGpxApproximation <= 1 || ctx.nativeLib != null || ctx.getVisitor() != null
+				|| gpxPoints.isEmpty()) {
+			return false;
+		}
+		double chunkDistance = Math.max(ctx.config.gpxApproximationChunkDistance, 2 * ctx.config.maxStepApproximation);
+		final TIntArrayList bounds = new TIntArrayList();
+		bounds.add(0);
+		for (int i = 1; i < gpxPoints.size(); i++) {
+			if (gpxPoints.get(i).cumDist - gpxPoints.get(bounds.get(bounds.size() - 1)).cumDist >= chunkDistance) {
+				bounds.add(i);
 			}
 		}
-		if (resultMatcher != null) {
-			resultMatcher.publish(gctx.ctx.calculationProgress.isCancelled ? null : gctx);
+		int last = gpxPoints.size() - 1;
+		if (bounds.get(bounds.size() - 1) != last) {
+			double rest = gpxPoints.get(last).cumDist - gpxPoints.get(bounds.get(bounds.size() - 1)).cumDist;
+			if (bounds.size() > 1 && rest < chunkDistance / 2) {
+				// join short rest to the last chunk
+				bounds.set(bounds.size() - 1, last);
+			} else {
+				bounds.add(last);
+			}
 		}
-		return gctx;
+		final int chunks = bounds.size() - 1;
+		if (chunks < 2) {
+			return false;
+		}
+		final List<List<GpxPoint>> chunkPoints = new ArrayList<List<GpxPoint>>(chunks);
+		final GpxRouteApproximation[] chunkResults = new GpxRouteApproximation[chunks];
+		for (int k = 0; k < chunks; k++) {
+			chunkPoints.add(null);
+		}
+		boolean run = runParallelRoutingTasks(ctx, chunks, ctx.config.parallelGpxApproximation,
+				new ParallelRoutingTask() {
+					@Override
+					public void run(int k, RoutingContext local) throws IOException, InterruptedException {
+						int st = bounds.get(k);
+						int end = bounds.get(k + 1);
+						// indexes are kept, points before chunk are used to check closeness of route
+						List<GpxPoint> points = new ArrayList<GpxPoint>(end + 1);
+						for (int i = 0; i <= end; i++) {
+							points.add(i >= st - GPX_CLOSE_POINTS_DELTA ? new GpxPoint(gpxPoints.get(i)) : null);
+						}
+						GpxRouteApproximation chunk = new GpxRouteApproximation(local);
+						// start point of chunk is found on road, it isn't end of calculated route
+						approximateGpxPoints(chunk, points, st, false);
+						chunkPoints.set(k, points);
+						chunkResults[k] = chunk;
+					}
+
+					@Override
+					public void updateProgress(RouteCalculationProgress progress, RouteCalculationProgress[] chunksProgress) {
+						// every chunk reports distance of its track
+						float approximated = 0;
+						for (int k = 0; k < chunks; k++) {
+							float start = (float) gpxPoints.get(bounds.get(k)).cumDist;
+							approximated += Math.max(0, chunksProgress[k].approximatedDistance - start);
+						}
+						progress.approximatedDistance = approximated;
+					}
+				});
+		if (!run) {
+			return false;
+		}
+		for (int k = 0; k < chunks; k++) {
+			List<GpxPoint> points = chunkPoints.get(k);
+			if (points == null || ctx.calculationProgress.isCancelled) {
+				// the rest of track is not approximated, cancellation is reported by progress
+				ctx.calculationProgress.isCancelled = true;
+				break;
+			}
+			int end = k == chunks - 1 ? bounds.get(k + 1) : bounds.get(k + 1) - 1;
+			for (int i = bounds.get(k); i <= end; i++) {
+				GpxPoint p = gpxPoints.get(i);
+				GpxPoint cp = points.get(i);
+				p.pnt = cp.pnt;
+				p.routeToTarget = cp.routeToTarget;
+				p.stepBackRoute = cp.stepBackRoute;
+				p.targetInd = cp.targetInd;
+				p.straightLine = cp.straightLine;
+			}
+			gctx.routeCalculations += chunkResults[k].routeCalculations;
+			gctx.routePointsSearched += chunkResults[k].routePointsSearched;
+			gctx.routeDistCalculations += chunkResults[k].routeDistCalculations;
+		}
+		return true;
 	}
 
 	private boolean isRouteCloseToGpxPoints(float minPointApproximation, List<GpxPoint> gpxPoints,
@@ -454,7 +651,7 @@ public class RoutePlannerFrontEnd {
 			while (st != end) {
 				LatLon point = r.getPoint(st);
 				boolean pointIsClosed = false;
-				int delta = 5, startInd = Math.max(0, start.ind - delta),
+				int delta = GPX_CLOSE_POINTS_DELTA, startInd = Math.max(0, start.ind - delta),
 						nextInd = Math.min(gpxPoints.size() - 1, next.ind + delta);
 				for (int k = startInd; !pointIsClosed && k < nextInd; k++) {
 					pointIsClosed = pointCloseEnough(minPointApproximation, point, gpxPoints.get(k), gpxPoints.get(k + 1));
@@ -867,8 +1064,7 @@ public class RoutePlannerFrontEnd {
 				mp.put(allowPrivateKey, "true");
 				mp.put(GeneralRouter.CHECK_ALLOW_PRIVATE_NEEDED, "true");
 				ctx.setRouter(new GeneralRouter(router.getProfile(), mp));
-				for (LatLon latLon : points) {
-					RouteSegmentPoint rp = findRouteSegment(latLon.getLatitude(), latLon.getLongitude(), ctx, null);
+				for (RouteSegmentPoint rp : findRouteSegments(points, ctx, false)) {
 					if (rp != null && rp.road != null) {
 						if (rp.road.hasPrivateAccess(ctx.config.router.getProfile())) {
 							res = true;
@@ -1165,7 +1361,10 @@ public class RoutePlannerFrontEnd {
 			ctx.initStartAndTargetPoints(start, end);
 		}
 		if (routeDirection != null) {
-			ctx.precalculatedRouteDirection = routeDirection.adopt(ctx);
+			// direction is shared by parallel route legs
+			synchronized (routeDirection) {
+				ctx.precalculatedRouteDirection = routeDirection.adopt(ctx);
+			}
 		}
 		if (ctx.nativeLib != null) {
 			ctx.startX = start.preciseX;
@@ -1347,6 +1546,17 @@ public class RoutePlannerFrontEnd {
 			}
 		}
 		RouteCalcResult results = new RouteCalcResult(new ArrayList<RouteSegmentResult>());
+		if (restPartRecalculatedRoute == null && ctx.nativeLib == null && ctx.visitor == null
+				&& ctx.config.parallelRouteLegs > 1) {
+			RouteCalcResult[] legs = searchRouteLegsParallel(ctx, points, routeDirection);
+			if (legs != null) {
+				for (RouteCalcResult res : legs) {
+					results.detailed.addAll(res.detailed);
+				}
+				ctx.unloadAllData();
+				return results;
+			}
+		}
 		for (int i = 0; i < points.size() - 1; i++) {
 			RoutingContext local = new RoutingContext(ctx);
 			if (i == 0 && ctx.nativeLib == null) {
@@ -1369,6 +1579,184 @@ public class RoutePlannerFrontEnd {
 
 	}
 
+	private static final long PARALLEL_PROGRESS_CHECK_MS = 100;
+
+	private static ExecutorService parallelRoutingExecutor;
+
+	private static synchronized ExecutorService getParallelRoutingExecutor() {
+		if (parallelRoutingExecutor == null) {
+			parallelRoutingExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "Parallel routing");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return parallelRoutingExecutor;
+	}
+
+	private interface ParallelRoutingTask {
+
+		void run(int task, RoutingContext local) throws IOException, InterruptedException;
+
+		/**
+		 * Called by calling thread while tasks are running to update its progress from progress of tasks
+		 */
+		void updateProgress(RouteCalculationProgress progress, RouteCalculationProgress[] tasksProgress);
+	}
+
+	/**
+	 * @return new reader of the same file sharing index structure with reader (to be used by other thread)
+	 */
+	static BinaryMapIndexReader openReaderCopy(BinaryMapIndexReader r) throws IOException {
+		return r.getMappedFile() != null ? r.getMappedFile().createReader(r)
+				: new BinaryMapIndexReader(new RandomAccessFile(r.getFile(), "r"), r);
+	}
+
+	/**
+	 * Runs tasks in threads, every thread has own readers (references to the same files) and router caches,
+	 * every task is run with own context created by {@link RoutingContext#createRouteLegContext}.
+	 * Every task has own progress: calling thread passes cancellation to them and adds them to ctx progress
+	 * when tasks are finished. Tasks not started before cancellation are not run.
+	 * @return false if router or readers can't be used in parallel (nothing is run)
+	 */
+	private boolean runParallelRoutingTasks(final RoutingContext ctx, final int tasks, int threads,
+			final ParallelRoutingTask task) throws IOException, InterruptedException {
+		final BinaryMapIndexReader[] maps = ctx.getMaps();
+		for (BinaryMapIndexReader r : maps) {
+			if (r.getMappedFile() == null && r.getFile() == null) {
+				return false;
+			}
+		}
+		if (!(ctx.getRouter() instanceof GeneralRouter)
+				|| ((GeneralRouter) ctx.getRouter()).copyForConcurrentSearch() == null) {
+			return false;
+		}
+		final RouteCalculationProgress[] progress = new RouteCalculationProgress[tasks];
+		if (ctx.calculationProgress != null) {
+			for (int i = 0; i < tasks; i++) {
+				progress[i] = new RouteCalculationProgress();
+			}
+		}
+		final AtomicInteger nextTask = new AtomicInteger();
+		threads = Math.min(threads, tasks);
+		List<Future<Void>> workers = new ArrayList<Future<Void>>(threads);
+		for (int t = 0; t < threads; t++) {
+			workers.add(getParallelRoutingExecutor().submit(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					GeneralRouter router = ((GeneralRouter) ctx.getRouter()).copyForConcurrentSearch();
+					BinaryMapIndexReader[] readers = new BinaryMapIndexReader[maps.length];
+					try {
+						for (int k = 0; k < maps.length; k++) {
+							readers[k] = openReaderCopy(maps[k]);
+						}
+						int i;
+						while ((i = nextTask.getAndIncrement()) < tasks) {
+							if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+								break;
+							}
+							RoutingContext local = ctx.createRouteLegContext(readers, router, progress[i]);
+							task.run(i, local);
+							local.unloadAllData();
+						}
+					} finally {
+						for (BinaryMapIndexReader r : readers) {
+							if (r != null) {
+								r.close();
+							}
+						}
+					}
+					return null;
+				}
+			}));
+		}
+		try {
+			for (Future<Void> w : workers) {
+				while (true) {
+					try {
+						w.get(PARALLEL_PROGRESS_CHECK_MS, TimeUnit.MILLISECONDS);
+						break;
+					} catch (TimeoutException e) {
+						if (ctx.calculationProgress != null && ctx.calculationProgress.isCancelled) {
+							// not started tasks are cancelled, running tasks are stopped by their progress
+							nextTask.set(tasks);
+							for (RouteCalculationProgress p : progress) {
+								p.isCancelled = true;
+							}
+						} else if (ctx.calculationProgress != null) {
+							task.updateProgress(ctx.calculationProgress, progress);
+						}
+					}
+				}
+			}
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof InterruptedException) {
+				throw (InterruptedException) cause;
+			} else if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IllegalStateException(cause);
+		} finally {
+			// stop not started tasks on failure
+			nextTask.set(tasks);
+			for (Future<Void> w : workers) {
+				w.cancel(true);
+			}
+		}
+		if (ctx.calculationProgress != null) {
+			task.updateProgress(ctx.calculationProgress, progress);
+			for (RouteCalculationProgress p : progress) {
+				ctx.calculationProgress.add(p);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Calculates legs between consecutive points in config.parallelRouteLegs threads, every leg is calculated
+	 * in own context as in sequential calculation, so legs are the same and could be joined in order.
+	 * @return results of legs or null if router can't be used in parallel
+	 */
+	private RouteCalcResult[] searchRouteLegsParallel(final RoutingContext ctx, final List<RouteSegmentPoint> points,
+			final PrecalculatedRouteDirection routeDirection) throws IOException, InterruptedException {
+		final RouteCalcResult[] legs = new RouteCalcResult[points.size() - 1];
+		final float[] routingTime = new float[legs.length];
+		boolean run = runParallelRoutingTasks(ctx, legs.length, ctx.config.parallelRouteLegs, new ParallelRoutingTask() {
+			@Override
+			public void run(int i, RoutingContext local) throws IOException, InterruptedException {
+				RouteCalcResult res = searchRouteInternalPrepare(local, points.get(i), points.get(i + 1), routeDirection);
+				makeStartEndPointsPrecise(local, res, points.get(i).getPreciseLatLon(),
+						points.get(i + 1).getPreciseLatLon(), null);
+				routingTime[i] = local.routingTime;
+				legs[i] = res;
+			}
+
+			@Override
+			public void updateProgress(RouteCalculationProgress progress, RouteCalculationProgress[] legsProgress) {
+				// progress of legs is added when all legs are calculated
+			}
+		});
+		if (!run) {
+			return null;
+		}
+		for (int i = 0; i < legs.length; i++) {
+			if (legs[i] == null) {
+				// cancelled as sequential calculation of legs
+				throw new InterruptedException("Route calculation interrupted");
+			}
+			ctx.routingTime += routingTime[i];
+		}
+		return legs;
+	}
+
 	private void pringGC(final RoutingContext ctx, boolean before) {
 		if (RoutingContext.SHOW_GC_SIZE && before) {
 			long h1 = RoutingContext.runGCUsedMemory();
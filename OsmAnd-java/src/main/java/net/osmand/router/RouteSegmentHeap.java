@@ -0,0 +1,140 @@
+package net.osmand.router;
+
+import java.util.Arrays;
+
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.SegmentsQueue;
+
+/**
+ * Indexed binary min-heap of route segments keyed by float cost.
+ * Costs and segments are kept in parallel arrays so nothing is allocated per push,
+ * position stored in {@link RouteSegment#heapIndex} allows decrease-key when the same segment is queued again.
+ * Sift order is the same as {@link java.util.PriorityQueue} so without decrease-key polling order is identical.
+ */
+class RouteSegmentHeap implements SegmentsQueue {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private float[] costs;
+	private RouteSegment[] segments;
+	private int size;
+
+	RouteSegmentHeap() {
+		this(INITIAL_CAPACITY);
+	}
+
+	RouteSegmentHeap(int capacity) {
+		capacity = Math.max(capacity, 2);
+		costs = new float[capacity];
+		segments = new RouteSegment[capacity];
+	}
+
+	@Override
+	public void add(RouteSegment segment, float cost) {
+		int pos = indexGet(segment);
+		if (pos >= 0) {
+			// decrease-key, queued segment with the lower cost is polled anyway
+			if (cost < costs[pos]) {
+				costs[pos] = cost;
+				siftUp(pos, segment, cost);
+			}
+			return;
+		}
+		if (size == costs.length) {
+			int capacity = size < 1024 ? size * 2 : size + (size >> 1);
+			costs = Arrays.copyOf(costs, capacity);
+			segments = Arrays.copyOf(segments, capacity);
+		}
+		siftUp(size++, segment, cost);
+	}
+
+	@Override
+	public RouteSegment peek() {
+		return size == 0 ? null : segments[0];
+	}
+
+	@Override
+	public float peekCost() {
+		return size == 0 ? Float.NaN : costs[0];
+	}
+
+	@Override
+	public RouteSegment poll() {
+		if (size == 0) {
+			return null;
+		}
+		RouteSegment result = segments[0];
+		result.heapIndex = -1;
+		int last = --size;
+		RouteSegment x = segments[last];
+		float xc = costs[last];
+		segments[last] = null;
+		if (last != 0) {
+			siftDown(0, x, xc);
+		}
+		return result;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		for (int i = 0; i < size; i++) {
+			segments[i].heapIndex = -1;
+			segments[i] = null;
+		}
+		size = 0;
+	}
+
+	private void siftUp(int k, RouteSegment x, float xc) {
+		while (k > 0) {
+			int parent = (k - 1) >>> 1;
+			float pc = costs[parent];
+			if (xc >= pc) {
+				break;
+			}
+			set(k, segments[parent], pc);
+			k = parent;
+		}
+		set(k, x, xc);
+	}
+
+	private void siftDown(int k, RouteSegment x, float xc) {
+		int half = size >>> 1;
+		while (k < half) {
+			int child = (k << 1) + 1;
+			int right = child + 1;
+			if (right < size && costs[child] > costs[right]) {
+				child = right;
+			}
+			if (xc <= costs[child]) {
+				break;
+			}
+			set(k, segments[child], costs[child]);
+			k = child;
+		}
+		set(k, x, xc);
+	}
+
+	private void set(int pos, RouteSegment s, float cost) {
+		segments[pos] = s;
+		costs[pos] = cost;
+		s.heapIndex = pos;
+	}
+
+	private int indexGet(RouteSegment s) {
+		int pos = s.heapIndex;
+		// segment could be left indexed by another heap instance
+		if (pos >= 0 && pos < size && segments[pos] == s) {
+			return pos;
+		}
+		return -1;
+	}
+}
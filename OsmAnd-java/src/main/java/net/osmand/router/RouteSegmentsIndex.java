@@ -0,0 +1,165 @@
+package net.osmand.router;
+
+import java.util.List;
+
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.QuadPointDouble;
+import net.osmand.util.MapUtils;
+
+/**
+ * Resident index of road segments of loaded routing subregion tile, used to project points to roads
+ * ({@link RoutePlannerFrontEnd#findRouteSegment}).
+ * Roads are kept in tile order, consecutive segments of each road are grouped into chunks with bounding boxes
+ * (road box -> chunk boxes -> segments), so the nearest segment of a road is found by checking chunk boxes
+ * and projecting only to segments of chunks that could be closer than the best found segment.
+ * Result is the same as of linear scan of all road segments.
+ */
+class RouteSegmentsIndex {
+
+	static final int CHUNK_SIZE = 8;
+
+	// lower bound of tile metric is computed with min tile width on the road latitudes,
+	// precision keeps it strictly below distance in spite of rounding
+	private static final double LOWER_BOUND_PRECISION = 0.999;
+
+	static class SegmentProjection {
+		int x;
+		int y;
+		double distSquare;
+		double[] chunkBounds = new double[16];
+	}
+
+	private final RouteDataObject[] roads;
+	private final int[] roadChunkStart;
+	private final int[] roadBox;
+	private final int[] chunkBox;
+
+	RouteSegmentsIndex(List<RouteDataObject> list) {
+		roads = list.toArray(new RouteDataObject[list.size()]);
+		roadChunkStart = new int[roads.length + 1];
+		for (int i = 0; i < roads.length; i++) {
+			roadChunkStart[i + 1] = roadChunkStart[i] + getChunksCount(roads[i]);
+		}
+		roadBox = new int[roads.length * 4];
+		chunkBox = new int[roadChunkStart[roads.length] * 4];
+		for (int i = 0; i < roads.length; i++) {
+			RouteDataObject r = roads[i];
+			int chunks = roadChunkStart[i + 1] - roadChunkStart[i];
+			initBox(roadBox, i, r, 0, r.getPointsLength() - 1);
+			for (int c = 0; c < chunks; c++) {
+				initBox(chunkBox, roadChunkStart[i] + c, r, c * CHUNK_SIZE,
+						Math.min(r.getPointsLength() - 1, (c + 1) * CHUNK_SIZE));
+			}
+		}
+	}
+
+	private static int getChunksCount(RouteDataObject r) {
+		int segments = r.getPointsLength() - 1;
+		return segments <= 0 ? 0 : (segments + CHUNK_SIZE - 1) / CHUNK_SIZE;
+	}
+
+	private static void initBox(int[] box, int ind, RouteDataObject r, int start, int end) {
+		int left = Integer.MAX_VALUE, top = Integer.MAX_VALUE;
+		int right = Integer.MIN_VALUE, bottom = Integer.MIN_VALUE;
+		for (int k = start; k <= end; k++) {
+			int x = r.getPoint31XTile(k);
+			int y = r.getPoint31YTile(k);
+			left = Math.min(left, x);
+			right = Math.max(right, x);
+			top = Math.min(top, y);
+			bottom = Math.max(bottom, y);
+		}
+		box[ind * 4] = left;
+		box[ind * 4 + 1] = top;
+		box[ind * 4 + 2] = right;
+		box[ind * 4 + 3] = bottom;
+	}
+
+	int getRoadsCount() {
+		return roads.length;
+	}
+
+	RouteDataObject getRoad(int road) {
+		return roads[road];
+	}
+
+	/**
+	 * Finds first segment of road with minimal tile metric distance between point and its projection to segment.
+	 * @return end point index of segment (segment is [end - 1, end]) or -1 if road has less than 2 points,
+	 * projection and its square distance are stored in result
+	 */
+	int findNearestSegment(int road, int px, int py, SegmentProjection result) {
+		int chunkStart = roadChunkStart[road];
+		int chunks = roadChunkStart[road + 1] - chunkStart;
+		if (chunks == 0) {
+			return -1;
+		}
+		RouteDataObject r = roads[road];
+		result.distSquare = Double.POSITIVE_INFINITY;
+		if (chunks == 1) {
+			return projectChunk(r, 0, px, py, -1, result);
+		}
+		double twSquare = getMinTileWidthSquare(road, py);
+		if (twSquare == 0) {
+			int best = -1;
+			for (int c = 0; c < chunks; c++) {
+				best = projectChunk(r, c, px, py, best, result);
+			}
+			return best;
+		}
+		if (result.chunkBounds.length < chunks) {
+			result.chunkBounds = new double[Math.max(chunks, result.chunkBounds.length * 2)];
+		}
+		double[] bounds = result.chunkBounds;
+		int first = 0;
+		for (int c = 0; c < chunks; c++) {
+			bounds[c] = getBoxDistSquare(chunkBox, chunkStart + c, px, py) * twSquare * LOWER_BOUND_PRECISION;
+			if (bounds[c] < bounds[first]) {
+				first = c;
+			}
+		}
+		// closest chunk first to skip most of others
+		int best = projectChunk(r, first, px, py, -1, result);
+		for (int c = 0; c < chunks; c++) {
+			if (c != first && bounds[c] <= result.distSquare) {
+				best = projectChunk(r, c, px, py, best, result);
+			}
+		}
+		return best;
+	}
+
+	private int projectChunk(RouteDataObject r, int chunk, int px, int py, int best, SegmentProjection result) {
+		int end = Math.min(r.getPointsLength() - 1, (chunk + 1) * CHUNK_SIZE);
+		for (int j = chunk * CHUNK_SIZE + 1; j <= end; j++) {
+			QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, r.getPoint31XTile(j - 1),
+					r.getPoint31YTile(j - 1), r.getPoint31XTile(j), r.getPoint31YTile(j));
+			double distSquare = MapUtils.squareDist31TileMetric((int) pr.x, (int) pr.y, px, py);
+			// equal distance keeps first segment as linear scan
+			if (best == -1 || distSquare < result.distSquare || (distSquare == result.distSquare && j < best)) {
+				best = j;
+				result.distSquare = distSquare;
+				result.x = (int) pr.x;
+				result.y = (int) pr.y;
+			}
+		}
+		return best;
+	}
+
+	private double getMinTileWidthSquare(int road, int py) {
+		int minY = Math.min(py, roadBox[road * 4 + 1]);
+		int maxY = Math.max(py, roadBox[road * 4 + 3]);
+		if (minY <= MapUtils.EQUATOR && maxY >= MapUtils.EQUATOR) {
+			// tile metric is measured through equator
+			return 0;
+		}
+		// tile width is monotonic on one side of equator
+		return Math.min(MapUtils.squareDist31TileMetric(0, minY, 1, minY),
+				MapUtils.squareDist31TileMetric(0, maxY, 1, maxY));
+	}
+
+	private static double getBoxDistSquare(int[] box, int ind, int px, int py) {
+		double dx = Math.max(0, Math.max((double) box[ind * 4] - px, (double) px - box[ind * 4 + 2]));
+		double dy = Math.max(0, Math.max((double) box[ind * 4 + 1] - py, (double) py - box[ind * 4 + 3]));
+		return dx * dx + dy * dy;
+	}
+}
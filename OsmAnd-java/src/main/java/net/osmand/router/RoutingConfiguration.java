@@ -67,6 +67,21 @@ public class RoutingConfiguration {
 	// 1.7 Maximum visited segments
 	public int MAX_VISITED = -1;
 
+	// 1.8 Use primitive indexed heap for A* queue instead of PriorityQueue (should not affect routing)
+	public boolean primitiveSegmentsQueue = false;
+
+	// 1.9 Run forward and reverse A* in 2 threads (only for 2-directional search between 2 points without visitor)
+	public boolean parallelBidirectionalSearch = false;
+
+	// 1.10 Decoded route tiles shared between contexts (null means each context decodes own tiles)
+	public RoutingTileCache tileCache;
+
+	// 1.11 Threads to calculate legs between intermediate points in parallel (0 - legs are calculated one by one)
+	public int parallelRouteLegs = 0;
+
+	// 1.12 Isochrones with larger time budget (seconds) are calculated on HH network points if HH routing is configured (0 - only roads)
+	public float hhIsochroneMinTime = 3600;
+
 
 	// extra points to be inserted in ways (quad tree is based on 31 coords)
 	private QuadTree<DirectionPoint> directionPoints;
@@ -85,6 +100,12 @@ public class RoutingConfiguration {
 	// Parameter to smoother the track itself (could be 0 if it's not recorded track)
 	public float smoothenPointsNoRoute = 5;
 
+	// Threads to approximate chunks of long track in parallel (0 - track is approximated in one pass)
+	public int parallelGpxApproximation = 0;
+
+	// Length of track chunk approximated in parallel (chunks are joined at shared boundary points)
+	public float gpxApproximationChunkDistance = 30000;
+
 	public QuadTree<DirectionPoint> getDirectionPoints() {
 		return directionPoints;
 	}
@@ -142,6 +163,7 @@ public class RoutingConfiguration {
 		private Map<String, String> attributes = new LinkedHashMap<>();
 		private Set<Long> impassableRoadLocations = new HashSet<>();
 		private QuadTree<Node> directionPointsBuilder;
+		private RoutingTileCache tileCache;
 
 		public Builder() {
 		}
@@ -203,6 +225,8 @@ public class RoutingConfiguration {
 			i.minStepApproximation = parseSilentFloat(getAttribute(i.router, "minStepApproximation"), i.minStepApproximation);
 			i.maxStepApproximation = parseSilentFloat(getAttribute(i.router, "maxStepApproximation"), i.maxStepApproximation);
 			i.smoothenPointsNoRoute = parseSilentFloat(getAttribute(i.router, "smoothenPointsNoRoute"), i.smoothenPointsNoRoute);
+			i.parallelGpxApproximation = parseSilentInt(getAttribute(i.router, "parallelGpxApproximation"), i.parallelGpxApproximation);
+			i.gpxApproximationChunkDistance = parseSilentFloat(getAttribute(i.router, "gpxApproximationChunkDistance"), i.gpxApproximationChunkDistance);
 			i.penaltyForReverseDirection = parseSilentFloat(getAttribute(i.router, "penaltyForReverseDirection"), (float) i.penaltyForReverseDirection);
 
 			i.router.setImpassableRoads(new HashSet<>(impassableRoadLocations));
@@ -224,6 +248,11 @@ public class RoutingConfiguration {
 				i.nativeMemoryLimitation = memoryLimits.nativeMemoryLimitMb * (1l << 20);
 			}
 			i.planRoadDirection = parseSilentInt(getAttribute(i.router, "planRoadDirection"), i.planRoadDirection);
+			i.primitiveSegmentsQueue = parseSilentBoolean(getAttribute(i.router, "primitiveSegmentsQueue"), i.primitiveSegmentsQueue);
+			i.parallelBidirectionalSearch = parseSilentBoolean(getAttribute(i.router, "parallelBidirectionalSearch"), i.parallelBidirectionalSearch);
+			i.parallelRouteLegs = parseSilentInt(getAttribute(i.router, "parallelRouteLegs"), i.parallelRouteLegs);
+			i.hhIsochroneMinTime = parseSilentFloat(getAttribute(i.router, "hhIsochroneMinTime"), i.hhIsochroneMinTime);
+			i.tileCache = tileCache;
 			if (directionPointsBuilder != null) {
 				QuadRect rect = new QuadRect(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE);
 				List<net.osmand.osm.edit.Node> lst = directionPointsBuilder.queryInBox(rect, new ArrayList<Node>());
@@ -243,6 +272,15 @@ public class RoutingConfiguration {
 			this.directionPointsBuilder = directionPoints;
 			return this;
 		}
+
+		public Builder setTileCache(RoutingTileCache tileCache) {
+			this.tileCache = tileCache;
+			return this;
+		}
+
+		public RoutingTileCache getTileCache() {
+			return tileCache;
+		}
 		
 		public void clearImpassableRoadLocations() {
 			impassableRoadLocations.clear();
@@ -313,6 +351,13 @@ public class RoutingConfiguration {
 		return Float.parseFloat(t);
 	}
 
+	public static boolean parseSilentBoolean(String t, boolean v) {
+		if (t == null || t.length() == 0) {
+			return v;
+		}
+		return Boolean.parseBoolean(t);
+	}
+
 	
 	private static RoutingConfiguration.Builder DEFAULT;
 
@@ -15,6 +15,7 @@ import org.apache.commons.logging.Log;
 
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.iterator.TLongIterator;
+import gnu.trove.list.array.TLongArrayList;
 import gnu.trove.map.TLongObjectMap;
 import gnu.trove.map.hash.TLongObjectHashMap;
 import gnu.trove.set.hash.TLongHashSet;
@@ -88,6 +89,9 @@ public class RoutingContext {
 	// Needs to be a sorted array list . Another option to use hashmap but it will be more memory expensive
 	List<RoutingSubregionTile> subregionTiles = new ArrayList<RoutingSubregionTile>();
 	
+	// guards tiles shared with parallel search worker contexts (null when not shared)
+	Object tileLock;
+	
 	// 3. Warm object caches
 	ArrayList<RouteSegment> segmentsToVisitPrescripted = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
 	ArrayList<RouteSegment> segmentsToVisitNotForbidden = new ArrayList<BinaryRoutePlanner.RouteSegment>(5);
@@ -101,6 +105,9 @@ public class RoutingContext {
 
 	// callback of processing segments
 	RouteSegmentVisitor visitor = null;
+	
+	// own router of parallel search worker context (router caches are not thread-safe)
+	private GeneralRouter router;
 
 	public int alertFasterRoadToVisitedSegments;
 	public int alertSlowerSegmentedWasVisitedEarlier;
@@ -120,6 +127,65 @@ public class RoutingContext {
 		this.calculationProgress = cp.calculationProgress;
 	}
 	
+	/**
+	 * Context for the second thread of parallel search: shares loaded tiles with this context
+	 * (access is guarded by the same tile lock) but has own router caches and warm lists.
+	 */
+	RoutingContext createParallelSearchContext(GeneralRouter router) {
+		if (tileLock == null) {
+			tileLock = new Object();
+		}
+		RoutingContext cp = new RoutingContext(this);
+		cp.router = router;
+		cp.tileLock = tileLock;
+		cp.indexedSubregions = indexedSubregions;
+		cp.subregionTiles = subregionTiles;
+		cp.global = global;
+		cp.startX = startX;
+		cp.startY = startY;
+		cp.startRoadId = startRoadId;
+		cp.startSegmentInd = startSegmentInd;
+		cp.targetX = targetX;
+		cp.targetY = targetY;
+		cp.targetRoadId = targetRoadId;
+		cp.targetSegmentInd = targetSegmentInd;
+		cp.intermediatesX = intermediatesX;
+		cp.intermediatesY = intermediatesY;
+		cp.dijkstraMode = dijkstraMode;
+		cp.publicTransport = publicTransport;
+		cp.precalculatedRouteDirection = precalculatedRouteDirection;
+		cp.memoryOverhead = memoryOverhead;
+		// counters aren't thread-safe, they are merged by finishParallelSearch
+		cp.calculationProgress = calculationProgress == null ? null : new RouteCalculationProgress();
+		return cp;
+	}
+
+	/**
+	 * Called when thread of parallel search context is finished: tiles aren't shared any more
+	 * and statistics of that context are added to this context.
+	 */
+	void finishParallelSearch(RoutingContext cp) {
+		tileLock = null;
+		alertFasterRoadToVisitedSegments += cp.alertFasterRoadToVisitedSegments;
+		alertSlowerSegmentedWasVisitedEarlier += cp.alertSlowerSegmentedWasVisitedEarlier;
+		if (calculationProgress != null && cp.calculationProgress != null) {
+			calculationProgress.add(cp.calculationProgress);
+		}
+	}
+	
+	/**
+	 * Context to calculate route leg in parallel with other legs: same settings as this context,
+	 * but own readers (references to the same files), own tiles, own router caches and own progress.
+	 */
+	RoutingContext createRouteLegContext(BinaryMapIndexReader[] readers, GeneralRouter router,
+			RouteCalculationProgress progress) {
+		RoutingContext cp = new RoutingContext(config, nativeLib, readers, calculationMode);
+		cp.router = router;
+		cp.leftSideNavigation = leftSideNavigation;
+		cp.calculationProgress = progress;
+		return cp;
+	}
+
 	RoutingContext(RoutingConfiguration config, NativeLibrary nativeLibrary, BinaryMapIndexReader[] list, RouteCalculationMode calcMode) {
 		this.calculationMode = calcMode;
 		for (BinaryMapIndexReader mr : list) {
@@ -174,7 +240,7 @@ public class RoutingContext {
 	}
 
 	public VehicleRouter getRouter() {
-		return config.router;
+		return router != null ? router : config.router;
 	}
 
 	public boolean planRouteIn2Directions() {
@@ -219,7 +285,44 @@ public class RoutingContext {
 		subregionTiles.clear();
 		indexedSubregions.clear();
 	}
-	
+
+	/**
+	 * Prepares context to calculate next route (cheap alternative of {@link #unloadAllData()}): clears points,
+	 * progress and state of previous search, but keeps loaded tiles, subregions and router caches.
+	 * Tiles are unloaded only if they don't fit memory limit.
+	 */
+	public void resetForNextRoute() {
+		startX = startY = 0;
+		startRoadId = 0;
+		startSegmentInd = 0;
+		startTransportStop = false;
+		targetX = targetY = 0;
+		targetRoadId = 0;
+		targetSegmentInd = 0;
+		targetTransportStop = false;
+		intermediatesX = new int[0];
+		intermediatesY = new int[0];
+		dijkstraMode = 0;
+		calculationProgress = null;
+		calculationProgressFirstPhase = null;
+		previouslyCalculatedRoute = null;
+		precalculatedRouteDirection = null;
+		finalRouteSegment = null;
+		visitor = null;
+		memoryOverhead = 0;
+		routingTime = 0;
+		alertFasterRoadToVisitedSegments = 0;
+		alertSlowerSegmentedWasVisitedEarlier = 0;
+		for (RoutingSubregionTile tl : subregionTiles) {
+			if (tl.isLoaded()) {
+				tl.resetSearchState();
+			}
+		}
+		if (config.memoryLimitation > 0 && getCurrentEstimatedSize() > 0.7 * config.memoryLimitation) {
+			unloadUnusedTiles(config.memoryLimitation);
+		}
+	}
+
 	private int searchSubregionTile(RouteSubregion subregion){
 		RoutingSubregionTile key = new RoutingSubregionTile(subregion);
 		int ind = Collections.binarySearch(subregionTiles, key, new Comparator<RoutingSubregionTile>() {
@@ -250,6 +353,16 @@ public class RoutingContext {
 	}
 	
 	public RouteSegment loadRouteSegment(int x31, int y31, long memoryLimit, boolean reverseWaySearch) {
+		Object lock = tileLock;
+		if (lock != null) {
+			synchronized (lock) {
+				return loadRouteSegmentInternal(x31, y31, memoryLimit, reverseWaySearch);
+			}
+		}
+		return loadRouteSegmentInternal(x31, y31, memoryLimit, reverseWaySearch);
+	}
+	
+	private RouteSegment loadRouteSegmentInternal(int x31, int y31, long memoryLimit, boolean reverseWaySearch) {
 		long tileId = getRoutingTile(x31, y31, memoryLimit);
 		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
 		RouteSegment original = null;
@@ -290,7 +403,13 @@ public class RoutingContext {
 			try {
 				BinaryMapIndexReader reader = reverseMap.get(ts.subregion.routeReg);
 				ts.setLoadedNonNative();
-				List<RouteDataObject> res = reader.loadRouteIndexData(ts.subregion);
+				List<RouteDataObject> res;
+				// shared objects are read-only, conditional tags & direction points modify them
+				if (config.tileCache != null && config.routeCalculationTime == 0 && points.isEmpty()) {
+					res = config.tileCache.loadRouteIndexData(reader, ts.subregion);
+				} else {
+					res = reader.loadRouteIndexData(ts.subregion);
+				}
 				
 				if (toLoad != null) {
 					toLoad.addAll(res);
@@ -300,7 +419,7 @@ public class RoutingContext {
 							if (config.routeCalculationTime != 0) {
 								ro.processConditionalTags(config.routeCalculationTime);
 							}
-							if (config.router.acceptLine(ro)) {
+							if (getRouter().acceptLine(ro)) {
 								if (excludeNotAllowed != null && !excludeNotAllowed.contains(ro.getId())) {
 									// don't attach point for route precalculation
 									if (!config.router.attributes.containsKey(GeneralRouter.CHECK_ALLOW_PRIVATE_NEEDED)) {
@@ -424,6 +543,21 @@ public class RoutingContext {
 	}
 	
 	public void loadTileData(int x31, int y31, int zoomAround, final List<RouteDataObject> toFillIn, boolean allowDuplications) {
+		TLongArrayList tiles = loadTilesAround(x31, y31, zoomAround);
+		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
+		for (int k = 0; k < tiles.size(); k++) {
+			getAllObjects(tiles.get(k), toFillIn, excludeDuplications);
+			if (allowDuplications) {
+				excludeDuplications.clear();
+			}
+		}
+	}
+
+	/**
+	 * Loads routing tiles around point
+	 * @return ids of loaded tiles in order of {@link #loadTileData}
+	 */
+	TLongArrayList loadTilesAround(int x31, int y31, int zoomAround) {
 		int t =  config.ZOOM_TO_LOAD_TILES - zoomAround;
 		int coordinatesShift = (1 << (31 - config.ZOOM_TO_LOAD_TILES));
 		if(t <= 0) {
@@ -439,12 +573,23 @@ public class RoutingContext {
                 ts.add(getRoutingTile(x31 + i * coordinatesShift, y31 + j * coordinatesShift, 0));
             }
         }
+		TLongArrayList tiles = new TLongArrayList(ts.size());
 		TLongIterator it = ts.iterator();
-		TLongObjectHashMap<RouteDataObject> excludeDuplications = new TLongObjectHashMap<RouteDataObject>();
 		while (it.hasNext()) {
-			getAllObjects(it.next(), toFillIn, excludeDuplications);
-			if (allowDuplications) {
-				excludeDuplications.clear();
+			tiles.add(it.next());
+		}
+		return tiles;
+	}
+
+	/**
+	 * Resident segment indexes of loaded subregions of routing tile (index roads are the same as {@link #loadTileData}
+	 * gives for the tile), indexes are kept until subregion is unloaded
+	 */
+	void getSegmentsIndexes(long tileId, List<RouteSegmentsIndex> toFillIn) {
+		List<RoutingSubregionTile> subregions = indexedSubregions.get(tileId);
+		if (subregions != null) {
+			for (RoutingSubregionTile rs : subregions) {
+				toFillIn.add(rs.getSegmentsIndex(this));
 			}
 		}
 	}
@@ -730,6 +875,7 @@ public class RoutingContext {
 		private int isLoaded = 0;
 		private TLongObjectMap<RouteSegment> routes = null;
 		private TLongHashSet excludedIds = null;
+		private RouteSegmentsIndex segmentsIndex = null;
 
 		public RoutingSubregionTile(RouteSubregion subregion) {
 			this.subregion = subregion;
@@ -766,6 +912,15 @@ public class RoutingContext {
 			}
 		}
 		
+		RouteSegmentsIndex getSegmentsIndex(RoutingContext ctx) {
+			if (segmentsIndex == null) {
+				List<RouteDataObject> objects = new ArrayList<RouteDataObject>();
+				loadAllObjects(objects, ctx, new TLongObjectHashMap<RouteDataObject>());
+				segmentsIndex = new RouteSegmentsIndex(objects);
+			}
+			return segmentsIndex;
+		}
+
 		private RouteSegment loadRouteSegment(int x31, int y31, RoutingContext ctx,
 				TLongObjectHashMap<RouteDataObject> excludeDuplications, RouteSegment original, List<RoutingSubregionTile> subregions, int subregionIndex, 
 				boolean reverseWaySearch) {
@@ -835,15 +990,39 @@ public class RoutingContext {
 			searchResult = null;
 			routes = null;
 			excludedIds = null;
+			segmentsIndex = null;
 		}
-		
+
+		void resetSearchState() {
+			if (routes == null) {
+				return;
+			}
+			for (RouteSegment segment : routes.valueCollection()) {
+				for (; segment != null; segment = segment.nextLoaded) {
+					resetSearchState(segment);
+					if (segment.reverseSearch != null) {
+						resetSearchState(segment.reverseSearch);
+					}
+				}
+			}
+		}
+
+		private static void resetSearchState(RouteSegment segment) {
+			segment.resetSearchState();
+			if (segment.oppositeDirection != null) {
+				segment.oppositeDirection.resetSearchState();
+			}
+		}
+
 		public void setLoadedNonNative(){
 			isLoaded = Math.abs(isLoaded) + 1;
+			segmentsIndex = null;
 			routes = new TLongObjectHashMap<BinaryRoutePlanner.RouteSegment>();
 			tileStatistics = new TileStatistics();
 		}
 		
 		public void add(RouteDataObject ro) {
+			segmentsIndex = null;
 			tileStatistics.addObject(ro);
 			for (int i = 0; i < ro.pointsX.length; i++) {
 				int x31 = ro.getPoint31XTile(i);
@@ -864,6 +1043,7 @@ public class RoutingContext {
 		
 		public void setLoadedNative(NativeRouteSearchResult r, RoutingContext ctx) {
 			isLoaded = Math.abs(isLoaded) + 1;
+			segmentsIndex = null;
 			tileStatistics = new TileStatistics();
 			if (r.objects != null) {
 				searchResult = null;
@@ -0,0 +1,322 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.logging.Log;
+
+import net.osmand.PlatformUtil;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+/**
+ * Pool of warm java routing contexts for concurrent requests (for example of routing server).
+ * Contexts are kept per profile and set of routing parameters, every context has own configuration
+ * with own router (router caches are not thread-safe) and own readers (references to the same files),
+ * so acquired context could be used by one thread without synchronization.
+ * Released context is reset by {@link RoutingContext#resetForNextRoute()} instead of being rebuilt, so parsed router
+ * parameters, subregions of maps and loaded tiles are reused by next request.
+ * Decoded tiles could also be shared between contexts by {@link RoutingConfiguration.Builder#setTileCache}.
+ * Number of contexts is limited globally, idle contexts are closed after max idle time or when context of other
+ * key is needed.
+ */
+public class RoutingContextPool {
+
+	private static final Log log = PlatformUtil.getLog(RoutingContextPool.class);
+
+	private final RoutingConfiguration.Builder builder;
+	private final RoutingMemoryLimits memoryLimits;
+	private final BinaryMapIndexReader[] maps;
+	private final int maxContextsPerKey;
+	private final int maxContexts;
+	private final long maxIdleTimeMs;
+
+	// guarded by this
+	private final Map<String, PooledContexts> contexts = new LinkedHashMap<String, PooledContexts>();
+	private final Map<RoutingContext, PooledContexts> acquired = new IdentityHashMap<RoutingContext, PooledContexts>();
+	// idle contexts of all keys, least recently released first
+	private final Deque<IdleContext> idle = new ArrayDeque<IdleContext>();
+	private int contextsCount;
+	private boolean closed;
+
+	private static class PooledContexts {
+		final String key;
+		final Semaphore permits;
+		// last released first, its tiles are most likely still loaded
+		final Deque<IdleContext> idle = new ArrayDeque<IdleContext>();
+		int created;
+		// threads waiting for context or using it
+		int users;
+
+		PooledContexts(String key, int maxContexts) {
+			this.key = key;
+			permits = new Semaphore(maxContexts, true);
+		}
+	}
+
+	private static class IdleContext {
+		final RoutingContext ctx;
+		final PooledContexts pc;
+		final long releasedTime;
+
+		IdleContext(RoutingContext ctx, PooledContexts pc, long releasedTime) {
+			this.ctx = ctx;
+			this.pc = pc;
+			this.releasedTime = releasedTime;
+		}
+	}
+
+	/**
+	 * @param maps readers which could be copied ({@link BinaryMapIndexReader#getMappedFile()} or
+	 *             {@link BinaryMapIndexReader#getFile()} is set)
+	 * @param maxContextsPerKey max contexts created for the same profile and parameters, acquire waits for
+	 *                          released context when all of them are in use
+	 * @param maxContexts max contexts of all keys, least recently used idle context is closed to create new one
+	 *                    and acquire waits for released context when all of them are in use
+	 * @param maxIdleTimeMs idle context is closed when it isn't used longer (checked on acquire and release)
+	 */
+	public RoutingContextPool(RoutingConfiguration.Builder builder, RoutingMemoryLimits memoryLimits,
+			BinaryMapIndexReader[] maps, int maxContextsPerKey, int maxContexts, long maxIdleTimeMs) {
+		for (BinaryMapIndexReader r : maps) {
+			if (r.getMappedFile() == null && r.getFile() == null) {
+				throw new IllegalArgumentException("Reader can't be copied " + r.getRegionNames());
+			}
+		}
+		if (maxContextsPerKey <= 0 || maxContexts <= 0) {
+			throw new IllegalArgumentException("Max contexts " + maxContextsPerKey + ", " + maxContexts);
+		}
+		this.builder = builder;
+		this.memoryLimits = memoryLimits;
+		this.maps = maps;
+		this.maxContextsPerKey = maxContextsPerKey;
+		this.maxContexts = maxContexts;
+		this.maxIdleTimeMs = maxIdleTimeMs;
+	}
+
+	/**
+	 * Returns context of profile and parameters, blocks while all contexts of this key (or all contexts of pool)
+	 * are in use. Context must be returned by {@link #release(RoutingContext)}.
+	 */
+	public RoutingContext acquire(String profile, Map<String, String> params) throws IOException, InterruptedException {
+		if (params == null) {
+			params = new LinkedHashMap<String, String>();
+		}
+		PooledContexts pc;
+		String key = getKey(profile, params);
+		synchronized (this) {
+			checkNotClosed();
+			pc = contexts.get(key);
+			if (pc == null) {
+				pc = new PooledContexts(key, maxContextsPerKey);
+				contexts.put(key, pc);
+			}
+			pc.users++;
+		}
+		boolean permit = false;
+		List<RoutingContext> toClose = new ArrayList<RoutingContext>();
+		try {
+			pc.permits.acquire();
+			permit = true;
+			RoutingContext ctx = null;
+			synchronized (this) {
+				checkNotClosed();
+				evictIdle(System.currentTimeMillis() - maxIdleTimeMs, toClose);
+				IdleContext ic = pc.idle.pollFirst();
+				if (ic != null) {
+					idle.remove(ic);
+					ctx = ic.ctx;
+				} else {
+					while (contextsCount >= maxContexts) {
+						// close least recently used context of any key or wait till context is released
+						if (!idle.isEmpty()) {
+							removeIdle(idle.peekFirst(), toClose);
+						} else {
+							wait();
+							checkNotClosed();
+						}
+					}
+					// reserve place of new context
+					contextsCount++;
+					pc.created++;
+				}
+			}
+			closeContexts(toClose);
+			if (ctx == null) {
+				try {
+					ctx = createContext(profile, params);
+				} catch (IOException | RuntimeException e) {
+					synchronized (this) {
+						contextsCount--;
+						pc.created--;
+						notifyAll();
+					}
+					throw e;
+				}
+			}
+			synchronized (this) {
+				acquired.put(ctx, pc);
+			}
+			return ctx;
+		} catch (IOException | RuntimeException | InterruptedException e) {
+			closeContexts(toClose);
+			if (permit) {
+				pc.permits.release();
+			}
+			synchronized (this) {
+				pc.users--;
+				removeIfUnused(pc);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Resets context and returns it to the pool (context is closed if pool is closed)
+	 */
+	public void release(RoutingContext ctx) {
+		PooledContexts pc;
+		synchronized (this) {
+			pc = acquired.remove(ctx);
+		}
+		if (pc == null) {
+			throw new IllegalArgumentException("Context is not acquired from pool");
+		}
+		boolean close = false;
+		try {
+			ctx.resetForNextRoute();
+			ctx.config.initialDirection = null;
+			ctx.config.targetDirection = null;
+		} catch (RuntimeException e) {
+			log.error("Context can't be reset: " + e.getMessage(), e);
+			close = true;
+		}
+		List<RoutingContext> toClose = new ArrayList<RoutingContext>();
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			if (closed || close) {
+				pc.created--;
+				contextsCount--;
+				toClose.add(ctx);
+			} else {
+				IdleContext ic = new IdleContext(ctx, pc, now);
+				pc.idle.addFirst(ic);
+				idle.addLast(ic);
+			}
+			evictIdle(now - maxIdleTimeMs, toClose);
+			pc.users--;
+			removeIfUnused(pc);
+			notifyAll();
+		}
+		closeContexts(toClose);
+		pc.permits.release();
+	}
+
+	/**
+	 * @return number of created contexts (idle and in use)
+	 */
+	public synchronized int getContextsCount() {
+		return contextsCount;
+	}
+
+	/**
+	 * @return number of profiles and parameters with created contexts or waiting requests
+	 */
+	public synchronized int getKeysCount() {
+		return contexts.size();
+	}
+
+	/**
+	 * Closes idle contexts, contexts in use are closed when they are released
+	 */
+	public void close() {
+		List<RoutingContext> toClose = new ArrayList<RoutingContext>();
+		synchronized (this) {
+			closed = true;
+			while (!idle.isEmpty()) {
+				removeIdle(idle.peekFirst(), toClose);
+			}
+			notifyAll();
+		}
+		closeContexts(toClose);
+	}
+
+	// guarded by this
+	private void evictIdle(long releasedBefore, List<RoutingContext> toClose) {
+		while (!idle.isEmpty() && idle.peekFirst().releasedTime < releasedBefore) {
+			removeIdle(idle.peekFirst(), toClose);
+		}
+	}
+
+	// guarded by this
+	private void removeIdle(IdleContext ic, List<RoutingContext> toClose) {
+		idle.remove(ic);
+		ic.pc.idle.remove(ic);
+		ic.pc.created--;
+		contextsCount--;
+		toClose.add(ic.ctx);
+		removeIfUnused(ic.pc);
+	}
+
+	// guarded by this
+	private void removeIfUnused(PooledContexts pc) {
+		if (pc.users == 0 && pc.created == 0 && contexts.get(pc.key) == pc) {
+			contexts.remove(pc.key);
+		}
+	}
+
+	private void checkNotClosed() {
+		if (closed) {
+			throw new IllegalStateException("Pool is closed");
+		}
+	}
+
+	private RoutingContext createContext(String profile, Map<String, String> params) throws IOException {
+		RoutingConfiguration config;
+		// builder is not thread-safe
+		synchronized (builder) {
+			config = builder.build(profile, memoryLimits, new LinkedHashMap<String, String>(params));
+		}
+		BinaryMapIndexReader[] readers = new BinaryMapIndexReader[maps.length];
+		try {
+			for (int k = 0; k < maps.length; k++) {
+				readers[k] = RoutePlannerFrontEnd.openReaderCopy(maps[k]);
+			}
+		} catch (IOException e) {
+			closeReaders(readers);
+			throw e;
+		}
+		return new RoutePlannerFrontEnd().buildRoutingContext(config, null, readers);
+	}
+
+	private static void closeContexts(List<RoutingContext> contexts) {
+		for (RoutingContext ctx : contexts) {
+			ctx.unloadAllData();
+			closeReaders(ctx.getMaps());
+		}
+		contexts.clear();
+	}
+
+	private static void closeReaders(BinaryMapIndexReader[] readers) {
+		for (BinaryMapIndexReader r : readers) {
+			if (r != null) {
+				try {
+					r.close();
+				} catch (IOException e) {
+					log.warn("Reader is not closed: " + e.getMessage());
+				}
+			}
+		}
+	}
+
+	private static String getKey(String profile, Map<String, String> params) {
+		return profile + new TreeMap<String, String>(params);
+	}
+}
@@ -0,0 +1,204 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+/**
+ * Process-wide cache of decoded route subregions shared by many {@link RoutingContext}s
+ * (for example by concurrent requests of routing server).
+ * Cached {@link RouteDataObject}s are shared read-only, every context still builds own route segments on top of them,
+ * so contexts which modify objects (conditional tags, direction points) don't use the cache.
+ * Tiles are keyed by route region object and subregion file pointer, so only readers sharing index structure
+ * ({@link net.osmand.binary.BinaryMappedFile#createReader(BinaryMapIndexReader)}) share tiles.
+ * Tile is decoded once even if it is requested concurrently, least recently used tiles are evicted when
+ * estimated size exceeds the limit (evicted tiles stay valid for contexts that already loaded them).
+ */
+public class RoutingTileCache {
+
+	private final long maxSize;
+	private final LinkedHashMap<TileKey, CachedTile> tiles = new LinkedHashMap<TileKey, CachedTile>(64, 0.75f, true);
+	private long size;
+
+	// statistics
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	public RoutingTileCache(long maxSizeBytes) {
+		this.maxSize = maxSizeBytes;
+	}
+
+	public List<RouteDataObject> loadRouteIndexData(final BinaryMapIndexReader reader, final RouteSubregion subregion)
+			throws IOException {
+		TileKey key = new TileKey(subregion.routeReg, subregion.filePointer);
+		CachedTile tile;
+		boolean load = false;
+		synchronized (this) {
+			tile = tiles.get(key);
+			if (tile == null) {
+				tile = new CachedTile(new FutureTask<List<RouteDataObject>>(new Callable<List<RouteDataObject>>() {
+					@Override
+					public List<RouteDataObject> call() throws Exception {
+						return Collections.unmodifiableList(reader.loadRouteIndexData(subregion));
+					}
+				}));
+				tiles.put(key, tile);
+				load = true;
+				misses++;
+			} else {
+				hits++;
+			}
+		}
+		if (load) {
+			tile.task.run();
+		}
+		try {
+			List<RouteDataObject> res = getUninterruptibly(tile.task);
+			if (load) {
+				tileLoaded(key, tile, res);
+			}
+			return res;
+		} catch (ExecutionException e) {
+			synchronized (this) {
+				if (tiles.get(key) == tile) {
+					tiles.remove(key);
+				}
+			}
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new IOException(cause);
+		}
+	}
+
+	private static <T> T getUninterruptibly(FutureTask<T> task) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private synchronized void tileLoaded(TileKey key, CachedTile tile, List<RouteDataObject> res) {
+		if (tiles.get(key) != tile) {
+			// cache was cleared while tile was decoded
+			return;
+		}
+		int sz = 0;
+		for (RouteDataObject ro : res) {
+			if (ro != null) {
+				sz += RoutingContext.getEstimatedSize(ro);
+			}
+		}
+		tile.size = sz;
+		size += sz;
+		Iterator<Entry<TileKey, CachedTile>> it = tiles.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			CachedTile t = it.next().getValue();
+			// tiles being decoded are not counted yet
+			if (t != tile && t.size >= 0) {
+				it.remove();
+				size -= t.size;
+				evictions++;
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		tiles.clear();
+		size = 0;
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized int getTilesCount() {
+		return tiles.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format("Routing tiles cache %d tiles, %.1f / %.1f MB, hits %d, misses %d, evictions %d",
+				tiles.size(), size / (float) (1 << 20), maxSize / (float) (1 << 20), hits, misses, evictions);
+	}
+
+	private static class CachedTile {
+		final FutureTask<List<RouteDataObject>> task;
+		// -1 while tile is decoded
+		int size = -1;
+
+		CachedTile(FutureTask<List<RouteDataObject>> task) {
+			this.task = task;
+		}
+	}
+
+	private static class TileKey {
+		final RouteRegion region;
+		final long filePointer;
+
+		TileKey(RouteRegion region, long filePointer) {
+			this.region = region;
+			this.filePointer = filePointer;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(region) * 31 + (int) (filePointer ^ (filePointer >>> 32));
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof TileKey)) {
+				return false;
+			}
+			TileKey other = (TileKey) obj;
+			return region == other.region && filePointer == other.filePointer;
+		}
+	}
+}
@@ -0,0 +1,121 @@
+package net.osmand.router;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+/**
+ * Visited segments of route search by route point id ({@link BinaryRoutePlanner#calculateRoutePointId}).
+ * Segments of sequential search are kept in one map without locks.
+ * Segments of parallel search are kept in maps striped by road id (id >> ROUTE_POINTS), so segments of one road
+ * are guarded by one lock. Visited segments created with the same locks could be modified atomically
+ * together by holding {@link #getLock(long)}.
+ */
+final class VisitedSegments {
+
+	static final int DEFAULT_STRIPES = 64;
+
+	private final TLongObjectHashMap<RouteSegment>[] stripes;
+	// null when segments are used by one thread
+	private final Object[] locks;
+	// size of shared segments (read without locking stripes)
+	private final AtomicInteger size = new AtomicInteger();
+
+	VisitedSegments() {
+		this(null);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	VisitedSegments(Object[] locks) {
+		this.locks = locks;
+		this.stripes = new TLongObjectHashMap[locks == null ? 1 : locks.length];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new TLongObjectHashMap<RouteSegment>();
+		}
+	}
+
+	static Object[] createLocks(int stripes) {
+		Object[] locks = new Object[stripes];
+		for (int i = 0; i < stripes; i++) {
+			locks[i] = new Object();
+		}
+		return locks;
+	}
+
+	private int stripe(long id) {
+		long h = id >>> BinaryRoutePlanner.ROUTE_POINTS;
+		h ^= (h >>> 32);
+		h ^= (h >>> 16);
+		return (int) ((h & Integer.MAX_VALUE) % stripes.length);
+	}
+
+	/**
+	 * @return lock of road of segment id or null if segments are not shared between threads
+	 */
+	Object getLock(long id) {
+		return locks == null ? null : locks[stripe(id)];
+	}
+
+	RouteSegment get(long id) {
+		if (locks == null) {
+			return stripes[0].get(id);
+		}
+		int i = stripe(id);
+		synchronized (locks[i]) {
+			return stripes[i].get(id);
+		}
+	}
+
+	boolean containsKey(long id) {
+		if (locks == null) {
+			return stripes[0].containsKey(id);
+		}
+		int i = stripe(id);
+		synchronized (locks[i]) {
+			return stripes[i].containsKey(id);
+		}
+	}
+
+	/**
+	 * @return previous segment with the same id
+	 */
+	RouteSegment put(long id, RouteSegment segment) {
+		if (locks == null) {
+			return stripes[0].put(id, segment);
+		}
+		int i = stripe(id);
+		synchronized (locks[i]) {
+			RouteSegment prev = stripes[i].put(id, segment);
+			if (prev == null) {
+				size.incrementAndGet();
+			}
+			return prev;
+		}
+	}
+
+	RouteSegment remove(long id) {
+		if (locks == null) {
+			return stripes[0].remove(id);
+		}
+		int i = stripe(id);
+		synchronized (locks[i]) {
+			RouteSegment prev = stripes[i].remove(id);
+			if (prev != null) {
+				size.decrementAndGet();
+			}
+			return prev;
+		}
+	}
+
+	int size() {
+		if (locks == null) {
+			return stripes[0].size();
+		}
+		return size.get();
+	}
+
+	boolean isEmpty() {
+		return size() == 0;
+	}
+}
@@ -45,7 +45,9 @@ import java.util.List;
 import java.util.ListIterator;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -56,16 +58,23 @@ public class SearchUICore {
 	private static final int TIMEOUT_BETWEEN_CHARS = 700;
 	private static final int TIMEOUT_BEFORE_SEARCH = 50;
 	private static final int TIMEOUT_BEFORE_FILTER = 20;
+	private static final long PARALLEL_SEARCH_KEEP_ALIVE_MS = 30000;
 	private static final Log LOG = PlatformUtil.getLog(SearchUICore.class);
 	private SearchPhrase phrase;
 	private SearchResultCollection currentSearchResult;
 
 	private ThreadPoolExecutor singleThreadedExecutor;
 	private LinkedBlockingQueue<Runnable> taskQueue;
+	// searches offline indexes in parallel (see SearchBaseAPI.searchOfflineIndexes), null - sequential search
+	private volatile ExecutorService offlineIndexesExecutor;
 	private Runnable onSearchStart = null;
 	private Runnable onResultsComplete = null;
 	private AtomicInteger requestNumber = new AtomicInteger();
 	private int totalLimit = -1; // -1 unlimited - not used
+	// objects read by name are kept to filter them when next phrase only continues last word
+	private boolean incrementalSearch;
+	// last finished search which wasn't truncated by total limit (used by incremental search)
+	private volatile SearchPhrase lastCompletePhrase;
 
 	List<SearchCoreAPI> apis = new ArrayList<>();
 	private SearchSettings searchSettings;
@@ -318,6 +327,64 @@ public class SearchUICore {
 		this.totalLimit = totalLimit;
 	}
 
+	/**
+	 * Running search keeps executor it was started with, so previous executor isn't shut down:
+	 * its threads stop when they are idle for PARALLEL_SEARCH_KEEP_ALIVE_MS.
+	 * @param threads number of threads to search offline indexes in parallel, 1 or less - search sequentially
+	 */
+	public void setParallelSearch(final int threads) {
+		if (threads > 1) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, PARALLEL_SEARCH_KEEP_ALIVE_MS,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+						@Override
+						public Thread newThread(Runnable r) {
+							Thread t = new Thread(r, "Search offline indexes");
+							t.setDaemon(true);
+							return t;
+						}
+					});
+			executor.allowCoreThreadTimeOut(true);
+			offlineIndexesExecutor = executor;
+		} else {
+			offlineIndexesExecutor = null;
+		}
+	}
+
+	ExecutorService getOfflineIndexesExecutor() {
+		return offlineIndexesExecutor;
+	}
+
+	public boolean isParallelSearch() {
+		return offlineIndexesExecutor != null;
+	}
+
+	public boolean isIncrementalSearch() {
+		return incrementalSearch;
+	}
+
+	/**
+	 * @param incrementalSearch when new phrase is refinement of previous one (see {@link SearchPhrase#isRefinementOf}),
+	 *                          objects found by name in offline indexes are filtered instead of reading files again
+	 */
+	public void setIncrementalSearch(boolean incrementalSearch) {
+		this.incrementalSearch = incrementalSearch;
+		this.lastCompletePhrase = null;
+	}
+
+	private SearchResultMatcher createResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase,
+			int request) {
+		SearchResultMatcher rm = new SearchResultMatcher(matcher, phrase, request, requestNumber, totalLimit);
+		rm.setOfflineIndexesExecutor(offlineIndexesExecutor);
+		rm.setIncrementalSearch(incrementalSearch);
+		rm.setRefinement(incrementalSearch && phrase.isRefinementOf(lastCompletePhrase));
+		return rm;
+	}
+
+	private void searchFinished(SearchResultMatcher rm, SearchPhrase phrase) {
+		boolean truncated = rm.totalLimit != -1 && rm.count > rm.totalLimit;
+		lastCompletePhrase = incrementalSearch && !truncated ? phrase : null;
+	}
+
 	@SuppressWarnings("unchecked")
 	public <T> T getApiByClass(Class<T> cl) {
 		for (SearchCoreAPI a : apis) {
@@ -352,6 +419,7 @@ public class SearchUICore {
 			preparePhrase(sphrase);
 			AtomicInteger ai = new AtomicInteger();
 			SearchResultMatcher rm = new SearchResultMatcher(matcher, sphrase, ai.get(), ai, totalLimit);
+			rm.setOfflineIndexesExecutor(offlineIndexesExecutor);
 			api.search(sphrase, rm);
 
 			SearchResultCollection collection = new SearchResultCollection(sphrase);
@@ -496,8 +564,11 @@ public class SearchUICore {
 			searchSettings = searchSettings.setOriginalLocation(loc);
 		}
 		final SearchPhrase searchPhrase = this.phrase.generateNewPhrase(text, searchSettings);
-		final SearchResultMatcher rm = new SearchResultMatcher(null, searchPhrase, requestNumber.get(), requestNumber, totalLimit);
+		final SearchResultMatcher rm = createResultMatcher(null, searchPhrase, requestNumber.get());
 		searchInternal(searchPhrase, rm);
+		if (!rm.isCancelled()) {
+			searchFinished(rm, searchPhrase);
+		}
 		SearchResultCollection resultCollection = new SearchResultCollection(searchPhrase);
 		if (rm.totalLimit != -1 && rm.count > rm.totalLimit) {
 			resultCollection.setUseLimit(true);
@@ -526,7 +597,7 @@ public class SearchUICore {
 					if (onSearchStart != null) {
 						onSearchStart.run();
 					}
-					final SearchResultMatcher rm = new SearchResultMatcher(matcher, phrase, request, requestNumber, totalLimit);
+					final SearchResultMatcher rm = createResultMatcher(matcher, phrase, request);
 					if (debugMode) {
 						LOG.info("Starting search <" + phrase.toString() + ">");
 					}
@@ -591,6 +662,7 @@ public class SearchUICore {
 					}
 					searchInternal(phrase, rm);
 					if (!rm.isCancelled()) {
+						searchFinished(rm, phrase);
 						SearchResultCollection collection = new SearchResultCollection(phrase);
 						if (rm.totalLimit != -1 && rm.count > rm.totalLimit) {
 							collection.setUseLimit(true);
@@ -744,6 +816,9 @@ public class SearchUICore {
 		private SearchPhrase phrase;
 		private List<MapObject> exportedObjects;
 		private List<City> exportedCities;
+		private ExecutorService offlineIndexesExecutor;
+		private boolean incrementalSearch;
+		private boolean refinement;
 
 		public SearchResultMatcher(ResultMatcher<SearchResult> matcher, SearchPhrase phrase, int request,
 								   AtomicInteger requestNumber, int totalLimit) {
@@ -764,6 +839,33 @@ public class SearchUICore {
 			return parentSearchResult;
 		}
 
+		public ExecutorService getOfflineIndexesExecutor() {
+			return offlineIndexesExecutor;
+		}
+
+		public void setOfflineIndexesExecutor(ExecutorService offlineIndexesExecutor) {
+			this.offlineIndexesExecutor = offlineIndexesExecutor;
+		}
+
+		public boolean isIncrementalSearch() {
+			return incrementalSearch;
+		}
+
+		public void setIncrementalSearch(boolean incrementalSearch) {
+			this.incrementalSearch = incrementalSearch;
+		}
+
+		/**
+		 * @return true if phrase is refinement of previous finished search, so objects found by previous search could be filtered
+		 */
+		public boolean isRefinement() {
+			return refinement;
+		}
+
+		public void setRefinement(boolean refinement) {
+			this.refinement = refinement;
+		}
+
 		public List<SearchResult> getRequestResults() {
 			return requestResults;
 		}
@@ -58,6 +58,13 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 
@@ -112,6 +119,120 @@ public class SearchCoreFactory {
 	public static final int SEARCH_OLC_WITH_CITY_PRIORITY = 8;
 	public static final int SEARCH_OLC_WITH_CITY_TOTAL_LIMIT = 500;
 
+	/**
+	 * Search of objects in single offline index, used by {@link SearchBaseAPI#searchOfflineIndexes}
+	 */
+	public static abstract class OfflineIndexSearch<T> {
+
+		/**
+		 * Called on search thread right before objects of the file are published
+		 */
+		protected abstract ResultMatcher<T> getMatcher(BinaryMapIndexReader r);
+
+		/**
+		 * Could be called on pool thread, so it should use only given reader and matcher
+		 */
+		protected abstract void search(BinaryMapIndexReader r, ResultMatcher<T> matcher) throws IOException;
+
+		/**
+		 * Called on search thread after all objects of the file are published
+		 */
+		protected void fileFinished(BinaryMapIndexReader r) throws IOException {
+		}
+
+		/**
+		 * @return max number of objects of single file accepted by matcher (-1 - not limited),
+		 * in parallel search objects of file are collected only till limit is reached
+		 */
+		protected int getLimit() {
+			return -1;
+		}
+
+		/**
+		 * Whether object is accepted by matcher (counted by limit), could be called on pool thread
+		 */
+		protected boolean isAccepted(T object) {
+			return true;
+		}
+	}
+
+	/**
+	 * Objects read by name from offline indexes during the last search of API. When search is refinement of previous one
+	 * ({@link SearchResultMatcher#isRefinement()}) and search word continues previous word, objects of already read files
+	 * are filtered instead of reading files again.
+	 */
+	protected static class NameSearchCache<T> {
+		private String word;
+		private boolean prefix;
+		private Object params;
+		private boolean enabled;
+		private Map<BinaryMapIndexReader, List<T>> previous = Collections.emptyMap();
+		private Map<BinaryMapIndexReader, List<T>> objects = new ConcurrentHashMap<>();
+
+		/**
+		 * @param prefix word is matched as prefix, so next search could refine it
+		 * @param params other parameters of search (bbox, ...) which should be equal to refine search
+		 */
+		public void startSearch(SearchPhrase phrase, SearchResultMatcher resultMatcher, String word, boolean prefix,
+				Object params) {
+			boolean refine = enabled && resultMatcher.isRefinement() && this.prefix && this.word != null
+					&& word.toLowerCase().startsWith(this.word.toLowerCase()) && Algorithms.objectEquals(this.params, params);
+			previous = refine ? objects : Collections.<BinaryMapIndexReader, List<T>>emptyMap();
+			objects = new ConcurrentHashMap<>();
+			enabled = resultMatcher.isIncrementalSearch() && !phrase.getSettings().isExportObjects();
+			this.word = word;
+			this.prefix = prefix;
+			this.params = params;
+		}
+
+		/**
+		 * @return objects found in file by previous search or null if file should be read
+		 */
+		public List<T> getPreviousObjects(BinaryMapIndexReader r) {
+			return previous.get(r);
+		}
+
+		/**
+		 * @return matcher which collects objects published to given matcher
+		 */
+		public ResultMatcher<T> collect(final ResultMatcher<T> matcher) {
+			if (!enabled) {
+				return matcher;
+			}
+			return new CollectingMatcher<T>(matcher);
+		}
+
+		/**
+		 * @param matcher returned by {@link #collect}
+		 * @param complete all objects of the file were published (search wasn't cancelled)
+		 */
+		public void fileFinished(BinaryMapIndexReader r, ResultMatcher<T> matcher, boolean complete) {
+			if (complete && matcher instanceof CollectingMatcher) {
+				objects.put(r, ((CollectingMatcher<T>) matcher).objects);
+			}
+		}
+
+		private static class CollectingMatcher<T> implements ResultMatcher<T> {
+			private final ResultMatcher<T> matcher;
+			private final List<T> objects = new ArrayList<>();
+
+			CollectingMatcher(ResultMatcher<T> matcher) {
+				this.matcher = matcher;
+			}
+
+			@Override
+			public boolean publish(T object) {
+				objects.add(object);
+				return matcher.publish(object);
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return matcher.isCancelled();
+			}
+		}
+	}
+
 	public static abstract class SearchBaseAPI implements SearchCoreAPI {
 
 		private ObjectType[] searchTypes;
@@ -246,6 +367,120 @@ public class SearchCoreFactory {
 			return null;
 		}
 
+		/**
+		 * Searches files one by one or, if parallel search is enabled, all files on the pool.
+		 * In parallel mode found objects are collected per file and published on search thread in files order,
+		 * so matchers (limits, duplicates, sub searches) work same way and results order stays deterministic.
+		 */
+		protected <T> void searchOfflineIndexes(SearchPhrase phrase, Iterator<BinaryMapIndexReader> offlineIndexes,
+				final SearchResultMatcher resultMatcher, final OfflineIndexSearch<T> search) throws IOException {
+			ExecutorService executor = resultMatcher.getOfflineIndexesExecutor();
+			List<BinaryMapIndexReader> files = new ArrayList<>();
+			while (offlineIndexes.hasNext()) {
+				files.add(offlineIndexes.next());
+			}
+			// exported objects are collected by reader's callback
+			if (executor == null || files.size() <= 1 || phrase.getSettings().isExportObjects()) {
+				for (BinaryMapIndexReader r : files) {
+					search.search(r, search.getMatcher(r));
+					search.fileFinished(r);
+				}
+				return;
+			}
+			// workers stop when search is cancelled or failed
+			final AtomicBoolean stopped = new AtomicBoolean();
+			final int limit = search.getLimit();
+			List<Future<List<T>>> futures = new ArrayList<>();
+			try {
+				for (final BinaryMapIndexReader r : files) {
+					futures.add(executor.submit(new Callable<List<T>>() {
+						@Override
+						public List<T> call() throws Exception {
+							final List<T> found = new ArrayList<>();
+							if (!stopped.get() && !resultMatcher.isCancelled()) {
+								search.search(r, new ResultMatcher<T>() {
+									int accepted = 0;
+
+									@Override
+									public boolean publish(T object) {
+										if (isCancelled()) {
+											return false;
+										}
+										if (search.isAccepted(object)) {
+											accepted++;
+										}
+										found.add(object);
+										return false;
+									}
+
+									@Override
+									public boolean isCancelled() {
+										return (limit != -1 && accepted >= limit) || stopped.get()
+												|| resultMatcher.isCancelled();
+									}
+								});
+							}
+							return found;
+						}
+					}));
+				}
+				for (int i = 0; i < files.size() && !resultMatcher.isCancelled(); i++) {
+					List<T> found = getSearchResult(futures.get(i));
+					if (resultMatcher.isCancelled()) {
+						break;
+					}
+					BinaryMapIndexReader r = files.get(i);
+					ResultMatcher<T> matcher = search.getMatcher(r);
+					for (T object : found) {
+						if (matcher.isCancelled()) {
+							break;
+						}
+						matcher.publish(object);
+					}
+					search.fileFinished(r);
+				}
+			} finally {
+				stopped.set(true);
+				// readers can't be read by next search while workers still read them
+				waitFinished(futures);
+			}
+		}
+
+		private static void waitFinished(List<? extends Future<?>> futures) {
+			boolean interrupted = false;
+			for (Future<?> f : futures) {
+				while (true) {
+					try {
+						f.get();
+						break;
+					} catch (InterruptedException e) {
+						interrupted = true;
+					} catch (ExecutionException | CancellationException e) {
+						break;
+					}
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		private <T> List<T> getSearchResult(Future<List<T>> future) throws IOException {
+			try {
+				return future.get();
+			} catch (InterruptedException e) {
+				throw new IOException(e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof IOException) {
+					throw (IOException) cause;
+				} else if (cause instanceof RuntimeException) {
+					throw (RuntimeException) cause;
+				}
+				throw new IOException(cause);
+			}
+		}
+
 		@Override
 		public String toString() {
 			return getClass().getSimpleName();
@@ -305,6 +540,7 @@ public class SearchCoreFactory {
 		private List<City> resArray = new ArrayList<>();
 		private SearchStreetByCityAPI cityApi;
 		private SearchBuildingAndIntersectionsByStreetAPI streetsApi;
+		private final NameSearchCache<MapObject> nameSearchCache = new NameSearchCache<>();
 
 		public SearchAddressByNameAPI(SearchBuildingAndIntersectionsByStreetAPI streetsApi,
 									  SearchStreetByCityAPI cityApi) {
@@ -413,6 +649,37 @@ public class SearchCoreFactory {
 			}
 		}
 		
+		// checks of objects found by name, could be called on pool thread
+		private static boolean isAddressObjectAccepted(SearchPhrase phrase, MapObject object, boolean locSpecified,
+				QuadRect cityBbox, QuadRect postcodeBbox, QuadRect villagesBbox) {
+			int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
+			int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
+			if (object instanceof Street) {
+				// remove limitation by location
+				if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
+					!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
+					return false;
+				}
+				return !object.getName().startsWith("<");
+			} else if (object instanceof City) {
+				CityType type = ((City)object).getType();
+				if (type == CityType.CITY || type == CityType.TOWN) {
+					if (phrase.isNoSelectedType()) {
+						// ignore city/town
+						return false;
+					}
+					return (!locSpecified || cityBbox.contains(x, y, x, y)) && phrase.isSearchTypeAllowed(ObjectType.CITY);
+				} else if (((City)object).isPostcode()) {
+					return (!locSpecified || postcodeBbox.contains(x, y, x, y))
+							&& phrase.isSearchTypeAllowed(ObjectType.POSTCODE);
+				} else {
+					return (!locSpecified || villagesBbox.contains(x, y, x, y))
+							&& phrase.isSearchTypeAllowed(ObjectType.VILLAGE);
+				}
+			}
+			return false;
+		}
+
 		private void searchPoiInCity(SearchPhrase nphrase, SearchResult res, SearchResultMatcher resultMatcher) throws IOException {
 			if (nphrase != null && res.objectType == ObjectType.CITY) {
 				SearchAmenityByNameAPI poiApi = new SearchCoreFactory.SearchAmenityByNameAPI();
@@ -427,7 +694,7 @@ public class SearchCoreFactory {
 			if (phrase.getRadiusLevel() > 1 || phrase.getUnknownWordToSearch().length() > 3 ||
 					phrase.hasMoreThanOneUnknownSearchWord()|| phrase.isSearchTypeAllowed(ObjectType.POSTCODE, true)) {
 				final boolean locSpecified = phrase.getLastTokenLocation() != null;
-				LatLon loc = phrase.getLastTokenLocation();
+				final LatLon loc = phrase.getLastTokenLocation();
 				final List<SearchResult> immediateResults = new ArrayList<>();
 				final QuadRect streetBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS);
 				final QuadRect postcodeBbox = phrase.getRadiusBBoxToSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5);
@@ -437,7 +704,7 @@ public class SearchCoreFactory {
 						SEARCH_ADDRESS_BY_NAME_PRIORITY : SEARCH_ADDRESS_BY_NAME_PRIORITY_RADIUS2;
 				final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
 
-				ResultMatcher<MapObject> rm = new ResultMatcher<MapObject>() {
+				final ResultMatcher<MapObject> rm = new ResultMatcher<MapObject>() {
 					int limit = 0;
 					@Override
 					public boolean publish(MapObject object) {
@@ -454,50 +721,24 @@ public class SearchCoreFactory {
 						sr.location = object.getLocation();
 						sr.priorityDistance = 1;
 						sr.priority = priority;
-						int y = MapUtils.get31TileNumberY(object.getLocation().getLatitude());
-						int x = MapUtils.get31TileNumberX(object.getLocation().getLongitude());
-						List<City> closestCities = null;
+						if (!isAddressObjectAccepted(phrase, object, locSpecified, cityBbox, postcodeBbox, villagesBbox)) {
+							return false;
+						}
 						if (object instanceof Street) {
-							// remove limitation by location
-							if (  //(locSpecified && !streetBbox.contains(x, y, x, y)) || 
-								!phrase.isSearchTypeAllowed(ObjectType.STREET)) {
-								return false;
-							}
-							if (object.getName().startsWith("<")) {
-								return false;
-							}
 							sr.objectType = ObjectType.STREET;
 							sr.localeRelatedObjectName = ((Street)object).getCity().getName(phrase.getSettings().getLang(), phrase.getSettings().isTransliterate());
 							sr.relatedObject = ((Street)object).getCity();
-						} else if (object instanceof City) {
+						} else {
 							CityType type = ((City)object).getType();
 							if (type == CityType.CITY || type == CityType.TOWN) {
-								if (phrase.isNoSelectedType()) {
-									// ignore city/town
-									return false;
-								}
-								if ((locSpecified && !cityBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.CITY)) {
-									return false;
-								}
 								sr.objectType = ObjectType.CITY;
 								sr.priorityDistance = 0.1;
 							} else if (((City)object).isPostcode()) {
-								if ((locSpecified && !postcodeBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.POSTCODE)) {
-									return false;
-								}
 								sr.objectType = ObjectType.POSTCODE;
 								sr.priorityDistance = 0;
 							} else {
-								if ((locSpecified && !villagesBbox.contains(x, y, x, y))
-										|| !phrase.isSearchTypeAllowed(ObjectType.VILLAGE)) {
-									return false;
-								}
 								City c = null;
-								if (closestCities == null) {
-									closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
-								}
+								List<City> closestCities = townCitiesQR.queryInBox(villagesBbox, new ArrayList<City>());
 								double minDist = -1;
 								double pDist = -1;
 								for (City s : closestCities) {
@@ -516,8 +757,6 @@ public class SearchCoreFactory {
 								}
 								sr.objectType = ObjectType.VILLAGE;
 							}
-						} else {
-							return false;
 						}
 						limit ++;
 						immediateResults.add(sr);
@@ -549,29 +788,66 @@ public class SearchCoreFactory {
 
 				Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(DEFAULT_ADDRESS_BBOX_RADIUS * 5,
 						SearchPhraseDataType.ADDRESS);
-				String wordToSearch = phrase.getUnknownWordToSearch();
-				while (offlineIterator.hasNext() && wordToSearch.length() > 0) {
-					BinaryMapIndexReader r = offlineIterator.next();
-					currentFile[0] = r;
-					immediateResults.clear();
-					SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(rm, rawDataCollector, wordToSearch.toLowerCase(),
-							phrase.isMainUnknownSearchWordComplete() ? StringMatcherMode.CHECK_EQUALS_FROM_SPACE
-									: StringMatcherMode.CHECK_STARTS_FROM_SPACE);
-					if (locSpecified) {
-						req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(),
-								phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5));
-					}
-					r.searchAddressDataByName(req);
-					for (SearchResult res : immediateResults) {
-						if (res.objectType == ObjectType.STREET) {
-							subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+				final String wordToSearch = phrase.getUnknownWordToSearch();
+				if (wordToSearch.length() == 0) {
+					return;
+				}
+				final ResultMatcher<MapObject> dataCollector = rawDataCollector;
+				final SearchAddressByNameAPI api = this;
+				final boolean wordComplete = phrase.isMainUnknownSearchWordComplete();
+				final int radius = phrase.getRadiusSearch(DEFAULT_ADDRESS_BBOX_RADIUS * 5);
+				nameSearchCache.startSearch(phrase, resultMatcher, wordToSearch, !wordComplete,
+						locSpecified ? Arrays.<Object>asList(loc, radius) : null);
+				searchOfflineIndexes(phrase, offlineIterator, resultMatcher, new OfflineIndexSearch<MapObject>() {
+
+					@Override
+					protected ResultMatcher<MapObject> getMatcher(BinaryMapIndexReader r) {
+						currentFile[0] = r;
+						immediateResults.clear();
+						return rm;
+					}
+
+					@Override
+					protected void search(BinaryMapIndexReader r, ResultMatcher<MapObject> matcher) throws IOException {
+						ResultMatcher<MapObject> fileMatcher = nameSearchCache.collect(matcher);
+						SearchRequest<MapObject> req = BinaryMapIndexReader.buildAddressByNameRequest(fileMatcher, dataCollector,
+								wordToSearch.toLowerCase(), wordComplete
+										? StringMatcherMode.CHECK_EQUALS_FROM_SPACE : StringMatcherMode.CHECK_STARTS_FROM_SPACE);
+						if (locSpecified) {
+							req.setBBoxRadius(loc.getLatitude(), loc.getLongitude(), radius);
+						}
+						List<MapObject> previous = nameSearchCache.getPreviousObjects(r);
+						if (previous != null) {
+							r.filterAddressDataByName(previous, req);
 						} else {
-							SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
-							searchPoiInCity(nphrase, res, resultMatcher);
+							r.searchAddressDataByName(req);
 						}
+						nameSearchCache.fileFinished(r, fileMatcher, !matcher.isCancelled() && !resultMatcher.isCancelled());
 					}
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
-				}
+
+					@Override
+					protected int getLimit() {
+						return LIMIT * phrase.getRadiusLevel() + 1;
+					}
+
+					@Override
+					protected boolean isAccepted(MapObject object) {
+						return isAddressObjectAccepted(phrase, object, locSpecified, cityBbox, postcodeBbox, villagesBbox);
+					}
+
+					@Override
+					protected void fileFinished(BinaryMapIndexReader r) throws IOException {
+						for (SearchResult res : immediateResults) {
+							if (res.objectType == ObjectType.STREET) {
+								subSearchApiOrPublish(phrase, resultMatcher, res, streetsApi);
+							} else {
+								SearchPhrase nphrase = subSearchApiOrPublish(phrase, resultMatcher, res, cityApi);
+								searchPoiInCity(nphrase, res, resultMatcher);
+							}
+						}
+						resultMatcher.apiSearchRegionFinished(api, r, phrase);
+					}
+				});
 			}
 		}
 	}
@@ -583,6 +859,8 @@ public class SearchCoreFactory {
 		private static final int BBOX_RADIUS_POI_IN_CITY = 25 * 1000;
 		private static final int FIRST_WORD_MIN_LENGTH = 3;
 
+		private final NameSearchCache<Amenity> nameSearchCache = new NameSearchCache<>();
+
 		public SearchAmenityByNameAPI() {
 			super(ObjectType.POI);
 		}
@@ -602,9 +880,9 @@ public class SearchCoreFactory {
 			final BinaryMapIndexReader[] currentFile = new BinaryMapIndexReader[1];
 			Iterator<BinaryMapIndexReader> offlineIterator = phrase.getRadiusOfflineIndexes(BBOX_RADIUS,
 					SearchPhraseDataType.POI);
-			String searchWord = phrase.getUnknownWordToSearch();
+			final String searchWord = phrase.getUnknownWordToSearch();
 			final NameStringMatcher nm = phrase.getMainUnknownNameStringMatcher();
-			QuadRect bbox = phrase.getFileRequest() != null ? phrase.getRadiusBBoxToSearch(BBOX_RADIUS_POI_IN_CITY) : phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
+			final QuadRect bbox = phrase.getFileRequest() != null ? phrase.getRadiusBBoxToSearch(BBOX_RADIUS_POI_IN_CITY) : phrase.getRadiusBBoxToSearch(BBOX_RADIUS_INSIDE);
 			final Set<String> ids = new HashSet<String>();
 
 			ResultMatcher<Amenity> rawDataCollector = null;
@@ -622,7 +900,7 @@ public class SearchCoreFactory {
 					}
 				};
 			}
-			ResultMatcher<Amenity> matcher = new ResultMatcher<Amenity>() {
+			final ResultMatcher<Amenity> matcher = new ResultMatcher<Amenity>() {
 				int limit = 0;
 
 				@Override
@@ -679,22 +957,58 @@ public class SearchCoreFactory {
 					(int) bbox.left, (int) bbox.right, (int) bbox.top, (int) bbox.bottom,
 					matcher, rawDataCollector);
 
-			SearchRequest<Amenity> reqUnlimited = BinaryMapIndexReader.buildSearchPoiRequest(
-					(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
-					0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
-					matcher, rawDataCollector);
-
 			BinaryMapIndexReader fileRequest = phrase.getFileRequest();
 			if (fileRequest != null) {
 				fileRequest.searchPoiByName(req);
 				resultMatcher.apiSearchRegionFinished(this, fileRequest, phrase);
 			} else {
-				while (offlineIterator.hasNext()) {
-					BinaryMapIndexReader r = offlineIterator.next();
-					currentFile[0] = r;
-					r.searchPoiByName(r.isBasemap() ? reqUnlimited : req);
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
-				}
+				final ResultMatcher<Amenity> dataCollector = rawDataCollector;
+				final SearchAmenityByNameAPI api = this;
+				nameSearchCache.startSearch(phrase, resultMatcher, searchWord, true,
+						Arrays.asList(bbox.left, bbox.top, bbox.right, bbox.bottom));
+				searchOfflineIndexes(phrase, offlineIterator, resultMatcher, new OfflineIndexSearch<Amenity>() {
+
+					@Override
+					protected ResultMatcher<Amenity> getMatcher(BinaryMapIndexReader r) {
+						currentFile[0] = r;
+						return matcher;
+					}
+
+					@Override
+					protected void search(BinaryMapIndexReader r, ResultMatcher<Amenity> m) throws IOException {
+						ResultMatcher<Amenity> fileMatcher = nameSearchCache.collect(m);
+						SearchRequest<Amenity> fileReq;
+						if (r.isBasemap()) {
+							fileReq = BinaryMapIndexReader.buildSearchPoiRequest(
+									(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
+									0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE,
+									fileMatcher, dataCollector);
+						} else {
+							fileReq = BinaryMapIndexReader.buildSearchPoiRequest(
+									(int) bbox.centerX(), (int) bbox.centerY(), searchWord,
+									(int) bbox.left, (int) bbox.right, (int) bbox.top, (int) bbox.bottom,
+									fileMatcher, dataCollector);
+						}
+						List<Amenity> previous = nameSearchCache.getPreviousObjects(r);
+						if (previous != null) {
+							r.filterPoiByName(previous, fileReq);
+						} else {
+							r.searchPoiByName(fileReq);
+						}
+						nameSearchCache.fileFinished(r, fileMatcher, !m.isCancelled() && !resultMatcher.isCancelled());
+					}
+
+					@Override
+					protected void fileFinished(BinaryMapIndexReader r) {
+						resultMatcher.apiSearchRegionFinished(api, r, phrase);
+					}
+
+					@Override
+					protected int getLimit() {
+						// matcher skips all objects after limit
+						return LIMIT + 1;
+					}
+				});
 			}
 			return true;
 		}
@@ -1073,7 +1387,7 @@ public class SearchCoreFactory {
 			SearchPoiTypeFilter poiTypeFilter = null;
 			String nameFilter = null;
 			int countExtraWords = 0;
-			Set<String> poiAdditionals = new LinkedHashSet<>();
+			final Set<String> poiAdditionals = new LinkedHashSet<>();
 			if (phrase.isLastWord(ObjectType.POI_TYPE)) {
 				Object obj = phrase.getLastSelectedWord().getResult().object;
 				if (obj instanceof AbstractPoiType) {
@@ -1129,20 +1443,37 @@ public class SearchCoreFactory {
 						radius = BBOX_RADIUS_NEAREST;
 					}
 				}
-				QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
+				final QuadRect bbox = phrase.getRadiusBBoxToSearch(radius);
 				List<BinaryMapIndexReader> offlineIndexes = phrase.getOfflineIndexes();
-				Set<String> searchedPois = new TreeSet<>();
-				for (BinaryMapIndexReader r : offlineIndexes) {
-					ResultMatcher<Amenity> rm = getResultMatcher(phrase, poiTypeFilter, resultMatcher, nameFilter, r,
-							searchedPois, poiAdditionals, countExtraWords);
-					if (poiTypeFilter instanceof CustomSearchPoiFilter) {
-						rm = ((CustomSearchPoiFilter) poiTypeFilter).wrapResultMatcher(rm);
-					}
-					SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left,
-							(int) bbox.right, (int) bbox.top, (int) bbox.bottom, -1, poiTypeFilter, rm);
-					r.searchPoi(req);
-					resultMatcher.apiSearchRegionFinished(this, r, phrase);
-				}
+				final Set<String> searchedPois = new TreeSet<>();
+				final SearchPoiTypeFilter typeFilter = poiTypeFilter;
+				final String nmFilter = nameFilter;
+				final int extraWords = countExtraWords;
+				final SearchAmenityByTypeAPI api = this;
+				searchOfflineIndexes(phrase, offlineIndexes.iterator(), resultMatcher, new OfflineIndexSearch<Amenity>() {
+
+					@Override
+					protected ResultMatcher<Amenity> getMatcher(BinaryMapIndexReader r) {
+						ResultMatcher<Amenity> rm = getResultMatcher(phrase, typeFilter, resultMatcher, nmFilter, r,
+								searchedPois, poiAdditionals, extraWords);
+						if (typeFilter instanceof CustomSearchPoiFilter) {
+							rm = ((CustomSearchPoiFilter) typeFilter).wrapResultMatcher(rm);
+						}
+						return rm;
+					}
+
+					@Override
+					protected void search(BinaryMapIndexReader r, ResultMatcher<Amenity> matcher) throws IOException {
+						SearchRequest<Amenity> req = BinaryMapIndexReader.buildSearchPoiRequest((int) bbox.left,
+								(int) bbox.right, (int) bbox.top, (int) bbox.bottom, -1, typeFilter, matcher);
+						r.searchPoi(req);
+					}
+
+					@Override
+					protected void fileFinished(BinaryMapIndexReader r) {
+						resultMatcher.apiSearchRegionFinished(api, r, phrase);
+					}
+				});
 			}
 			return true;
 		}
@@ -668,6 +668,32 @@ public class SearchPhrase {
 		return words.isEmpty() && unknownSearchPhrase.isEmpty();
 	}
 
+	/**
+	 * @return true if phrase has same settings and selected words as previous phrase
+	 * and only continues or completes its last (not complete) unknown word
+	 */
+	public boolean isRefinementOf(SearchPhrase prev) {
+		if (prev == null || fileRequest != prev.fileRequest || words.size() != prev.words.size()) {
+			return false;
+		}
+		if (settings == null ? prev.settings != null : !settings.hasSameSearchParams(prev.settings)) {
+			return false;
+		}
+		for (int i = 0; i < words.size(); i++) {
+			SearchWord w = words.get(i);
+			SearchWord pw = prev.words.get(i);
+			if (w.getResult() != pw.getResult() || !w.getWord().equals(pw.getWord())) {
+				return false;
+			}
+		}
+		if (!prev.isUnknownSearchWordPresent() || prev.lastUnknownSearchWordComplete
+				|| otherUnknownWords.size() != prev.otherUnknownWords.size()) {
+			return false;
+		}
+		return unknownSearchPhrase.length() > prev.unknownSearchPhrase.length()
+				&& unknownSearchPhrase.startsWith(prev.unknownSearchPhrase);
+	}
+
 	public SearchWord getLastSelectedWord() {
 		if(words.isEmpty()) {
 			return null;
@@ -7,6 +7,7 @@ import net.osmand.data.LatLon;
 import net.osmand.data.QuadRect;
 import net.osmand.map.OsmandRegions;
 import net.osmand.map.WorldRegion;
+import net.osmand.util.Algorithms;
 import net.osmand.util.MapUtils;
 
 import org.apache.commons.logging.Log;
@@ -15,6 +16,7 @@ import org.json.JSONObject;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
@@ -230,6 +232,32 @@ public class SearchSettings {
 		return null;
 	}
 
+	/**
+	 * Settings are recreated on every change (location, ...), so they are compared by values.
+	 * Original location isn't compared: location dependent parameters of search (bbox, radius)
+	 * are compared by search apis.
+	 * @return true if searches with both settings find the same objects
+	 */
+	public boolean hasSameSearchParams(SearchSettings s) {
+		if (s == this) {
+			return true;
+		}
+		return s != null && radiusLevel == s.radiusLevel && totalLimit == s.totalLimit
+				&& transliterateIfMissing == s.transliterateIfMissing && emptyQueryAllowed == s.emptyQueryAllowed
+				&& sortByName == s.sortByName && addressSearch == s.addressSearch
+				&& Algorithms.objectEquals(lang, s.lang) && Algorithms.objectEquals(regionLang, s.regionLang)
+				&& Arrays.equals(searchTypes, s.searchTypes) && offlineIndexes.equals(s.offlineIndexes)
+				&& regions == s.regions && exportSettings == s.exportSettings
+				&& bboxEquals(searchBBox31, s.searchBBox31);
+	}
+
+	private static boolean bboxEquals(QuadRect a, QuadRect b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		return a.left == b.left && a.top == b.top && a.right == b.right && a.bottom == b.bottom;
+	}
+
 	public JSONObject toJSON() {
 		JSONObject json = new JSONObject();
 		if (originalLocation != null) {
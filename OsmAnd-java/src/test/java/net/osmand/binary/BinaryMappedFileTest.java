@@ -0,0 +1,153 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+
+public class BinaryMappedFileTest {
+
+	private static final String ROUTING_MAP = "src/test/resources/routing/Routing_test_archive.obf";
+	// small chunks, so values cross chunk boundaries
+	private static final long SMALL_CHUNK = 7;
+	private static final int VALUES = 2000;
+	private static final int SUBREGIONS_TO_CHECK = 50;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testMappedStreamEqualsFileStream() throws IOException {
+		File f = folder.newFile("values.bin");
+		FileOutputStream fout = new FileOutputStream(f);
+		Random rnd = new Random(11);
+		try {
+			CodedOutputStream out = CodedOutputStream.newInstance(fout);
+			for (int i = 0; i < VALUES; i++) {
+				out.writeUInt32NoTag(rnd.nextInt(1 << (1 + i % 30)));
+				out.writeInt64NoTag(rnd.nextLong());
+				out.writeStringNoTag("value " + i);
+				out.writeFixed32NoTag(rnd.nextInt());
+				out.writeDoubleNoTag(rnd.nextDouble());
+			}
+			out.flush();
+		} finally {
+			fout.close();
+		}
+		RandomAccessFile raf = new RandomAccessFile(f, "r");
+		try {
+			CodedInputStream expected = CodedInputStream.newInstance(raf);
+			CodedInputStream mapped = new BinaryMappedFile(f, SMALL_CHUNK).newCodedInputStream();
+			CodedInputStream mappedOneChunk = new BinaryMappedFile(f).newCodedInputStream();
+			long[] positions = new long[VALUES];
+			for (int i = 0; i < VALUES; i++) {
+				positions[i] = expected.getTotalBytesRead();
+				Assert.assertEquals(positions[i], mapped.getTotalBytesRead());
+				assertNextValues(expected, mapped, mappedOneChunk);
+			}
+			// random access
+			for (int k = 0; k < 100; k++) {
+				long pos = positions[rnd.nextInt(VALUES)];
+				expected.seek(pos);
+				mapped.seek(pos);
+				mappedOneChunk.seek(pos);
+				assertNextValues(expected, mapped, mappedOneChunk);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	private void assertNextValues(CodedInputStream expected, CodedInputStream... actual) throws IOException {
+		int u = expected.readUInt32();
+		long l = expected.readInt64();
+		String s = expected.readString();
+		int f = expected.readFixed32();
+		double d = expected.readDouble();
+		for (CodedInputStream a : actual) {
+			Assert.assertEquals(u, a.readUInt32());
+			Assert.assertEquals(l, a.readInt64());
+			Assert.assertEquals(s, a.readString());
+			Assert.assertEquals(f, a.readFixed32());
+			Assert.assertEquals(d, a.readDouble(), 0);
+		}
+	}
+
+	@Test
+	public void testMappedReaderEqualsFileReader() throws IOException {
+		File f = new File(ROUTING_MAP);
+		BinaryMapIndexReader expected = new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+		BinaryMappedFile mf = new BinaryMappedFile(f, 1 << 16);
+		BinaryMapIndexReader mapped = mf.createReader();
+		BinaryMapIndexReader copy = mf.createReader(mapped);
+		try {
+			Assert.assertEquals(expected.getVersion(), mapped.getVersion());
+			Assert.assertEquals(expected.getDateCreated(), mapped.getDateCreated());
+			Assert.assertEquals(expected.getIndexes().size(), mapped.getIndexes().size());
+			for (int i = 0; i < expected.getIndexes().size(); i++) {
+				BinaryIndexPart e = expected.getIndexes().get(i);
+				BinaryIndexPart a = mapped.getIndexes().get(i);
+				Assert.assertEquals(e.getPartName(), a.getPartName());
+				Assert.assertEquals(e.getName(), a.getName());
+				Assert.assertEquals(e.getFilePointer(), a.getFilePointer());
+				Assert.assertEquals(e.getLength(), a.getLength());
+			}
+			Assert.assertEquals(expected.getRoutingIndexes().size(), mapped.getRoutingIndexes().size());
+			Assert.assertFalse(expected.getRoutingIndexes().isEmpty());
+			for (int i = 0; i < expected.getRoutingIndexes().size(); i++) {
+				assertRouteData(expected, expected.getRoutingIndexes().get(i), mapped,
+						mapped.getRoutingIndexes().get(i));
+				// reader sharing index structure reads the same data
+				assertRouteData(expected, expected.getRoutingIndexes().get(i), copy,
+						mapped.getRoutingIndexes().get(i));
+			}
+		} finally {
+			expected.close();
+			copy.close();
+			mapped.close();
+			mf.close();
+		}
+	}
+
+	private void assertRouteData(BinaryMapIndexReader expected, RouteRegion expectedRegion,
+			BinaryMapIndexReader actual, RouteRegion actualRegion) throws IOException {
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(0, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, null);
+		List<RouteSubregion> e = expected.searchRouteIndexTree(req, expectedRegion.getSubregions());
+		List<RouteSubregion> a = actual.searchRouteIndexTree(req, actualRegion.getSubregions());
+		Assert.assertEquals(e.size(), a.size());
+		for (int i = 0; i < e.size() && i < SUBREGIONS_TO_CHECK; i++) {
+			Assert.assertEquals(e.get(i).filePointer, a.get(i).filePointer);
+			List<RouteDataObject> eo = expected.loadRouteIndexData(e.get(i));
+			List<RouteDataObject> ao = actual.loadRouteIndexData(a.get(i));
+			Assert.assertEquals(eo.size(), ao.size());
+			for (int k = 0; k < eo.size(); k++) {
+				if (eo.get(k) == null) {
+					Assert.assertNull(ao.get(k));
+					continue;
+				}
+				Assert.assertEquals(eo.get(k).id, ao.get(k).id);
+				Assert.assertArrayEquals(eo.get(k).types, ao.get(k).types);
+				Assert.assertArrayEquals(eo.get(k).pointsX, ao.get(k).pointsX);
+				Assert.assertArrayEquals(eo.get(k).pointsY, ao.get(k).pointsY);
+				Assert.assertEquals(Arrays.deepToString(eo.get(k).pointTypes),
+						Arrays.deepToString(ao.get(k).pointTypes));
+			}
+		}
+	}
+}
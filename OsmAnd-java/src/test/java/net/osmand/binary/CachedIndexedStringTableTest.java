@@ -0,0 +1,65 @@
+package net.osmand.binary;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.osmand.Collator;
+import net.osmand.OsmAndCollator;
+
+public class CachedIndexedStringTableTest {
+
+	private CachedIndexedStringTable createTable() {
+		// ba(1) -> [r(2), z(3)], c(4), ca(5)
+		CachedIndexedStringTable.Builder b = new CachedIndexedStringTable.Builder();
+		int ba = b.addKey("ba", 0);
+		b.addValue(ba, 1);
+		b.addValue(b.addKey("r", 1), 2);
+		b.addValue(b.addKey("z", 1), 3);
+		b.subtableFinished(ba);
+		b.addValue(b.addKey("c", 0), 4);
+		b.addValue(b.addKey("ča", 0), 5);
+		return b.build();
+	}
+
+	private TIntArrayList search(CachedIndexedStringTable table, String query) {
+		Collator collator = OsmAndCollator.primaryCollator();
+		TIntArrayList offsets = new TIntArrayList();
+		TIntArrayList chars = new TIntArrayList();
+		chars.add(0);
+		table.search(collator, Collections.singletonList(query), Collections.singletonList(offsets), chars);
+		return offsets;
+	}
+
+	@Test
+	public void testLongestMatch() {
+		CachedIndexedStringTable table = createTable();
+		Assert.assertEquals(5, table.getKeysSize());
+		Assert.assertEquals(5, table.getValuesSize());
+		// key is part of query, but subkey matches longer
+		Assert.assertEquals(new TIntArrayList(new int[] { 2 }), search(table, "bar"));
+		// query is part of all subkeys
+		Assert.assertEquals(new TIntArrayList(new int[] { 1, 2, 3 }), search(table, "b"));
+		// collator ignores accents
+		Assert.assertEquals(new TIntArrayList(new int[] { 5 }), search(table, "ca"));
+		Assert.assertEquals(new TIntArrayList(), search(table, "x"));
+	}
+
+	@Test
+	public void testSeveralQueries() {
+		CachedIndexedStringTable table = createTable();
+		List<String> queries = Arrays.asList("baz", null, "c");
+		List<TIntArrayList> offsets = Arrays.asList(new TIntArrayList(), new TIntArrayList(), new TIntArrayList());
+		TIntArrayList chars = new TIntArrayList(new int[] { 0, 0, 0 });
+		table.search(OsmAndCollator.primaryCollator(), queries, offsets, chars);
+		Assert.assertEquals(new TIntArrayList(new int[] { 3 }), offsets.get(0));
+		Assert.assertTrue(offsets.get(1).isEmpty());
+		Assert.assertEquals(new TIntArrayList(new int[] { 4, 5 }), offsets.get(2));
+		Assert.assertEquals(3, chars.get(0));
+		Assert.assertEquals(1, chars.get(2));
+	}
+}
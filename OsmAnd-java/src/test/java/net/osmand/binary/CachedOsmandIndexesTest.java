@@ -0,0 +1,85 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import net.osmand.binary.CachedOsmandIndexes.ReaderInitResult;
+import net.osmand.binary.OsmandIndex.FileIndex;
+
+public class CachedOsmandIndexesTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testReadersAreOpenedFromStoredIndex() throws Exception {
+		TestIndexes indexes = new TestIndexes(null);
+		List<ReaderInitResult> res = indexes.getReaders(createFiles("a.obf", "b.obf"), true, 2);
+		Assert.assertEquals(2, res.size());
+		for (ReaderInitResult r : res) {
+			Assert.assertNull(r.error);
+			Assert.assertNotNull(r.reader);
+			r.reader.close();
+		}
+	}
+
+	@Test
+	public void testOpenedReadersAreClosedOnFailure() throws Exception {
+		TestIndexes indexes = new TestIndexes("b.obf");
+		try {
+			indexes.getReaders(createFiles("a.obf", "b.obf", "c.obf"), true, 1);
+			Assert.fail();
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("b.obf", e.getMessage());
+		}
+		// a.obf is opened before failure of b.obf by single thread
+		RandomAccessFile mf;
+		synchronized (indexes.opened) {
+			mf = indexes.opened.get(0);
+		}
+		Assert.assertFalse(mf.getFD().valid());
+	}
+
+	private List<File> createFiles(String... names) throws IOException {
+		List<File> files = new ArrayList<>();
+		for (String name : names) {
+			files.add(folder.newFile(name));
+		}
+		return files;
+	}
+
+	private static class TestIndexes extends CachedOsmandIndexes {
+		final String failingFile;
+		final List<RandomAccessFile> opened = new ArrayList<>();
+
+		TestIndexes(String failingFile) {
+			this.failingFile = failingFile;
+		}
+
+		@Override
+		public FileIndex getFileIndex(File f, boolean init) {
+			if (f.getName().equals(failingFile)) {
+				throw new IllegalStateException(f.getName());
+			}
+			return FileIndex.newBuilder().setFileName(f.getName()).setSize(f.length()).setVersion(2)
+					.setDateModified(f.lastModified()).build();
+		}
+
+		@Override
+		public BinaryMapIndexReader initReaderFromFileIndex(FileIndex found, RandomAccessFile mf, File f)
+				throws IOException {
+			synchronized (opened) {
+				opened.add(mf);
+			}
+			return super.initReaderFromFileIndex(found, mf, f);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package net.osmand.binary;
+
+import java.io.File;
+import java.util.ArrayList;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteBlockSegments;
+import net.osmand.binary.BinaryHHRouteReaderAdapter.HHRouteRegion;
+import net.osmand.binary.BinaryMapIndexReader.TagValuePair;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+
+public class HHRoutePointsCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HHRouteRegion createRegion() {
+		HHRouteRegion reg = new HHRouteRegion();
+		reg.profile = "car";
+		reg.edition = 12345;
+		reg.filePointer = 100;
+		reg.length = 2000;
+		reg.encodingRules.add(new TagValuePair("highway", "motorway", -1));
+		reg.encodingRules.add(new TagValuePair("toll", "yes", -1));
+		reg.segments = new ArrayList<>();
+		HHRouteBlockSegments s = new HHRouteBlockSegments();
+		s.idRangeStart = 0;
+		s.idRangeLength = 2;
+		s.length = 50;
+		s.filePointer = 500;
+		reg.segments.add(s);
+		return reg;
+	}
+
+	private NetworkDBPoint point(int index, int fileId) {
+		NetworkDBPoint p = new NetworkDBPoint();
+		p.index = index;
+		p.fileId = fileId;
+		p.clusterId = 7;
+		p.roadId = 1L << 40;
+		p.start = 3;
+		p.end = 4;
+		p.startX = 10;
+		p.startY = 20;
+		p.endX = 30;
+		p.endY = 40;
+		return p;
+	}
+
+	@Test
+	public void testReadWrite() throws Exception {
+		HHRouteRegion reg = createRegion();
+		TLongObjectHashMap<NetworkDBPoint> pnts = new TLongObjectHashMap<>();
+		NetworkDBPoint a = point(1, 0), b = point(2, 1);
+		a.dualPoint = b;
+		b.dualPoint = a;
+		b.incomplete = true;
+		a.tagValues = new ArrayList<>();
+		a.tagValues.add(reg.encodingRules.get(1));
+		pnts.put(a.index, a);
+		pnts.put(b.index, b);
+		File f = new File(folder.getRoot(), "test" + HHRoutePointsCache.CACHE_EXT);
+		HHRoutePointsCache.writeCache(f, 1000, 99, reg, pnts);
+
+		HHRouteRegion read = createRegion();
+		read.encodingRules.clear();
+		read.segments = null;
+		TLongObjectHashMap<NetworkDBPoint> res = HHRoutePointsCache.readCache(f, 1000, 99, read, (short) 3,
+				NetworkDBPoint.class);
+		Assert.assertNotNull(res);
+		Assert.assertEquals(2, res.size());
+		NetworkDBPoint ra = res.get(1), rb = res.get(2);
+		Assert.assertSame(rb, ra.dualPoint);
+		Assert.assertSame(ra, rb.dualPoint);
+		Assert.assertEquals(3, ra.mapId);
+		Assert.assertEquals(1L << 40, ra.roadId);
+		Assert.assertEquals(4, ra.end);
+		Assert.assertEquals(40, ra.endY);
+		Assert.assertTrue(rb.incomplete);
+		Assert.assertNull(rb.tagValues);
+		Assert.assertEquals(1, ra.tagValues.size());
+		Assert.assertSame(read.encodingRules.get(1), ra.tagValues.get(0));
+		Assert.assertEquals("toll", ra.tagValues.get(0).tag);
+		Assert.assertEquals(1, read.segments.size());
+		Assert.assertEquals(500, read.segments.get(0).filePointer);
+
+		// obf file was changed
+		Assert.assertNull(HHRoutePointsCache.readCache(f, 1001, 99, createRegion(), (short) 3, NetworkDBPoint.class));
+		HHRouteRegion other = createRegion();
+		other.edition++;
+		Assert.assertNull(HHRoutePointsCache.readCache(f, 1000, 99, other, (short) 3, NetworkDBPoint.class));
+	}
+}
@@ -0,0 +1,84 @@
+package net.osmand.gpx;
+
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+import net.osmand.router.RouteColorize;
+import net.osmand.router.RouteColorize.ColorizationType;
+
+public class CompactTrkSegmentTest {
+
+	private static final long FILE_TIMESTAMP = RandomTrack.START_TIME;
+
+	private TrkSegment createSegment(int size, long timeStep) {
+		RandomTrack track = new RandomTrack(3);
+		Random rnd = track.rnd;
+		TrkSegment segment = new TrkSegment();
+		for (int i = 0; i < size; i++) {
+			track.next(timeStep);
+			// values of loaded gpx are parsed as float
+			WptPt point = new WptPt(track.lat, track.lon, i == 5 ? 0 : track.time, (float) track.ele,
+					(float) (rnd.nextDouble() * 15), 5);
+			if (i % 10 == 0) {
+				point.getExtensionsToWrite().put("hr", String.valueOf(90 + rnd.nextInt(60)));
+			}
+			segment.points.add(point);
+		}
+		return segment;
+	}
+
+	@Test
+	public void testPoints() {
+		// second segment spans more than int offsets in ms
+		for (long timeStep : new long[] { 1000, 10L * 24 * 60 * 60 * 1000 }) {
+			TrkSegment segment = createSegment(100, timeStep);
+			CompactTrkSegment compact = new CompactTrkSegment(segment);
+			Assert.assertEquals(segment.points.size(), compact.size());
+			for (int i = 0; i < compact.size(); i++) {
+				WptPt expected = segment.points.get(i);
+				WptPt actual = compact.getPoint(i);
+				Assert.assertEquals(expected.lat, actual.lat, 0);
+				Assert.assertEquals(expected.lon, actual.lon, 0);
+				Assert.assertEquals(expected.ele, actual.ele, 0);
+				Assert.assertEquals(expected.speed, actual.speed, 0);
+				Assert.assertEquals(expected.time, actual.time);
+				Assert.assertEquals(expected.getExtensionsToRead(), actual.getExtensionsToRead());
+			}
+		}
+	}
+
+	@Test
+	public void testAnalysis() {
+		TrkSegment segment = createSegment(1000, 1000);
+		CompactTrkSegment compact = new CompactTrkSegment(segment);
+		GPXTrackAnalysis expected = GPXTrackAnalysis.prepareInformation(FILE_TIMESTAMP, null, segment);
+		GPXTrackAnalysis actual = new GPXTrackAnalysis().prepareInformation(FILE_TIMESTAMP, null, compact);
+		for (GpxParameter parameter : GpxParameter.values()) {
+			if (parameter.isAnalysisParameter()) {
+				Assert.assertEquals(parameter.name(), expected.getGpxParameter(parameter),
+						actual.getGpxParameter(parameter));
+			}
+		}
+		Assert.assertTrue(expected.getDiffElevationUp() > 0);
+		Assert.assertEquals(expected.pointAttributes.size(), actual.pointAttributes.size());
+		Assert.assertEquals(expected.locationEnd.distance, actual.locationEnd.distance, 0);
+		Assert.assertEquals(expected.locationEnd.distance, compact.getDistance(compact.size() - 1), 0.01);
+
+		GPXFile gpx = new GPXFile("test");
+		Track track = new Track();
+		track.segments.add(segment);
+		gpx.tracks.add(track);
+		GPXTrackAnalysis gpxAnalysis = gpx.getAnalysis(FILE_TIMESTAMP);
+		RouteColorize expectedColorize = new RouteColorize(gpx, gpxAnalysis, ColorizationType.ELEVATION, 0);
+		RouteColorize actualColorize = new RouteColorize(Collections.singletonList(compact), actual,
+				ColorizationType.ELEVATION, 0);
+		Assert.assertArrayEquals(expectedColorize.latitudes, actualColorize.latitudes, 0);
+		Assert.assertArrayEquals(expectedColorize.values, actualColorize.values, 0);
+	}
+}
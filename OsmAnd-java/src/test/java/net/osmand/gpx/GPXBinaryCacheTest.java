@@ -0,0 +1,197 @@
+package net.osmand.gpx;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.google.protobuf.CodedInputStream;
+
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+public class GPXBinaryCacheTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File createGpx(String name) {
+		GPXFile gpx = new GPXFile("test");
+		gpx.metadata.name = "Cache test";
+		Track track = new Track();
+		track.name = "track";
+		for (int s = 0; s < 2; s++) {
+			TrkSegment segment = new TrkSegment();
+			RandomTrack rt = new RandomTrack(7 + s);
+			Random rnd = rt.rnd;
+			for (int i = 0; i < 500; i++) {
+				rt.next(1000);
+				WptPt point = new WptPt(rt.lat, rt.lon, rt.time, rt.ele, rnd.nextDouble() * 15, Double.NaN);
+				if (i % 50 == 0) {
+					point.name = "p" + i;
+					point.getExtensionsToWrite().put("hr", String.valueOf(90 + rnd.nextInt(60)));
+				}
+				segment.points.add(point);
+			}
+			track.segments.add(segment);
+		}
+		gpx.tracks.add(track);
+		for (int i = 0; i < 5; i++) {
+			WptPt wpt = new WptPt(52.37 + i * 0.01, 4.89, 0, Double.NaN, 0, Double.NaN);
+			wpt.name = "wpt" + i;
+			wpt.category = i % 2 == 0 ? "even" : "odd";
+			gpx.addPoint(wpt);
+		}
+		File file = new File(folder.getRoot(), name);
+		Assert.assertNull(GPXUtilities.writeGpxFile(file, gpx));
+		return file;
+	}
+
+	private void assertPoints(List<WptPt> expected, List<WptPt> actual) {
+		Assert.assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			WptPt e = expected.get(i);
+			WptPt a = actual.get(i);
+			Assert.assertEquals(e.lat, a.lat, 0);
+			Assert.assertEquals(e.lon, a.lon, 0);
+			Assert.assertEquals(e.ele, a.ele, 0);
+			Assert.assertEquals(e.time, a.time);
+			Assert.assertEquals(e.speed, a.speed, 0);
+			Assert.assertEquals(e.hdop, a.hdop, 0);
+			Assert.assertEquals(e.name, a.name);
+			Assert.assertEquals(e.category, a.category);
+			Assert.assertEquals(e.getExtensionsToRead(), a.getExtensionsToRead());
+		}
+	}
+
+	@Test
+	public void testCacheRoundTrip() throws IOException {
+		File gpxFile = createGpx("track.gpx");
+		File cacheFile = new File(folder.getRoot(), GPXBinaryCache.GPX_CACHE_DEFAULT_FILENAME);
+		GPXFile expected = GPXUtilities.loadGPXFile(gpxFile);
+		GPXTrackAnalysis expectedAnalysis = expected.getAnalysis(gpxFile.lastModified());
+
+		GPXBinaryCache cache = new GPXBinaryCache();
+		cache.loadGPXFile(gpxFile);
+		Assert.assertTrue(cache.isCached(gpxFile));
+		cache.writeToFile(cacheFile);
+
+		GPXBinaryCache reopened = new GPXBinaryCache();
+		reopened.readFromFile(cacheFile);
+		Assert.assertEquals(1, reopened.getEntriesCount());
+		Assert.assertTrue(reopened.isCached(gpxFile));
+		GPXFile actual = reopened.loadGPXFile(gpxFile);
+		Assert.assertEquals(gpxFile.getAbsolutePath(), actual.path);
+		Assert.assertEquals(expected.metadata.name, actual.metadata.name);
+		Assert.assertEquals(expected.tracks.size(), actual.tracks.size());
+		Assert.assertEquals(expected.getPointsGroups().keySet(), actual.getPointsGroups().keySet());
+		assertPoints(expected.getPoints(), actual.getPoints());
+		assertPoints(expected.getAllSegmentsPoints(), actual.getAllSegmentsPoints());
+
+		GPXTrackAnalysis actualAnalysis = reopened.getAnalysis(gpxFile);
+		for (GpxParameter parameter : GpxParameter.values()) {
+			if (parameter.isAnalysisParameter()) {
+				Assert.assertEquals(parameter.name(), expectedAnalysis.getGpxParameter(parameter),
+						actualAnalysis.getGpxParameter(parameter));
+			}
+		}
+		Assert.assertEquals(expectedAnalysis.totalDistanceWithoutGaps, actualAnalysis.totalDistanceWithoutGaps, 0);
+		Assert.assertEquals(expectedAnalysis.availableAttributes, actualAnalysis.availableAttributes);
+		Assert.assertEquals(expected.getAnalysis(gpxFile.lastModified()).getTotalDistance(),
+				actual.getAnalysis(gpxFile.lastModified()).getTotalDistance(), 0);
+	}
+
+	@Test
+	public void testChangedFile() throws IOException {
+		File gpxFile = createGpx("track.gpx");
+		File cacheFile = new File(folder.getRoot(), GPXBinaryCache.GPX_CACHE_DEFAULT_FILENAME);
+		GPXBinaryCache cache = new GPXBinaryCache();
+		cache.getAnalysis(gpxFile);
+		cache.writeToFile(cacheFile);
+
+		Assert.assertTrue(gpxFile.setLastModified(gpxFile.lastModified() - 10000));
+		GPXBinaryCache reopened = new GPXBinaryCache();
+		reopened.readFromFile(cacheFile);
+		Assert.assertFalse(reopened.isCached(gpxFile));
+		reopened.loadGPXFile(gpxFile);
+		Assert.assertTrue(reopened.isCached(gpxFile));
+	}
+
+	@Test
+	public void testReopenedCache() throws IOException {
+		File gpxFile = createGpx("track.gpx");
+		File cacheFile = new File(folder.getRoot(), GPXBinaryCache.GPX_CACHE_DEFAULT_FILENAME);
+		GPXBinaryCache cache = new GPXBinaryCache();
+		cache.getAnalysis(gpxFile);
+		cache.writeToFile(cacheFile);
+		cache.readFromFile(cacheFile);
+		cache.readFromFile(cacheFile);
+		Assert.assertTrue(cache.isCached(gpxFile));
+		Assert.assertFalse(cache.loadGPXFile(gpxFile).getAllSegmentsPoints().isEmpty());
+		cache.close();
+		Assert.assertEquals(0, cache.getEntriesCount());
+		Assert.assertFalse(cache.isCached(gpxFile));
+	}
+
+	@Test
+	public void testDeletedFilesArePruned() throws IOException {
+		File deleted = createGpx("deleted.gpx");
+		File kept = createGpx("kept.gpx");
+		File cacheFile = new File(folder.getRoot(), GPXBinaryCache.GPX_CACHE_DEFAULT_FILENAME);
+		GPXBinaryCache cache = new GPXBinaryCache();
+		cache.getAnalysis(deleted);
+		cache.getAnalysis(kept);
+		cache.writeToFile(cacheFile);
+		Assert.assertEquals(2, cache.getEntriesCount());
+
+		Assert.assertTrue(deleted.delete());
+		File added = createGpx("added.gpx");
+		cache.getAnalysis(added);
+		cache.writeToFile(cacheFile);
+		// written entries are read from mapped file
+		Assert.assertEquals(2, cache.getEntriesCount());
+		Assert.assertTrue(cache.isCached(added));
+		Assert.assertFalse(cache.loadGPXFile(added).getAllSegmentsPoints().isEmpty());
+
+		GPXBinaryCache reopened = new GPXBinaryCache();
+		reopened.readFromFile(cacheFile);
+		Assert.assertEquals(2, reopened.getEntriesCount());
+		Assert.assertTrue(reopened.isCached(kept));
+		Assert.assertTrue(reopened.isCached(added));
+	}
+
+	@Test
+	public void testPointColumns() throws IOException {
+		GPXFile gpx = new GPXFile("test");
+		Track track = new Track();
+		TrkSegment exact = new TrkSegment();
+		TrkSegment inexact = new TrkSegment();
+		int size = 1000;
+		for (int i = 0; i < size; i++) {
+			// ele and speed are written with 1 decimal to gpx
+			exact.points.add(new WptPt(52.37, 4.89, 0, 10 + (i % 100) / 10.0, 0, Double.NaN));
+			inexact.points.add(new WptPt(52.37, 4.89, i, i % 10 == 0 ? Double.NaN : i / 3.0, i / 7.0, i / 10.0));
+		}
+		track.segments.add(exact);
+		track.segments.add(inexact);
+		gpx.tracks.add(track);
+
+		byte[] data = GPXBinaryCache.encodeGpx(gpx);
+		GPXFile decoded = GPXBinaryCache.decodeGpx(CodedInputStream.newInstance(data));
+		List<TrkSegment> segments = decoded.tracks.get(0).segments;
+		assertPoints(exact.points, segments.get(0).points);
+		assertPoints(inexact.points, segments.get(1).points);
+
+		GPXFile exactOnly = new GPXFile("test");
+		exactOnly.tracks.add(new Track());
+		exactOnly.tracks.get(0).segments.add(exact);
+		// lat, lon, time delta and ele delta in centimeters instead of 3 doubles and time
+		Assert.assertTrue(GPXBinaryCache.encodeGpx(exactOnly).length < size * (8 + 8 + 1 + 2 + 1));
+	}
+}
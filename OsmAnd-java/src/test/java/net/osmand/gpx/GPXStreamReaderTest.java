@@ -0,0 +1,110 @@
+package net.osmand.gpx;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.gpx.GPXStreamReader.GPXPointsVisitor;
+import net.osmand.gpx.GPXTrackAnalysis.GPXStreamAnalyser;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+public class GPXStreamReaderTest {
+
+	private static final long FILE_TIMESTAMP = RandomTrack.START_TIME;
+
+	private String writeTestGpx() throws Exception {
+		RandomTrack track = new RandomTrack(7);
+		Random rnd = track.rnd;
+		StringWriter out = new StringWriter();
+		GPXStreamWriter writer = new GPXStreamWriter(out, "test");
+		writer.writeWayPoint(new WptPt(52.3, 4.8, "desc", "first", "cafe", null, null, null));
+		writer.writeWayPoint(new WptPt(52.4, 4.9, null, "second", null, null, null, null));
+		WptPt point = new WptPt();
+		for (int t = 0; t < 2; t++) {
+			writer.startTrack("track " + t, null);
+			// last segment has one point
+			int[] segments = t == 0 ? new int[] { 500, 300 } : new int[] { 200, 1 };
+			for (int size : segments) {
+				writer.startSegment();
+				for (int i = 0; i < size; i++) {
+					track.next(rnd.nextInt(10) == 0 ? 30000 : 1000);
+					point.lat = track.lat;
+					point.lon = track.lon;
+					point.ele = track.ele;
+					point.time = track.time;
+					point.speed = rnd.nextInt(5) == 0 ? 0 : rnd.nextDouble() * 15;
+					point.getExtensionsToWrite().clear();
+					point.getExtensionsToWrite().put("gpxtpx:hr", String.valueOf(90 + rnd.nextInt(60)));
+					writer.writeTrackPoint(point);
+				}
+				writer.endSegment();
+			}
+			writer.endTrack();
+		}
+		writer.finish();
+		return out.toString();
+	}
+
+	@Test
+	public void testStreamAnalysis() throws Exception {
+		byte[] gpx = writeTestGpx().getBytes(StandardCharsets.UTF_8);
+		GPXFile file = GPXUtilities.loadGPXFile(new ByteArrayInputStream(gpx));
+		Assert.assertNull(file.error);
+		GPXTrackAnalysis expected = file.getAnalysis(FILE_TIMESTAMP);
+
+		GPXStreamAnalyser analyser = new GPXStreamAnalyser(null, FILE_TIMESTAMP, null);
+		Assert.assertNull(GPXStreamReader.readGpx(new ByteArrayInputStream(gpx), analyser));
+		GPXTrackAnalysis actual = analyser.getAnalysis();
+
+		for (GpxParameter parameter : GpxParameter.values()) {
+			if (parameter.isAnalysisParameter()) {
+				Assert.assertEquals(parameter.name(), expected.getGpxParameter(parameter),
+						actual.getGpxParameter(parameter));
+			}
+		}
+		Assert.assertTrue(expected.getDiffElevationUp() > 0);
+		Assert.assertEquals(1000, actual.getPoints());
+		Assert.assertEquals(4, actual.getTotalTracks());
+		Assert.assertEquals(expected.totalDistanceWithoutGaps, actual.totalDistanceWithoutGaps, 0);
+		Assert.assertEquals(expected.locationStart.time, actual.locationStart.time);
+		Assert.assertEquals(expected.locationEnd.time, actual.locationEnd.time);
+		Assert.assertEquals(expected.locationEnd.distance, actual.locationEnd.distance, 0);
+		Assert.assertEquals(expected.availableAttributes, actual.availableAttributes);
+	}
+
+	@Test
+	public void testCancel() throws Exception {
+		byte[] gpx = writeTestGpx().getBytes(StandardCharsets.UTF_8);
+		final int[] visited = new int[3];
+		GPXPointsVisitor visitor = new GPXPointsVisitor() {
+
+			@Override
+			public void visitWayPoint(WptPt point) {
+				visited[0]++;
+			}
+
+			@Override
+			public void visitTrackPoint(WptPt point) {
+				visited[1]++;
+			}
+
+			@Override
+			public void finished() {
+				visited[2]++;
+			}
+
+			@Override
+			public boolean isCancelled() {
+				return visited[1] == 10;
+			}
+		};
+		Assert.assertNull(GPXStreamReader.readGpx(new ByteArrayInputStream(gpx), visitor));
+		Assert.assertEquals(2, visited[0]);
+		Assert.assertEquals(10, visited[1]);
+		Assert.assertEquals(0, visited[2]);
+	}
+}
@@ -0,0 +1,147 @@
+package net.osmand.gpx;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.gpx.GPXTrackAnalysis.PartialAnalysis;
+import net.osmand.gpx.GPXUtilities.Track;
+import net.osmand.gpx.GPXUtilities.TrkSegment;
+import net.osmand.gpx.GPXUtilities.WptPt;
+
+public class GPXTrackAnalysisTest {
+
+	private static final long FILE_TIMESTAMP = RandomTrack.START_TIME;
+
+	private GPXFile createGpx() {
+		RandomTrack rt = new RandomTrack(11);
+		Random rnd = rt.rnd;
+		GPXFile gpx = new GPXFile("test");
+		Track track = new Track();
+		// long segment with speed, segment without speed (derived from displacement) and short one
+		int[] sizes = { 2 * GPXTrackAnalysis.PARALLEL_RANGE_POINTS + 500, 30000, 50 };
+		for (int s = 0; s < sizes.length; s++) {
+			TrkSegment segment = new TrkSegment();
+			for (int i = 0; i < sizes[s]; i++) {
+				rt.next(1000 + rnd.nextInt(2000));
+				double speed = s == 1 ? 0 : rnd.nextDouble() * 15;
+				WptPt point = new WptPt(rt.lat, rt.lon, rt.time, (float) rt.ele, (float) speed, Double.NaN);
+				if (i % 3 == 0) {
+					point.getExtensionsToWrite().put(PointAttributes.SENSOR_TAG_HEART_RATE, String.valueOf(90 + rnd.nextInt(60)));
+				}
+				segment.points.add(point);
+			}
+			track.segments.add(segment);
+		}
+		gpx.tracks.add(track);
+		return gpx;
+	}
+
+	private void assertAnalysis(GPXTrackAnalysis expected, GPXTrackAnalysis actual) {
+		for (GpxParameter parameter : GpxParameter.values()) {
+			if (parameter.isAnalysisParameter()) {
+				Object e = expected.getGpxParameter(parameter);
+				Object a = actual.getGpxParameter(parameter);
+				if (e instanceof Double) {
+					double delta = Math.max(1, Math.abs((Double) e)) * 1e-4;
+					Assert.assertEquals(parameter.name(), (Double) e, (Double) a, delta);
+				} else {
+					Assert.assertEquals(parameter.name(), e, a);
+				}
+			}
+		}
+		Assert.assertEquals(expected.availableAttributes, actual.availableAttributes);
+		Assert.assertEquals(expected.hasSpeedInTrack, actual.hasSpeedInTrack);
+		Assert.assertSame(expected.locationStart, actual.locationStart);
+		Assert.assertSame(expected.locationEnd, actual.locationEnd);
+		Assert.assertEquals(expected.left, actual.left, 0);
+		Assert.assertEquals(expected.top, actual.top, 0);
+		Assert.assertEquals(expected.pointAttributes.size(), actual.pointAttributes.size());
+		for (int i = 0; i < expected.pointAttributes.size(); i++) {
+			PointAttributes e = expected.pointAttributes.get(i);
+			PointAttributes a = actual.pointAttributes.get(i);
+			Assert.assertEquals(e.distance, a.distance, 0);
+			Assert.assertEquals(e.timeDiff, a.timeDiff, 0);
+			Assert.assertEquals(e.speed, a.speed, 0);
+			Assert.assertEquals(e.heartRate, a.heartRate, 0);
+		}
+	}
+
+	@Test
+	public void testParallelAnalysis() throws InterruptedException {
+		GPXFile gpx = createGpx();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		GPXTrackAnalysis actual;
+		try {
+			actual = gpx.getAnalysis(FILE_TIMESTAMP, executor);
+		} finally {
+			executor.shutdown();
+		}
+		List<WptPt> points = gpx.getAllSegmentsPoints();
+		double[] distances = new double[points.size()];
+		for (int i = 0; i < distances.length; i++) {
+			distances[i] = points.get(i).distance;
+		}
+		GPXTrackAnalysis expected = gpx.getAnalysis(FILE_TIMESTAMP);
+		assertAnalysis(expected, actual);
+		Assert.assertEquals(3, actual.getTotalTracks());
+		Assert.assertTrue(actual.hasSpeedData());
+		for (int i = 0; i < distances.length; i++) {
+			Assert.assertEquals(points.get(i).distance, distances[i], Math.max(0.01, distances[i] * 1e-5));
+		}
+	}
+
+	@Test
+	public void testAddedPoints() {
+		GPXFile gpx = createGpx();
+		GPXTrackAnalysis expected = gpx.getAnalysis(FILE_TIMESTAMP);
+		PartialAnalysis recording = new PartialAnalysis();
+		GPXTrackAnalysis intermediate = null;
+		for (TrkSegment segment : gpx.getNonEmptyTrkSegments(false)) {
+			recording.startSegment();
+			for (WptPt point : segment.points) {
+				recording.addPoint(point);
+			}
+			if (intermediate == null) {
+				intermediate = recording.getAnalysis(FILE_TIMESTAMP);
+			}
+		}
+		GPXTrackAnalysis actual = recording.getAnalysis(FILE_TIMESTAMP);
+		Assert.assertEquals(0, actual.getTotalTracks());
+		actual.setTotalTracks(expected.getTotalTracks());
+		actual.setWptCategoryNames(expected.getWptCategoryNames());
+		assertAnalysis(expected, actual);
+
+		GPXFile first = new GPXFile("test");
+		Track track = new Track();
+		track.segments.add(gpx.tracks.get(0).segments.get(0));
+		first.tracks.add(track);
+		GPXTrackAnalysis firstExpected = first.getAnalysis(FILE_TIMESTAMP);
+		intermediate.setTotalTracks(1);
+		intermediate.setWptCategoryNames(firstExpected.getWptCategoryNames());
+		assertAnalysis(firstExpected, intermediate);
+	}
+
+	@Test
+	public void testMergeSegments() {
+		GPXFile gpx = createGpx();
+		List<PartialAnalysis> parts = new ArrayList<>();
+		for (TrkSegment segment : gpx.getNonEmptyTrkSegments(false)) {
+			parts.add(PartialAnalysis.analyse(segment));
+		}
+		PartialAnalysis merged = new PartialAnalysis();
+		for (PartialAnalysis part : parts) {
+			merged.merge(part);
+		}
+		GPXTrackAnalysis expected = gpx.getAnalysis(FILE_TIMESTAMP);
+		GPXTrackAnalysis actual = merged.getAnalysis(FILE_TIMESTAMP);
+		actual.setTotalTracks(expected.getTotalTracks());
+		actual.setWptCategoryNames(expected.getWptCategoryNames());
+		assertAnalysis(expected, actual);
+	}
+}
@@ -0,0 +1,32 @@
+package net.osmand.gpx;
+
+import java.util.Random;
+
+/**
+ * Random walk near Amsterdam used as track of gpx tests (same seed gives same track).
+ * Track goes mostly north-east, elevation changes up to 2 m per point.
+ */
+class RandomTrack {
+
+	static final long START_TIME = 1700000000000L;
+
+	final Random rnd;
+	double lat = 52.37;
+	double lon = 4.89;
+	double ele = 10;
+	long time = START_TIME;
+
+	RandomTrack(long seed) {
+		rnd = new Random(seed);
+	}
+
+	/**
+	 * Moves to next point of track
+	 */
+	void next(long timeStep) {
+		lat += (rnd.nextDouble() - 0.4) * 0.0001;
+		lon += (rnd.nextDouble() - 0.4) * 0.0001;
+		ele += (rnd.nextDouble() - 0.5) * 4;
+		time += timeStep;
+	}
+}
@@ -0,0 +1,110 @@
+package net.osmand.map;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapDataObject;
+
+public class RegionsSpatialIndexTest {
+
+	private static final int WORLD = 1 << 20;
+
+	@Test
+	public void testQueryMatchesContain() {
+		Random r = new Random(7);
+		List<BinaryMapDataObject> objects = new ArrayList<BinaryMapDataObject>();
+		for (int i = 0; i < 300; i++) {
+			objects.add(createStar(r, i, r.nextInt(WORLD), r.nextInt(WORLD), 1000 + r.nextInt(WORLD / 8),
+					3 + r.nextInt(200), i % 17 != 0));
+		}
+		// nested polygons with the same center
+		objects.add(createStar(r, 1000, WORLD / 2, WORLD / 2, WORLD / 3, 40, true));
+		objects.add(createStar(r, 1001, WORLD / 2, WORLD / 2, WORLD / 6, 40, true));
+		RegionsSpatialIndex index = new RegionsSpatialIndex(objects);
+		Assert.assertEquals(objects.size(), index.size());
+
+		List<int[]> points = new ArrayList<int[]>();
+		for (int i = 0; i < 20000; i++) {
+			points.add(new int[] { r.nextInt(WORLD), r.nextInt(WORLD) });
+		}
+		for (int i = 0; i < objects.size(); i += 5) {
+			BinaryMapDataObject o = objects.get(i);
+			for (int j = 0; j < o.getPointsLength(); j++) {
+				int x = o.getPoint31XTile(j);
+				int y = o.getPoint31YTile(j);
+				points.add(new int[] { x, y });
+				points.add(new int[] { x + 1, y });
+				points.add(new int[] { x, y - 1 });
+				if (j > 0) {
+					// edge midpoints
+					points.add(new int[] { x / 2 + o.getPoint31XTile(j - 1) / 2, y / 2 + o.getPoint31YTile(j - 1) / 2 });
+				}
+			}
+		}
+		int[] xs = new int[points.size()];
+		int[] ys = new int[points.size()];
+		for (int i = 0; i < points.size(); i++) {
+			xs[i] = points.get(i)[0];
+			ys[i] = points.get(i)[1];
+		}
+		List<List<BinaryMapDataObject>> batch = index.query(xs, ys);
+		Assert.assertEquals(points.size(), batch.size());
+		int found = 0;
+		for (int i = 0; i < points.size(); i++) {
+			List<BinaryMapDataObject> expected = queryBruteForce(objects, xs[i], ys[i]);
+			Assert.assertEquals("Point " + xs[i] + " " + ys[i], expected, index.query(xs[i], ys[i]));
+			Assert.assertEquals(expected, batch.get(i));
+			found += expected.size();
+		}
+		Assert.assertTrue(found > 0);
+		List<BinaryMapDataObject> center = index.query(WORLD / 2, WORLD / 2);
+		Assert.assertTrue(center.contains(objects.get(objects.size() - 1)));
+		Assert.assertTrue(center.contains(objects.get(objects.size() - 2)));
+	}
+
+	@Test
+	public void testEmpty() {
+		RegionsSpatialIndex index = new RegionsSpatialIndex(new ArrayList<BinaryMapDataObject>());
+		Assert.assertEquals(0, index.size());
+		Assert.assertTrue(index.query(10, 10).isEmpty());
+	}
+
+	private static List<BinaryMapDataObject> queryBruteForce(List<BinaryMapDataObject> objects, int x, int y) {
+		List<BinaryMapDataObject> result = new ArrayList<BinaryMapDataObject>();
+		for (BinaryMapDataObject o : objects) {
+			int left = Integer.MAX_VALUE, right = Integer.MIN_VALUE;
+			int top = Integer.MAX_VALUE, bottom = Integer.MIN_VALUE;
+			for (int j = 0; j < o.getPointsLength(); j++) {
+				left = Math.min(left, o.getPoint31XTile(j));
+				right = Math.max(right, o.getPoint31XTile(j));
+				top = Math.min(top, o.getPoint31YTile(j));
+				bottom = Math.max(bottom, o.getPoint31YTile(j));
+			}
+			if (left <= x && x <= right && top <= y && y <= bottom && OsmandRegions.contain(o, x, y)) {
+				result.add(o);
+			}
+		}
+		return result;
+	}
+
+	// concave star shaped polygon, closed or not
+	private static BinaryMapDataObject createStar(Random r, long id, int cx, int cy, int radius, int points,
+			boolean closed) {
+		int[] coordinates = new int[(closed ? points + 1 : points) * 2];
+		for (int i = 0; i < points; i++) {
+			double angle = 2 * Math.PI * i / points;
+			double rad = radius * (0.3 + 0.7 * r.nextDouble());
+			coordinates[2 * i] = Math.max(0, (int) (cx + rad * Math.cos(angle)));
+			coordinates[2 * i + 1] = Math.max(0, (int) (cy + rad * Math.sin(angle)));
+		}
+		if (closed) {
+			coordinates[2 * points] = coordinates[0];
+			coordinates[2 * points + 1] = coordinates[1];
+		}
+		return new BinaryMapDataObject(id, coordinates, null, 0, true, new int[0], null, 0, 0);
+	}
+}
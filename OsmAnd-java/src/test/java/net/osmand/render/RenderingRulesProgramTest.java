@@ -0,0 +1,226 @@
+package net.osmand.render;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xmlpull.v1.XmlPullParserException;
+
+import net.osmand.binary.BinaryMapDataObject;
+import net.osmand.binary.BinaryMapIndexReader.MapIndex;
+
+public class RenderingRulesProgramTest {
+
+	private static final String STYLE = "<renderingStyle name=\"test\" defaultColor=\"#f1eee8\" version=\"1\">\n"
+			+ "<renderingProperty attr=\"showCycle\" name=\"Cycle\" type=\"boolean\" possibleValues=\"\"/>\n"
+			+ "<renderingAttribute name=\"roadColor\">\n"
+			+ "  <case nightMode=\"true\" attrColorValue=\"#223344\"/>\n"
+			+ "  <case attrColorValue=\"#aabbcc\"/>\n"
+			+ "</renderingAttribute>\n"
+			+ "<renderingAttribute name=\"roadWidth\">\n"
+			+ "  <case maxzoom=\"13\" attrIntValue=\"2\"/>\n"
+			+ "  <case attrIntValue=\"4.5\"/>\n"
+			+ "</renderingAttribute>\n"
+			+ "<order>\n"
+			+ "  <switch>\n"
+			+ "    <case tag=\"highway\" value=\"primary\" order=\"20\"/>\n"
+			+ "    <case tag=\"building\" value=\"yes\" minzoom=\"15\" order=\"5\"/>\n"
+			+ "    <case tag=\"highway\" value=\"\" order=\"10\"/>\n"
+			+ "  </switch>\n"
+			+ "</order>\n"
+			+ "<line>\n"
+			+ "  <switch>\n"
+			+ "    <case tag=\"highway\" value=\"primary\" color=\"$roadColor\" strokeWidth=\"$roadWidth\"/>\n"
+			+ "    <case tag=\"highway\" value=\"residential\" minzoom=\"14\" strokeWidth=\"2\" color=\"#ffffff\">\n"
+			+ "      <apply layer=\"1\" color=\"#ff0000\"/>\n"
+			+ "    </case>\n"
+			+ "    <case tag=\"highway\" value=\"track\" disable=\"true\" maxzoom=\"13\"/>\n"
+			+ "    <case tag=\"highway\" value=\"track\" color=\"#000000\"/>\n"
+			+ "    <case tag=\"highway\" value=\"cycleway\" showCycle=\"true\" color=\"#00ff00\"/>\n"
+			+ "    <case tag=\"highway\" value=\"path\" additional=\"surface=gravel\" color=\"#777777\"/>\n"
+			+ "  </switch>\n"
+			+ "  <switch>\n"
+			+ "    <case tag=\"highway\" value=\"path\" color=\"#123456\"/>\n"
+			+ "    <case tag=\"highway\" value=\"footway\" color=\"#654321\"/>\n"
+			+ "    <apply_if maxzoom=\"14\" strokeWidth=\"1\"/>\n"
+			+ "    <apply_if strokeWidth=\"3\" color=\"#111111\"/>\n"
+			+ "  </switch>\n"
+			+ "</line>\n"
+			+ "<polygon>\n"
+			+ "  <case tag=\"building\" value=\"yes\" minzoom=\"14\" color=\"#cccccc\">\n"
+			+ "    <switch>\n"
+			+ "      <case nightMode=\"true\" color=\"#333333\"/>\n"
+			+ "    </switch>\n"
+			+ "  </case>\n"
+			+ "  <case tag=\"landuse\" value=\"forest\" color=\"$roadColor\"/>\n"
+			+ "</polygon>\n"
+			+ "<text>\n"
+			+ "  <case tag=\"highway\" value=\"primary\" textSize=\"12\" textColor=\"#000000\" nameTag=\"ref\"/>\n"
+			+ "  <case tag=\"highway\" value=\"\" minzoom=\"16\" textSize=\"10\"/>\n"
+			+ "</text>\n"
+			+ "</renderingStyle>";
+
+	private static final String[][] TAG_VALUES = { { "highway", "primary" }, { "highway", "residential" },
+			{ "highway", "track" }, { "highway", "cycleway" }, { "highway", "path" }, { "highway", "footway" },
+			{ "highway", "service" }, { "building", "yes" }, { "landuse", "forest" }, { "natural", "water" } };
+
+	private static final int[] STATES = { RenderingRulesStorage.POINT_RULES, RenderingRulesStorage.LINE_RULES,
+			RenderingRulesStorage.POLYGON_RULES, RenderingRulesStorage.TEXT_RULES, RenderingRulesStorage.ORDER_RULES };
+
+	private RenderingRulesStorage loadStorage() throws XmlPullParserException, IOException {
+		RenderingRulesStorage storage = new RenderingRulesStorage("test", new HashMap<String, String>());
+		storage.parseRulesFromXmlInputStream(new ByteArrayInputStream(STYLE.getBytes(StandardCharsets.UTF_8)), null,
+				false);
+		return storage;
+	}
+
+	private boolean search(RenderingRuleSearchRequest req, String[] tagValue, int state, int zoom, int flags) {
+		RenderingRuleStorageProperties props = req.ALL;
+		req.setInitialTagValueZoom(tagValue[0], tagValue[1], zoom, null);
+		req.setBooleanFilter(props.R_NIGHT_MODE, (flags & 1) != 0);
+		req.setBooleanFilter(props.getCustomRule("showCycle"), (flags & 2) != 0);
+		req.setIntFilter(props.R_LAYER, (flags & 4) != 0 ? 1 : 0);
+		req.setStringFilter(props.R_ADDITIONAL, (flags & 8) != 0 ? "surface=gravel" : "surface=asphalt");
+		return req.search(state, (flags & 16) == 0);
+	}
+
+	@Test
+	public void testCompiledRules() throws XmlPullParserException, IOException {
+		RenderingRulesStorage treeStorage = loadStorage();
+		RenderingRulesStorage compiledStorage = loadStorage();
+		compiledStorage.compileRules();
+		Assert.assertNull(treeStorage.getCompiledRules());
+		Assert.assertNotNull(compiledStorage.getCompiledRules());
+
+		RenderingRuleSearchRequest treeReq = new RenderingRuleSearchRequest(treeStorage);
+		RenderingRuleSearchRequest compiledReq = new RenderingRuleSearchRequest(compiledStorage);
+		int found = 0;
+		for (int state : STATES) {
+			for (String[] tagValue : TAG_VALUES) {
+				for (int zoom = 10; zoom <= 18; zoom++) {
+					for (int flags = 0; flags < 32; flags++) {
+						String msg = state + " " + tagValue[0] + "=" + tagValue[1] + " z" + zoom + " f" + flags;
+						boolean expected = search(treeReq, tagValue, state, zoom, flags);
+						Assert.assertEquals(msg, expected, search(compiledReq, tagValue, state, zoom, flags));
+						found += expected ? 1 : 0;
+						RenderingRuleProperty[] properties = treeReq.getProperties();
+						for (int i = 0; i < properties.length; i++) {
+							RenderingRuleProperty p = compiledReq.getProperties()[i];
+							Assert.assertEquals(msg + " " + p.getAttrName(), treeReq.getIntPropertyValue(properties[i]),
+									compiledReq.getIntPropertyValue(p));
+							Assert.assertEquals(msg + " " + p.getAttrName(), treeReq.getFloatPropertyValue(properties[i]),
+									compiledReq.getFloatPropertyValue(p), 0);
+						}
+					}
+				}
+			}
+		}
+		Assert.assertTrue(found > 100);
+		compiledReq.clearState();
+		Assert.assertTrue(compiledReq.searchRenderingAttribute("roadColor"));
+		Assert.assertEquals(0xffaabbcc, compiledReq.getIntPropertyValue(compiledStorage.PROPS.R_ATTR_COLOR_VALUE));
+	}
+
+	private BinaryMapDataObject[] createObjects() {
+		MapIndex mapIndex = new MapIndex();
+		mapIndex.initMapEncodingRule(0, 1, "highway", "path");
+		mapIndex.initMapEncodingRule(0, 2, "surface", "gravel");
+		mapIndex.initMapEncodingRule(0, 3, "surface", "asphalt");
+		mapIndex.finishInitializingTags();
+		int[][] additional = { {}, { 2 }, { 3 }, { 3, 2 } };
+		BinaryMapDataObject[] objects = new BinaryMapDataObject[additional.length];
+		for (int i = 0; i < objects.length; i++) {
+			objects[i] = new BinaryMapDataObject(i, new int[] { 0, 0, 10, 10 }, null, 2, false, new int[] { 1 },
+					additional[i], 0, 0);
+			objects[i].setMapIndex(mapIndex);
+		}
+		return objects;
+	}
+
+	@Test
+	public void testCachedResults() throws XmlPullParserException, IOException {
+		RenderingRulesStorage treeStorage = loadStorage();
+		RenderingRulesStorage compiledStorage = loadStorage();
+		compiledStorage.compileRules();
+		RenderingRuleSearchRequest treeReq = new RenderingRuleSearchRequest(treeStorage);
+		RenderingRuleSearchRequest cachedReq = new RenderingRuleSearchRequest(compiledStorage);
+		BinaryMapDataObject[] objects = createObjects();
+		for (int night = 0; night < 2; night++) {
+			for (RenderingRuleSearchRequest req : new RenderingRuleSearchRequest[] { treeReq, cachedReq }) {
+				req.setBooleanFilter(req.ALL.R_NIGHT_MODE, night == 1);
+				req.setBooleanFilter(req.ALL.getCustomRule("showCycle"), true);
+				req.saveState();
+			}
+			// second pass is served from cache
+			for (int pass = 0; pass < 2; pass++) {
+				for (int state : STATES) {
+					for (String[] tagValue : TAG_VALUES) {
+						for (int zoom = 10; zoom <= 18; zoom++) {
+							for (int k = -1; k < objects.length; k++) {
+								BinaryMapDataObject obj = k < 0 ? null : objects[k];
+								String msg = night + " " + state + " " + tagValue[1] + " z" + zoom + " o" + k;
+								boolean expected = search(treeReq, tagValue, state, zoom, obj);
+								Assert.assertEquals(msg, expected, search(cachedReq, tagValue, state, zoom, obj));
+								RenderingRuleProperty[] properties = treeReq.getProperties();
+								for (int i = 0; i < properties.length; i++) {
+									RenderingRuleProperty p = cachedReq.getProperties()[i];
+									Assert.assertEquals(msg + " " + p.getAttrName(),
+											treeReq.getIntPropertyValue(properties[i]), cachedReq.getIntPropertyValue(p));
+									Assert.assertEquals(msg + " " + p.getAttrName(),
+											treeReq.getFloatPropertyValue(properties[i]),
+											cachedReq.getFloatPropertyValue(p), 0);
+								}
+							}
+						}
+					}
+				}
+			}
+			Assert.assertTrue(cachedReq.getCachedResultsCount() > 0);
+		}
+		// changed filter is not cached
+		int cachedCount = cachedReq.getCachedResultsCount();
+		cachedReq.setInitialTagValueZoom("highway", "primary", 15, null);
+		cachedReq.setBooleanFilter(cachedReq.ALL.R_NIGHT_MODE, false);
+		Assert.assertTrue(cachedReq.search(RenderingRulesStorage.LINE_RULES));
+		Assert.assertEquals(0xffaabbcc, cachedReq.getIntPropertyValue(compiledStorage.PROPS.R_COLOR));
+		Assert.assertEquals(cachedCount, cachedReq.getCachedResultsCount());
+	}
+
+	private boolean search(RenderingRuleSearchRequest req, String[] tagValue, int state, int zoom,
+			BinaryMapDataObject obj) {
+		req.setInitialTagValueZoom(tagValue[0], tagValue[1], zoom, obj);
+		req.setIntFilter(req.ALL.R_LAYER, zoom % 2);
+		req.setBooleanFilter(req.ALL.R_AREA, false);
+		return req.search(state);
+	}
+
+	@Test
+	public void testInvalidation() throws XmlPullParserException, IOException {
+		RenderingRulesStorage storage = loadStorage();
+		storage.compileRules();
+		RenderingRuleSearchRequest req = new RenderingRuleSearchRequest(storage);
+		req.setInitialTagValueZoom("highway", "footway", 15, null);
+		Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+		Assert.assertEquals(0xff111111, req.getIntPropertyValue(storage.PROPS.R_COLOR));
+
+		// rule changed after compilation should be visible
+		RenderingRule rule = storage.getRule(RenderingRulesStorage.LINE_RULES,
+				storage.getTagValueKey("highway", "footway"));
+		HashMap<String, String> attrs = new HashMap<String, String>();
+		attrs.put("color", "#abcdef");
+		rule.addIfChildren(new RenderingRule(attrs, false, storage));
+		Assert.assertNull(storage.getCompiledRules());
+		req.setInitialTagValueZoom("highway", "footway", 15, null);
+		Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+		Assert.assertEquals(0xffabcdef, req.getIntPropertyValue(storage.PROPS.R_COLOR));
+
+		storage.compileRules();
+		Assert.assertNotNull(storage.getCompiledRules());
+		req.setInitialTagValueZoom("highway", "footway", 15, null);
+		Assert.assertTrue(req.search(RenderingRulesStorage.LINE_RULES));
+		Assert.assertEquals(0xffabcdef, req.getIntPropertyValue(storage.PROPS.R_COLOR));
+	}
+}
@@ -0,0 +1,69 @@
+package net.osmand.router;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.router.HHRouteDataStructure.CompactNetworkDBSegments;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+import net.osmand.router.HHRouteDataStructure.NetworkDBSegment;
+
+public class CompactNetworkDBSegmentsTest {
+
+	private static NetworkDBPoint point(int index) {
+		NetworkDBPoint p = new NetworkDBPoint();
+		p.index = index;
+		return p;
+	}
+
+	@Test
+	public void testCompactSegments() {
+		NetworkDBPoint start = point(1);
+		NetworkDBPoint[] ends = new NetworkDBPoint[] { point(2), point(3) };
+		start.connectedSet(false, new CompactNetworkDBSegments(start, ends, new double[] { 10.5, 20 }, true));
+
+		List<NetworkDBSegment> l = start.connected(false);
+		Assert.assertEquals(2, l.size());
+		NetworkDBSegment s = l.get(1);
+		Assert.assertSame(start, s.start);
+		Assert.assertSame(ends[1], s.end);
+		Assert.assertEquals(20, s.dist, 0);
+
+		// modified cost is stored back
+		s.dist = 25;
+		l.set(1, s);
+		Assert.assertEquals(25, l.get(1).dist, 0);
+
+		// looked up segment is kept by point
+		NetworkDBSegment found = start.getSegment(ends[0], true);
+		Assert.assertEquals(10.5, found.dist, 0);
+		found.dist = -1;
+		Assert.assertSame(found, start.getSegment(ends[0], true));
+		Assert.assertFalse(start.connected(false) instanceof CompactNetworkDBSegments);
+		Assert.assertEquals(25, start.getSegment(ends[1], true).dist, 0);
+	}
+
+	@Test
+	public void testReverseSegments() {
+		NetworkDBPoint end = point(1);
+		NetworkDBPoint[] starts = new NetworkDBPoint[] { point(2) };
+		end.connectedSet(true, new CompactNetworkDBSegments(end, starts, new double[] { 7 }, false));
+		NetworkDBSegment s = end.getSegment(starts[0], false);
+		Assert.assertSame(starts[0], s.start);
+		Assert.assertSame(end, s.end);
+		Assert.assertNull(end.getSegment(point(5), false));
+	}
+
+	@Test
+	public void testPrimitiveAccess() {
+		NetworkDBPoint end = point(1);
+		NetworkDBPoint[] starts = new NetworkDBPoint[] { point(2), point(3) };
+		CompactNetworkDBSegments l = new CompactNetworkDBSegments(end, starts, new double[] { 7.1, 3 }, false);
+		Assert.assertSame(starts[1], l.getConnectedPoint(1));
+		Assert.assertEquals(7.1, l.getDist(0), 0);
+		l.setDist(0, 8);
+		Assert.assertEquals(8, l.get(0).dist, 0);
+		Assert.assertSame(starts[0], l.get(0).start);
+	}
+}
@@ -0,0 +1,56 @@
+package net.osmand.router;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.HHRouteDataStructure.HHNetworkMatrixRes;
+import net.osmand.router.HHRouteDataStructure.HHNetworkRouteRes;
+import net.osmand.router.HHRouteDataStructure.HHRoutingConfig;
+import net.osmand.router.HHRouteDataStructure.NetworkDBPoint;
+
+public class HHRoutingMatrixTest {
+
+	// matrix and routes are calculated by different searches over the same network
+	private static final double TIME_TOLERANCE = 0.01;
+
+	@Test
+	public void testMatrixEqualsSingleRoutes() throws Exception {
+		BinaryMapIndexReader reader = TestRoutingMap.open();
+		try {
+			RoutingContext ctx = TestRoutingMap.createContext(new BinaryMapIndexReader[] { reader },
+					new LinkedHashMap<String, String>());
+			// far enough points, so routes go through network points (direct routes are not part of matrix)
+			List<LatLon> points = TestRoutingMap.getRoadPoints(reader, ctx.getRouter(), 4, 5000, 30000);
+			List<LatLon> sources = points.subList(0, 2);
+			List<LatLon> targets = points.subList(2, 4);
+
+			HHRoutePlanner<NetworkDBPoint> planner = HHRoutePlanner.create(ctx);
+			HHRoutingConfig config = HHRoutingConfig.astar(0);
+			config.ROUTE_LAST_MILE = true;
+			HHNetworkMatrixRes matrix = planner.runRoutingMatrix(sources, targets, config);
+			Assert.assertNull(matrix.error);
+			// matrix uses own dijkstra copy of config
+			Assert.assertEquals(1, config.HEURISTIC_COEFFICIENT, 0);
+
+			for (int s = 0; s < sources.size(); s++) {
+				for (int t = 0; t < targets.size(); t++) {
+					HHRoutingConfig routeConfig = HHRoutingConfig.dijkstra(0);
+					routeConfig.ROUTE_LAST_MILE = true;
+					HHNetworkRouteRes route = planner.runRouting(sources.get(s), targets.get(t), routeConfig);
+					Assert.assertNull(route.error);
+					double time = route.getHHRoutingTime();
+					Assert.assertEquals(s + " -> " + t, time, matrix.getTime(s, t),
+							Math.max(1, time * TIME_TOLERANCE));
+					Assert.assertTrue(matrix.getMeetPoint(s, t) >= 0);
+				}
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package net.osmand.router;
+
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.data.LatLon;
+import net.osmand.util.MapUtils;
+
+public class IsochroneBuilderTest {
+
+	private static final LatLon START = new LatLon(52.37, 4.9);
+
+	@Test
+	public void testContourWithHole() {
+		IsochroneBuilder builder = new IsochroneBuilder(START, 100, 1000);
+		int cell = builder.getCellSize();
+		int cx = MapUtils.get31TileNumberX(START.getLongitude()) / cell;
+		int cy = MapUtils.get31TileNumberY(START.getLatitude()) / cell;
+		for (int i = -1; i <= 1; i++) {
+			for (int j = -1; j <= 1; j++) {
+				builder.addPoint((cx + i) * cell + cell / 2, (cy + j) * cell + cell / 2, i == 0 && j == 0 ? 50 : 10);
+			}
+		}
+		Assert.assertEquals(9, builder.getCellsCount());
+		List<List<LatLon>> rings = builder.buildContour(20);
+		Assert.assertEquals(2, rings.size());
+		int outer = 0;
+		for (List<LatLon> ring : rings) {
+			Assert.assertEquals(5, ring.size());
+			Assert.assertEquals(ring.get(0), ring.get(ring.size() - 1));
+			if (area(ring) < 0) {
+				outer++;
+				// 3 x 3 cells
+				Assert.assertEquals(9 * cell * (double) cell, Math.abs(area31(ring)), 9 * cell * 4);
+			}
+		}
+		Assert.assertEquals(1, outer);
+		rings = builder.buildContour(60);
+		Assert.assertEquals(1, rings.size());
+		Assert.assertTrue(area(rings.get(0)) < 0);
+		Assert.assertTrue(builder.buildContour(5).isEmpty());
+	}
+
+	@Test
+	public void testCellsTouchingByCorner() {
+		IsochroneBuilder builder = new IsochroneBuilder(START, 100, 1000);
+		int cell = builder.getCellSize();
+		int cx = MapUtils.get31TileNumberX(START.getLongitude()) / cell;
+		int cy = MapUtils.get31TileNumberY(START.getLatitude()) / cell;
+		builder.addPoint(cx * cell, cy * cell, 1);
+		builder.addPoint((cx + 1) * cell, (cy + 1) * cell, 1);
+		builder.addPoint((cx + 1) * cell, (cy - 1) * cell, 1);
+		List<List<LatLon>> rings = builder.buildContour(1);
+		Assert.assertEquals(3, rings.size());
+		for (List<LatLon> ring : rings) {
+			Assert.assertEquals(5, ring.size());
+			Assert.assertTrue(area(ring) < 0);
+		}
+	}
+
+	@Test
+	public void testEdgeIsClippedByMaxTime() {
+		IsochroneBuilder builder = new IsochroneBuilder(START, 50, 100);
+		int x = MapUtils.get31TileNumberX(START.getLongitude());
+		int y = MapUtils.get31TileNumberY(START.getLatitude());
+		LatLon end = new LatLon(52.37, 4.93);
+		int ex = MapUtils.get31TileNumberX(end.getLongitude());
+		// reached at 200 seconds
+		builder.addEdge(x, y, -5, ex, y, 200);
+		Assert.assertEquals(0, builder.getTime(START), 0);
+		Assert.assertEquals(-1, builder.getTime(end), 0);
+		float middle = builder.getTime(new LatLon(52.37, 4.914));
+		Assert.assertTrue(middle > 80 && middle <= 100);
+		Assert.assertEquals(-1, builder.getTime(new LatLon(52.37, 4.916)), 0);
+		Assert.assertEquals(1, builder.buildContour(100).size());
+	}
+
+	// shoelace area with longitude as x and latitude as y, negative for clockwise rings
+	private static double area(List<LatLon> ring) {
+		double a = 0;
+		for (int i = 1; i < ring.size(); i++) {
+			a += ring.get(i - 1).getLongitude() * ring.get(i).getLatitude()
+					- ring.get(i).getLongitude() * ring.get(i - 1).getLatitude();
+		}
+		return a / 2;
+	}
+
+	private static double area31(List<LatLon> ring) {
+		double a = 0;
+		for (int i = 1; i < ring.size(); i++) {
+			double x1 = MapUtils.get31TileNumberX(ring.get(i - 1).getLongitude());
+			double y1 = MapUtils.get31TileNumberY(ring.get(i - 1).getLatitude());
+			double x2 = MapUtils.get31TileNumberX(ring.get(i).getLongitude());
+			double y2 = MapUtils.get31TileNumberY(ring.get(i).getLatitude());
+			a += x1 * y2 - x2 * y1;
+		}
+		return a / 2;
+	}
+}
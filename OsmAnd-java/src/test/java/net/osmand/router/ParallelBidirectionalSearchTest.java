@@ -0,0 +1,51 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class ParallelBidirectionalSearchTest {
+
+	// forward and reverse threads meet at other segment than sequential search
+	private static final float TIME_TOLERANCE = 0.01f;
+
+	@Test
+	public void testParallelRouteEqualsSequential() throws IOException, InterruptedException {
+		BinaryMapIndexReader reader = TestRoutingMap.open();
+		try {
+			BinaryMapIndexReader[] readers = { reader };
+			RoutingContext ctx = TestRoutingMap.createContext(readers, new LinkedHashMap<String, String>());
+			List<LatLon> points = TestRoutingMap.getRoadPoints(reader, ctx.getRouter(), 4, 1000, 10000);
+			for (int i = 1; i < points.size(); i++) {
+				ctx = TestRoutingMap.createContext(readers, new LinkedHashMap<String, String>());
+				RouteCalcResult sequential = searchRoute(ctx, points.get(0), points.get(i));
+				float sequentialTime = ctx.routingTime;
+
+				ctx = TestRoutingMap.createContext(readers, new LinkedHashMap<String, String>());
+				ctx.config.parallelBidirectionalSearch = true;
+				RouteCalcResult parallel = searchRoute(ctx, points.get(0), points.get(i));
+
+				Assert.assertTrue(sequential.isCorrect());
+				Assert.assertEquals(sequential.getError(), parallel.getError());
+				Assert.assertTrue(parallel.isCorrect());
+				Assert.assertEquals("0 -> " + i, sequentialTime, ctx.routingTime,
+						Math.max(1, sequentialTime * TIME_TOLERANCE));
+			}
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static RouteCalcResult searchRoute(RoutingContext ctx, LatLon start, LatLon end)
+			throws IOException, InterruptedException {
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return new RoutePlannerFrontEnd().searchRoute(ctx, start, end, null);
+	}
+}
@@ -0,0 +1,83 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.LocationsHolder;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutePlannerFrontEnd.GpxPoint;
+import net.osmand.router.RoutePlannerFrontEnd.GpxRouteApproximation;
+
+public class ParallelGpxApproximationTest {
+
+	private static final float MAX_STEP = 1000;
+	private static final float CHUNK_DISTANCE = 2000;
+	// chunks are approximated from own anchors, results could differ near boundaries of chunks
+	private static final double DISTANCE_TOLERANCE = 0.05;
+	private static final double UNMATCHED_PER_BOUNDARY = 2 * MAX_STEP;
+
+	@Test
+	public void testParallelApproximationIsCloseToSequential() throws IOException, InterruptedException {
+		BinaryMapIndexReader reader = TestRoutingMap.open();
+		try {
+			BinaryMapIndexReader[] readers = { reader };
+			RoutingContext ctx = createContext(readers, 0);
+			List<LatLon> ends = TestRoutingMap.getRoadPoints(reader, ctx.getRouter(), 2, 3 * CHUNK_DISTANCE,
+					6 * CHUNK_DISTANCE);
+			List<RouteSegmentResult> route = new RoutePlannerFrontEnd().searchRoute(ctx, ends.get(0), ends.get(1),
+					null).detailed;
+			List<LatLon> track = new ArrayList<LatLon>();
+			for (RouteSegmentResult r : route) {
+				int inc = r.isForwardDirection() ? 1 : -1;
+				for (int i = r.getStartPointIndex(); i != r.getEndPointIndex(); i += inc) {
+					track.add(r.getPoint(i));
+				}
+			}
+			track.add(ends.get(1));
+
+			GpxRouteApproximation sequential = approximate(createContext(readers, 0), track);
+			GpxRouteApproximation parallel = approximate(createContext(readers, 3), track);
+			Assert.assertFalse(sequential.result.isEmpty());
+			Assert.assertFalse(parallel.result.isEmpty());
+			double seqDist = getDistance(sequential.result);
+			Assert.assertEquals(seqDist, getDistance(parallel.result), seqDist * DISTANCE_TOLERANCE);
+			int boundaries = (int) (sequential.routeDistance / CHUNK_DISTANCE);
+			Assert.assertTrue(parallel.routeDistanceUnmatched
+					<= sequential.routeDistanceUnmatched + boundaries * UNMATCHED_PER_BOUNDARY);
+			// progress is reported as approximated distance of all chunks
+			Assert.assertTrue(parallel.ctx.calculationProgress.approximatedDistance <= sequential.routeDistance);
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static RoutingContext createContext(BinaryMapIndexReader[] readers, int threads) {
+		RoutingContext ctx = TestRoutingMap.createContext(readers, new LinkedHashMap<String, String>());
+		ctx.config.maxStepApproximation = MAX_STEP;
+		ctx.config.gpxApproximationChunkDistance = CHUNK_DISTANCE;
+		ctx.config.parallelGpxApproximation = threads;
+		return ctx;
+	}
+
+	private static GpxRouteApproximation approximate(RoutingContext ctx, List<LatLon> track)
+			throws IOException, InterruptedException {
+		RoutePlannerFrontEnd planner = new RoutePlannerFrontEnd();
+		GpxRouteApproximation gctx = new GpxRouteApproximation(ctx);
+		List<GpxPoint> points = planner.generateGpxPoints(gctx, new LocationsHolder(track));
+		return planner.searchGpxRouteByRouting(gctx, points, null);
+	}
+
+	private static double getDistance(List<RouteSegmentResult> route) {
+		double dist = 0;
+		for (RouteSegmentResult r : route) {
+			dist += r.getDistance();
+		}
+		return dist;
+	}
+}
@@ -0,0 +1,71 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+
+public class ParallelRouteLegsTest {
+
+	@Test
+	public void testParallelLegsEqualSequential() throws IOException, InterruptedException {
+		BinaryMapIndexReader reader = TestRoutingMap.open();
+		try {
+			BinaryMapIndexReader[] readers = { reader };
+			RoutingContext ctx = TestRoutingMap.createContext(readers, new LinkedHashMap<String, String>());
+			List<LatLon> points = TestRoutingMap.getRoadPoints(reader, ctx.getRouter(), 4, 300, 3000);
+			RouteCalcResult sequential = searchRoute(ctx, points);
+
+			ctx = TestRoutingMap.createContext(readers, new LinkedHashMap<String, String>());
+			ctx.config.parallelRouteLegs = 3;
+			RouteCalcResult parallel = searchRoute(ctx, points);
+
+			Assert.assertTrue(sequential.isCorrect());
+			Assert.assertEquals(sequential.getError(), parallel.getError());
+			Assert.assertEquals(toString(sequential.detailed), toString(parallel.detailed));
+			// progress of legs is added to progress of route
+			Assert.assertTrue(ctx.calculationProgress.visitedSegments > 0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test(expected = InterruptedException.class)
+	public void testCancelledParallelLegsAreInterrupted() throws IOException, InterruptedException {
+		BinaryMapIndexReader reader = TestRoutingMap.open();
+		try {
+			BinaryMapIndexReader[] readers = { reader };
+			RoutingContext ctx = TestRoutingMap.createContext(readers, new LinkedHashMap<String, String>());
+			List<LatLon> points = TestRoutingMap.getRoadPoints(reader, ctx.getRouter(), 4, 300, 3000);
+			ctx.config.parallelRouteLegs = 3;
+			ctx.calculationProgress = new RouteCalculationProgress();
+			ctx.calculationProgress.isCancelled = true;
+			new RoutePlannerFrontEnd().searchRoute(ctx, points.get(0), points.get(points.size() - 1),
+					points.subList(1, points.size() - 1));
+		} finally {
+			reader.close();
+		}
+	}
+
+	private static RouteCalcResult searchRoute(RoutingContext ctx, List<LatLon> points)
+			throws IOException, InterruptedException {
+		ctx.calculationProgress = new RouteCalculationProgress();
+		return new RoutePlannerFrontEnd().searchRoute(ctx, points.get(0), points.get(points.size() - 1),
+				points.subList(1, points.size() - 1));
+	}
+
+	private static String toString(List<RouteSegmentResult> route) {
+		StringBuilder sb = new StringBuilder();
+		for (RouteSegmentResult r : route) {
+			sb.append(r.getObject().getId()).append(' ').append(r.getStartPointIndex()).append('-')
+					.append(r.getEndPointIndex()).append(' ').append(r.getTurnType()).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,111 @@
+package net.osmand.router;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import gnu.trove.set.hash.TLongHashSet;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.BinaryRoutePlanner.FinalRouteSegment;
+import net.osmand.router.BinaryRoutePlanner.ReachableSegmentVisitor;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+import net.osmand.router.BinaryRoutePlanner.RouteSegmentPoint;
+
+public class ReachableSegmentsTest {
+
+	private static final float MAX_TIME = 300;
+	// streamed segments compared with routes to them
+	private static final int ROUTES_TO_CHECK = 10;
+	// route to point in the middle of segment is calculated with different final segment
+	private static final float TIME_TOLERANCE = 1;
+
+	@Test
+	public void testSegmentsAreStreamedOnceWithinTime() throws IOException, InterruptedException {
+		BinaryMapIndexReader reader = TestRoutingMap.open();
+		try {
+			RoutingContext ctx = TestRoutingMap.createContext(new BinaryMapIndexReader[] { reader },
+					new LinkedHashMap<String, String>());
+			LatLon start = TestRoutingMap.getRoadPoints(reader, ctx.getRouter(), 1, 0, 0).get(0);
+			RouteSegmentPoint pnt = new RoutePlannerFrontEnd().findRouteSegment(start.getLatitude(),
+					start.getLongitude(), ctx, null);
+			Assert.assertNotNull(pnt);
+			final TLongHashSet streamed = new TLongHashSet();
+			final int[] duplicates = new int[1];
+			final float[] maxStartTime = new float[] { Float.NEGATIVE_INFINITY };
+			int visited = new BinaryRoutePlanner().searchReachableSegments(ctx, pnt, MAX_TIME,
+					new ReachableSegmentVisitor() {
+						@Override
+						public void visitReachableSegment(RouteSegment segment, float startTime) {
+							long id = (segment.getRoad().getId() << BinaryRoutePlanner.ROUTE_POINTS)
+									+ (segment.getSegmentStart() << 1) + (segment.isPositive() ? 1 : 0);
+							if (!streamed.add(id)) {
+								duplicates[0]++;
+							}
+							maxStartTime[0] = Math.max(maxStartTime[0], startTime);
+							Assert.assertTrue(segment.distanceFromStart >= startTime);
+						}
+					});
+			Assert.assertTrue(streamed.size() > 1);
+			Assert.assertEquals(0, duplicates[0]);
+			Assert.assertTrue(maxStartTime[0] <= MAX_TIME);
+			Assert.assertTrue(streamed.size() <= visited);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Test
+	public void testStreamedTimesEqualDijkstraRoutes() throws IOException, InterruptedException {
+		BinaryMapIndexReader reader = TestRoutingMap.open();
+		try {
+			RoutingContext ctx = TestRoutingMap.createContext(new BinaryMapIndexReader[] { reader },
+					new LinkedHashMap<String, String>());
+			LatLon start = TestRoutingMap.getRoadPoints(reader, ctx.getRouter(), 1, 0, 0).get(0);
+			RouteSegmentPoint pnt = new RoutePlannerFrontEnd().findRouteSegment(start.getLatitude(),
+					start.getLongitude(), ctx, null);
+			Assert.assertNotNull(pnt);
+			final List<RouteSegment> streamed = new ArrayList<>();
+			final List<float[]> times = new ArrayList<>();
+			new BinaryRoutePlanner().searchReachableSegments(ctx, new RouteSegmentPoint(pnt), MAX_TIME,
+					new ReachableSegmentVisitor() {
+						@Override
+						public void visitReachableSegment(RouteSegment segment, float startTime) {
+							streamed.add(segment);
+							times.add(new float[] { startTime, segment.distanceFromStart });
+						}
+					});
+			Assert.assertTrue(streamed.size() > ROUTES_TO_CHECK);
+			int step = streamed.size() / ROUTES_TO_CHECK;
+			for (int i = step; i < streamed.size(); i += step) {
+				RouteSegment s = streamed.get(i);
+				RoutingContext rctx = TestRoutingMap.createContext(new BinaryMapIndexReader[] { reader },
+						new LinkedHashMap<String, String>());
+				rctx.config.heuristicCoefficient = 0;
+				RouteSegmentPoint end = new RouteSegmentPoint(s.getRoad(), s.getSegmentStart(), s.getSegmentEnd(), 0);
+				FinalRouteSegment route = new BinaryRoutePlanner().searchRouteInternal(rctx, new RouteSegmentPoint(pnt),
+						end, null);
+				Assert.assertNotNull(route);
+				// route could reach segment from other side, but not later than streamed segment ends
+				Assert.assertTrue(s + " " + route.distanceFromStart + " > " + times.get(i)[1],
+						route.distanceFromStart <= times.get(i)[1] + TIME_TOLERANCE);
+				float minStart = times.get(i)[0];
+				for (int j = 0; j < streamed.size(); j++) {
+					RouteSegment o = streamed.get(j);
+					if (o.getRoad().getId() == s.getRoad().getId()
+							&& Math.min(o.getSegmentStart(), o.getSegmentEnd()) == Math.min(s.getSegmentStart(), s.getSegmentEnd())) {
+						minStart = Math.min(minStart, times.get(j)[0]);
+					}
+				}
+				Assert.assertTrue(s + " " + route.distanceFromStart + " < " + minStart,
+						route.distanceFromStart >= minStart - TIME_TOLERANCE);
+			}
+		} finally {
+			reader.close();
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package net.osmand.router;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+
+public class RouteAttributeCacheTest {
+
+	@Test
+	public void testGetPut() {
+		RouteAttributeCache cache = new RouteAttributeCache();
+		RouteRegion r1 = new RouteRegion();
+		RouteRegion r2 = new RouteRegion();
+		Assert.assertTrue(Float.isNaN(cache.get(r1, new int[] { 1, 2 }, false)));
+		cache.put(r1, new int[] { 1, 2 }, false, 5);
+		cache.put(r1, new int[] { 1, 2 }, true, 6);
+		// keys are compared by content
+		Assert.assertEquals(5, cache.get(r1, new int[] { 1, 2 }, false), 0);
+		Assert.assertEquals(6, cache.get(r1, new int[] { 1, 2 }, true), 0);
+		Assert.assertTrue(Float.isNaN(cache.get(r1, new int[] { 2, 1 }, false)));
+		Assert.assertTrue(Float.isNaN(cache.get(r2, new int[] { 1, 2 }, false)));
+
+		for (int i = 0; i < 1000; i++) {
+			cache.put(r2, new int[] { i, i + 1 }, false, i);
+		}
+		for (int i = 0; i < 1000; i++) {
+			Assert.assertEquals(i, cache.get(r2, new int[] { i, i + 1 }, false), 0);
+		}
+		Assert.assertEquals(5, cache.get(r1, new int[] { 1, 2 }, false), 0);
+		cache.clear();
+		Assert.assertTrue(Float.isNaN(cache.get(r1, new int[] { 1, 2 }, false)));
+	}
+}
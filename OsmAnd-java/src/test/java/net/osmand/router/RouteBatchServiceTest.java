@@ -0,0 +1,200 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteBatchService.ProfileMetrics;
+import net.osmand.router.RouteBatchService.RouteRequest;
+import net.osmand.router.RouteBatchService.RouteResponse;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+public class RouteBatchServiceTest {
+
+	private static final String ROUTING_XML = "<osmand_routing_config defaultProfile=\"car\">"
+			+ "<routingProfile name=\"car\" baseProfile=\"car\"/></osmand_routing_config>";
+	private static final long HOUR = 60 * 60 * 1000;
+	private static final long WAIT_MS = 5000;
+
+	private File file;
+	private BinaryMapIndexReader reader;
+	private BlockingPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("batch", ".obf");
+		reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file, false);
+		RoutingConfiguration.Builder builder = RoutingConfiguration
+				.parseFromInputStream(new ByteArrayInputStream(ROUTING_XML.getBytes("UTF-8")));
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		pool = new BlockingPool(builder, memoryLimits, new BinaryMapIndexReader[] { reader });
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		pool.resume.countDown();
+		pool.close();
+		reader.close();
+		file.delete();
+	}
+
+	@Test
+	public void testProfileMetrics() {
+		ProfileMetrics m = new ProfileMetrics();
+		Assert.assertEquals(0, m.getThroughput(), 0);
+		Assert.assertEquals(0, m.getLatencyPercentileMs(50));
+		// 100 requests: 1..100 ms, 10 requests at the same time
+		for (int i = 1; i <= 100; i++) {
+			m.addRequest(1000 + (i - 1) / 10 * 100, i, i % 20 == 0);
+		}
+		Assert.assertEquals(100, m.getRequests());
+		Assert.assertEquals(5, m.getErrors());
+		Assert.assertEquals(50.5, m.getAverageLatencyMs(), 1e-9);
+		Assert.assertEquals(100, m.getMaxLatencyMs());
+		// from 1000 ms till 1900 + 100 ms
+		Assert.assertEquals(100, m.getThroughput(), 1e-9);
+		long p50 = m.getLatencyPercentileMs(50);
+		Assert.assertTrue(p50 >= 50 && p50 < 100);
+		Assert.assertEquals(100, m.getLatencyPercentileMs(95));
+		Assert.assertEquals(1, m.getLatencyPercentileMs(1));
+		Assert.assertEquals(100, m.getLatencyPercentileMs(100));
+	}
+
+	@Test
+	public void testSubmitBlocksWhenAllRequestsArePending() throws Exception {
+		final RouteBatchService service = new RouteBatchService(pool, 1, 1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			// one request is calculated (waits in pool) and one is queued
+			Future<RouteResponse> r1 = service.submit(request());
+			Future<RouteResponse> r2 = service.submit(request());
+			Future<Future<RouteResponse>> r3 = executor.submit(new Callable<Future<RouteResponse>>() {
+				@Override
+				public Future<RouteResponse> call() throws Exception {
+					return service.submit(request());
+				}
+			});
+			try {
+				r3.get(100, TimeUnit.MILLISECONDS);
+				Assert.fail();
+			} catch (TimeoutException e) {
+				// no free permits
+			}
+			Assert.assertEquals(1, pool.acquired.get());
+			pool.resume.countDown();
+			r1.get(WAIT_MS, TimeUnit.MILLISECONDS);
+			r2.get(WAIT_MS, TimeUnit.MILLISECONDS);
+			r3.get(WAIT_MS, TimeUnit.MILLISECONDS).get(WAIT_MS, TimeUnit.MILLISECONDS);
+			Assert.assertEquals(3, pool.acquired.get());
+			Assert.assertEquals(3, pool.released.get());
+			Assert.assertEquals(3, service.getMetrics("car").getRequests());
+		} finally {
+			executor.shutdownNow();
+			service.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancelledRouteReleasesPermitAndContext() throws Exception {
+		final RouteBatchService service = new RouteBatchService(pool, 1, 0);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<RouteResponse> cancelled = service.submit(request());
+			waitFor(pool.acquired, 1);
+			RoutingContext ctx = pool.last;
+			Assert.assertTrue(cancelled.cancel(true));
+			pool.resume.countDown();
+			waitFor(pool.released, 1);
+			// permit of cancelled request is released
+			Future<Future<RouteResponse>> next = executor.submit(new Callable<Future<RouteResponse>>() {
+				@Override
+				public Future<RouteResponse> call() throws Exception {
+					return service.submit(request());
+				}
+			});
+			next.get(WAIT_MS, TimeUnit.MILLISECONDS).get(WAIT_MS, TimeUnit.MILLISECONDS);
+			// context of cancelled request is reused
+			Assert.assertSame(ctx, pool.last);
+			Assert.assertEquals(2, pool.released.get());
+			Assert.assertEquals(1, pool.getContextsCount());
+		} finally {
+			executor.shutdownNow();
+			service.shutdown();
+		}
+	}
+
+	private static RouteRequest request() {
+		Map<String, String> params = Collections.emptyMap();
+		return new RouteRequest("car", params, new LatLon(52.37, 4.89), new LatLon(52.38, 4.9), null);
+	}
+
+	private static void waitFor(AtomicInteger counter, int value) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + WAIT_MS;
+		while (counter.get() < value) {
+			Assert.assertTrue(System.currentTimeMillis() < deadline);
+			Thread.sleep(10);
+		}
+	}
+
+	/**
+	 * Pool holding acquired context till resumed, so requests stay pending
+	 */
+	private static class BlockingPool extends RoutingContextPool {
+		final CountDownLatch resume = new CountDownLatch(1);
+		final AtomicInteger acquired = new AtomicInteger();
+		final AtomicInteger released = new AtomicInteger();
+		volatile RoutingContext last;
+
+		BlockingPool(RoutingConfiguration.Builder builder, RoutingMemoryLimits memoryLimits,
+				BinaryMapIndexReader[] maps) {
+			super(builder, memoryLimits, maps, 1, 1, HOUR);
+		}
+
+		@Override
+		public RoutingContext acquire(String profile, Map<String, String> params)
+				throws IOException, InterruptedException {
+			RoutingContext ctx = super.acquire(profile, params);
+			last = ctx;
+			acquired.incrementAndGet();
+			// interrupt of cancelled request is kept, context is returned after route calculation
+			boolean interrupted = false;
+			while (true) {
+				try {
+					resume.await();
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+			return ctx;
+		}
+
+		@Override
+		public void release(RoutingContext ctx) {
+			super.release(ctx);
+			released.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.router.BinaryRoutePlanner.PriorityQueueSegments;
+import net.osmand.router.BinaryRoutePlanner.RouteSegment;
+
+public class RouteSegmentHeapTest {
+
+	@Test
+	public void testSameOrderAsPriorityQueue() {
+		Random rnd = new Random(7);
+		RouteSegmentHeap heap = new RouteSegmentHeap(4);
+		PriorityQueueSegments queue = new PriorityQueueSegments();
+		for (int it = 0; it < 20000; it++) {
+			if (rnd.nextInt(3) > 0 || queue.isEmpty()) {
+				RouteSegment s = new RouteSegment(null, 0, 1);
+				// coarse costs to have many equal keys
+				float cost = rnd.nextInt(500) / 4f;
+				heap.add(s, cost);
+				queue.add(s, cost);
+			} else {
+				Assert.assertEquals(queue.peekCost(), heap.peekCost(), 0);
+				Assert.assertSame(queue.poll(), heap.poll());
+			}
+			Assert.assertEquals(queue.size(), heap.size());
+		}
+		while (!queue.isEmpty()) {
+			Assert.assertSame(queue.poll(), heap.poll());
+		}
+		Assert.assertTrue(heap.isEmpty());
+		Assert.assertNull(heap.poll());
+	}
+
+	@Test
+	public void testDecreaseKey() {
+		Random rnd = new Random(11);
+		RouteSegmentHeap heap = new RouteSegmentHeap();
+		List<RouteSegment> segments = new ArrayList<>();
+		float[] costs = new float[1000];
+		for (int i = 0; i < costs.length; i++) {
+			RouteSegment s = new RouteSegment(null, 0, 1);
+			segments.add(s);
+			costs[i] = 1000 + rnd.nextFloat() * 1000;
+			heap.add(s, costs[i]);
+		}
+		for (int i = 0; i < costs.length; i += 3) {
+			// only lower cost is applied
+			float c = rnd.nextFloat() * 1500;
+			heap.add(segments.get(i), c);
+			costs[i] = Math.min(costs[i], c);
+			// increase is ignored
+			heap.add(segments.get(i), costs[i] + 5000);
+		}
+		Assert.assertEquals(costs.length, heap.size());
+		float last = Float.NEGATIVE_INFINITY;
+		while (!heap.isEmpty()) {
+			float c = heap.peekCost();
+			RouteSegment s = heap.poll();
+			Assert.assertTrue(c >= last);
+			Assert.assertEquals(costs[segments.indexOf(s)], c, 0);
+			last = c;
+		}
+	}
+}
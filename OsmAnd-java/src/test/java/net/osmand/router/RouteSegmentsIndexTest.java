@@ -0,0 +1,93 @@
+package net.osmand.router;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.QuadPointDouble;
+import net.osmand.router.RouteSegmentsIndex.SegmentProjection;
+import net.osmand.util.MapUtils;
+
+public class RouteSegmentsIndexTest {
+
+	@Test
+	public void testNearestSegmentMatchesLinearScan() {
+		Random r = new Random(11);
+		RouteRegion region = new RouteRegion();
+		// Amsterdam and close to equator
+		int[][] centers = { { MapUtils.get31TileNumberX(4.9), MapUtils.get31TileNumberY(52.37) },
+				{ MapUtils.get31TileNumberX(30), MapUtils.get31TileNumberY(0.001) } };
+		for (int[] center : centers) {
+			List<RouteDataObject> roads = new ArrayList<RouteDataObject>();
+			for (int i = 0; i < 200; i++) {
+				roads.add(createRoad(region, r, i, center[0], center[1], 1 + r.nextInt(i % 10 == 0 ? 300 : 20)));
+			}
+			// zig zag road with equal distances to segments
+			RouteDataObject zigzag = new RouteDataObject(region);
+			zigzag.id = 1000;
+			zigzag.pointsX = new int[40];
+			zigzag.pointsY = new int[40];
+			for (int i = 0; i < 40; i++) {
+				zigzag.pointsX[i] = center[0] + (i % 2) * 1000;
+				zigzag.pointsY[i] = center[1];
+			}
+			roads.add(zigzag);
+			RouteSegmentsIndex index = new RouteSegmentsIndex(roads);
+			Assert.assertEquals(roads.size(), index.getRoadsCount());
+			SegmentProjection projection = new SegmentProjection();
+			for (int k = 0; k < 300; k++) {
+				int px = center[0] + r.nextInt(40000) - 20000;
+				int py = center[1] + r.nextInt(40000) - 20000;
+				if (k == 0) {
+					px = center[0] + 500;
+					py = center[1] + 100;
+				}
+				for (int i = 0; i < roads.size(); i++) {
+					RouteDataObject road = roads.get(i);
+					int expected = -1;
+					double expectedDist = 0;
+					int ex = 0, ey = 0;
+					for (int j = 1; j < road.getPointsLength(); j++) {
+						QuadPointDouble pr = MapUtils.getProjectionPoint31(px, py, road.getPoint31XTile(j - 1),
+								road.getPoint31YTile(j - 1), road.getPoint31XTile(j), road.getPoint31YTile(j));
+						double d = MapUtils.squareDist31TileMetric((int) pr.x, (int) pr.y, px, py);
+						if (expected == -1 || d < expectedDist) {
+							expected = j;
+							expectedDist = d;
+							ex = (int) pr.x;
+							ey = (int) pr.y;
+						}
+					}
+					int end = index.findNearestSegment(i, px, py, projection);
+					Assert.assertEquals(expected, end);
+					if (end > 0) {
+						Assert.assertEquals(expectedDist, projection.distSquare, 0);
+						Assert.assertEquals(ex, projection.x);
+						Assert.assertEquals(ey, projection.y);
+					}
+				}
+			}
+		}
+	}
+
+	private static RouteDataObject createRoad(RouteRegion region, Random r, long id, int cx, int cy, int points) {
+		RouteDataObject road = new RouteDataObject(region);
+		road.id = id;
+		road.pointsX = new int[points];
+		road.pointsY = new int[points];
+		int x = cx + r.nextInt(30000) - 15000;
+		int y = cy + r.nextInt(30000) - 15000;
+		for (int i = 0; i < points; i++) {
+			road.pointsX[i] = x;
+			road.pointsY[i] = y;
+			x += r.nextInt(400) - 200;
+			y += r.nextInt(400) - 200;
+		}
+		return road;
+	}
+}
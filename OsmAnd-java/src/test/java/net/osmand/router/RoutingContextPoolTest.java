@@ -0,0 +1,172 @@
+package net.osmand.router;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
+import net.osmand.router.RouteResultPreparation.RouteCalcResult;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+
+public class RoutingContextPoolTest {
+
+	private static final String ROUTING_XML = "<osmand_routing_config defaultProfile=\"car\">"
+			+ "<routingProfile name=\"car\" baseProfile=\"car\"/></osmand_routing_config>";
+	private static final long HOUR = 60 * 60 * 1000;
+
+	private File file;
+	private BinaryMapIndexReader reader;
+	private RoutingConfiguration.Builder builder;
+	private RoutingMemoryLimits memoryLimits;
+
+	@Before
+	public void setUp() throws Exception {
+		file = File.createTempFile("pool", ".obf");
+		reader = new BinaryMapIndexReader(new RandomAccessFile(file, "r"), file, false);
+		builder = RoutingConfiguration.parseFromInputStream(new ByteArrayInputStream(ROUTING_XML.getBytes("UTF-8")));
+		memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		reader.close();
+		file.delete();
+	}
+
+	@Test
+	public void testReleasedContextIsReused() throws Exception {
+		RoutingContextPool pool = createPool(2, 4, HOUR);
+		RoutingContext ctx = pool.acquire("car", params(1));
+		pool.release(ctx);
+		Assert.assertSame(ctx, pool.acquire("car", params(1)));
+		Assert.assertEquals(1, pool.getContextsCount());
+		pool.release(ctx);
+		pool.close();
+		Assert.assertEquals(0, pool.getContextsCount());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedIsClosedOverLimit() throws Exception {
+		RoutingContextPool pool = createPool(2, 2, HOUR);
+		RoutingContext c1 = pool.acquire("car", params(1));
+		RoutingContext c2 = pool.acquire("car", params(2));
+		pool.release(c1);
+		pool.release(c2);
+		RoutingContext c3 = pool.acquire("car", params(3));
+		Assert.assertEquals(2, pool.getContextsCount());
+		// key of closed context is removed
+		Assert.assertEquals(2, pool.getKeysCount());
+		pool.release(c3);
+		Assert.assertSame(c2, pool.acquire("car", params(2)));
+		Assert.assertNotSame(c1, pool.acquire("car", params(1)));
+		Assert.assertEquals(2, pool.getContextsCount());
+		pool.close();
+	}
+
+	@Test
+	public void testIdleContextsAreClosed() throws Exception {
+		RoutingContextPool pool = createPool(2, 4, 1);
+		pool.release(pool.acquire("car", params(1)));
+		Thread.sleep(10);
+		RoutingContext c2 = pool.acquire("car", params(2));
+		Assert.assertEquals(1, pool.getContextsCount());
+		Assert.assertEquals(1, pool.getKeysCount());
+		pool.release(c2);
+		pool.close();
+	}
+
+	@Test
+	public void testAcquireWaitsWhenAllContextsAreUsed() throws Exception {
+		final RoutingContextPool pool = createPool(2, 1, HOUR);
+		RoutingContext c1 = pool.acquire("car", params(1));
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<RoutingContext> c2 = executor.submit(new Callable<RoutingContext>() {
+				@Override
+				public RoutingContext call() throws Exception {
+					return pool.acquire("car", params(2));
+				}
+			});
+			try {
+				c2.get(100, TimeUnit.MILLISECONDS);
+				Assert.fail();
+			} catch (TimeoutException e) {
+				// all contexts are in use
+			}
+			pool.release(c1);
+			pool.release(c2.get(5, TimeUnit.SECONDS));
+			Assert.assertEquals(1, pool.getContextsCount());
+		} finally {
+			executor.shutdownNow();
+			pool.close();
+		}
+	}
+
+	@Test
+	public void testRouteOfReusedContextEqualsFreshContext() throws Exception {
+		BinaryMapIndexReader map = TestRoutingMap.open();
+		try {
+			RoutingContext fresh = TestRoutingMap.createContext(new BinaryMapIndexReader[] { map },
+					new LinkedHashMap<String, String>());
+			List<LatLon> points = TestRoutingMap.getRoadPoints(map, fresh.getRouter(), 3, 300, 3000);
+			RouteCalcResult expected = new RoutePlannerFrontEnd().searchRoute(fresh, points.get(0), points.get(1),
+					null);
+			Assert.assertTrue(expected.isCorrect());
+
+			RoutingContextPool pool = new RoutingContextPool(RoutingConfiguration.getDefault(), memoryLimits,
+					new BinaryMapIndexReader[] { map }, 1, 1, HOUR);
+			try {
+				RoutingContext ctx = pool.acquire("car", null);
+				// previous route leaves visited segments in loaded tiles
+				new RoutePlannerFrontEnd().searchRoute(ctx, points.get(2), points.get(1), null);
+				pool.release(ctx);
+				RoutingContext reused = pool.acquire("car", null);
+				Assert.assertSame(ctx, reused);
+				RouteCalcResult res = new RoutePlannerFrontEnd().searchRoute(reused, points.get(0), points.get(1),
+						null);
+				pool.release(reused);
+				Assert.assertEquals(toString(expected.detailed), toString(res.detailed));
+			} finally {
+				pool.close();
+			}
+		} finally {
+			map.close();
+		}
+	}
+
+	private RoutingContextPool createPool(int maxContextsPerKey, int maxContexts, long maxIdleTimeMs) {
+		return new RoutingContextPool(builder, memoryLimits, new BinaryMapIndexReader[] { reader },
+				maxContextsPerKey, maxContexts, maxIdleTimeMs);
+	}
+
+	private static Map<String, String> params(int value) {
+		return Collections.singletonMap("test", String.valueOf(value));
+	}
+
+	private static String toString(List<RouteSegmentResult> route) {
+		StringBuilder sb = new StringBuilder();
+		for (RouteSegmentResult r : route) {
+			sb.append(r.getObject().getId()).append(' ').append(r.getStartPointIndex()).append('-')
+					.append(r.getEndPointIndex()).append(' ').append(r.getTurnType()).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,185 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+
+public class RoutingTileCacheTest {
+
+	private static final int ROADS_PER_TILE = 10;
+
+	private File file;
+	private TestReader reader;
+	private final RouteRegion region = new RouteRegion();
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("tiles", ".obf");
+		reader = new TestReader(file);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		reader.close();
+		file.delete();
+	}
+
+	@Test
+	public void testTileIsDecodedOnce() throws IOException {
+		RoutingTileCache cache = new RoutingTileCache(1 << 20);
+		RouteSubregion sub = subregion(100);
+		List<RouteDataObject> first = cache.loadRouteIndexData(reader, sub);
+		// other subregion object of the same tile
+		List<RouteDataObject> second = cache.loadRouteIndexData(reader, subregion(100));
+		Assert.assertSame(first, second);
+		Assert.assertEquals(ROADS_PER_TILE, first.size());
+		Assert.assertEquals(1, reader.loads.get());
+		Assert.assertEquals(1, cache.getMisses());
+		Assert.assertEquals(1, cache.getHits());
+		Assert.assertEquals(1, cache.getTilesCount());
+		Assert.assertTrue(cache.getSize() > 0);
+
+		// tiles of other region are not shared
+		RouteSubregion other = new RouteSubregion(new RouteRegion());
+		other.filePointer = 100;
+		Assert.assertNotSame(first, cache.loadRouteIndexData(reader, other));
+		Assert.assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedTileIsEvicted() throws IOException {
+		RoutingTileCache probe = new RoutingTileCache(Long.MAX_VALUE);
+		probe.loadRouteIndexData(reader, subregion(1));
+		long tileSize = probe.getSize();
+
+		RoutingTileCache cache = new RoutingTileCache(2 * tileSize + tileSize / 2);
+		List<RouteDataObject> a = cache.loadRouteIndexData(reader, subregion(1));
+		cache.loadRouteIndexData(reader, subregion(2));
+		// a becomes most recently used
+		Assert.assertSame(a, cache.loadRouteIndexData(reader, subregion(1)));
+		cache.loadRouteIndexData(reader, subregion(3));
+		Assert.assertEquals(1, cache.getEvictions());
+		Assert.assertEquals(2, cache.getTilesCount());
+		Assert.assertEquals(2 * tileSize, cache.getSize());
+
+		int loads = reader.loads.get();
+		Assert.assertSame(a, cache.loadRouteIndexData(reader, subregion(1)));
+		Assert.assertEquals(loads, reader.loads.get());
+		// evicted tile is decoded again
+		cache.loadRouteIndexData(reader, subregion(2));
+		Assert.assertEquals(loads + 1, reader.loads.get());
+		Assert.assertEquals(2, cache.getEvictions());
+
+		cache.clear();
+		Assert.assertEquals(0, cache.getTilesCount());
+		Assert.assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testConcurrentRequestsWaitForDecodedTile() throws Exception {
+		final RoutingTileCache cache = new RoutingTileCache(1 << 20);
+		reader.block = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Future<List<RouteDataObject>>> res = new ArrayList<>();
+			for (int i = 0; i < 2; i++) {
+				res.add(executor.submit(new Callable<List<RouteDataObject>>() {
+					@Override
+					public List<RouteDataObject> call() throws Exception {
+						return cache.loadRouteIndexData(reader, subregion(5));
+					}
+				}));
+			}
+			while (cache.getHits() + cache.getMisses() < 2) {
+				Thread.sleep(10);
+			}
+			reader.block.countDown();
+			Assert.assertSame(res.get(0).get(5, TimeUnit.SECONDS), res.get(1).get(5, TimeUnit.SECONDS));
+			Assert.assertEquals(1, reader.loads.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testClearDuringDecode() throws Exception {
+		final RoutingTileCache cache = new RoutingTileCache(1 << 20);
+		reader.block = new CountDownLatch(1);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<List<RouteDataObject>> res = executor.submit(new Callable<List<RouteDataObject>>() {
+				@Override
+				public List<RouteDataObject> call() throws Exception {
+					return cache.loadRouteIndexData(reader, subregion(7));
+				}
+			});
+			while (cache.getMisses() < 1) {
+				Thread.sleep(10);
+			}
+			cache.clear();
+			reader.block.countDown();
+			Assert.assertEquals(ROADS_PER_TILE, res.get(5, TimeUnit.SECONDS).size());
+			// decoded tile isn't counted by cleared cache
+			Assert.assertEquals(0, cache.getTilesCount());
+			Assert.assertEquals(0, cache.getSize());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private RouteSubregion subregion(long filePointer) {
+		RouteSubregion sub = new RouteSubregion(region);
+		sub.filePointer = filePointer;
+		return sub;
+	}
+
+	private static class TestReader extends BinaryMapIndexReader {
+		final AtomicInteger loads = new AtomicInteger();
+		volatile CountDownLatch block;
+
+		TestReader(File f) throws IOException {
+			super(new RandomAccessFile(f, "r"), f, false);
+		}
+
+		@Override
+		public List<RouteDataObject> loadRouteIndexData(RouteSubregion rs) throws IOException {
+			loads.incrementAndGet();
+			if (block != null) {
+				try {
+					block.await();
+				} catch (InterruptedException e) {
+					throw new IOException(e);
+				}
+			}
+			List<RouteDataObject> res = new ArrayList<>();
+			for (int i = 0; i < ROADS_PER_TILE; i++) {
+				RouteDataObject ro = new RouteDataObject(rs.routeReg);
+				ro.id = rs.filePointer * ROADS_PER_TILE + i;
+				ro.pointsX = new int[] { i, i + 1 };
+				ro.pointsY = new int[] { i, i + 1 };
+				ro.types = new int[0];
+				res.add(ro);
+			}
+			return res;
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package net.osmand.router;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.binary.BinaryMapIndexReader.SearchRequest;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteRegion;
+import net.osmand.binary.BinaryMapRouteReaderAdapter.RouteSubregion;
+import net.osmand.binary.RouteDataObject;
+import net.osmand.data.LatLon;
+import net.osmand.router.RoutingConfiguration.RoutingMemoryLimits;
+import net.osmand.util.MapUtils;
+
+/**
+ * Map of routing tests (collected to src/test/resources/routing by collectTestResources)
+ * and points of its roads, so tests of route search don't depend on coordinates of test cases.
+ */
+class TestRoutingMap {
+
+	static final String FILE = "src/test/resources/routing/Routing_test_archive.obf";
+
+	static BinaryMapIndexReader open() throws IOException {
+		File f = new File(FILE);
+		return new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f);
+	}
+
+	static RoutingContext createContext(BinaryMapIndexReader[] readers, Map<String, String> params) {
+		RoutingMemoryLimits memoryLimits = new RoutingMemoryLimits(RoutingConfiguration.DEFAULT_MEMORY_LIMIT * 3,
+				RoutingConfiguration.DEFAULT_NATIVE_MEMORY_LIMIT);
+		RoutingConfiguration config = RoutingConfiguration.getDefault().build("car", memoryLimits, params);
+		RoutingContext ctx = new RoutePlannerFrontEnd().buildRoutingContext(config, null, readers,
+				RoutePlannerFrontEnd.RouteCalculationMode.NORMAL);
+		ctx.leftSideNavigation = false;
+		return ctx;
+	}
+
+	/**
+	 * @return first point of the first road accepted by router and first points of other roads of the same
+	 *         data block which are from minDist to maxDist meters from it (at most count points)
+	 */
+	static List<LatLon> getRoadPoints(BinaryMapIndexReader reader, VehicleRouter router, int count,
+			double minDist, double maxDist) throws IOException {
+		SearchRequest<RouteDataObject> req = BinaryMapIndexReader.buildSearchRouteRequest(0, Integer.MAX_VALUE, 0,
+				Integer.MAX_VALUE, null);
+		for (RouteRegion reg : reader.getRoutingIndexes()) {
+			for (RouteSubregion sub : reader.searchRouteIndexTree(req, reg.getSubregions())) {
+				List<LatLon> points = new ArrayList<LatLon>();
+				for (RouteDataObject road : reader.loadRouteIndexData(sub)) {
+					if (road.getPointsLength() < 2 || !router.acceptLine(road)) {
+						continue;
+					}
+					LatLon p = new LatLon(MapUtils.get31LatitudeY(road.getPoint31YTile(0)),
+							MapUtils.get31LongitudeX(road.getPoint31XTile(0)));
+					if (points.isEmpty()) {
+						points.add(p);
+					} else {
+						double dist = MapUtils.getDistance(points.get(0), p);
+						if (dist >= minDist && dist <= maxDist) {
+							points.add(p);
+						}
+					}
+					if (points.size() == count) {
+						return points;
+					}
+				}
+			}
+		}
+		throw new IllegalStateException("Test map doesn't have " + count + " road points");
+	}
+}
@@ -0,0 +1,236 @@
+package net.osmand.search;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.osmand.ResultMatcher;
+import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.search.SearchUICore.SearchResultMatcher;
+import net.osmand.search.core.ObjectType;
+import net.osmand.search.core.SearchCoreFactory.OfflineIndexSearch;
+import net.osmand.search.core.SearchCoreFactory.SearchBaseAPI;
+import net.osmand.search.core.SearchPhrase;
+import net.osmand.search.core.SearchSettings;
+
+public class ParallelOfflineIndexSearchTest {
+
+	private static final int FILES = 6;
+	private static final int LIMIT = 12;
+
+	private final List<File> files = new ArrayList<>();
+	private final List<BinaryMapIndexReader> readers = new ArrayList<>();
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws IOException {
+		for (int i = 0; i < FILES; i++) {
+			File f = File.createTempFile("search" + i, ".obf");
+			files.add(f);
+			readers.add(new BinaryMapIndexReader(new RandomAccessFile(f, "r"), f, false));
+		}
+		executor = Executors.newFixedThreadPool(3);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		executor.shutdownNow();
+		for (BinaryMapIndexReader r : readers) {
+			r.close();
+		}
+		for (File f : files) {
+			f.delete();
+		}
+	}
+
+	@Test
+	public void testParallelSearchEqualsSequential() throws IOException {
+		TestSearch sequential = new TestSearch(false);
+		search(sequential, null, new AtomicInteger());
+		TestSearch parallel = new TestSearch(false);
+		search(parallel, executor, new AtomicInteger());
+		Assert.assertFalse(sequential.published.isEmpty());
+		Assert.assertEquals(sequential.published, parallel.published);
+		// files are searched in parallel, but objects of file are read only till limit is reached
+		int[] accepted = new int[FILES];
+		for (String s : parallel.read) {
+			if (parallel.isAccepted(s)) {
+				accepted[Integer.parseInt(s.substring(0, s.indexOf(':')))]++;
+			}
+		}
+		for (int a : accepted) {
+			Assert.assertTrue(a <= LIMIT);
+		}
+	}
+
+	@Test
+	public void testCancelWaitsForWorkers() throws IOException {
+		AtomicInteger requestNumber = new AtomicInteger();
+		TestSearch search = new TestSearch(true);
+		search.cancelRequest = requestNumber;
+		search(search, executor, requestNumber);
+		Assert.assertTrue(search.published.isEmpty());
+		// nothing reads files after search returns
+		Assert.assertEquals(0, search.running.get());
+	}
+
+	@Test
+	public void testPreviousExecutorIsNotShutDown() throws IOException {
+		SearchUICore core = new SearchUICore(null, "en", false);
+		core.setParallelSearch(3);
+		ExecutorService previous = core.getOfflineIndexesExecutor();
+		core.setParallelSearch(2);
+		Assert.assertNotSame(previous, core.getOfflineIndexesExecutor());
+		// search started before change keeps submitting files to its executor
+		TestSearch sequential = new TestSearch(false);
+		search(sequential, null, new AtomicInteger());
+		TestSearch parallel = new TestSearch(false);
+		search(parallel, previous, new AtomicInteger());
+		Assert.assertEquals(sequential.published, parallel.published);
+		core.setParallelSearch(1);
+		Assert.assertFalse(core.isParallelSearch());
+	}
+
+	@Test
+	public void testFailureWaitsForWorkers() {
+		TestSearch search = new TestSearch(true);
+		search.fail = true;
+		try {
+			search(search, executor, new AtomicInteger());
+			Assert.fail();
+		} catch (IOException e) {
+			Assert.assertEquals("failed", e.getMessage());
+		}
+		Assert.assertEquals(0, search.running.get());
+	}
+
+	private void search(TestSearch search, ExecutorService executor, AtomicInteger requestNumber) throws IOException {
+		SearchPhrase phrase = SearchPhrase.emptyPhrase(new SearchSettings(readers));
+		SearchResultMatcher rm = new SearchResultMatcher(null, phrase, requestNumber.get(), requestNumber, -1);
+		rm.setOfflineIndexesExecutor(executor);
+		new TestAPI().search(phrase, rm, search);
+	}
+
+	private static class TestAPI extends SearchBaseAPI {
+
+		TestAPI() {
+			super(ObjectType.POI);
+		}
+
+		void search(SearchPhrase phrase, SearchResultMatcher rm, TestSearch search) throws IOException {
+			searchOfflineIndexes(phrase, phrase.getOfflineIndexes().iterator(), rm, search);
+		}
+
+		@Override
+		public boolean search(SearchPhrase phrase, SearchResultMatcher resultMatcher) {
+			return false;
+		}
+
+		@Override
+		public int getSearchPriority(SearchPhrase p) {
+			return -1;
+		}
+
+		@Override
+		public boolean isSearchMoreAvailable(SearchPhrase phrase) {
+			return false;
+		}
+	}
+
+	private class TestSearch extends OfflineIndexSearch<String> {
+		final List<String> published = new ArrayList<>();
+		final List<String> read = new ArrayList<>();
+		final AtomicInteger running = new AtomicInteger();
+		// files are read till search is cancelled (by request number) or failed
+		final boolean endless;
+		AtomicInteger cancelRequest;
+		boolean fail;
+		int accepted;
+
+		TestSearch(boolean endless) {
+			this.endless = endless;
+		}
+
+		@Override
+		protected ResultMatcher<String> getMatcher(BinaryMapIndexReader r) {
+			return new ResultMatcher<String>() {
+				@Override
+				public boolean publish(String object) {
+					if (isAccepted(object)) {
+						accepted++;
+						published.add(object);
+					}
+					return true;
+				}
+
+				@Override
+				public boolean isCancelled() {
+					return accepted >= LIMIT;
+				}
+			};
+		}
+
+		@Override
+		protected void search(BinaryMapIndexReader r, ResultMatcher<String> matcher) throws IOException {
+			running.incrementAndGet();
+			try {
+				int file = readers.indexOf(r);
+				for (int k = 0; endless || k < (file + 1) * 7; k++) {
+					if (matcher.isCancelled()) {
+						break;
+					}
+					if (endless && file == 0 && k == 50) {
+						if (fail) {
+							throw new IOException("failed");
+						}
+						cancelRequest.incrementAndGet();
+					}
+					String object = file + ":" + k;
+					synchronized (read) {
+						read.add(object);
+					}
+					matcher.publish(object);
+					if (k % 5 == file % 5) {
+						sleep();
+					}
+				}
+			} finally {
+				running.decrementAndGet();
+			}
+		}
+
+		@Override
+		protected void fileFinished(BinaryMapIndexReader r) {
+			published.add("finished " + readers.indexOf(r));
+			accepted = 0;
+		}
+
+		@Override
+		protected int getLimit() {
+			return endless ? -1 : LIMIT;
+		}
+
+		@Override
+		protected boolean isAccepted(String object) {
+			return !object.endsWith("0");
+		}
+	}
+
+	private static void sleep() throws IOException {
+		try {
+			Thread.sleep(1);
+		} catch (InterruptedException e) {
+			throw new IOException(e);
+		}
+	}
+}
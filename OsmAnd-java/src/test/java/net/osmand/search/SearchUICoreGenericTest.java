@@ -42,6 +42,28 @@ public class SearchUICoreGenericTest {
 		Assert.assertSame(b2, cll.getCurrentSearchResults().get(2));
 	}
 	
+	@Test
+	public void testPhraseRefinement() {
+		SearchSettings ss = new SearchSettings((SearchSettings)null);
+		ss = ss.setOriginalLocation(new LatLon(0, 0));
+		SearchPhrase empty = SearchPhrase.emptyPhrase(ss);
+		SearchPhrase ba = empty.generateNewPhrase("ba", ss);
+		Assert.assertTrue(ba.generateNewPhrase("bar", ss).isRefinementOf(ba));
+		Assert.assertFalse(ba.isRefinementOf(ba));
+		Assert.assertFalse(ba.generateNewPhrase("bx", ss).isRefinementOf(ba));
+		// completed word is matched exactly
+		Assert.assertTrue(ba.generateNewPhrase("ba ", ss).isRefinementOf(ba));
+		// new word changes search
+		Assert.assertFalse(ba.generateNewPhrase("ba c", ss).isRefinementOf(ba));
+		SearchPhrase bac = ba.generateNewPhrase("ba ", ss);
+		Assert.assertFalse(bac.generateNewPhrase("ba c", ss).isRefinementOf(bac));
+		// settings recreated with the same location
+		Assert.assertTrue(ba.generateNewPhrase("bar", ss.setOriginalLocation(new LatLon(0, 0))).isRefinementOf(ba));
+		// other settings
+		Assert.assertFalse(ba.generateNewPhrase("bar", ss.setRadiusLevel(2)).isRefinementOf(ba));
+		Assert.assertFalse(empty.generateNewPhrase("a", ss).isRefinementOf(empty));
+	}
+
 	@Test
 	public void testNoResort() throws IOException {
 		SearchSettings ss = new SearchSettings((SearchSettings)null);
@@ -2,6 +2,7 @@ package net.osmand.search;
 
 import net.osmand.ResultMatcher;
 import net.osmand.binary.BinaryMapIndexReader;
+import net.osmand.data.LatLon;
 import net.osmand.osm.AbstractPoiType;
 import net.osmand.osm.MapPoiTypes;
 import net.osmand.search.SearchUICore.SearchResultCollection;
@@ -92,20 +93,7 @@ public class SearchUICoreTest {
 		Assert.assertTrue(sourceJsonText.length() > 0);
 
 		JSONObject sourceJson = new JSONObject(sourceJsonText);
-		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
-		String singlePhrase = sourceJson.optString("phrase", null);
-		List<String> phrases = new ArrayList<>();
-		if (singlePhrase != null) {
-			phrases.add(singlePhrase);
-		}
-		if (phrasesJson != null) {
-			for (int i = 0; i < phrasesJson.length(); i++) {
-				String phrase = phrasesJson.optString(i);
-				if (phrase != null) {
-					phrases.add(phrase);
-				}
-			}
-		}
+		List<String> phrases = parsePhrases(sourceJson);
 		JSONObject settingsJson = sourceJson.getJSONObject("settings");
 		BinaryMapIndexReader reader = null;
 		boolean useData = settingsJson.optBoolean("useData", true);
@@ -116,14 +104,7 @@ public class SearchUICoreTest {
 				return;
 			}
 			//Assert.assertTrue(obfZipFileExists);
-
-			GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(obfZipFile));
-			FileOutputStream fous = new FileOutputStream(obfFile);
-			Algorithms.streamCopy(gzin, fous);
-			fous.close();
-			gzin.close();
-
-			reader = new BinaryMapIndexReader(new RandomAccessFile(obfFile.getPath(), "r"), obfFile);
+			reader = openReader(obfZipFile, obfFile);
 		}
 		 boolean disabled = settingsJson.optBoolean("disabled", false);
 		 if (disabled) {
@@ -222,6 +203,81 @@ public class SearchUICoreTest {
 		obfFile.delete();
 	}
 
+	@Test
+	public void testRefinedSearchEqualsFullSearch() throws IOException, JSONException {
+		File obfFile = new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf"));
+		File obfZipFile = new File(testFile.getParentFile(), testFile.getName().replace(".json", ".obf.gz"));
+		JSONObject sourceJson = new JSONObject(Algorithms.getFileAsString(testFile));
+		JSONObject settingsJson = sourceJson.getJSONObject("settings");
+		if (settingsJson.optBoolean("disabled", false) || !settingsJson.optBoolean("useData", true)
+				|| !obfZipFile.exists()) {
+			return;
+		}
+		BinaryMapIndexReader reader = openReader(obfZipFile, obfFile);
+		try {
+			SearchSettings s = SearchSettings.parseJSON(settingsJson);
+			s.setOfflineIndexes(Collections.singletonList(reader));
+			LatLon loc = s.getOriginalLocation();
+			for (String text : parsePhrases(sourceJson)) {
+				if (text.startsWith("POI_TYPE:") || text.trim().length() < 2) {
+					continue;
+				}
+				SearchUICore full = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+				full.init();
+				full.updateSettings(s);
+				List<String> expected = toStrings(full.immediateSearch(text, loc));
+
+				SearchUICore incremental = new SearchUICore(MapPoiTypes.getDefault(), "en", false);
+				incremental.init();
+				incremental.updateSettings(s);
+				incremental.setIncrementalSearch(true);
+				// every letter refines previous search as in UI (settings are recreated with location)
+				for (int i = 1; i < text.length(); i++) {
+					incremental.immediateSearch(text.substring(0, i), loc);
+				}
+				Assert.assertEquals(text, expected, toStrings(incremental.immediateSearch(text, loc)));
+			}
+		} finally {
+			reader.close();
+			obfFile.delete();
+		}
+	}
+
+	private static List<String> toStrings(SearchResultCollection collection) {
+		List<String> res = new ArrayList<>();
+		for (SearchResult r : collection.getCurrentSearchResults()) {
+			res.add(r.toString().trim());
+		}
+		return res;
+	}
+
+	private static List<String> parsePhrases(JSONObject sourceJson) {
+		JSONArray phrasesJson = sourceJson.optJSONArray("phrases");
+		String singlePhrase = sourceJson.optString("phrase", null);
+		List<String> phrases = new ArrayList<>();
+		if (singlePhrase != null) {
+			phrases.add(singlePhrase);
+		}
+		if (phrasesJson != null) {
+			for (int i = 0; i < phrasesJson.length(); i++) {
+				String phrase = phrasesJson.optString(i);
+				if (phrase != null) {
+					phrases.add(phrase);
+				}
+			}
+		}
+		return phrases;
+	}
+
+	private static BinaryMapIndexReader openReader(File obfZipFile, File obfFile) throws IOException {
+		GZIPInputStream gzin = new GZIPInputStream(new FileInputStream(obfZipFile));
+		FileOutputStream fous = new FileOutputStream(obfFile);
+		Algorithms.streamCopy(gzin, fous);
+		fous.close();
+		gzin.close();
+		return new BinaryMapIndexReader(new RandomAccessFile(obfFile.getPath(), "r"), obfFile);
+	}
+
 	private List<SearchResult> getSearchResult(SearchPhrase phrase, ResultMatcher<SearchResult> rm, SearchUICore core){
 		SearchResultMatcher matcher = new SearchResultMatcher(rm, phrase, 1, new AtomicInteger(1), -1);
 		core.searchInternal(phrase, matcher);